@@ -62,8 +62,8 @@ import com.ibm.wala.util.collections.CompoundIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.graph.CondensedGraphReachability;
 import com.ibm.wala.util.graph.Graph;
-import com.ibm.wala.util.graph.GraphReachability;
 import com.ibm.wala.util.graph.GraphSlicer;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.graph.impl.ExtensionGraph;
@@ -89,7 +89,7 @@ public class FlowGraph implements Iterable<Vertex> {
 	
 	// the transitive closure of the inverse of this.graph, 
 	// but without paths going through the Unknown vertex
-	private GraphReachability<Vertex,FuncVertex> optimistic_closure;
+	private CondensedGraphReachability<Vertex,FuncVertex> optimistic_closure;
 	
 	public FlowGraph() {
 		this.graph = new SlowSparseNumberedGraph<Vertex>(1);
@@ -104,7 +104,7 @@ public class FlowGraph implements Iterable<Vertex> {
 		optimistic_closure = computeClosure(graph, monitor, FuncVertex.class);
 	}
 	
-	private <T> GraphReachability<Vertex, T> computeClosure(NumberedGraph<Vertex> graph, IProgressMonitor monitor, final Class<?> type) throws CancelException {
+	private <T> CondensedGraphReachability<Vertex, T> computeClosure(NumberedGraph<Vertex> graph, IProgressMonitor monitor, final Class<?> type) throws CancelException {
 		// prune flowgraph by taking out 'unknown' vertex
 		Graph<Vertex> pruned_flowgraph = GraphSlicer.prune(graph, new Predicate<Vertex>() {
 			@Override
@@ -124,8 +124,8 @@ public class FlowGraph implements Iterable<Vertex> {
 		});
 		
 		// compute transitive closure
-		GraphReachability<Vertex, T> optimistic_closure = 
-		    new GraphReachability<Vertex,T>(
+		CondensedGraphReachability<Vertex, T> optimistic_closure = 
+		    new CondensedGraphReachability<Vertex,T>(
 		      new InvertedGraph<Vertex>(pruned_flowgraph),
 		      new Predicate<Vertex>() {
 		        @Override public boolean test(Vertex o) {
@@ -185,7 +185,7 @@ public class FlowGraph implements Iterable<Vertex> {
       
       private final Map<Pair<PrototypeField,ObjectVertex>,PrototypeFieldVertex> proto = HashMapFactory.make();
       
-      private GraphReachability<Vertex,ObjectVertex> pointerAnalysis = computeClosure(graph, monitor, ObjectVertex.class);
+      private CondensedGraphReachability<Vertex,ObjectVertex> pointerAnalysis = computeClosure(graph, monitor, ObjectVertex.class);
 
       private final ExtensionGraph<Vertex> dataflow = new ExtensionGraph<Vertex>(graph);
 
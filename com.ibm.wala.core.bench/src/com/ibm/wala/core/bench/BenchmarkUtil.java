@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.config.FileOfClasses;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Scopes, class hierarchies and call graphs for the benchmarks, built over the com.ibm.wala.core.testdata programs the same way
+ * the regression tests build them.
+ */
+public class BenchmarkUtil {
+
+  /**
+   * scope file naming the test data programs
+   */
+  public static final String WALA_TESTDATA = "wala.testdata.txt";
+
+  /**
+   * exclusions used by the regression tests
+   */
+  public static final String REGRESSION_EXCLUSIONS = "Java60RegressionExclusions.txt";
+
+  private static final ClassLoader MY_CLASSLOADER = BenchmarkUtil.class.getClassLoader();
+
+  /**
+   * The exclusions are read as a stream, since they may be packed in the benchmark jar rather than sit on disk.
+   */
+  public static AnalysisScope makeScope() throws IOException {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(WALA_TESTDATA, null, MY_CLASSLOADER);
+    InputStream exclusions = new FileProvider().getInputStreamFromClassLoader(REGRESSION_EXCLUSIONS, MY_CLASSLOADER);
+    try {
+      scope.setExclusions(new FileOfClasses(exclusions));
+    } finally {
+      exclusions.close();
+    }
+    return scope;
+  }
+
+  public static IClassHierarchy makeCHA(AnalysisScope scope) throws ClassHierarchyException {
+    return ClassHierarchy.make(scope);
+  }
+
+  public static AnalysisOptions makeOptions(AnalysisScope scope, IClassHierarchy cha, String mainClass) {
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+    return new AnalysisOptions(scope, entrypoints);
+  }
+
+  public static CallGraphBuilder makeZeroOneCFABuilder(AnalysisScope scope, IClassHierarchy cha, AnalysisOptions options) {
+    return Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+  }
+
+  /**
+   * @return the concrete methods declared by application classes
+   */
+  public static List<IMethod> getApplicationMethods(IClassHierarchy cha) {
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            result.add(m);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the node for the method named name called from the fake root, or any node for such a method if there is none
+   */
+  public static CGNode findMethod(CallGraph cg, String name) {
+    for (Iterator<? extends CGNode> it = cg.getSuccNodes(cg.getFakeRootNode()); it.hasNext();) {
+      CGNode n = it.next();
+      if (n.getMethod().getName().toString().equals(name)) {
+        return n;
+      }
+    }
+    for (CGNode n : cg) {
+      if (n.getMethod().getName().toString().equals(name)) {
+        return n;
+      }
+    }
+    throw new IllegalArgumentException("no method named " + name + " in the call graph");
+  }
+}
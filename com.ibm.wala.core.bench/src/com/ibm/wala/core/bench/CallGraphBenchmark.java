@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+
+/**
+ * Time call graph and pointer analysis construction for a test data program, with the {@link Util} builders the tests use: 0-CFA
+ * and 0-1-CFA ({@link com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXCFABuilder}) and 1-CFA
+ * ({@link com.ibm.wala.ipa.callgraph.propagation.cfa.nCFABuilder}).
+ *
+ * Each run starts from a fresh {@link AnalysisCache}, so IR construction is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CallGraphBenchmark {
+
+  /**
+   * the main class of the program, from the test data
+   */
+  @Param({ "Lslice/Slice1" })
+  public String mainClass;
+
+  @Param({ "0-CFA", "0-1-CFA", "1-CFA" })
+  public String builder;
+
+  private AnalysisScope scope;
+
+  private IClassHierarchy cha;
+
+  private AnalysisOptions options;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException {
+    scope = BenchmarkUtil.makeScope();
+    cha = BenchmarkUtil.makeCHA(scope);
+    options = BenchmarkUtil.makeOptions(scope, cha, mainClass);
+  }
+
+  private CallGraphBuilder makeBuilder() {
+    AnalysisCache cache = new AnalysisCache();
+    if (builder.equals("0-CFA")) {
+      return Util.makeZeroCFABuilder(options, cache, cha, scope);
+    } else if (builder.equals("0-1-CFA")) {
+      return Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+    } else if (builder.equals("1-CFA")) {
+      return Util.makeNCFABuilder(1, options, cache, cha, scope);
+    } else {
+      throw new IllegalArgumentException("unknown builder " + builder);
+    }
+  }
+
+  @Benchmark
+  public CallGraph makeCallGraph() throws CallGraphBuilderCancelException {
+    return makeBuilder().makeCallGraph(options, null);
+  }
+}
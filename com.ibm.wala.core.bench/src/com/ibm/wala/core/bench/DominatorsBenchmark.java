@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSACFG;
+import com.ibm.wala.util.graph.dominators.DominanceFrontiers;
+import com.ibm.wala.util.graph.dominators.Dominators;
+
+/**
+ * Time computing {@link Dominators} and {@link DominanceFrontiers} for the control flow graphs of every concrete application
+ * method in the test data, one at a time and all at once on a thread per processor. The IRs are built once, in setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DominatorsBenchmark {
+
+  private final List<SSACFG> cfgs = new ArrayList<SSACFG>();
+
+  private final List<ISSABasicBlock> entries = new ArrayList<ISSABasicBlock>();
+
+  private final int nThreads = Runtime.getRuntime().availableProcessors();
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException {
+    AnalysisCache cache = new AnalysisCache();
+    for (IMethod m : BenchmarkUtil.getApplicationMethods(BenchmarkUtil.makeCHA(BenchmarkUtil.makeScope()))) {
+      IR ir = cache.getIR(m);
+      if (ir != null) {
+        cfgs.add(ir.getControlFlowGraph());
+        entries.add(ir.getControlFlowGraph().entry());
+      }
+    }
+    executor = Executors.newFixedThreadPool(nThreads);
+  }
+
+  @TearDown
+  public void stopExecutor() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public void dominators(Blackhole bh) {
+    for (SSACFG cfg : cfgs) {
+      bh.consume(Dominators.<ISSABasicBlock> make(cfg, cfg.entry()));
+    }
+  }
+
+  @Benchmark
+  public List<Dominators<ISSABasicBlock>> dominatorsInParallel() {
+    return Dominators.make(cfgs, entries, executor, nThreads);
+  }
+
+  @Benchmark
+  public void dominanceFrontiers(Blackhole bh) {
+    for (SSACFG cfg : cfgs) {
+      bh.consume(new DominanceFrontiers<ISSABasicBlock>(cfg, cfg.entry()));
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.SSABuilder;
+import com.ibm.wala.ssa.SSAOptions;
+
+/**
+ * Time building the IRs, i.e. running the {@link SSABuilder}, of every concrete application method in the test data. No IR cache
+ * is involved, so every IR is built from bytecode each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IRBenchmark {
+
+  private List<IMethod> methods;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException {
+    methods = BenchmarkUtil.getApplicationMethods(BenchmarkUtil.makeCHA(BenchmarkUtil.makeScope()));
+  }
+
+  @Benchmark
+  public void makeIRs(Blackhole bh) {
+    DefaultIRFactory factory = new DefaultIRFactory();
+    for (IMethod m : methods) {
+      bh.consume(factory.makeIR(m, Everywhere.EVERYWHERE, options));
+    }
+  }
+}
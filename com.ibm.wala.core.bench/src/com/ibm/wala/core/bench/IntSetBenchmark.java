@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
+import com.ibm.wala.util.intset.BitVectorIntSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
+
+/**
+ * Time the basic operations of the {@link MutableIntSet} implementations on random sets of a given size, drawn from a universe
+ * of a given size, so that both sparse and dense sets are covered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntSetBenchmark {
+
+  @Param({ "BitVector", "MutableSparse", "MutableSharedBitVector", "SemiSparse", "Bimodal" })
+  public String impl;
+
+  @Param({ "100", "10000" })
+  public int size;
+
+  @Param({ "100000" })
+  public int universe;
+
+  private MutableIntSetFactory<?> factory;
+
+  private int[] elements;
+
+  private int[] probes;
+
+  private IntSet a;
+
+  private IntSet b;
+
+  private static MutableIntSetFactory<?> makeFactory(String impl) {
+    if (impl.equals("BitVector")) {
+      return new BitVectorIntSetFactory();
+    } else if (impl.equals("MutableSparse")) {
+      return new MutableSparseIntSetFactory();
+    } else if (impl.equals("MutableSharedBitVector")) {
+      return new MutableSharedBitVectorIntSetFactory();
+    } else if (impl.equals("SemiSparse")) {
+      return new SemiSparseMutableIntSetFactory();
+    } else if (impl.equals("Bimodal")) {
+      return new BimodalMutableIntSetFactory();
+    } else {
+      throw new IllegalArgumentException("unknown implementation " + impl);
+    }
+  }
+
+  private int[] randomInts(Random r, int n) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = r.nextInt(universe);
+    }
+    return result;
+  }
+
+  private MutableIntSet makeSet(int[] ints) {
+    MutableIntSet s = factory.make();
+    for (int i : ints) {
+      s.add(i);
+    }
+    return s;
+  }
+
+  @Setup
+  public void setUp() {
+    factory = makeFactory(impl);
+    Random r = new Random(size);
+    elements = randomInts(r, size);
+    probes = randomInts(r, 1000);
+    a = makeSet(elements);
+    b = makeSet(randomInts(r, size));
+  }
+
+  @Benchmark
+  public IntSet add() {
+    return makeSet(elements);
+  }
+
+  @Benchmark
+  public int contains() {
+    int result = 0;
+    for (int i : probes) {
+      if (a.contains(i)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public IntSet union() {
+    MutableIntSet s = factory.makeCopy(a);
+    s.addAll(b);
+    return s;
+  }
+
+  @Benchmark
+  public IntSet intersection() {
+    return a.intersection(b);
+  }
+
+  @Benchmark
+  public int iterate() {
+    int result = 0;
+    for (IntIterator it = a.intIterator(); it.hasNext();) {
+      result += it.next();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.util.collections.IntIntHashMap;
+import com.ibm.wala.util.collections.IntObjectHashMap;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.intset.MutableMapping;
+
+/**
+ * Compare the primitive maps of com.ibm.wala.util.collections with boxed {@link HashMap}s, filling a map with a given number of
+ * keys and then looking up keys, half of which are present. Run with <code>-prof gc</code> to see the allocation rate of each;
+ * the primitive maps should allocate nothing for lookups and only their arrays for puts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapBenchmark {
+
+  @Param({ "1000", "100000" })
+  public int size;
+
+  private int[] keys;
+
+  private String[] objectKeys;
+
+  private int[] probes;
+
+  private String[] objectProbes;
+
+  private HashMap<Integer, Integer> boxedIntInt;
+
+  private IntIntHashMap intInt;
+
+  private HashMap<Integer, String> boxedIntObject;
+
+  private IntObjectHashMap<String> intObject;
+
+  private HashMap<String, Integer> boxedObjectInt;
+
+  private ObjectIntHashMap<String> objectInt;
+
+  private MutableMapping<String> mapping;
+
+  @Setup
+  public void setUp() {
+    Random r = new Random(size);
+    keys = new int[size];
+    objectKeys = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = r.nextInt();
+      objectKeys[i] = Integer.toString(keys[i]);
+    }
+    probes = new int[1000];
+    objectProbes = new String[probes.length];
+    for (int i = 0; i < probes.length; i++) {
+      probes[i] = (i % 2 == 0) ? keys[r.nextInt(size)] : r.nextInt();
+      objectProbes[i] = Integer.toString(probes[i]);
+    }
+    boxedIntInt = putBoxedIntInt();
+    intInt = putIntInt();
+    boxedIntObject = putBoxedIntObject();
+    intObject = putIntObject();
+    boxedObjectInt = putBoxedObjectInt();
+    objectInt = putObjectInt();
+    mapping = putMapping();
+  }
+
+  @Benchmark
+  public HashMap<Integer, Integer> putBoxedIntInt() {
+    HashMap<Integer, Integer> result = new HashMap<Integer, Integer>();
+    for (int i = 0; i < keys.length; i++) {
+      result.put(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public IntIntHashMap putIntInt() {
+    IntIntHashMap result = new IntIntHashMap();
+    for (int i = 0; i < keys.length; i++) {
+      result.put(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public HashMap<Integer, String> putBoxedIntObject() {
+    HashMap<Integer, String> result = new HashMap<Integer, String>();
+    for (int i = 0; i < keys.length; i++) {
+      result.put(keys[i], objectKeys[i]);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public IntObjectHashMap<String> putIntObject() {
+    IntObjectHashMap<String> result = new IntObjectHashMap<String>();
+    for (int i = 0; i < keys.length; i++) {
+      result.put(keys[i], objectKeys[i]);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public HashMap<String, Integer> putBoxedObjectInt() {
+    HashMap<String, Integer> result = new HashMap<String, Integer>();
+    for (int i = 0; i < objectKeys.length; i++) {
+      result.put(objectKeys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public ObjectIntHashMap<String> putObjectInt() {
+    ObjectIntHashMap<String> result = new ObjectIntHashMap<String>();
+    for (int i = 0; i < objectKeys.length; i++) {
+      result.put(objectKeys[i], i);
+    }
+    return result;
+  }
+
+  /**
+   * number the keys, as the pointer analysis numbers its pointer and instance keys
+   */
+  @Benchmark
+  public MutableMapping<String> putMapping() {
+    MutableMapping<String> result = MutableMapping.make();
+    for (String s : objectKeys) {
+      result.add(s);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getBoxedIntInt() {
+    int result = 0;
+    for (int k : probes) {
+      Integer v = boxedIntInt.get(k);
+      if (v != null) {
+        result += v.intValue();
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getIntInt() {
+    int result = 0;
+    for (int k : probes) {
+      int v = intInt.get(k);
+      if (v != -1) {
+        result += v;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getBoxedIntObject() {
+    int result = 0;
+    for (int k : probes) {
+      if (boxedIntObject.get(k) != null) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getIntObject() {
+    int result = 0;
+    for (int k : probes) {
+      if (intObject.get(k) != null) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getBoxedObjectInt() {
+    int result = 0;
+    for (String k : objectProbes) {
+      Integer v = boxedObjectInt.get(k);
+      if (v != null) {
+        result += v.intValue();
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getObjectInt() {
+    int result = 0;
+    for (String k : objectProbes) {
+      int v = objectInt.get(k);
+      if (v != -1) {
+        result += v;
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int getMapping() {
+    int result = 0;
+    for (String k : objectProbes) {
+      result += mapping.getMappedIndex(k);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.Slicer;
+import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
+import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
+import com.ibm.wala.ipa.slicer.Statement;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Time {@link Slicer#computeBackwardSlice} from the call to println in the main method of Slice1, as in the slicer tests, over a
+ * 0-1-CFA call graph built once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SlicerBenchmark {
+
+  @Param({ "NONE", "FULL" })
+  public String controlDependence;
+
+  private CallGraph cg;
+
+  private PointerAnalysis<InstanceKey> pa;
+
+  private Statement seed;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException, CallGraphBuilderCancelException {
+    AnalysisScope scope = BenchmarkUtil.makeScope();
+    IClassHierarchy cha = BenchmarkUtil.makeCHA(scope);
+    AnalysisOptions options = BenchmarkUtil.makeOptions(scope, cha, "Lslice/Slice1");
+    CallGraphBuilder builder = BenchmarkUtil.makeZeroOneCFABuilder(scope, cha, options);
+    cg = builder.makeCallGraph(options, null);
+    pa = builder.getPointerAnalysis();
+    seed = findCallTo(BenchmarkUtil.findMethod(cg, "main"), "println");
+  }
+
+  private static Statement findCallTo(CGNode n, String methodName) {
+    IR ir = n.getIR();
+    for (Iterator<SSAInstruction> it = ir.iterateAllInstructions(); it.hasNext();) {
+      SSAInstruction s = it.next();
+      if (s instanceof SSAInvokeInstruction
+          && ((SSAInvokeInstruction) s).getCallSite().getDeclaredTarget().getName().toString().equals(methodName)) {
+        return new NormalStatement(n, ir.getCallInstructionIndices(((SSAInvokeInstruction) s).getCallSite()).intIterator().next());
+      }
+    }
+    throw new IllegalArgumentException("no call to " + methodName + " in " + n);
+  }
+
+  @Benchmark
+  public Collection<Statement> computeBackwardSlice() throws CancelException {
+    return Slicer.computeBackwardSlice(seed, cg, pa, DataDependenceOptions.FULL, ControlDependenceOptions.valueOf(controlDependence));
+  }
+}
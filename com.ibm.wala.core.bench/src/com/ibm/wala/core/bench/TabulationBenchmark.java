@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.bench;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.examples.analysis.dataflow.ContextSensitiveReachingDefs;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * Time the {@link TabulationSolver} on the context-sensitive reaching definitions problem of the dataflow tests, over a 0-1-CFA
+ * call graph of the StaticDataflow program, on one thread and on as many as there are processors. The supergraph is built once,
+ * in the first warmup iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TabulationBenchmark {
+
+  private ContextSensitiveReachingDefs reachingDefs;
+
+  private final int nThreads = Runtime.getRuntime().availableProcessors();
+
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() throws IOException, ClassHierarchyException, CallGraphBuilderCancelException {
+    AnalysisScope scope = BenchmarkUtil.makeScope();
+    IClassHierarchy cha = BenchmarkUtil.makeCHA(scope);
+    AnalysisOptions options = BenchmarkUtil.makeOptions(scope, cha, "Ldataflow/StaticDataflow");
+    CallGraph cg = BenchmarkUtil.makeZeroOneCFABuilder(scope, cha, options).makeCallGraph(options, null);
+    reachingDefs = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+    executor = Executors.newFixedThreadPool(nThreads);
+  }
+
+  @TearDown
+  public void stopExecutor() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solve() {
+    return reachingDefs.analyze();
+  }
+
+  @Benchmark
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solveInParallel() {
+    return reachingDefs.analyze(executor, nThreads);
+  }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.basic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Check that type, member and atom interning hands out a single canonical object per name when called from many threads.
+ */
+public class ConcurrentInterningTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 2000;
+
+  public static void main(String[] args) {
+    justThisTest(ConcurrentInterningTest.class);
+  }
+
+  @Test public void testConcurrentInterning() throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Object[]>> results = new ArrayList<Future<Object[]>>();
+      for (int t = 0; t < THREADS; t++) {
+        results.add(executor.submit(new Callable<Object[]>() {
+          @Override
+          public Object[] call() {
+            Object[] interned = new Object[4 * NAMES];
+            for (int i = 0; i < NAMES; i++) {
+              TypeReference type = TypeReference.findOrCreate(ClassLoaderReference.Application, "Linterning/C" + i);
+              interned[4 * i] = Atom.findOrCreateUnicodeAtom("interning" + i);
+              interned[4 * i + 1] = type;
+              interned[4 * i + 2] = MethodReference.findOrCreate(type, "m" + i, "()V");
+              interned[4 * i + 3] = FieldReference.findOrCreate(type, Atom.findOrCreateUnicodeAtom("f" + i),
+                  TypeReference.JavaLangObject);
+            }
+            return interned;
+          }
+        }));
+      }
+      Object[] first = results.get(0).get();
+      for (Future<Object[]> f : results) {
+        Object[] other = f.get();
+        for (int i = 0; i < first.length; i++) {
+          Assert.assertSame(first[i], other[i]);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
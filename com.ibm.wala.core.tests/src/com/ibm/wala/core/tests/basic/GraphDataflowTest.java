@@ -22,7 +22,13 @@ import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.dataflow.graph.BitVectorUnion;
 import com.ibm.wala.dataflow.graph.BitVectorUnionConstant;
 import com.ibm.wala.dataflow.graph.ITransferFunctionProvider;
+import com.ibm.wala.fixedpoint.impl.FifoWorklist;
+import com.ibm.wala.fixedpoint.impl.LeastRecentlyFiredWorklist;
+import com.ibm.wala.fixedpoint.impl.LifoWorklist;
+import com.ibm.wala.fixedpoint.impl.TwoPhaseWorklist;
+import com.ibm.wala.fixedpoint.impl.Worklist;
 import com.ibm.wala.fixpoint.BitVectorVariable;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.debug.Assertions;
@@ -67,6 +73,21 @@ public class GraphDataflowTest extends WalaTestCase {
     Assert.assertEquals(expectedStringNodeEdge(), result);
   }
 
+  /**
+   * each work list strategy must reach the same fixed point
+   */
+  @Test public void testSolverWorkLists() throws CancelException {
+    IFixedPointWorklist[] workLists = new IFixedPointWorklist[] { new Worklist(), new FifoWorklist(), new LifoWorklist(),
+        new LeastRecentlyFiredWorklist(), new TwoPhaseWorklist() };
+    for (IFixedPointWorklist w : workLists) {
+      Graph<String> G = buildGraph();
+      Assert.assertEquals(w.toString(), expectedStringNodeEdge(), solveNodeEdge(G, w));
+      Assert.assertTrue(w.isEmpty());
+      Assert.assertTrue(w.getNumberOfTakes() > 0);
+      Assert.assertEquals(w.getNumberOfInsertions(), w.getNumberOfTakes());
+    }
+  }
+
   @Test public void testSolverNodeOnly() throws CancelException {
     Graph<String> G = buildGraph();
     String result = solveNodeOnly(G);
@@ -165,6 +186,13 @@ public class GraphDataflowTest extends WalaTestCase {
   }
 
   private static String solveNodeEdge(Graph<String> G) throws CancelException {
+    return solveNodeEdge(G, null);
+  }
+
+  /**
+   * @param workList the work list for the solver, or null for the default
+   */
+  private static String solveNodeEdge(Graph<String> G, IFixedPointWorklist workList) throws CancelException {
     final OrdinalSetMapping<String> values = new MutableMapping<String>(nodes);
     ITransferFunctionProvider<String, BitVectorVariable> functions = new ITransferFunctionProvider<String, BitVectorVariable>() {
 
@@ -203,6 +231,9 @@ public class GraphDataflowTest extends WalaTestCase {
 
     BitVectorFramework<String,String> F = new BitVectorFramework<String,String>(G, functions, values);
     BitVectorSolver<String> s = new BitVectorSolver<String>(F);
+    if (workList != null) {
+      s.setWorkList(workList);
+    }
     s.solve(null);
     return result2String(s);
   }
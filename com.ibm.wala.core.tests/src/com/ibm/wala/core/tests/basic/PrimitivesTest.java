@@ -10,34 +10,62 @@
  *******************************************************************************/
 package com.ibm.wala.core.tests.basic;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.Predicate;
 import com.ibm.wala.util.collections.BimodalMap;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntIntHashMap;
+import com.ibm.wala.util.collections.IntObjectHashMap;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.LongObjectHashMap;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.collections.SmallMap;
+import com.ibm.wala.util.graph.CondensedGraphReachability;
 import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.GraphReachability;
 import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.graph.dominators.DominanceFrontiers;
 import com.ibm.wala.util.graph.dominators.Dominators;
+import com.ibm.wala.util.graph.dominators.GenericDominators;
+import com.ibm.wala.util.graph.dominators.NumberedDominators;
+import com.ibm.wala.util.graph.impl.CompressedSparseRowGraph;
+import com.ibm.wala.util.graph.impl.GraphInverter;
 import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
 import com.ibm.wala.util.graph.traverse.BFSPathFinder;
 import com.ibm.wala.util.graph.traverse.BoundedBFSIterator;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BDDMutableIntSet;
+import com.ibm.wala.util.intset.BDDMutableIntSetFactory;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
 import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.BitVectorBase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.BitVectorIntSetFactory;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.intset.IntSetRepository;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.IntegerUnionFind;
 import com.ibm.wala.util.intset.LongSet;
@@ -50,6 +78,8 @@ import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseLongSetFactory;
 import com.ibm.wala.util.intset.OffsetBitVector;
+import com.ibm.wala.util.intset.RoaringMutableIntSet;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSet;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 import com.ibm.wala.util.intset.SparseIntSet;
@@ -348,6 +378,254 @@ public class PrimitivesTest extends WalaTestCase {
     doMutableIntSet(new SemiSparseMutableIntSetFactory());
   }
 
+  /**
+   * Test the RoaringMutableIntSet implementation
+   */
+  @Test public void testRoaringMutableIntSet() {
+    doMutableIntSet(new RoaringMutableIntSetFactory());
+  }
+
+  /**
+   * @return a random set with about n members of [base, base+range), and a reference copy of it
+   */
+  private static RoaringMutableIntSet makeRandomRoaringSet(Random r, int base, int range, int n, BitVectorIntSet reference) {
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    for (int i = 0; i < n; i++) {
+      int x = base + r.nextInt(range);
+      result.add(x);
+      reference.add(x);
+    }
+    // and a few runs
+    for (int i = 0; i < 3; i++) {
+      int start = base + r.nextInt(range);
+      for (int x = start; x < start + 2000; x++) {
+        result.add(x);
+        reference.add(x);
+      }
+    }
+    return result;
+  }
+
+  private static void assertSame(IntSet reference, IntSet actual) {
+    Assert.assertEquals(reference.size(), actual.size());
+    Assert.assertEquals(reference.max(), actual.max());
+    int previous = -1;
+    for (IntIterator it = actual.intIterator(); it.hasNext();) {
+      int x = it.next();
+      Assert.assertTrue(x > previous);
+      Assert.assertTrue(reference.contains(x));
+      previous = x;
+    }
+    Assert.assertTrue(actual.sameValue(reference));
+    Assert.assertTrue(reference.sameValue(actual));
+  }
+
+  /**
+   * Check the RoaringMutableIntSet operations against BitVectorIntSets, over sets whose chunks are sparse, dense and runs
+   */
+  @Test public void testRoaringMutableIntSetContainers() {
+    Random r = new Random(16);
+    // sparse over a wide range, dense within a chunk or two, and in between
+    int[][] shapes = { { 0, 10000000, 3000 }, { 70000, 100000, 60000 }, { 0, 300000, 20000 } };
+    for (int[] x : shapes) {
+      for (int[] y : shapes) {
+        for (int optimize = 0; optimize < 4; optimize++) {
+          BitVectorIntSet ra = new BitVectorIntSet();
+          BitVectorIntSet rb = new BitVectorIntSet();
+          RoaringMutableIntSet a = makeRandomRoaringSet(r, x[0], x[1], x[2], ra);
+          RoaringMutableIntSet b = makeRandomRoaringSet(r, y[0], y[1], y[2], rb);
+          if ((optimize & 1) != 0) {
+            a.runOptimize();
+          }
+          if ((optimize & 2) != 0) {
+            b.runOptimize();
+          }
+          assertSame(ra, a);
+          assertSame(rb, b);
+          BitVectorIntSet diff = new BitVectorIntSet(ra);
+          diff.removeAll(rb);
+
+          assertSame(ra.intersection(rb), a.intersection(b));
+          assertSame(ra.union(rb), a.union(b));
+          assertSame(diff, IntSetUtil.diff(a, b));
+          Assert.assertEquals(ra.containsAny(rb), a.containsAny(b));
+          Assert.assertEquals(ra.isSubset(rb), a.isSubset(b));
+          Assert.assertTrue(a.intersection(b).isSubset(b));
+          Assert.assertTrue(a.isSubset(a.union(b)));
+
+          // the same, against other kinds of set
+          assertSame(ra.intersection(rb), a.intersection(rb));
+          Assert.assertEquals(ra.containsAny(rb), a.containsAny(rb));
+          Assert.assertEquals(ra.isSubset(rb), a.isSubset(rb));
+
+          RoaringMutableIntSet c = new RoaringMutableIntSet(a);
+          Assert.assertEquals(!rb.isSubset(ra), c.addAll(b));
+          Assert.assertFalse(c.addAll(b));
+          BitVectorIntSet rc = new BitVectorIntSet(ra);
+          rc.addAll(rb);
+          assertSame(rc, c);
+
+          c = new RoaringMutableIntSet(a);
+          c.intersectWith(b);
+          assertSame(ra.intersection(rb), c);
+
+          c = new RoaringMutableIntSet(a);
+          c.removeAll(b);
+          assertSame(diff, c);
+          // removeAll leaves its argument alone
+          assertSame(rb, b);
+
+          c = new RoaringMutableIntSet(a);
+          c.addAllInIntersection(b, a);
+          assertSame(ra, c);
+
+          // remove everything, one at a time
+          c = new RoaringMutableIntSet(a);
+          for (IntIterator it = ra.intIterator(); it.hasNext();) {
+            Assert.assertTrue(c.remove(it.next()));
+          }
+          Assert.assertTrue(c.isEmpty());
+          Assert.assertEquals(-1, c.max());
+        }
+      }
+    }
+  }
+
+  /**
+   * Test the BDDMutableIntSet implementation
+   */
+  @Test public void testBDDMutableIntSet() {
+    doMutableIntSet(new BDDMutableIntSetFactory());
+  }
+
+  /**
+   * Test BDDMutableIntSets against BitVectorIntSets, on random sets in a table small enough to fill up, across garbage collections
+   */
+  @Test public void testBDDMutableIntSetRandom() {
+    BDDMutableIntSetFactory factory = new BDDMutableIntSetFactory(12);
+    Random r = new Random(23);
+    for (int round = 0; round < 20; round++) {
+      BitVectorIntSet ra = new BitVectorIntSet();
+      BitVectorIntSet rb = new BitVectorIntSet();
+      BDDMutableIntSet a = factory.make();
+      BDDMutableIntSet b = factory.make();
+      for (int i = 0; i < 300; i++) {
+        int x = r.nextInt(4096);
+        Assert.assertEquals(ra.add(x), a.add(x));
+        int y = r.nextInt(1024);
+        Assert.assertEquals(rb.add(y), b.add(y));
+      }
+      // sets of other kinds, and garbage, before the checks
+      BDDMutableIntSet c = factory.makeCopy(IntSetUtil.makeMutableCopy(rb));
+      Assert.assertTrue(c.sameValue(b));
+      Assert.assertTrue(rb.sameValue(c));
+      factory.getTable().collect();
+      assertSame(ra, a);
+      assertSame(rb, b);
+      assertSame(ra.intersection(rb), a.intersection(b));
+      assertSame(ra.union(rb), a.union(rb));
+      Assert.assertEquals(ra.containsAny(rb), a.containsAny(b));
+      Assert.assertEquals(ra.isSubset(rb), a.isSubset(b));
+      Assert.assertTrue(a.intersection(rb).isSubset(a));
+
+      c = factory.makeCopy(a);
+      c.removeAll(b);
+      BitVectorIntSet diff = new BitVectorIntSet(ra);
+      diff.removeAll(rb);
+      assertSame(diff, c);
+      assertSame(diff, IntSetUtil.diff(a, rb));
+
+      final BitVectorIntSet excluded = new BitVectorIntSet();
+      a.foreachExcluding(b, new IntSetAction() {
+        @Override
+        public void act(int x) {
+          excluded.add(x);
+        }
+      });
+      assertSame(diff, excluded);
+
+      c = factory.make();
+      Assert.assertTrue(c.addAllInIntersection(a, rb));
+      assertSame(ra.intersection(rb), c);
+      Assert.assertFalse(c.addAllInIntersection(a, rb));
+
+      c = factory.makeCopy(a);
+      for (IntIterator it = ra.intIterator(); it.hasNext();) {
+        Assert.assertTrue(c.remove(it.next()));
+      }
+      Assert.assertTrue(c.isEmpty());
+      Assert.assertEquals(-1, c.max());
+    }
+    try {
+      factory.make().add(4096);
+      Assert.fail("added an element out of range");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Test that the nodes of BDDMutableIntSets which are gone are collected, and those of the others are not
+   */
+  @Test public void testBDDMutableIntSetCollection() {
+    BDDMutableIntSetFactory factory = new BDDMutableIntSetFactory();
+    Random r = new Random(29);
+    BitVectorIntSet reference = new BitVectorIntSet();
+    BDDMutableIntSet kept = factory.make();
+    for (int i = 0; i < 1000; i++) {
+      int x = r.nextInt(1000000);
+      reference.add(x);
+      kept.add(x);
+    }
+    for (int round = 0; round < 200; round++) {
+      BDDMutableIntSet garbage = factory.make();
+      for (int i = 0; i < 500; i++) {
+        garbage.add(r.nextInt(Integer.MAX_VALUE));
+      }
+      garbage.addAll(kept);
+      Assert.assertTrue(kept.isSubset(garbage));
+    }
+    Assert.assertTrue(factory.getTable().getNumberOfCollections() > 0);
+    assertSame(reference, kept);
+  }
+
+  /**
+   * Test that an IntSetRepository finds one set for each distinct contents, whatever the representation
+   */
+  @Test public void testIntSetRepository() {
+    IntSetRepository repository = new IntSetRepository();
+    Random r = new Random(17);
+    List<BitVectorIntSet> values = new ArrayList<BitVectorIntSet>();
+    for (int i = 0; i < 500; i++) {
+      BitVectorIntSet v = new BitVectorIntSet();
+      for (int j = r.nextInt(10); j > 0; j--) {
+        v.add(r.nextInt(20));
+      }
+      values.add(v);
+    }
+    for (BitVectorIntSet v : values) {
+      IntSet canonical = repository.findOrCreate(v);
+      Assert.assertTrue(canonical.sameValue(v));
+      Assert.assertSame(canonical, repository.findOrCreate(IntSetUtil.makeMutableCopy(v)));
+      Assert.assertSame(canonical, repository.findOrCreate(new MutableSharedBitVectorIntSetFactory().makeCopy(v)));
+      Assert.assertSame(canonical, repository.findOrCreate(new RoaringMutableIntSetFactory().makeCopy(v)));
+    }
+    int distinct = 0;
+    for (int i = 0; i < values.size(); i++) {
+      boolean first = true;
+      for (int j = 0; j < i; j++) {
+        if (values.get(j).sameValue(values.get(i))) {
+          first = false;
+          break;
+        }
+      }
+      if (first) {
+        distinct++;
+      }
+    }
+    Assert.assertEquals(distinct, repository.size());
+  }
+
   /**
    * Test the MutableSparseIntSet implementation
    */
@@ -661,6 +939,66 @@ public class PrimitivesTest extends WalaTestCase {
     Assert.assertTrue(I.equals(I6));
   }
 
+  /**
+   * check the primitive maps against HashMaps under random puts and removes; keys are multiples of 1024 so they collide a lot
+   */
+  @Test public void testPrimitiveMaps() {
+    Random r = new Random(31);
+    ObjectIntHashMap<Integer> oi = new ObjectIntHashMap<Integer>();
+    IntIntHashMap ii = new IntIntHashMap(0, -7);
+    IntObjectHashMap<Integer> io = new IntObjectHashMap<Integer>();
+    LongObjectHashMap<Integer> lo = new LongObjectHashMap<Integer>();
+    Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    for (int step = 0; step < 20000; step++) {
+      int key = r.nextInt(1000) * 1024;
+      long longKey = ((long) key << 32) | key;
+      if (r.nextInt(3) == 0) {
+        Integer old = expected.remove(key);
+        Assert.assertEquals(old == null ? -1 : old.intValue(), oi.remove(key));
+        Assert.assertEquals(old == null ? -7 : old.intValue(), ii.remove(key));
+        Assert.assertEquals(old, io.remove(key));
+        Assert.assertEquals(old, lo.remove(longKey));
+      } else {
+        int value = r.nextInt(100);
+        Integer old = expected.put(key, value);
+        Assert.assertEquals(old == null ? -1 : old.intValue(), oi.put(key, value));
+        Assert.assertEquals(old == null ? -7 : old.intValue(), ii.put(key, value));
+        Assert.assertEquals(old, io.put(key, value));
+        Assert.assertEquals(old, lo.put(longKey, value));
+      }
+      Assert.assertEquals(expected.size(), oi.size());
+      Assert.assertEquals(expected.size(), ii.size());
+      Assert.assertEquals(expected.size(), io.size());
+      Assert.assertEquals(expected.size(), lo.size());
+    }
+    for (int k = 0; k < 1000; k++) {
+      int key = k * 1024;
+      long longKey = ((long) key << 32) | key;
+      Integer value = expected.get(key);
+      Assert.assertEquals(value != null, oi.containsKey(key));
+      Assert.assertEquals(value != null, ii.containsKey(key));
+      Assert.assertEquals(value != null, io.containsKey(key));
+      Assert.assertEquals(value != null, lo.containsKey(longKey));
+      Assert.assertEquals(value == null ? -1 : value.intValue(), oi.get(key));
+      Assert.assertEquals(value == null ? -7 : value.intValue(), ii.get(key));
+      Assert.assertEquals(value, io.get(key));
+      Assert.assertEquals(value, lo.get(longKey));
+    }
+    Assert.assertEquals(expected.keySet(), oi.keySet());
+    MutableIntSet keys = IntSetUtil.make();
+    for (IntIterator it = ii.keyIterator(); it.hasNext();) {
+      keys.add(it.next());
+    }
+    Assert.assertEquals(expected.size(), keys.size());
+    for (IntIterator it = io.keyIterator(); it.hasNext();) {
+      Assert.assertTrue(keys.contains(it.next()));
+    }
+    oi.clear();
+    ii.clear();
+    Assert.assertTrue(oi.isEmpty());
+    Assert.assertFalse(ii.containsKey(0));
+  }
+
   @Test public void testBFSPathFinder() {
     NumberedGraph<Integer> G = makeBFSTestGraph();
 
@@ -675,6 +1013,129 @@ public class PrimitivesTest extends WalaTestCase {
     }
   }
 
+  /**
+   * a snapshot must have the same nodes, numbers and edges as the graph it was made from, and its inverse those of the inverted
+   * graph
+   */
+  @Test public void testCompressedSparseRowGraph() {
+    Random r = new Random(37);
+    NumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 200; i++) {
+      G.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      G.addEdge(Integer.valueOf(r.nextInt(200)), Integer.valueOf(r.nextInt(200)));
+    }
+    // leave some holes in the numbering
+    for (int i = 0; i < 200; i += 17) {
+      G.removeNodeAndEdges(Integer.valueOf(i));
+    }
+    CompressedSparseRowGraph<Integer> C = CompressedSparseRowGraph.make(G);
+    checkSameGraph(G, C);
+    checkSameGraph(GraphInverter.invert(G), GraphInverter.invert(C));
+    Assert.assertTrue(GraphInverter.invert(C) instanceof CompressedSparseRowGraph);
+
+    int edges = 0;
+    for (Integer n : C) {
+      int number = C.getNumber(n);
+      int count = C.getSuccNodeCount(number);
+      edges += count;
+      for (int i = 0; i < count; i++) {
+        Assert.assertTrue(G.hasEdge(n, C.getNode(C.getSuccNodeNumber(number, i))));
+        if (i > 0) {
+          Assert.assertTrue(C.getSuccNodeNumber(number, i - 1) < C.getSuccNodeNumber(number, i));
+        }
+      }
+      Assert.assertEquals(G.getPredNodeCount(n), C.getPredNodeCount(number));
+    }
+    Assert.assertEquals(edges, C.getNumberOfEdges());
+
+    // the snapshot does not see later changes
+    G.addEdge(Integer.valueOf(1), Integer.valueOf(2));
+    G.addEdge(Integer.valueOf(2), Integer.valueOf(1));
+    Assert.assertEquals(edges, C.getNumberOfEdges());
+    try {
+      C.addEdge(Integer.valueOf(1), Integer.valueOf(2));
+      Assert.fail("snapshot should be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  /**
+   * graphs may give null for an empty set of edges
+   */
+  public static boolean sameNumbers(IntSet a, IntSet b) {
+    if (a == null || a.isEmpty()) {
+      return b == null || b.isEmpty();
+    }
+    return b != null && a.sameValue(b) && b.sameValue(a);
+  }
+
+  private static void checkSameGraph(NumberedGraph<Integer> G, NumberedGraph<Integer> C) {
+    Assert.assertEquals(G.getNumberOfNodes(), C.getNumberOfNodes());
+    Assert.assertEquals(G.getMaxNumber(), C.getMaxNumber());
+    Assert.assertEquals(Iterator2Collection.toSet(G.iterator()), Iterator2Collection.toSet(C.iterator()));
+    for (Integer n : G) {
+      Assert.assertEquals(G.getNumber(n), C.getNumber(n));
+      Assert.assertEquals(n, C.getNode(G.getNumber(n)));
+      Assert.assertEquals(Iterator2Collection.toSet(G.getSuccNodes(n)), Iterator2Collection.toSet(C.getSuccNodes(n)));
+      Assert.assertEquals(Iterator2Collection.toSet(G.getPredNodes(n)), Iterator2Collection.toSet(C.getPredNodes(n)));
+      Assert.assertEquals(G.getSuccNodeCount(n), C.getSuccNodeCount(n));
+      Assert.assertTrue(sameNumbers(G.getSuccNodeNumbers(n), C.getSuccNodeNumbers(n)));
+      Assert.assertTrue(sameNumbers(G.getPredNodeNumbers(n), C.getPredNodeNumbers(n)));
+      for (Integer m : G) {
+        Assert.assertEquals(G.hasEdge(n, m), C.hasEdge(n, m));
+      }
+    }
+    Assert.assertEquals(Iterator2Collection.toList(new SCCIterator<Integer>(G)).size(), Iterator2Collection.toList(
+        new SCCIterator<Integer>(C)).size());
+  }
+
+  /**
+   * the condensed reachability engine, sequential and parallel, must agree with the dataflow-based one
+   */
+  @Test public void testCondensedGraphReachability() throws CancelException {
+    Random r = new Random(41);
+    NumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < 2000; i++) {
+      G.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < 2500; i++) {
+      G.addEdge(Integer.valueOf(r.nextInt(2000)), Integer.valueOf(r.nextInt(2000)));
+    }
+    // a long chain and a cycle through part of it
+    for (int i = 0; i < 300; i++) {
+      G.addEdge(Integer.valueOf(i), Integer.valueOf(i + 1));
+    }
+    G.addEdge(Integer.valueOf(200), Integer.valueOf(100));
+    Predicate<Integer> interesting = new Predicate<Integer>() {
+      @Override
+      public boolean test(Integer t) {
+        return t.intValue() % 7 == 0;
+      }
+    };
+
+    GraphReachability<Integer, Integer> expected = new GraphReachability<Integer, Integer>(G, interesting);
+    boolean expectedChange = expected.solve(null);
+    CondensedGraphReachability<Integer, Integer> sequential = new CondensedGraphReachability<Integer, Integer>(G, interesting);
+    Assert.assertEquals(expectedChange, sequential.solve(null));
+    CondensedGraphReachability<Integer, Integer> parallel = new CondensedGraphReachability<Integer, Integer>(G, interesting);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Assert.assertEquals(expectedChange, parallel.solve(null, executor, 4));
+    } finally {
+      executor.shutdown();
+    }
+
+    for (Integer n : G) {
+      Set<Integer> e = Iterator2Collection.toSet(expected.getReachableSet(n).iterator());
+      Assert.assertEquals(e, Iterator2Collection.toSet(sequential.getReachableSet(n).iterator()));
+      Assert.assertEquals(e, Iterator2Collection.toSet(parallel.getReachableSet(n).iterator()));
+    }
+    Assert.assertTrue(sequential.getReachableSet(Integer.valueOf(7)).contains(Integer.valueOf(7)));
+  }
+
   @Test public void testBoundedBFS() {
     NumberedGraph<Integer> G = makeBFSTestGraph();
 
@@ -781,6 +1242,100 @@ public class PrimitivesTest extends WalaTestCase {
     Assert.assertTrue(D.dominatorTree().getSuccNodeCount(nodes[10]) == 5);
   }
 
+  private static NumberedGraph<Integer> makeRandomGraph(Random r, int nodes, int edges) {
+    NumberedGraph<Integer> G = SlowSparseNumberedGraph.make();
+    for (int i = 0; i < nodes; i++) {
+      G.addNode(Integer.valueOf(i));
+    }
+    for (int i = 0; i < edges; i++) {
+      G.addEdge(Integer.valueOf(r.nextInt(nodes)), Integer.valueOf(r.nextInt(nodes)));
+    }
+    return G;
+  }
+
+  private static void checkSameDominators(Dominators<Integer> expected, Dominators<Integer> actual) {
+    for (Integer n : expected.getGraph()) {
+      Assert.assertEquals(expected.getIdom(n), actual.getIdom(n));
+    }
+  }
+
+  /**
+   * the array-based dominators of numbered graphs, and the dominance frontiers, must agree with the definitions
+   */
+  @Test public void testNumberedDominators() {
+    Random r = new Random(43);
+    for (int i = 0; i < 20; i++) {
+      NumberedGraph<Integer> G = makeRandomGraph(r, 100, 50 + 20 * i);
+      Integer root = Integer.valueOf(0);
+      Dominators<Integer> expected = new GenericDominators<Integer>(G, root);
+      Dominators<Integer> actual = Dominators.make(G, root);
+      Assert.assertTrue(actual instanceof NumberedDominators);
+      checkSameDominators(expected, actual);
+
+      DominanceFrontiers<Integer> DF = new DominanceFrontiers<Integer>(actual);
+      Set<Integer> reachable = DFS.getReachableNodes(G, Collections.singleton(root));
+      for (Integer X : reachable) {
+        Set<Integer> df = HashSetFactory.make();
+        for (Integer Y : reachable) {
+          if (Y.equals(X) || expected.getIdom(Y) == null || !expected.isDominatedBy(Y, X)) {
+            for (Iterator<Integer> ps = G.getPredNodes(Y); ps.hasNext();) {
+              Integer P = ps.next();
+              if (reachable.contains(P) && expected.isDominatedBy(P, X)) {
+                df.add(Y);
+              }
+            }
+          }
+        }
+        Assert.assertEquals(df, Iterator2Collection.toSet(DF.getDominanceFrontier(X)));
+      }
+    }
+  }
+
+  /**
+   * updating dominators as edges are removed must give the same results as computing them afresh
+   */
+  @Test public void testIncrementalDominators() {
+    Random r = new Random(47);
+    NumberedGraph<Integer> G = makeRandomGraph(r, 200, 500);
+    Integer root = Integer.valueOf(0);
+    NumberedDominators<Integer> D = new NumberedDominators<Integer>(G, root);
+    for (int i = 0; i < 400; i++) {
+      Integer src = Integer.valueOf(r.nextInt(200));
+      if (G.getSuccNodeCount(src) > 0) {
+        List<Integer> succs = Iterator2Collection.toList(G.getSuccNodes(src));
+        Integer dst = succs.get(r.nextInt(succs.size()));
+        G.removeEdge(src, dst);
+        D.edgeRemoved(src, dst);
+        checkSameDominators(new GenericDominators<Integer>(G, root), D);
+      }
+    }
+  }
+
+  /**
+   * computing dominators of many graphs in parallel must give the same results as computing each alone
+   */
+  @Test public void testParallelDominators() {
+    Random r = new Random(53);
+    List<NumberedGraph<Integer>> graphs = new ArrayList<NumberedGraph<Integer>>();
+    List<Integer> roots = new ArrayList<Integer>();
+    for (int i = 0; i < 50; i++) {
+      graphs.add(makeRandomGraph(r, 10 + r.nextInt(100), 10 + r.nextInt(300)));
+      roots.add(Integer.valueOf(0));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Dominators<Integer>> doms;
+    try {
+      doms = Dominators.make(graphs, roots, executor, 4);
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals(graphs.size(), doms.size());
+    for (int i = 0; i < graphs.size(); i++) {
+      Assert.assertSame(graphs.get(i), doms.get(i).getGraph());
+      checkSameDominators(new GenericDominators<Integer>(graphs.get(i), roots.get(i)), doms.get(i));
+    }
+  }
+
   @Test public void testBinaryIntegerRelation() {
     byte[] impl = new byte[] { BasicNaturalRelation.SIMPLE, BasicNaturalRelation.TWO_LEVEL, BasicNaturalRelation.SIMPLE };
     IBinaryNaturalRelation R = new BasicNaturalRelation(impl, BasicNaturalRelation.TWO_LEVEL);
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.intset.BDDMutableIntSetFactory;
+
+/**
+ * Check that representing points-to sets as binary decision diagrams does not change the result of pointer analysis.
+ */
+public class BDDPointsToSetTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(BDDPointsToSetTest.class);
+  }
+
+  @Test public void testHello() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutBDDs(TestConstants.HELLO_MAIN, 0);
+  }
+
+  @Test public void testSlice1TwoCFA() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutBDDs("Lslice/Slice1", 2);
+  }
+
+  @Test public void testSlice1Container() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutBDDs("Lslice/Slice1", -1);
+  }
+
+  /**
+   * @param n the length of call strings, or 0 for 0-1-CFA, or -1 for container sensitivity
+   */
+  private static CallGraphTestUtil.BuilderFactory makeBuilderFactory(final int n) {
+    return new CallGraphTestUtil.BuilderFactory() {
+      @Override
+      public PropagationCallGraphBuilder make(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha,
+          AnalysisScope scope) {
+        if (n > 0) {
+          return Util.makeNCFABuilder(n, options, cache, cha, scope);
+        } else if (n == 0) {
+          return Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+        } else {
+          return Util.makeZeroOneContainerCFABuilder(options, cache, cha, scope);
+        }
+      }
+    };
+  }
+
+  private static void doWithAndWithoutBDDs(String mainClass, int n) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    CallGraphTestUtil.buildAndCompare(mainClass, makeBuilderFactory(n), new CallGraphTestUtil.OptionToggle() {
+      @Override
+      public void apply(AnalysisOptions options) {
+        options.setPointsToSetFactory(new BDDMutableIntSetFactory());
+      }
+    });
+  }
+}
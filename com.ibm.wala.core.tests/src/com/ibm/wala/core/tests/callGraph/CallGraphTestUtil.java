@@ -11,17 +11,32 @@
 package com.ibm.wala.core.tests.callGraph;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
+import org.junit.Assert;
+
+import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.io.FileProvider;
 import com.ibm.wala.util.perf.StopwatchGC;
@@ -164,4 +179,79 @@ public class CallGraphTestUtil {
     return cg;
   }
 
+  /**
+   * A change to the default analysis options, such as turning on an optimization
+   */
+  public interface OptionToggle {
+    void apply(AnalysisOptions options);
+  }
+
+  /**
+   * Makes the builder for one of the analyses compared by {@link #buildAndCompare(String, BuilderFactory, OptionToggle...)}
+   */
+  public interface BuilderFactory {
+    PropagationCallGraphBuilder make(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope);
+  }
+
+  public static final BuilderFactory ZERO_ONE_CFA = new BuilderFactory() {
+    @Override
+    public PropagationCallGraphBuilder make(AnalysisOptions options, AnalysisCache cache, IClassHierarchy cha, AnalysisScope scope) {
+      return Util.makeZeroOneCFABuilder(options, cache, cha, scope);
+    }
+  };
+
+  /**
+   * Build the call graph and pointer analysis of mainClass in the test data with the default options, and again with each of the
+   * toggles, and check that each toggle leaves the result unchanged.
+   * 
+   * @return the builder run with each toggle, in order
+   */
+  public static List<PropagationCallGraphBuilder> buildAndCompare(String mainClass, BuilderFactory factory, OptionToggle... toggles)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA, REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, mainClass);
+
+    AnalysisOptions options = makeAnalysisOptions(scope, entrypoints);
+    PropagationCallGraphBuilder plain = factory.make(options, new AnalysisCache(), cha, scope);
+    Set<String> expectedCallGraph = summarize(plain.makeCallGraph(options, null));
+    Set<String> expectedPointerAnalysis = summarize(plain.getPointerAnalysis());
+
+    List<PropagationCallGraphBuilder> result = new ArrayList<PropagationCallGraphBuilder>(toggles.length);
+    for (OptionToggle toggle : toggles) {
+      options = makeAnalysisOptions(scope, entrypoints);
+      toggle.apply(options);
+      PropagationCallGraphBuilder toggled = factory.make(options, new AnalysisCache(), cha, scope);
+      Assert.assertEquals(expectedCallGraph, summarize(toggled.makeCallGraph(options, null)));
+      Assert.assertEquals(expectedPointerAnalysis, summarize(toggled.getPointerAnalysis()));
+      result.add(toggled);
+    }
+    return result;
+  }
+
+  /**
+   * @return the edges of cg, as strings
+   */
+  public static Set<String> summarize(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      for (Iterator<CGNode> succ = cg.getSuccNodes(n); succ.hasNext();) {
+        result.add(n + " -> " + succ.next());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the points-to relation of pa, as strings
+   */
+  public static Set<String> summarize(PointerAnalysis<InstanceKey> pa) {
+    Set<String> result = HashSetFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        result.add(k + " -> " + ik);
+      }
+    }
+    return result;
+  }
 }
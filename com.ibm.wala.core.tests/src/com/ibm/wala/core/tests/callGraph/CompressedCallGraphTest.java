@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.basic.PrimitivesTest;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.graph.impl.CompressedSparseRowGraph;
+import com.ibm.wala.util.graph.traverse.DFS;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+
+/**
+ * Check that a compressed sparse row snapshot of a call graph has the same structure as the call graph.
+ */
+public class CompressedCallGraphTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(CompressedCallGraphTest.class);
+  }
+
+  @Test public void testSlice1() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Lslice/Slice1");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph cg = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope).makeCallGraph(options, null);
+
+    CompressedSparseRowGraph<CGNode> csr = CompressedSparseRowGraph.make(cg);
+    Assert.assertEquals(cg.getNumberOfNodes(), csr.getNumberOfNodes());
+    for (CGNode n : cg) {
+      Assert.assertEquals(cg.getNumber(n), csr.getNumber(n));
+      Assert.assertTrue(PrimitivesTest.sameNumbers(cg.getSuccNodeNumbers(n), csr.getSuccNodeNumbers(n)));
+      Assert.assertTrue(PrimitivesTest.sameNumbers(cg.getPredNodeNumbers(n), csr.getPredNodeNumbers(n)));
+      Assert.assertEquals(Iterator2Collection.toSet(cg.getSuccNodes(n)), Iterator2Collection.toSet(csr.getSuccNodes(n)));
+    }
+    Assert.assertEquals(DFS.getReachableNodes(cg, cg.getEntrypointNodes()), DFS.getReachableNodes(csr, cg.getEntrypointNodes()));
+    Assert.assertEquals(Iterator2Collection.toSet(new SCCIterator<CGNode>(cg)), Iterator2Collection.toSet(new SCCIterator<CGNode>(csr)));
+  }
+}
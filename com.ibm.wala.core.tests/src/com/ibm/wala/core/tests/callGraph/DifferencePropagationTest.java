@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+
+/**
+ * Check that difference propagation does not change the result of pointer analysis.
+ */
+public class DifferencePropagationTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(DifferencePropagationTest.class);
+  }
+
+  @Test public void testHello() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutDeltas(TestConstants.HELLO_MAIN, 1);
+  }
+
+  @Test public void testStaticInit() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutDeltas("LstaticInit/TestStaticInit", 1);
+  }
+
+  @Test public void testArraySetParallel() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutDeltas("Ldemandpa/TestArraySet", 4);
+  }
+
+  private static void doWithAndWithoutDeltas(String mainClass, final int threads) throws ClassHierarchyException,
+      IllegalArgumentException, CancelException, IOException {
+    CallGraphTestUtil.buildAndCompare(mainClass, CallGraphTestUtil.ZERO_ONE_CFA, new CallGraphTestUtil.OptionToggle() {
+      @Override
+      public void apply(AnalysisOptions options) {
+        options.setUseDifferencePropagation(true);
+        options.setSolverThreads(threads);
+      }
+    });
+  }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Check that hash-consing points-to sets does not change the result of pointer analysis, and that equal points-to sets are then
+ * identical.
+ */
+public class HashConsingTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(HashConsingTest.class);
+  }
+
+  @Test public void testHello() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutHashConsing(TestConstants.HELLO_MAIN);
+  }
+
+  @Test public void testSlice1() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithAndWithoutHashConsing("Lslice/Slice1");
+  }
+
+  private static void doWithAndWithoutHashConsing(String mainClass) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    PropagationCallGraphBuilder shared = CallGraphTestUtil.buildAndCompare(mainClass, CallGraphTestUtil.ZERO_ONE_CFA,
+        new CallGraphTestUtil.OptionToggle() {
+          @Override
+          public void apply(AnalysisOptions options) {
+            options.setHashConsPointsToSets(true);
+          }
+        }).get(0);
+
+    // every points-to set with the same contents is the same set
+    PropagationSystem system = shared.getPropagationSystem();
+    Map<String, IntSet> canonical = HashMapFactory.make();
+    PointsToSetVariable changed = null;
+    for (Iterator<?> it = system.getFixedPointSystem().getVariables(); it.hasNext();) {
+      PointsToSetVariable v = (PointsToSetVariable) it.next();
+      IntSet value = v.getValue();
+      if (value != null) {
+        IntSet s = canonical.get(value.toString());
+        if (s == null) {
+          canonical.put(value.toString(), value);
+        } else {
+          Assert.assertSame(s, value);
+          changed = v;
+        }
+      }
+    }
+    // the repository also holds the sets of variables that no constraint mentions
+    Assert.assertTrue(canonical.size() <= system.getNumberOfDistinctPointsToSets());
+    Assert.assertNotNull(changed);
+
+    // a points-to set that changes afterward gets its own copy
+    IntSet before = changed.getValue();
+    String contents = before.toString();
+    int x = before.max() + 1;
+    changed.add(x);
+    Assert.assertTrue(changed.contains(x));
+    Assert.assertFalse(before.contains(x));
+    Assert.assertEquals(contents, before.toString());
+  }
+}
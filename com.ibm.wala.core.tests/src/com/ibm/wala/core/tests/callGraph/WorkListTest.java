@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.callGraph;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.fixedpoint.impl.FifoWorklist;
+import com.ibm.wala.fixedpoint.impl.LeastRecentlyFiredWorklist;
+import com.ibm.wala.fixedpoint.impl.LifoWorklist;
+import com.ibm.wala.fixedpoint.impl.TwoPhaseWorklist;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.Factory;
+
+/**
+ * Check that the order in which the pointer analysis evaluates its constraints does not change its result.
+ */
+public class WorkListTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(WorkListTest.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static final Factory<? extends IFixedPointWorklist>[] strategies = new Factory[] {
+    new Factory<IFixedPointWorklist>() {
+      @Override
+      public IFixedPointWorklist make() {
+        return new FifoWorklist();
+      }
+    },
+    new Factory<IFixedPointWorklist>() {
+      @Override
+      public IFixedPointWorklist make() {
+        return new LifoWorklist();
+      }
+    },
+    new Factory<IFixedPointWorklist>() {
+      @Override
+      public IFixedPointWorklist make() {
+        return new LeastRecentlyFiredWorklist();
+      }
+    },
+    new Factory<IFixedPointWorklist>() {
+      @Override
+      public IFixedPointWorklist make() {
+        return new TwoPhaseWorklist();
+      }
+    } };
+
+  @Test public void testHello() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithEachStrategy(TestConstants.HELLO_MAIN);
+  }
+
+  @Test public void testSlice1() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doWithEachStrategy("Lslice/Slice1");
+  }
+
+  /**
+   * Build with each strategy twice, and check that each gets the default result, evaluating a statement no more often than it was
+   * scheduled, and that each makes the same number of evaluations both times.
+   */
+  private static void doWithEachStrategy(String mainClass) throws ClassHierarchyException, IllegalArgumentException,
+      CancelException, IOException {
+    CallGraphTestUtil.OptionToggle[] toggles = new CallGraphTestUtil.OptionToggle[2 * strategies.length];
+    for (int i = 0; i < toggles.length; i++) {
+      final Factory<? extends IFixedPointWorklist> strategy = strategies[i % strategies.length];
+      toggles[i] = new CallGraphTestUtil.OptionToggle() {
+        @Override
+        public void apply(AnalysisOptions options) {
+          options.setWorkListFactory(strategy);
+        }
+      };
+    }
+    List<PropagationCallGraphBuilder> builders = CallGraphTestUtil.buildAndCompare(mainClass, CallGraphTestUtil.ZERO_ONE_CFA,
+        toggles);
+
+    for (int i = 0; i < strategies.length; i++) {
+      IFixedPointWorklist first = builders.get(i).getSystem().getWorkList();
+      IFixedPointWorklist second = builders.get(i + strategies.length).getSystem().getWorkList();
+      Assert.assertTrue(first.toString(), first.getNumberOfTakes() > 0);
+      Assert.assertTrue(first.toString(), first.getNumberOfTakes() <= first.getNumberOfInsertions());
+      Assert.assertEquals(first.toString(), first.getNumberOfTakes(), second.getNumberOfTakes());
+      Assert.assertEquals(first.toString(), first.getNumberOfInsertions(), second.getNumberOfInsertions());
+    }
+  }
+}
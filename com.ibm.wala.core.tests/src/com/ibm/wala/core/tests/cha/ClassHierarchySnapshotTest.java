@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that a {@link ClassHierarchy} read from a {@link ClassHierarchySnapshot} matches the one it was taken from.
+ */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  private File file;
+
+  public static void main(String[] args) {
+    justThisTest(ClassHierarchySnapshotTest.class);
+  }
+
+  @Before
+  public void makeFile() throws IOException {
+    file = File.createTempFile("cha", ".snapshot");
+  }
+
+  @After
+  public void deleteFile() {
+    file.delete();
+  }
+
+  private static AnalysisScope makeScope(String exclusions) throws IOException {
+    return AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA, (new FileProvider()).getFile(exclusions),
+        ClassHierarchySnapshotTest.class.getClassLoader());
+  }
+
+  private static Set<String> names(Collection<? extends IClass> classes) {
+    Set<String> result = new HashSet<String>();
+    for (IClass c : classes) {
+      result.add(c.getReference().toString());
+    }
+    return result;
+  }
+
+  @Test public void testRoundTrip() throws IOException, ClassHierarchyException {
+    AnalysisScope scope = makeScope(CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    ClassHierarchySnapshot.write(cha, file);
+    ClassHierarchy restored = ClassHierarchySnapshot.read(scope, file);
+
+    Assert.assertEquals(cha.getNumberOfClasses(), restored.getNumberOfClasses());
+    for (IClass c : cha) {
+      IClass r = restored.lookupClass(c.getReference());
+      Assert.assertNotNull(c.toString(), r);
+      Assert.assertEquals(c.getModifiers(), r.getModifiers());
+      Assert.assertEquals(c.getSuperclass() == null ? null : c.getSuperclass().getReference(), r.getSuperclass() == null ? null
+          : r.getSuperclass().getReference());
+      Assert.assertEquals(names(c.getAllImplementedInterfaces()), names(r.getAllImplementedInterfaces()));
+      Assert.assertEquals(cha.getNumber(c), restored.getNumber(r));
+      if (c.isInterface()) {
+        Assert.assertEquals(names(cha.getImplementors(c.getReference())), names(restored.getImplementors(r.getReference())));
+      }
+      if (c.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        Set<Selector> methods = new HashSet<Selector>();
+        for (IMethod m : c.getDeclaredMethods()) {
+          methods.add(m.getSelector());
+        }
+        Set<Selector> restoredMethods = new HashSet<Selector>();
+        for (IMethod m : r.getDeclaredMethods()) {
+          restoredMethods.add(m.getSelector());
+        }
+        Assert.assertEquals(methods, restoredMethods);
+        Set<FieldReference> fields = new HashSet<FieldReference>();
+        for (IField f : c.getAllFields()) {
+          fields.add(f.getReference());
+        }
+        Set<FieldReference> restoredFields = new HashSet<FieldReference>();
+        for (IField f : r.getAllFields()) {
+          restoredFields.add(f.getReference());
+        }
+        Assert.assertEquals(fields, restoredFields);
+        Assert.assertEquals(c.getSourceFileName(), r.getSourceFileName());
+      }
+    }
+
+    IClass string = restored.lookupClass(TypeReference.JavaLangString);
+    Assert.assertTrue(restored.isSubclassOf(string, restored.getRootClass()));
+    Assert.assertTrue(restored.implementsInterface(string, restored.lookupClass(TypeReference.JavaLangComparable)));
+    Assert.assertNotNull(string.getField(com.ibm.wala.util.strings.Atom.findOrCreateUnicodeAtom("value")));
+    Assert.assertEquals(cha.getPossibleTargets(MethodReference.findOrCreate(TypeReference.JavaLangObject, "toString",
+        "()Ljava/lang/String;")).size(), restored.getPossibleTargets(MethodReference.findOrCreate(TypeReference.JavaLangObject,
+        "toString", "()Ljava/lang/String;")).size());
+  }
+
+  @Test public void testStaleSnapshot() throws IOException, ClassHierarchyException {
+    ClassHierarchySnapshot.write(ClassHierarchy.make(makeScope(CallGraphTestUtil.REGRESSION_EXCLUSIONS)), file);
+    try {
+      ClassHierarchySnapshot.read(makeScope("J2SEClassHierarchyExclusions.txt"), file);
+      Assert.fail("snapshot read for a different scope");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test public void testMake() throws IOException, ClassHierarchyException {
+    file.delete();
+    AnalysisScope scope = makeScope(CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy built = ClassHierarchySnapshot.make(scope, file);
+    Assert.assertTrue(file.exists());
+    ClassHierarchy restored = ClassHierarchySnapshot.make(scope, file);
+    Assert.assertEquals(built.getNumberOfClasses(), restored.getNumberOfClasses());
+  }
+}
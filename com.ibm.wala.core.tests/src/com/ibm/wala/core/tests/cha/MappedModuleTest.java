@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+import com.ibm.wala.util.io.FileUtil;
+
+/**
+ * Check that classes read from memory-mapped modules are the same as those read from ordinary ones.
+ */
+public class MappedModuleTest extends WalaTestCase {
+
+  private static final String TESTDATA_JAR = "com.ibm.wala.core.testdata_1.0.0.jar";
+
+  private File directory;
+
+  public static void main(String[] args) {
+    justThisTest(MappedModuleTest.class);
+  }
+
+  @Before
+  public void makeDirectory() throws IOException {
+    directory = File.createTempFile("classes", "");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  @After
+  public void deleteDirectory() {
+    delete(directory);
+  }
+
+  private static void delete(File f) {
+    File[] children = f.listFiles();
+    if (children != null) {
+      for (File c : children) {
+        delete(c);
+      }
+    }
+    f.delete();
+  }
+
+  private static JarFile getTestDataJar() throws IOException {
+    return ((JarFileModule) new FileProvider().getJarFileModule(TESTDATA_JAR, MappedModuleTest.class.getClassLoader()))
+        .getJarFile();
+  }
+
+  private static ClassHierarchy make(Module application) throws IOException, ClassHierarchyException {
+    AnalysisScope scope = AnalysisScopeReader.makePrimordialScope((new FileProvider())
+        .getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS));
+    scope.addToScope(scope.getApplicationLoader(), application);
+    return ClassHierarchy.make(scope);
+  }
+
+  /**
+   * check that every application class in expected is in actual with the same class file, read from a mapped buffer
+   */
+  private static void assertSameApplicationClasses(ClassHierarchy expected, ClassHierarchy actual) {
+    int count = 0;
+    for (IClass c : expected) {
+      if (c.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        IClass m = actual.lookupClass(c.getReference());
+        Assert.assertNotNull(c.toString(), m);
+        Assert.assertTrue(((ShrikeClass) m).getReader().getBuffer().isDirect());
+        Assert.assertArrayEquals(((ShrikeClass) c).getReader().getBytes(), ((ShrikeClass) m).getReader().getBytes());
+        Assert.assertEquals(c.getDeclaredMethods().size(), m.getDeclaredMethods().size());
+        Assert.assertEquals(c.getAllFields().size(), m.getAllFields().size());
+        count++;
+      }
+    }
+    Assert.assertTrue(count > 0);
+    Assert.assertEquals(expected.getNumberOfClasses(), actual.getNumberOfClasses());
+  }
+
+  @Test public void testMappedJar() throws IOException, ClassHierarchyException {
+    JarFile jar = getTestDataJar();
+    assertSameApplicationClasses(make(new JarFileModule(jar)), make(new MappedJarFileModule(jar, directory)));
+    // the uncompressed classes are not left behind
+    Assert.assertEquals(0, directory.list().length);
+  }
+
+  @Test public void testMappedDirectory() throws IOException, ClassHierarchyException {
+    JarFile jar = getTestDataJar();
+    for (Enumeration<? extends ZipEntry> e = jar.entries(); e.hasMoreElements();) {
+      ZipEntry z = e.nextElement();
+      if (z.getName().endsWith(".class")) {
+        File f = new File(directory, z.getName());
+        f.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(f);
+        out.write(FileUtil.readBytes(jar.getInputStream(z)));
+        out.close();
+      }
+    }
+    assertSameApplicationClasses(make(new BinaryDirectoryTreeModule(directory)), make(new BinaryDirectoryTreeModule(directory,
+        true)));
+  }
+}
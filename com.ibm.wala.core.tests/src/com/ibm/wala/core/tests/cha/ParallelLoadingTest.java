@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.cha;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.util.config.AnalysisScopeReader;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Check that loading classes and building the class hierarchy on several threads gives the same hierarchy as doing it on one.
+ */
+public class ParallelLoadingTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ParallelLoadingTest.class);
+  }
+
+  private static ClassHierarchy make(int threads) throws IOException, ClassHierarchyException {
+    AnalysisScope scope = AnalysisScopeReader.readJavaScope(TestConstants.WALA_TESTDATA,
+        (new FileProvider()).getFile(CallGraphTestUtil.REGRESSION_EXCLUSIONS), ParallelLoadingTest.class.getClassLoader());
+    ClassLoaderFactoryImpl factory = new ClassLoaderFactoryImpl(scope.getExclusions());
+    factory.setLoadingThreads(threads);
+    return ClassHierarchy.make(scope, factory);
+  }
+
+  private static Set<String> names(Iterable<? extends IClass> classes) {
+    Set<String> result = new HashSet<String>();
+    for (IClass c : classes) {
+      result.add(c.getReference().toString());
+    }
+    return result;
+  }
+
+  @Test public void testSameHierarchy() throws IOException, ClassHierarchyException {
+    ClassHierarchy serial = make(1);
+    ClassHierarchy parallel = make(4);
+
+    Assert.assertEquals(names(serial), names(parallel));
+    for (IClassLoader loader : serial.getLoaders()) {
+      Assert.assertEquals(loader.getNumberOfClasses(), parallel.getLoader(loader.getReference()).getNumberOfClasses());
+    }
+    for (IClass c : serial) {
+      IClass p = parallel.lookupClass(c.getReference());
+      Assert.assertEquals(c.getSuperclass() == null ? null : c.getSuperclass().getReference(), p.getSuperclass() == null ? null : p
+          .getSuperclass().getReference());
+      Assert.assertEquals(names(c.getAllImplementedInterfaces()), names(p.getAllImplementedInterfaces()));
+      Assert.assertEquals(serial.getNumber(c), parallel.getNumber(p));
+      if (c.isInterface()) {
+        Assert.assertEquals(names(serial.getImplementors(c.getReference())), names(parallel.getImplementors(p.getReference())));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadThreads() {
+    new ClassLoaderFactoryImpl(null).setLoadingThreads(0);
+  }
+}
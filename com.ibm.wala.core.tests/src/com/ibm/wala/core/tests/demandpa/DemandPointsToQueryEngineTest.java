@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.demandpa;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.demandpa.alg.DemandPointsToQueryEngine;
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo;
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.demandpa.alg.refinepolicy.NeverRefineCGPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.OnlyArraysPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.SinglePassRefinementPolicy;
+import com.ibm.wala.demandpa.alg.statemachine.DummyStateMachine;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel;
+import com.ibm.wala.demandpa.util.MemoryAccessMap;
+import com.ibm.wala.demandpa.util.PABasedMemoryAccessMap;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * Check that a {@link DemandPointsToQueryEngine} gives the answers of a fresh {@link DemandRefinementPointsTo} for each query,
+ * whether the answers are remembered or computed, on one thread or on several.
+ */
+public class DemandPointsToQueryEngineTest {
+
+  private static AnalysisScope cachedScope;
+
+  private static IClassHierarchy cachedCHA;
+
+  private CallGraph cg;
+
+  private SSAPropagationCallGraphBuilder builder;
+
+  private MemoryAccessMap mam;
+
+  private AnalysisOptions options;
+
+  @AfterClass
+  public static void cleanup() {
+    cachedScope = null;
+    cachedCHA = null;
+  }
+
+  @Test
+  public void testCachedQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    setUp(TestInfo.TEST_HASH_SET);
+    DemandPointsToQueryEngine engine = makeEngine();
+    List<PointerKey> pks = getLocals();
+
+    List<Collection<InstanceKey>> expected = new ArrayList<Collection<InstanceKey>>();
+    for (PointerKey pk : pks) {
+      expected.add(makeAnalysis().getPointsTo(pk));
+    }
+    checkSame(expected, engine.getPointsTo(pks, Predicate.<InstanceKey> falsePred()));
+    Assert.assertEquals(pks.size(), engine.getCacheMisses());
+    Assert.assertEquals(0, engine.getCacheHits());
+
+    // asking again, or with another predicate, runs no query
+    checkSame(expected, engine.getPointsTo(pks, Predicate.<InstanceKey> falsePred()));
+    for (int i = 0; i < pks.size(); i++) {
+      Pair<PointsToResult, Collection<InstanceKey>> p = engine.getPointsTo(pks.get(i), Predicate.<InstanceKey> truePred());
+      if (expected.get(i) != null) {
+        Assert.assertEquals(PointsToResult.SUCCESS, p.fst);
+      }
+    }
+    Assert.assertEquals(pks.size(), engine.getCacheMisses());
+    Assert.assertEquals(2 * pks.size(), engine.getCacheHits());
+
+    // changing the refinement policy forgets the results
+    engine.setRefinementPolicyFactory(engine.getRefinementPolicyFactory());
+    checkSame(expected, engine.getPointsTo(pks, Predicate.<InstanceKey> falsePred()));
+    Assert.assertEquals(2 * pks.size(), engine.getCacheMisses());
+  }
+
+  @Test
+  public void testPredicateQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    setUp(TestInfo.TEST_ARRAY_SET);
+    DemandPointsToQueryEngine engine = makeEngine();
+    for (PointerKey pk : getLocals()) {
+      Pair<PointsToResult, Collection<InstanceKey>> expected = makeAnalysis().getPointsTo(pk, Predicate.<InstanceKey> truePred());
+      Pair<PointsToResult, Collection<InstanceKey>> actual = engine.getPointsTo(pk, Predicate.<InstanceKey> truePred());
+      Assert.assertEquals(expected.fst, actual.fst);
+      Assert.assertEquals(HashSetFactory.make(expected.snd), HashSetFactory.make(actual.snd));
+
+      // a set that passed one predicate does not answer a stricter one
+      int misses = engine.getCacheMisses();
+      Pair<PointsToResult, Collection<InstanceKey>> all = engine.getPointsTo(pk, Predicate.<InstanceKey> falsePred());
+      Collection<InstanceKey> full = makeAnalysis().getPointsTo(pk);
+      Assert.assertEquals(full == null ? null : HashSetFactory.make(full), all.snd == null ? null : HashSetFactory.make(all.snd));
+      if (actual.snd != null && !actual.snd.isEmpty()) {
+        Assert.assertEquals(misses + 1, engine.getCacheMisses());
+      }
+    }
+  }
+
+  @Test
+  public void testParallelQueries() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    setUp(TestInfo.TEST_HASH_SET);
+    List<PointerKey> pks = getLocals();
+    List<Collection<InstanceKey>> expected = new ArrayList<Collection<InstanceKey>>();
+    for (Pair<PointsToResult, Collection<InstanceKey>> p : makeEngine().getPointsTo(pks, Predicate.<InstanceKey> falsePred())) {
+      expected.add(p.snd);
+    }
+
+    DemandPointsToQueryEngine engine = makeEngine();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      checkSame(expected, engine.getPointsTo(pks, Predicate.<InstanceKey> falsePred(), executor, 4));
+      checkSame(expected, engine.getPointsTo(pks, Predicate.<InstanceKey> falsePred(), executor, 4));
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals(2 * pks.size(), engine.getCacheHits() + engine.getCacheMisses());
+    Assert.assertTrue(engine.getCacheHits() >= pks.size());
+  }
+
+  private static void checkSame(List<Collection<InstanceKey>> expected, List<Pair<PointsToResult, Collection<InstanceKey>>> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Collection<InstanceKey> e = expected.get(i);
+      Collection<InstanceKey> a = actual.get(i).snd;
+      Assert.assertEquals(e == null ? null : HashSetFactory.make(e), a == null ? null : HashSetFactory.make(a));
+    }
+  }
+
+  /**
+   * @return the pointer keys of the non-constant values of the main method
+   */
+  private List<PointerKey> getLocals() {
+    CGNode main = AbstractPtrTest.findMainMethod(cg);
+    IR ir = main.getIR();
+    SymbolTable symtab = ir.getSymbolTable();
+    List<PointerKey> result = new ArrayList<PointerKey>();
+    for (int v = 1; v <= symtab.getMaxValueNumber(); v++) {
+      if (!symtab.isConstant(v)) {
+        result.add(builder.getPointerKeyForLocal(main, v));
+      }
+    }
+    Assert.assertFalse(result.isEmpty());
+    return result;
+  }
+
+  private void setUp(String mainClass) throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    if (cachedScope == null) {
+      cachedScope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestInfo.SCOPE_FILE, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+      cachedCHA = ClassHierarchy.make(cachedScope);
+    }
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cachedScope, cachedCHA, mainClass);
+    options = CallGraphTestUtil.makeAnalysisOptions(cachedScope, entrypoints);
+    AnalysisCache analysisCache = new AnalysisCache();
+    CallGraphBuilder cgBuilder = Util.makeZeroCFABuilder(options, analysisCache, cachedCHA, cachedScope);
+    cg = cgBuilder.makeCallGraph(options, null);
+    mam = new PABasedMemoryAccessMap(cg, cgBuilder.getPointerAnalysis());
+    builder = Util.makeVanillaZeroOneCFABuilder(options, analysisCache, cachedCHA, cachedScope);
+  }
+
+  private DemandRefinementPointsTo makeAnalysis() {
+    DemandRefinementPointsTo dmp = DemandRefinementPointsTo.makeWithDefaultFlowGraph(cg, builder, mam, cachedCHA, options,
+        new DummyStateMachine.Factory<IFlowLabel>());
+    dmp.setRefinementPolicyFactory(new SinglePassRefinementPolicy.Factory(new OnlyArraysPolicy(), new NeverRefineCGPolicy()));
+    return dmp;
+  }
+
+  private DemandPointsToQueryEngine makeEngine() {
+    DemandPointsToQueryEngine engine = new DemandPointsToQueryEngine(cg, builder, mam, cachedCHA, options,
+        new DummyStateMachine.Factory<IFlowLabel>());
+    engine.setRefinementPolicyFactory(new SinglePassRefinementPolicy.Factory(new OnlyArraysPolicy(), new NeverRefineCGPolicy()));
+    return engine;
+  }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.ParallelIRBuilder;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Check that building IRs ahead of time on a pool of threads gives the same IRs and call graphs as building them on demand.
+ */
+public class ParallelIRBuilderTest extends WalaTestCase {
+
+  public static void main(String[] args) {
+    justThisTest(ParallelIRBuilderTest.class);
+  }
+
+  @Test public void testApplicationMethods() throws ClassHierarchyException, IOException, CancelException {
+    IClassHierarchy cha = WalaTestCase.makeCHA();
+    SSAOptions options = new AnalysisOptions().getSSAOptions();
+    AnalysisCache cache = new AnalysisCache();
+    Collection<IMethod> methods = ParallelIRBuilder.getApplicationMethods(cha);
+    Assert.assertFalse(methods.isEmpty());
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    int built;
+    try {
+      built = new ParallelIRBuilder(cha, cache, options).build(methods, executor, null);
+    } finally {
+      executor.shutdown();
+    }
+    SSACache ssaCache = cache.getSSACache();
+    Assert.assertEquals(built, ssaCache.getIRMisses());
+    Assert.assertEquals(built, ssaCache.getDUMisses());
+
+    AnalysisCache fresh = new AnalysisCache();
+    for (IMethod m : methods) {
+      IR ir = ssaCache.findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      IR expected = fresh.getSSACache().findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertEquals(expected == null, ir == null);
+      if (ir != null) {
+        Assert.assertEquals(expected.toString(), ir.toString());
+      }
+    }
+    Assert.assertEquals(built, ssaCache.getIRMisses());
+  }
+
+  @Test public void testPrebuiltCallGraph() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = CallGraphTestUtil.makeJ2SEAnalysisScope(TestConstants.WALA_TESTDATA,
+        CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(scope, cha, "Lslice/Slice1");
+
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph expected = Util.makeZeroCFABuilder(options, new AnalysisCache(), cha, scope).makeCallGraph(options, null);
+
+    options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setIRPrebuildThreads(4);
+    AnalysisCache cache = new AnalysisCache();
+    CallGraph actual = Util.makeZeroCFABuilder(options, cache, cha, scope).makeCallGraph(options, null);
+
+    Assert.assertEquals(nodeNames(expected), nodeNames(actual));
+    Assert.assertTrue(cache.getSSACache().getIRHits() > 0);
+
+    // every application method the pointer analysis reached was built ahead of it
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Set<IMethod> prebuilt;
+    try {
+      prebuilt = new ParallelIRBuilder(cha, new AnalysisCache(), options.getSSAOptions()).buildReachable(entrypoints, executor, null);
+    } finally {
+      executor.shutdown();
+    }
+    for (CGNode n : actual) {
+      if (n.getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        Assert.assertTrue(n.toString(), prebuilt.contains(n.getMethod()));
+      }
+    }
+  }
+
+  private static Set<String> nodeNames(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.toString() + " -> " + cg.getSuccNodeCount(n));
+    }
+    return result;
+  }
+}
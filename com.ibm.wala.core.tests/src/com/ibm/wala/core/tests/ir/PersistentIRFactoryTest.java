@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.PersistentIRFactory;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Check that IRs loaded by the {@link PersistentIRFactory} are the same as freshly built ones.
+ */
+public class PersistentIRFactoryTest extends WalaTestCase {
+
+  private final IClassHierarchy cha;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  private File directory;
+
+  public PersistentIRFactoryTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  public static void main(String[] args) {
+    justThisTest(PersistentIRFactoryTest.class);
+  }
+
+  @Before
+  public void makeDirectory() throws IOException {
+    directory = File.createTempFile("irs", "");
+    directory.delete();
+  }
+
+  @After
+  public void deleteDirectory() {
+    delete(directory);
+  }
+
+  private static void delete(File f) {
+    File[] children = f.listFiles();
+    if (children != null) {
+      for (File c : children) {
+        delete(c);
+      }
+    }
+    f.delete();
+  }
+
+  private List<IMethod> methods(TypeReference... types) {
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (TypeReference t : types) {
+      IClass klass = cha.lookupClass(t);
+      for (IMethod m : klass.getDeclaredMethods()) {
+        if (!m.isAbstract() && !m.isNative()) {
+          result.add(m);
+        }
+      }
+    }
+    return result;
+  }
+
+  @Test public void testRoundTrip() {
+    List<IMethod> methods = methods(TypeReference.JavaLangString, TypeReference.findOrCreate(cha.getScope().getPrimordialLoader(),
+        "Ljava/util/HashMap"), TypeReference.JavaLangThread);
+
+    PersistentIRFactory first = new PersistentIRFactory(directory);
+    for (IMethod m : methods) {
+      first.makeIR(m, Everywhere.EVERYWHERE, options);
+    }
+    Assert.assertEquals(0, first.getLoadedCount());
+    Assert.assertTrue(first.getStoredCount() > 0);
+
+    DefaultIRFactory fresh = new DefaultIRFactory();
+    PersistentIRFactory second = new PersistentIRFactory(directory);
+    for (IMethod m : methods) {
+      IR expected = fresh.makeIR(m, Everywhere.EVERYWHERE, options);
+      IR actual = second.makeIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertEquals(expected.toString(), actual.toString());
+      for (Iterator<SSAInstruction> it = expected.iterateAllInstructions(), it2 = actual.iterateAllInstructions(); it.hasNext();) {
+        SSAInstruction s = it.next();
+        SSAInstruction s2 = it2.next();
+        Assert.assertEquals(s.getClass(), s2.getClass());
+        Assert.assertEquals(s.getExceptionTypes(), s2.getExceptionTypes());
+      }
+      for (int i = 0; i < expected.getInstructions().length; i++) {
+        for (int vn = 1; vn <= expected.getSymbolTable().getMaxValueNumber(); vn++) {
+          Assert.assertArrayEquals(expected.getLocalNames(i, vn), actual.getLocalNames(i, vn));
+        }
+      }
+    }
+    Assert.assertEquals(first.getStoredCount(), second.getLoadedCount());
+    Assert.assertEquals(0, second.getStoredCount());
+  }
+
+  @Test public void testCorruptEntry() throws IOException {
+    IMethod m = methods(TypeReference.JavaLangString).get(0);
+    PersistentIRFactory first = new PersistentIRFactory(directory);
+    String expected = first.makeIR(m, Everywhere.EVERYWHERE, options).toString();
+    Assert.assertEquals(1, first.getStoredCount());
+
+    for (File dir : directory.listFiles()) {
+      for (File entry : dir.listFiles()) {
+        FileOutputStream out = new FileOutputStream(entry);
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+      }
+    }
+
+    PersistentIRFactory second = new PersistentIRFactory(directory);
+    Assert.assertEquals(expected, second.makeIR(m, Everywhere.EVERYWHERE, options).toString());
+    Assert.assertEquals(0, second.getLoadedCount());
+    Assert.assertEquals(1, second.getStoredCount());
+  }
+}
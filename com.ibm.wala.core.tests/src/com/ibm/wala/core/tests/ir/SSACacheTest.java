@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.core.tests.ir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * Test eviction, statistics and concurrent use of the {@link SSACache}.
+ */
+public class SSACacheTest extends WalaTestCase {
+
+  private final IClassHierarchy cha;
+
+  private final SSAOptions options = new AnalysisOptions().getSSAOptions();
+
+  public SSACacheTest() throws ClassHierarchyException, IOException {
+    this.cha = WalaTestCase.makeCHA();
+  }
+
+  public static void main(String[] args) {
+    justThisTest(SSACacheTest.class);
+  }
+
+  private List<IMethod> someMethods(int n) {
+    IClass string = cha.lookupClass(TypeReference.JavaLangString);
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IMethod m : string.getDeclaredMethods()) {
+      if (!m.isAbstract() && !m.isNative() && result.size() < n) {
+        result.add(m);
+      }
+    }
+    Assert.assertEquals(n, result.size());
+    return result;
+  }
+
+  @Test public void testBoundedCache() {
+    SSACache cache = new SSACache(new DefaultIRFactory(), 4);
+    List<IMethod> methods = someMethods(10);
+    for (IMethod m : methods) {
+      Assert.assertNotNull(cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options));
+    }
+    Assert.assertEquals(10, cache.getIRMisses());
+    Assert.assertEquals(0, cache.getIRHits());
+    Assert.assertTrue(cache.getIRCount() <= 4);
+    Assert.assertEquals(10 - cache.getIRCount(), cache.getIREvictions());
+
+    IMethod last = methods.get(methods.size() - 1);
+    IR ir = cache.findOrCreateIR(last, Everywhere.EVERYWHERE, options);
+    Assert.assertSame(ir, cache.findOrCreateIR(last, Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(2, cache.getIRHits());
+
+    cache.invalidate(last, Everywhere.EVERYWHERE);
+    Assert.assertNotSame(ir, cache.findOrCreateIR(last, Everywhere.EVERYWHERE, options));
+    Assert.assertEquals(11, cache.getIRMisses());
+  }
+
+  @Test public void testRecentlyUsedSurvives() {
+    SSACache cache = new SSACache(new DefaultIRFactory(), 4);
+    List<IMethod> methods = someMethods(10);
+    IR hot = cache.findOrCreateIR(methods.get(0), Everywhere.EVERYWHERE, options);
+    for (IMethod m : methods.subList(1, methods.size())) {
+      cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+      Assert.assertSame(hot, cache.findOrCreateIR(methods.get(0), Everywhere.EVERYWHERE, options));
+    }
+    Assert.assertEquals(10, cache.getIRMisses());
+  }
+
+  @Test public void testConcurrentRequests() throws InterruptedException, ExecutionException {
+    final SSACache cache = new SSACache(new DefaultIRFactory());
+    final List<IMethod> methods = someMethods(10);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<IR>>> results = new ArrayList<Future<List<IR>>>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(new Callable<List<IR>>() {
+          @Override
+          public List<IR> call() {
+            List<IR> irs = new ArrayList<IR>();
+            for (IMethod m : methods) {
+              irs.add(cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options));
+              cache.findOrCreateDU(m, Everywhere.EVERYWHERE, options);
+            }
+            return irs;
+          }
+        }));
+      }
+      List<IR> first = results.get(0).get();
+      for (Future<List<IR>> f : results) {
+        List<IR> irs = f.get();
+        for (int i = 0; i < irs.size(); i++) {
+          Assert.assertSame(first.get(i), irs.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals(10, cache.getIRMisses());
+    Assert.assertEquals(10, cache.getDUMisses());
+  }
+
+  @Test public void testConcurrentInvalidation() throws InterruptedException, ExecutionException {
+    final List<IMethod> methods = someMethods(2);
+    // hand out IRs built up front, so that requests are cheap and race with invalidations often
+    final Map<IMethod, IR> irs = HashMapFactory.make();
+    DefaultIRFactory factory = new DefaultIRFactory();
+    for (IMethod m : methods) {
+      irs.put(m, factory.makeIR(m, Everywhere.EVERYWHERE, options));
+    }
+    final SSACache cache = new SSACache(new IRFactory<IMethod>() {
+      @Override
+      public IR makeIR(IMethod method, Context c, SSAOptions options) {
+        return irs.get(method);
+      }
+
+      @Override
+      public boolean contextIsIrrelevant(IMethod method) {
+        return true;
+      }
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Object>> results = new ArrayList<Future<Object>>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() {
+            for (int i = 0; i < 200000; i++) {
+              IMethod m = methods.get(i % methods.size());
+              Assert.assertSame(irs.get(m), cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options));
+              if (i % 3 == 0) {
+                cache.invalidateIR(m, Everywhere.EVERYWHERE);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Object> f : results) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // an item cached where no request can find it would still be counted
+    for (IMethod m : methods) {
+      cache.invalidateIR(m, Everywhere.EVERYWHERE);
+    }
+    Assert.assertEquals(0, cache.getIRCount());
+  }
+}
@@ -15,9 +15,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -36,6 +39,7 @@ import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.PartialCallGraph;
 import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAContextInterpreter;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys;
@@ -43,8 +47,10 @@ import com.ibm.wala.ipa.callgraph.propagation.cfa.nCFABuilder;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ipa.cha.ClassHierarchyException;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.PDG;
 import com.ibm.wala.ipa.slicer.SDG;
 import com.ibm.wala.ipa.slicer.Slicer;
 import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
@@ -64,10 +70,13 @@ import com.ibm.wala.ssa.SSAPutInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.GraphIntegrity;
 import com.ibm.wala.util.graph.GraphIntegrity.UnsoundGraphException;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.strings.Atom;
 
 public class SlicerTest {
@@ -556,6 +565,72 @@ public class SlicerTest {
     Assert.assertEquals(slice.toString(), 2, countGetstatics(slice));
   }
 
+  @Test
+  public void testLazySDG() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        TestConstants.SLICE_TESTGLOBAL);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    // the heap locations computed on demand are the ones computed up front
+    Map<CGNode, OrdinalSet<PointerKey>> mod = ModRef.make().computeMod(cg, builder.getPointerAnalysis());
+    Map<CGNode, OrdinalSet<PointerKey>> lazyMod = ModRef.make().computeModLazily(cg, builder.getPointerAnalysis(), null);
+    for (CGNode n : cg) {
+      Assert.assertEquals(n.toString(), HashSetFactory.make(OrdinalSet.toCollection(mod.get(n))), HashSetFactory.make(OrdinalSet
+          .toCollection(lazyMod.get(n))));
+    }
+
+    CGNode main = findMainMethod(cg);
+    Statement s = findCallToDoNothing(main);
+    Collection<Statement> backward = Slicer.computeBackwardSlice(s, cg, builder.getPointerAnalysis(), DataDependenceOptions.FULL,
+        ControlDependenceOptions.FULL);
+    Collection<Statement> forward = Slicer.computeForwardSlice(new MethodEntryStatement(main), cg, builder.getPointerAnalysis(),
+        DataDependenceOptions.FULL, ControlDependenceOptions.FULL);
+    // with no budget, only the PDG in use stays built
+    for (int budget : new int[] { 0, 200 }) {
+      SDG sdg = new SDG(cg, builder.getPointerAnalysis(), ModRef.make(), DataDependenceOptions.FULL, ControlDependenceOptions.FULL,
+          null, budget);
+      Assert.assertEquals(HashSetFactory.make(backward), HashSetFactory.make(Slicer.computeBackwardSlice(sdg, s)));
+      Assert.assertEquals(HashSetFactory.make(forward), HashSetFactory.make(Slicer.computeForwardSlice(sdg,
+          new MethodEntryStatement(main))));
+      if (budget == 0) {
+        Assert.assertTrue(sdg.getReleaseCount() > 0);
+      }
+    }
+
+    // with no budget, building one PDG, however it is reached, releases the dependences of the one built before, and a PDG
+    // built again uses the statements it had before
+    SDG sdg = new SDG(cg, builder.getPointerAnalysis(), ModRef.make(), DataDependenceOptions.FULL, ControlDependenceOptions.FULL,
+        null, 0);
+    List<PDG<?>> pdgs = new ArrayList<PDG<?>>();
+    List<List<Statement>> statements = new ArrayList<List<Statement>>();
+    for (CGNode n : cg) {
+      if (n.getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application)
+          && n.getIR() != null) {
+        PDG<?> pdg = sdg.getPDG(n);
+        pdgs.add(pdg);
+        statements.add(Iterator2Collection.toList(pdg.iterator()));
+      }
+    }
+    Assert.assertTrue(pdgs.size() > 1);
+    Assert.assertEquals(pdgs.size() - 1, sdg.getReleaseCount());
+    for (int i = 0; i < pdgs.size(); i++) {
+      int released = sdg.getReleaseCount();
+      List<Statement> again = Iterator2Collection.toList(pdgs.get(i).iterator());
+      Assert.assertEquals(released + 1, sdg.getReleaseCount());
+      Assert.assertEquals(statements.get(i).size(), again.size());
+      for (int j = 0; j < again.size(); j++) {
+        Assert.assertSame(statements.get(i).get(j), again.get(j));
+      }
+      Assert.assertTrue(sdg.getPopulatedDependenceCount() > 0);
+    }
+  }
+
   @Test
   public void testTestMultiTarget() throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     AnalysisScope scope = findOrCreateAnalysisScope();
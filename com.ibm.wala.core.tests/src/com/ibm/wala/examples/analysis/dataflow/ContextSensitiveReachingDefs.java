@@ -11,6 +11,7 @@
 package com.ibm.wala.examples.analysis.dataflow;
 
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
 
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
@@ -280,12 +281,18 @@ public class ContextSensitiveReachingDefs {
 
   }
 
+  /**
+   * @return a solver for the reaching definitions problem, for clients that want to configure it before solving
+   */
+  public PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> makeSolver() {
+    return PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(new ReachingDefsProblem(), null);
+  }
+
   /**
    * perform the tabulation analysis and return the {@link TabulationResult}
    */
   public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> analyze() {
-    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = PartiallyBalancedTabulationSolver
-        .createPartiallyBalancedTabulationSolver(new ReachingDefsProblem(), null);
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = makeSolver();
     TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = null;
     try {
       result = solver.solve();
@@ -297,6 +304,24 @@ public class ContextSensitiveReachingDefs {
 
   }
 
+  /**
+   * perform the tabulation analysis on several threads and return the {@link TabulationResult}
+   */
+  public TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> analyze(ExecutorService executor,
+      int nThreads) {
+    // the supergraph builds itself lazily, which is not safe to do on several threads; build all of it now
+    supergraph.getNumberOfNodes();
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = makeSolver();
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> result = null;
+    try {
+      result = solver.solve(executor, nThreads);
+    } catch (CancelException e) {
+      // this shouldn't happen 
+      assert false;
+    }
+    return result;
+  }
+
   public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
     return supergraph;
   }
@@ -11,8 +11,16 @@
 package com.ibm.wala.examples.analysis.dataflow;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.Assert;
 
@@ -25,7 +33,11 @@ import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
 import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.tests.util.WalaTestCase;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PersistentSummaryStore;
+import com.ibm.wala.dataflow.IFDS.TabulationDomain;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -49,6 +61,8 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.config.AnalysisScopeReader;
 import com.ibm.wala.util.config.FileOfClasses;
@@ -208,4 +222,269 @@ public class DataflowTest extends WalaTestCase {
       }
     }
   }
+
+  /**
+   * once the whole ICFG is built, asking for the neighbours of a node, including the highest-numbered one, adds nothing to it
+   */
+  @Test
+  public void testFullICFG() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    final int[] expansions = new int[1];
+    ExplodedInterproceduralCFG icfg = new ExplodedInterproceduralCFG(cg) {
+      // asked when a node is expanded for its successors
+      @Override
+      public boolean hasCall(BasicBlockInContext<IExplodedBasicBlock> B) {
+        expansions[0]++;
+        return super.hasCall(B);
+      }
+
+      // asked when a node is expanded for its predecessors
+      @Override
+      public boolean isReturn(BasicBlockInContext<IExplodedBasicBlock> bb) {
+        expansions[0]++;
+        return super.isReturn(bb);
+      }
+    };
+    icfg.getNumberOfNodes();
+    expansions[0] = 0;
+    for (BasicBlockInContext<IExplodedBasicBlock> bb : icfg) {
+      icfg.getSuccNodeCount(bb);
+      icfg.getPredNodeCount(bb);
+    }
+    Assert.assertEquals(0, expansions[0]);
+  }
+
+  @Test
+  public void testContextSensitiveParallel() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> expected = reachingDefs.analyze();
+    // with more threads than cores, most workers are idle at any time
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      for (int i = 0; i < 6; i++) {
+        TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> actual = reachingDefs.analyze(
+            executor, i % 2 == 0 ? 4 : 16);
+        Assert.assertEquals(expected.getSupergraphNodesReached().size(), actual.getSupergraphNodesReached().size());
+        for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+          Assert.assertTrue(bb.toString(), expected.getResult(bb).sameValue(actual.getResult(bb)));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testContextSensitiveSpilling() throws IllegalArgumentException, CancelException, IOException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> expected = reachingDefs.analyze();
+    // with a budget of 0, every procedure is spilled after each path edge and read back when next needed
+    for (long budget : new long[] { 0, 50 }) {
+      PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = reachingDefs
+          .makeSolver();
+      solver.setSpillBudget(budget, null);
+      try {
+        TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> actual = solver.solve();
+        Assert.assertTrue(solver.getSpillCount() > 0);
+        Assert.assertEquals(expected.getSupergraphNodesReached(), actual.getSupergraphNodesReached());
+        for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+          Assert.assertTrue(bb.toString(), expected.getResult(bb).sameValue(actual.getResult(bb)));
+        }
+      } finally {
+        solver.disposeSpillFile();
+      }
+    }
+  }
+
+  @Test
+  public void testContextSensitiveIncremental() throws IllegalArgumentException, CancelException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    ContextSensitiveReachingDefs reachingDefs = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> expected = reachingDefs.analyze();
+    PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = reachingDefs
+        .makeSolver();
+    solver.solve();
+    // as if each application method in turn had been edited without changing its meaning
+    for (CGNode n : cg) {
+      if (n.getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> actual = solver
+            .solveIncrementally(Collections.singleton(n));
+        Assert.assertEquals(n.toString(), expected.getSupergraphNodesReached(), actual.getSupergraphNodesReached());
+        for (BasicBlockInContext<IExplodedBasicBlock> bb : reachingDefs.getSupergraph()) {
+          Assert.assertTrue(n + " " + bb, expected.getResult(bb).sameValue(actual.getResult(bb)));
+        }
+      }
+    }
+  }
+
+  /**
+   * main gens a, calls f, which gens b, then calls h and g; h is also seeded on its own with s, which returns unbalanced into main
+   * and so reaches g. Then main stops calling f, and replaces a by c before calling h and g.
+   */
+  @Test
+  public void testIncrementalAfterChange() throws CancelException {
+    SmallSupergraph supergraph = new SmallSupergraph();
+    SmallSupergraph.Node[] main = supergraph.addProcedure("main", 10);
+    SmallSupergraph.Node[] f = supergraph.addProcedure("f", 3);
+    SmallSupergraph.Node[] g = supergraph.addProcedure("g", 3);
+    SmallSupergraph.Node[] h = supergraph.addProcedure("h", 3);
+    supergraph.addCall("main", 2, "f");
+    supergraph.addCall("main", 5, "h");
+    supergraph.addCall("main", 7, "g");
+    GenKillProblem problem = new GenKillProblem(supergraph);
+    problem.setFlow(main[1], Collections.<String> emptySet(), Collections.singleton("a"));
+    problem.setFlow(f[1], Collections.<String> emptySet(), Collections.singleton("b"));
+    problem.addSeed(main[0], GenKillProblem.ZERO);
+    problem.addSeed(h[0], "s");
+
+    PartiallyBalancedTabulationSolver<SmallSupergraph.Node, String, String> solver = PartiallyBalancedTabulationSolver
+        .createPartiallyBalancedTabulationSolver(problem, null);
+    TabulationResult<SmallSupergraph.Node, String, String> before = solver.solve();
+    Assert.assertEquals(HashSetFactory.make(Arrays.asList("0", "a", "b", "s")), problem.getFacts(before.getResult(g[1])));
+
+    supergraph.removeCall("main", 2, "f");
+    problem.setFlow(main[4], Collections.singleton("a"), Collections.singleton("c"));
+    TabulationResult<SmallSupergraph.Node, String, String> actual = solver.solveIncrementally(Collections.singleton("main"));
+    TabulationResult<SmallSupergraph.Node, String, String> expected = PartiallyBalancedTabulationSolver
+        .createPartiallyBalancedTabulationSolver(problem, null).solve();
+    Assert.assertEquals(HashSetFactory.make(Arrays.asList("0", "c", "s")), problem.getFacts(expected.getResult(g[1])));
+    Assert.assertTrue(expected.getResult(f[1]).isEmpty());
+    Assert.assertEquals(HashSetFactory.make(expected.getSupergraphNodesReached()), HashSetFactory.make(actual
+        .getSupergraphNodesReached()));
+    for (SmallSupergraph.Node n : supergraph) {
+      Assert.assertEquals(n.toString(), problem.getFacts(expected.getResult(n)), problem.getFacts(actual.getResult(n)));
+    }
+  }
+
+  @Test
+  public void testContextSensitivePersistentSummaries() throws IllegalArgumentException, CancelException, IOException {
+    Iterable<Entrypoint> entrypoints = com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(scope, cha,
+        "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder builder = Util.makeZeroOneCFABuilder(options, new AnalysisCache(), cha, scope);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    List<CGNode> primordial = new ArrayList<CGNode>();
+    for (CGNode n : cg) {
+      if (n.getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Primordial)) {
+        primordial.add(n);
+      }
+    }
+    File file = File.createTempFile("summaries", ".ifds");
+    try {
+      // the first run saves the summaries of the library
+      ContextSensitiveReachingDefs first = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+      PartiallyBalancedTabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> solver = first
+          .makeSolver();
+      solver.solve();
+      int saved = new PersistentSummaryStore<BasicBlockInContext<IExplodedBasicBlock>, CGNode>("reaching defs", new ReachingDefsCodec(
+          cg, first.getDomain())).save(solver, primordial, file);
+      Assert.assertTrue(saved > 0);
+
+      // the second run uses them, and finds the same definitions in the application
+      ContextSensitiveReachingDefs second = new ContextSensitiveReachingDefs(cg, new AnalysisCache());
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> expected = second.analyze();
+      PersistentSummaryStore<BasicBlockInContext<IExplodedBasicBlock>, CGNode> store = new PersistentSummaryStore<BasicBlockInContext<IExplodedBasicBlock>, CGNode>(
+          "reaching defs", new ReachingDefsCodec(cg, second.getDomain()));
+      solver = second.makeSolver();
+      Assert.assertEquals(saved, store.load(solver, file));
+      // the library procedures that have complete summaries at their entries
+      Set<CGNode> summarized = HashSetFactory.make();
+      for (CGNode n : primordial) {
+        if (isSummarized(solver, second.getSupergraph(), n, second.getDomain().getSize())) {
+          summarized.add(n);
+        }
+      }
+      Assert.assertFalse(summarized.isEmpty());
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> actual = solver.solve();
+      boolean skipped = false;
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : second.getSupergraph()) {
+        if (bb.getNode().getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+          Assert.assertTrue(bb.toString(), expected.getResult(bb).sameValue(actual.getResult(bb)));
+        } else if (summarized.contains(bb.getNode())) {
+          // the summaries were applied at calls, so the body was never tabulated
+          Assert.assertTrue(bb.toString(), actual.getResult(bb).isEmpty());
+          skipped |= !expected.getResult(bb).isEmpty();
+        }
+      }
+      Assert.assertTrue(skipped);
+
+      // summaries saved for another problem are not used
+      Assert.assertEquals(0, new PersistentSummaryStore<BasicBlockInContext<IExplodedBasicBlock>, CGNode>("other", new ReachingDefsCodec(
+          cg, second.getDomain())).load(second.makeSolver(), file));
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * @return true iff some fact has a complete summary at an entry of n
+   */
+  private static boolean isSummarized(TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, ?> solver,
+      ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph, CGNode n, int nFacts) {
+    boolean any = false;
+    for (BasicBlockInContext<IExplodedBasicBlock> entry : supergraph.getEntriesForProcedure(n)) {
+      for (int d1 = 0; d1 < nFacts; d1++) {
+        any |= solver.isSummaryComplete(entry, d1);
+      }
+    }
+    return any;
+  }
+
+  /**
+   * names a call graph node by its method and context, and a definition by its node and instruction index
+   */
+  private static class ReachingDefsCodec implements PersistentSummaryStore.Codec<CGNode> {
+
+    private final Map<String, CGNode> nodes = HashMapFactory.make();
+
+    private final TabulationDomain<Pair<CGNode, Integer>, BasicBlockInContext<IExplodedBasicBlock>> domain;
+
+    ReachingDefsCodec(CallGraph cg, TabulationDomain<Pair<CGNode, Integer>, BasicBlockInContext<IExplodedBasicBlock>> domain) {
+      this.domain = domain;
+      for (CGNode n : cg) {
+        nodes.put(getProcedureKey(n), n);
+      }
+    }
+
+    @Override
+    public String getProcedureKey(CGNode proc) {
+      return proc.getMethod().getSignature() + " " + proc.getContext();
+    }
+
+    @Override
+    public String encodeFact(int fact) {
+      Pair<CGNode, Integer> def = domain.getMappedObject(fact);
+      return def.snd + " " + getProcedureKey(def.fst);
+    }
+
+    @Override
+    public int decodeFact(String name) {
+      int space = name.indexOf(' ');
+      CGNode n = nodes.get(name.substring(space + 1));
+      return n == null ? -1 : domain.add(Pair.make(n, Integer.valueOf(name.substring(0, space))));
+    }
+  }
 }
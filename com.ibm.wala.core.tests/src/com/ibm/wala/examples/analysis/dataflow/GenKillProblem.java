@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.examples.analysis.dataflow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IMergeFunction;
+import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
+import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationProblem;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationDomain;
+import com.ibm.wala.dataflow.IFDS.UnorderedDomain;
+import com.ibm.wala.examples.analysis.dataflow.SmallSupergraph.Node;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+
+/**
+ * A problem over a {@link SmallSupergraph} in which each node may kill and generate named facts, which flow into callees and back.
+ * Fact 0 holds wherever a seed reaches. The flow of a node can be changed between solves.
+ */
+public class GenKillProblem implements PartiallyBalancedTabulationProblem<Node, String, String> {
+
+  public static final String ZERO = "0";
+
+  private final SmallSupergraph supergraph;
+
+  private final UnorderedDomain<String, Node> domain = new UnorderedDomain<String, Node>();
+
+  private final Map<Node, Set<String>> gen = HashMapFactory.make();
+
+  private final Map<Node, Set<String>> kill = HashMapFactory.make();
+
+  private final List<PathEdge<Node>> seeds = new ArrayList<PathEdge<Node>>();
+
+  public GenKillProblem(SmallSupergraph supergraph) {
+    this.supergraph = supergraph;
+    domain.add(ZERO);
+  }
+
+  /**
+   * Set what flows out of n: the facts that flow in, except killed, and those generated.
+   */
+  public void setFlow(Node n, Set<String> killed, Set<String> generated) {
+    kill.put(n, killed);
+    gen.put(n, generated);
+    for (String fact : generated) {
+      domain.add(fact);
+    }
+  }
+
+  /**
+   * Start tabulation at the entry of a procedure with a fact
+   */
+  public void addSeed(Node entry, String fact) {
+    int d = domain.add(fact);
+    seeds.add(PathEdge.createPathEdge(entry, d, entry, d));
+  }
+
+  /**
+   * @return the facts named by a set of fact numbers, such as a result of tabulation
+   */
+  public Set<String> getFacts(IntSet result) {
+    Set<String> facts = HashSetFactory.make();
+    for (IntIterator it = result.intIterator(); it.hasNext();) {
+      facts.add(domain.getMappedObject(it.next()));
+    }
+    return facts;
+  }
+
+  private final IPartiallyBalancedFlowFunctions<Node> flowFunctions = new IPartiallyBalancedFlowFunctions<Node>() {
+
+    @Override
+    public IUnaryFlowFunction getNormalFlowFunction(final Node src, Node dest) {
+      return new IUnaryFlowFunction() {
+        @Override
+        public IntSet getTargets(int d1) {
+          MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+          Set<String> killed = kill.get(src);
+          if (killed == null || !killed.contains(domain.getMappedObject(d1))) {
+            result.add(d1);
+          }
+          Set<String> generated = gen.get(src);
+          if (d1 == 0 && generated != null) {
+            for (String fact : generated) {
+              result.add(domain.getMappedIndex(fact));
+            }
+          }
+          return result;
+        }
+      };
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallFlowFunction(Node src, Node dest, Node ret) {
+      return IdentityFlowFunction.identity();
+    }
+
+    @Override
+    public IFlowFunction getReturnFlowFunction(Node call, Node src, Node dest) {
+      return IdentityFlowFunction.identity();
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallToReturnFlowFunction(Node src, Node dest) {
+      // the other facts flow through the callee
+      return new IUnaryFlowFunction() {
+        @Override
+        public IntSet getTargets(int d1) {
+          return d1 == 0 ? SparseIntSet.singleton(0) : null;
+        }
+      };
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallNoneToReturnFlowFunction(Node src, Node dest) {
+      return IdentityFlowFunction.identity();
+    }
+
+    @Override
+    public IFlowFunction getUnbalancedReturnFlowFunction(Node src, Node dest) {
+      return IdentityFlowFunction.identity();
+    }
+  };
+
+  @Override
+  public SmallSupergraph getSupergraph() {
+    return supergraph;
+  }
+
+  @Override
+  public TabulationDomain<String, Node> getDomain() {
+    return domain;
+  }
+
+  @Override
+  public IPartiallyBalancedFlowFunctions<Node> getFunctionMap() {
+    return flowFunctions;
+  }
+
+  @Override
+  public Collection<PathEdge<Node>> initialSeeds() {
+    return Collections.unmodifiableList(seeds);
+  }
+
+  @Override
+  public IMergeFunction getMergeFunction() {
+    return null;
+  }
+
+  @Override
+  public Node getFakeEntry(Node n) {
+    return supergraph.getEntriesForProcedure(supergraph.getProcOf(n))[0];
+  }
+}
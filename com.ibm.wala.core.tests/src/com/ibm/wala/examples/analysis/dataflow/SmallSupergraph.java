@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.examples.analysis.dataflow;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+
+/**
+ * A supergraph built by hand, and edited in place, for testing tabulation. Each procedure is a straight line of nodes from its
+ * entry, the first, to its exit, the last; the node after a call is its return site.
+ */
+public class SmallSupergraph extends SlowSparseNumberedGraph<SmallSupergraph.Node> implements ISupergraph<SmallSupergraph.Node, String> {
+
+  public static class Node {
+    private final String proc;
+
+    private final int index;
+
+    private boolean isCall;
+
+    Node(String proc, int index) {
+      this.proc = proc;
+      this.index = index;
+    }
+
+    @Override
+    public String toString() {
+      return proc + ":" + index;
+    }
+  }
+
+  private final Map<String, Node[]> procedures = HashMapFactory.make();
+
+  private final SlowSparseNumberedGraph<String> procedureGraph = SlowSparseNumberedGraph.make();
+
+  /**
+   * Add a procedure of nBlocks nodes, each of which flows to the next
+   *
+   * @return the nodes of the procedure, in order
+   */
+  public Node[] addProcedure(String proc, int nBlocks) {
+    if (nBlocks < 2) {
+      throw new IllegalArgumentException("need an entry and an exit: " + nBlocks);
+    }
+    Node[] nodes = new Node[nBlocks];
+    for (int i = 0; i < nBlocks; i++) {
+      nodes[i] = new Node(proc, i);
+      addNode(nodes[i]);
+      if (i > 0) {
+        addEdge(nodes[i - 1], nodes[i]);
+      }
+    }
+    procedures.put(proc, nodes);
+    procedureGraph.addNode(proc);
+    return nodes;
+  }
+
+  /**
+   * Make the i'th node of caller a call to callee, which returns to the next node
+   */
+  public void addCall(String caller, int i, String callee) {
+    Node call = getLocalBlock(caller, i);
+    Node ret = getLocalBlock(caller, i + 1);
+    if (hasEdge(call, ret)) {
+      removeEdge(call, ret);
+    }
+    call.isCall = true;
+    addEdge(call, getEntry(callee));
+    addEdge(getExit(callee), ret);
+    procedureGraph.addEdge(caller, callee);
+  }
+
+  /**
+   * Remove the call from the i'th node of caller to callee; the node stays a call, possibly with no callee
+   */
+  public void removeCall(String caller, int i, String callee) {
+    Node call = getLocalBlock(caller, i);
+    removeEdge(call, getEntry(callee));
+    removeEdge(getExit(callee), getLocalBlock(caller, i + 1));
+    procedureGraph.removeEdge(caller, callee);
+  }
+
+  private Node getEntry(String proc) {
+    return getLocalBlock(proc, 0);
+  }
+
+  private Node getExit(String proc) {
+    return getLocalBlock(proc, getNumberOfBlocks(proc) - 1);
+  }
+
+  @Override
+  public Graph<String> getProcedureGraph() {
+    return procedureGraph;
+  }
+
+  @Override
+  public boolean isCall(Node n) {
+    return n.isCall;
+  }
+
+  @Override
+  public Iterator<Node> getCalledNodes(Node call) {
+    Map<String, Node> entries = HashMapFactory.make();
+    for (Iterator<Node> it = getSuccNodes(call); it.hasNext();) {
+      Node n = it.next();
+      if (isEntry(n)) {
+        entries.put(n.proc, n);
+      }
+    }
+    return entries.values().iterator();
+  }
+
+  @Override
+  public Iterator<Node> getNormalSuccessors(Node call) {
+    return Collections.<Node> emptySet().iterator();
+  }
+
+  @Override
+  public Iterator<Node> getReturnSites(Node call, String callee) {
+    return new NonNullSingletonIterator<Node>(getLocalBlock(call.proc, call.index + 1));
+  }
+
+  @Override
+  public Iterator<Node> getCallSites(Node ret, String callee) {
+    Node call = getLocalBlock(ret.proc, ret.index - 1);
+    if (callee == null || hasEdge(call, getEntry(callee))) {
+      return new NonNullSingletonIterator<Node>(call);
+    } else {
+      return Collections.<Node> emptySet().iterator();
+    }
+  }
+
+  @Override
+  public boolean isExit(Node n) {
+    return n.index == getNumberOfBlocks(n.proc) - 1;
+  }
+
+  @Override
+  public String getProcOf(Node n) {
+    return n.proc;
+  }
+
+  @Override
+  public Node[] getEntriesForProcedure(String procedure) {
+    return new Node[] { getEntry(procedure) };
+  }
+
+  @Override
+  public Node[] getExitsForProcedure(String procedure) {
+    return new Node[] { getExit(procedure) };
+  }
+
+  @Override
+  public int getNumberOfBlocks(String procedure) {
+    return procedures.get(procedure).length;
+  }
+
+  @Override
+  public int getLocalBlockNumber(Node n) {
+    return n.index;
+  }
+
+  @Override
+  public Node getLocalBlock(String procedure, int i) {
+    return procedures.get(procedure)[i];
+  }
+
+  @Override
+  public boolean isReturn(Node n) {
+    return n.index > 0 && getLocalBlock(n.proc, n.index - 1).isCall;
+  }
+
+  @Override
+  public boolean isEntry(Node n) {
+    return n.index == 0;
+  }
+
+  @Override
+  public byte classifyEdge(Node src, Node dest) {
+    if (isCall(src) && isEntry(dest)) {
+      return CALL_EDGE;
+    } else if (isExit(src) && isReturn(dest)) {
+      return RETURN_EDGE;
+    } else if (isCall(src) && isReturn(dest)) {
+      return CALL_TO_RETURN_EDGE;
+    } else {
+      return OTHER;
+    }
+  }
+}
@@ -10,12 +10,11 @@
  *******************************************************************************/
 package com.ibm.wala.classLoader;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
-import com.ibm.wala.util.collections.HashMapFactory;
 
 /**
  * Pseudo-classloader for all array classes; all other IClassLoader
@@ -26,9 +25,10 @@ public class ArrayClassLoader {
   private final static boolean DEBUG = false;
 
   /**
-   * map: TypeReference -> ArrayClass
+   * map: TypeReference -> ArrayClass. Concurrent, since array classes are created on demand, possibly by several threads building
+   * IRs at once.
    */
-  final private HashMap<TypeReference, ArrayClass> arrayClasses = HashMapFactory.make();
+  final private ConcurrentHashMap<TypeReference, ArrayClass> arrayClasses = new ConcurrentHashMap<TypeReference, ArrayClass>();
 
 
   /**
@@ -53,7 +53,11 @@ public class ArrayClassLoader {
       arrayClass = arrayClasses.get(aRef);
       IClassLoader primordial = getRootClassLoader(delegator);
       if (arrayClass == null) {
-        arrayClasses.put(aRef, arrayClass=new ArrayClass(aRef,primordial,cha));
+        arrayClass = new ArrayClass(aRef, primordial, cha);
+        ArrayClass old = arrayClasses.putIfAbsent(aRef, arrayClass);
+        if (old != null) {
+          arrayClass = old;
+        }
       }
     } else {
       arrayClass = arrayClasses.get(type);
@@ -70,8 +74,11 @@ public class ArrayClassLoader {
 	if (arrayClass == null) {
 	  arrayClass = new ArrayClass(realType, elementCls.getClassLoader(), cha);
 	}
+        ArrayClass old = arrayClasses.putIfAbsent(type, arrayClass);
+        if (old != null) {
+          arrayClass = old;
+        }
       }
-      arrayClasses.put(type, arrayClass);
     }
     return arrayClass;
   }
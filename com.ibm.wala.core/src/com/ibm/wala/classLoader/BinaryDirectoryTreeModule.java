@@ -21,8 +21,25 @@ import com.ibm.wala.util.warnings.Warnings;
  */
 public class BinaryDirectoryTreeModule extends DirectoryTreeModule {
 
+  /**
+   * memory-map the class files rather than read them onto the heap?
+   */
+  private final boolean mapped;
+
   public BinaryDirectoryTreeModule(File root) {
+    this(root, false);
+  }
+
+  /**
+   * @param mapped if true, memory-map the class files; see {@link MappedClassFileModule}
+   */
+  public BinaryDirectoryTreeModule(File root, boolean mapped) {
     super(root);
+    this.mapped = mapped;
+  }
+
+  public boolean isMapped() {
+    return mapped;
   }
 
   @Override
@@ -33,7 +50,7 @@ public class BinaryDirectoryTreeModule extends DirectoryTreeModule {
   @Override
   protected FileModule makeFile(final File file) {
     try {
-      return new ClassFileModule(file, this);
+      return mapped ? new MappedClassFileModule(file, this) : new ClassFileModule(file, this);
     } catch (InvalidClassFileException e) {
       Warnings.add(new Warning(Warning.MODERATE) {
         
@@ -15,12 +15,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.ipa.cha.ClassHierarchyWarning;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
@@ -32,7 +32,6 @@ import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.types.annotations.Annotation;
 import com.ibm.wala.types.generics.TypeSignature;
-import com.ibm.wala.util.collections.BimodalMap;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.SmallMap;
@@ -82,9 +81,10 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   protected volatile Map<Selector, IMethod> methodMap;
 
   /**
-   * A mapping from Selector to IMethod used to cache method lookups from superclasses
+   * A mapping from Selector to IMethod used to cache method lookups from superclasses; concurrent, since demand queries may look
+   * up methods from several threads
    */
-  protected Map<Selector, IMethod> inheritCache;
+  protected volatile Map<Selector, IMethod> inheritCache;
 
   /**
    * Canonical type representation
@@ -97,14 +97,15 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   protected IClass superClass;
 
   /**
-   * Compute the superclass lazily.
+   * Compute the superclass lazily. Set only after superClass, so that threads that see it set also see the superclass.
    */
-  protected boolean superclassComputed = false;
+  protected volatile boolean superclassComputed = false;
 
   /**
-   * The IClasses that represent all interfaces this class implements (if it's a class) or extends (it it's an interface)
+   * The IClasses that represent all interfaces this class implements (if it's a class) or extends (it it's an interface). Computed
+   * lazily, possibly by several threads at once, so only set to a collection that is fully built.
    */
-  protected Collection<IClass> allInterfaces = null;
+  protected volatile Collection<IClass> allInterfaces = null;
 
   /**
    * The instance fields declared in this class.
@@ -121,7 +122,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    */
   protected int hashCode;
 
-  private final HashMap<Atom, IField> fieldMap = HashMapFactory.make(5);
+  private final Map<Atom, IField> fieldMap = new ConcurrentHashMap<Atom, IField>(5);
   
   /**
    * A warning for when we get a class not found exception
@@ -277,16 +278,15 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   }
 
   private void computeSuperclass() {
-    superclassComputed = true;
-
     if (superName == null) {
       if (!getReference().equals(loader.getLanguage().getRootType())) {
         superClass = loader.lookupClass(loader.getLanguage().getRootType().getName());
       }
-      return;
+    } else {
+      superClass = loader.lookupClass(TypeName.findOrCreate(superName));
     }
 
-    superClass = loader.lookupClass(TypeName.findOrCreate(superName));
+    superclassComputed = true;
   }
 
   @Override
@@ -316,13 +316,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
    */
   @Override
   public Collection<IClass> getAllImplementedInterfaces() {
-    if (allInterfaces != null) {
-      return allInterfaces;
-    } else {
-      Collection<IClass> C = computeAllInterfacesAsCollection();
-      allInterfaces = Collections.unmodifiableCollection(C);
-      return allInterfaces;
+    Collection<IClass> result = allInterfaces;
+    if (result == null) {
+      result = Collections.unmodifiableCollection(computeAllInterfacesAsCollection());
+      allInterfaces = result;
     }
+    return result;
   }
 
   /*
@@ -438,8 +437,9 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     if (result != null) {
       return result;
     }
-    if (inheritCache != null) {
-      result = inheritCache.get(selector);
+    Map<Selector, IMethod> cache = inheritCache;
+    if (cache != null) {
+      result = cache.get(selector);
       if (result != null) {
         return result;
       }
@@ -451,10 +451,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
       if (superclass != null) {
         IMethod inherit = superclass.getMethod(selector);
         if (inherit != null) {
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<Selector, IMethod>(5);
-          }
-          inheritCache.put(selector, inherit);
+          getInheritCache().put(selector, inherit);
           return inherit;
         }
       }
@@ -465,10 +462,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     for(IClass iface : getAllImplementedInterfaces()) {
       for(IMethod m : iface.getDeclaredMethods()) {
         if (!m.isAbstract() && m.getSelector().equals(selector)) {          
-          if (inheritCache == null) {
-            inheritCache = new BimodalMap<Selector, IMethod>(5);
-          }
-          inheritCache.put(selector, m);
+          getInheritCache().put(selector, m);
 
           return m;
         }
@@ -476,13 +470,22 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     }
     
     // no method found
-    if (inheritCache == null) {
-      inheritCache = new BimodalMap<Selector, IMethod>(5);
-    }
-    inheritCache.put(selector, null);
     return null;
   }
 
+  private Map<Selector, IMethod> getInheritCache() {
+    Map<Selector, IMethod> cache = inheritCache;
+    if (cache == null) {
+      synchronized (this) {
+        cache = inheritCache;
+        if (cache == null) {
+          inheritCache = cache = new ConcurrentHashMap<Selector, IMethod>(5);
+        }
+      }
+    }
+    return cache;
+  }
+
   protected void populateFieldArrayFromList(List<FieldImpl> L, IField[] A) {
     Iterator<FieldImpl> it = L.iterator();
     for (int i = 0; i < A.length; i++) {
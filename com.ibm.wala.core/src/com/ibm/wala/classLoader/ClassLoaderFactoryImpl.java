@@ -33,6 +33,11 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
    */
   final private SetOfClasses exclusions;
 
+  /**
+   * Number of threads used to read class files and to add classes to the class hierarchy
+   */
+  private int loadingThreads = 1;
+
   /**
    * A Mapping from ClassLoaderReference to IClassLoader
    */
@@ -112,6 +117,9 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
           cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setLoadingThreads(loadingThreads);
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
@@ -138,6 +146,26 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
     }
   }
 
+  /**
+   * @return the number of threads used to read class files and to add classes to the class hierarchy
+   */
+  public int getLoadingThreads() {
+    return loadingThreads;
+  }
+
+  /**
+   * @param loadingThreads the number of threads used to read class files, see {@link ClassLoaderImpl#setLoadingThreads(int)}, and
+   *          to add classes to a {@link com.ibm.wala.ipa.cha.ClassHierarchy} made with this factory; 1, the default, means no
+   *          parallelism
+   * @throws IllegalArgumentException if loadingThreads &lt; 1
+   */
+  public void setLoadingThreads(int loadingThreads) {
+    if (loadingThreads < 1) {
+      throw new IllegalArgumentException("illegal loadingThreads: " + loadingThreads);
+    }
+    this.loadingThreads = loadingThreads;
+  }
+
   /**
    * @return the set of classes that will be ignored.
    */
@@ -26,6 +26,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -40,7 +44,9 @@ import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.config.SetOfClasses;
+import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.io.FileProvider;
 import com.ibm.wala.util.io.FileSuffixes;
 import com.ibm.wala.util.shrike.ShrikeClassReaderHandle;
@@ -76,6 +82,22 @@ public class ClassLoaderImpl implements IClassLoader {
    */
   private final Map<TypeName, ModuleEntry> sourceMap = HashMapFactory.make();
 
+  /**
+   * For a loader set up from class headers, the modules that have not been scanned for class and source files yet; see
+   * {@link #init(List, Collection)}
+   */
+  private List<Module> unscannedModules;
+
+  /**
+   * For a loader set up from class headers, a mapping from class name (TypeName) to the ModuleEntry holding the class file
+   */
+  private Map<TypeName, ModuleEntry> classFileMap;
+
+  /**
+   * Number of threads that read and parse class files in {@link #init(List)}
+   */
+  private int loadingThreads = 1;
+
   /**
    * Parent classloader
    */
@@ -245,8 +267,13 @@ public class ClassLoaderImpl implements IClassLoader {
 
   /**
    * Set up the set of classes loaded by this object.
+   * 
+   * @param executor if non-null, class files are read and parsed on this executor; the classes are still added in the same order,
+   *          with the same outcome, as when reading them one at a time
    */
-  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents) {
+  private void loadAllClasses(Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, ExecutorService executor) {
+    Map<ModuleEntry, Future<ShrikeClass>> readClasses = executor == null ? null : readAllClasses(moduleEntries, fileContents,
+        executor);
     for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
       ModuleEntry entry = it.next();
       if (!entry.isClassFile()) {
@@ -266,8 +293,6 @@ public class ClassLoaderImpl implements IClassLoader {
         continue;
       }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
-
       className = "L" + className;
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
@@ -279,20 +304,12 @@ public class ClassLoaderImpl implements IClassLoader {
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
-          }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
+          ShrikeClass tmpKlass = readClasses == null ? readClass(entry, fileContents) : ParallelUtil.get(readClasses.get(entry),
+              InvalidClassFileException.class);
           if (tmpKlass.getReference().getName().equals(T)) {
             // always used the reader based on the entry after this point,
             // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+            loadedClasses.put(T, fileContents == null ? tmpKlass : new ShrikeClass(new ShrikeClassReaderHandle(entry), this, cha));
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + " ");
             }
@@ -309,6 +326,44 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Read the class in a module entry, from the in-memory bytes in fileContents if there are any
+   */
+  private ShrikeClass readClass(ModuleEntry entry, Map<String, Object> fileContents) throws InvalidClassFileException {
+    ShrikeClassReaderHandle reader = null;
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+      }
+    }
+    if (reader == null) {
+      reader = new ShrikeClassReaderHandle(entry);
+    }
+    return new ShrikeClass(reader, this, cha);
+  }
+
+  /**
+   * Start reading the classes in moduleEntries that are not excluded on an executor
+   */
+  private Map<ModuleEntry, Future<ShrikeClass>> readAllClasses(Collection<ModuleEntry> moduleEntries,
+      final Map<String, Object> fileContents, ExecutorService executor) {
+    Map<ModuleEntry, Future<ShrikeClass>> result = HashMapFactory.make(moduleEntries.size());
+    for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
+      final ModuleEntry entry = it.next();
+      if (entry.isClassFile() && (exclusions == null || !exclusions.contains(entry.getClassName().replace('.', '/')))) {
+        result.put(entry, executor.submit(new Callable<ShrikeClass>() {
+          @Override
+          public ShrikeClass call() throws InvalidClassFileException {
+            return readClass(entry, fileContents);
+          }
+        }));
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(byte[] jarFileContents, String fileName,
       Map<String, Map<String, Long>> entrySizes) {
@@ -477,6 +532,25 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * @return the number of threads that read and parse class files in {@link #init(List)}
+   */
+  public int getLoadingThreads() {
+    return loadingThreads;
+  }
+
+  /**
+   * @param loadingThreads the number of threads that read and parse class files in {@link #init(List)}; with more than 1, the
+   *          class files of each module are read in parallel. The classes loaded are the same either way.
+   * @throws IllegalArgumentException if loadingThreads &lt; 1
+   */
+  public void setLoadingThreads(int loadingThreads) {
+    if (loadingThreads < 1) {
+      throw new IllegalArgumentException("illegal loadingThreads: " + loadingThreads);
+    }
+    this.loadingThreads = loadingThreads;
+  }
+
   /**
    * Initialize internal data structures
    * 
@@ -489,6 +563,18 @@ public class ClassLoaderImpl implements IClassLoader {
       throw new IllegalArgumentException("modules is null");
     }
 
+    ExecutorService executor = loadingThreads > 1 ? Executors.newFixedThreadPool(loadingThreads,
+        ParallelUtil.makeDaemonThreadFactory("ClassLoaderImpl")) : null;
+    try {
+      init(modules, executor);
+    } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private void init(List<Module> modules, ExecutorService executor) throws IOException {
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
@@ -498,7 +584,7 @@ public class ClassLoaderImpl implements IClassLoader {
         System.err.println("add archive: " + archive);
       }
       // byte[] jarFileContents = null;
-      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule) {
+      if (OPTIMIZE_JAR_FILE_IO && archive instanceof JarFileModule && !(archive instanceof MappedJarFileModule)) {
         // if we have a jar file, we read the whole thing into memory and operate on that; enables more
         // efficient sequential I/O
         // this is work in progress; for now, we read the file into memory and throw away the contents, which
@@ -525,7 +611,7 @@ public class ClassLoaderImpl implements IClassLoader {
         // }
         // jarFileContents = null;
       }
-      loadAllClasses(classFiles, allClassAndSourceFileContents);
+      loadAllClasses(classFiles, allClassAndSourceFileContents, executor);
       loadAllSources(sourceFiles);
       for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
         ModuleEntry file = it2.next();
@@ -538,6 +624,92 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Initialize internal data structures from headers of the classes in the modules, recorded earlier, e.g. in a class hierarchy
+   * snapshot. No class file is read here; the modules are scanned when the first class file or source file is needed.
+   * 
+   * @param modules the modules this loader would be initialized with by {@link #init(List)}
+   * @param classes headers of the classes that loader would define
+   * @throws IllegalArgumentException if modules or classes is null
+   */
+  public void init(List<Module> modules, Collection<ShrikeClass.Header> classes) {
+    if (modules == null) {
+      throw new IllegalArgumentException("modules is null");
+    }
+    if (classes == null) {
+      throw new IllegalArgumentException("classes is null");
+    }
+    for (ShrikeClass.Header header : classes) {
+      loadedClasses.put(header.getName(), new ShrikeClass(new LazyReaderHandle(header.getName()), this, cha, header));
+    }
+    synchronized (this) {
+      unscannedModules = modules;
+    }
+  }
+
+  /**
+   * For a loader set up from class headers, find the class and source files in the modules the same way {@link #init(List)}
+   * does, but without reading the class files.
+   */
+  private synchronized void scanModulesIfNeeded() {
+    if (unscannedModules == null) {
+      return;
+    }
+    classFileMap = HashMapFactory.make();
+    try {
+      Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
+      for (Iterator<Module> it = unscannedModules.iterator(); it.hasNext();) {
+        Module archive = it.next();
+        Set<ModuleEntry> classFiles = getClassFiles(archive);
+        removeClassFiles(classFiles, classModuleEntries);
+        for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
+          ModuleEntry entry = it2.next();
+          TypeName T = TypeName.string2TypeName("L" + entry.getClassName().replace('.', '/'));
+          if (!classFileMap.containsKey(T)) {
+            classFileMap.put(T, entry);
+          }
+        }
+        loadAllSources(getSourceFiles(archive));
+        classModuleEntries.addAll(classFiles);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+    }
+    unscannedModules = null;
+  }
+
+  private synchronized ModuleEntry findClassFile(TypeName className) {
+    scanModulesIfNeeded();
+    return classFileMap.get(className);
+  }
+
+  /**
+   * A handle for a class set up from its header, which looks for the class file when it is first needed
+   */
+  private class LazyReaderHandle extends ShrikeClassReaderHandle {
+
+    private final TypeName className;
+
+    private volatile ModuleEntry entry;
+
+    LazyReaderHandle(TypeName className) {
+      this.className = className;
+    }
+
+    @Override
+    public ModuleEntry getModuleEntry() {
+      if (entry == null) {
+        ModuleEntry e = findClassFile(className);
+        if (e == null) {
+          throw new IllegalStateException("no class file for " + className + " in " + ClassLoaderImpl.this);
+        }
+        entry = e;
+      }
+      return entry;
+    }
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Map<String, Long>> getEntrySizes(Module module, String name) {
     Map<String, Map<String, Long>> result = HashMapFactory.make();
@@ -673,6 +845,7 @@ public class ClassLoaderImpl implements IClassLoader {
     if (klass == null) {
       throw new IllegalArgumentException("klass is null");
     }
+    scanModulesIfNeeded();
     ModuleEntry e = sourceMap.get(klass.getName());
     return e == null ? null : e.getName();
   }
@@ -692,6 +865,7 @@ public class ClassLoaderImpl implements IClassLoader {
     if (klass == null) {
       throw new IllegalArgumentException("klass is null");
     }
+    scanModulesIfNeeded();
     ModuleEntry e = sourceMap.get(klass.getName());
     return e == null ? null : new InputStreamReader(e.getInputStream());
   }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+
+/**
+ * A {@link ClassFileModule} whose contents are memory-mapped rather than copied onto the heap.
+ */
+public class MappedClassFileModule extends ClassFileModule implements MappedModuleEntry {
+
+  public MappedClassFileModule(File f, Module container) throws InvalidClassFileException {
+    super(f, container);
+  }
+
+  @Override
+  public String toString() {
+    return "MappedClassFileModule:" + getFile();
+  }
+
+  @Override
+  public ByteBuffer getByteBuffer() throws IOException {
+    RandomAccessFile f = new RandomAccessFile(getFile(), "r");
+    try {
+      FileChannel channel = f.getChannel();
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } finally {
+      f.close();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.classLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.io.FileSuffixes;
+
+/**
+ * A {@link JarFileModule} whose class files are read from memory-mapped storage rather than copied onto the heap.
+ *
+ * Entries in a jar are usually compressed, so they cannot be mapped in place. Instead, the first time a class file is read, all the
+ * class files in the jar are uncompressed into a temporary file, which is then mapped. The operating system pages class file data
+ * in and out on demand, and the {@link com.ibm.wala.shrikeCT.ClassReader}s built over it hold no copy of it.
+ */
+public class MappedJarFileModule extends JarFileModule {
+
+  /**
+   * the directory in which to make the temporary file; null for the default
+   */
+  private final File tmpDir;
+
+  /**
+   * the uncompressed class files, one after another
+   */
+  private volatile ByteBuffer contents;
+
+  /**
+   * entry name -> offset and length of its contents
+   */
+  private Map<String, long[]> offsets;
+
+  public MappedJarFileModule(JarFile f) {
+    this(f, null);
+  }
+
+  /**
+   * @param tmpDir the directory in which to keep the uncompressed class files; null for the default temporary directory
+   */
+  public MappedJarFileModule(JarFile f, File tmpDir) {
+    super(f);
+    this.tmpDir = tmpDir;
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJarFileModule:" + getJarFile().getName();
+  }
+
+  @Override
+  protected ModuleEntry createEntry(ZipEntry z) {
+    return new Entry(z.getName(), this);
+  }
+
+  /**
+   * @return a read-only view of the uncompressed contents of the named class file, or null if it was not uncompressed
+   */
+  ByteBuffer getByteBuffer(String entryName) throws IOException {
+    if (contents == null) {
+      extract();
+    }
+    long[] o = offsets.get(entryName);
+    if (o == null) {
+      return null;
+    }
+    ByteBuffer b = contents.duplicate();
+    b.position((int) o[0]);
+    b.limit((int) (o[0] + o[1]));
+    return b.slice();
+  }
+
+  /**
+   * Uncompress every class file into a temporary file and map it. The file is deleted once mapped where the platform allows;
+   * elsewhere it is deleted on exit.
+   */
+  private synchronized void extract() throws IOException {
+    if (contents != null) {
+      return;
+    }
+    Map<String, long[]> result = HashMapFactory.make();
+    File tmp = File.createTempFile("wala-", ".classes", tmpDir);
+    try {
+      long size = 0;
+      OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp), 65536);
+      try {
+        byte[] buffer = new byte[65536];
+        JarFile file = getJarFile();
+        for (Enumeration<? extends ZipEntry> e = file.entries(); e.hasMoreElements();) {
+          ZipEntry z = e.nextElement();
+          if (z.isDirectory() || !FileSuffixes.isClassFile(z.getName())) {
+            continue;
+          }
+          if (z.getSize() < 0 || size + z.getSize() > Integer.MAX_VALUE) {
+            // a mapped buffer cannot be any bigger; leave this one to be read from the jar
+            continue;
+          }
+          long start = size;
+          InputStream s = file.getInputStream(z);
+          try {
+            for (int n = s.read(buffer); n != -1; n = s.read(buffer)) {
+              out.write(buffer, 0, n);
+              size += n;
+            }
+          } finally {
+            s.close();
+          }
+          result.put(z.getName(), new long[] { start, size - start });
+        }
+      } finally {
+        out.close();
+      }
+      RandomAccessFile f = new RandomAccessFile(tmp, "r");
+      try {
+        offsets = result;
+        contents = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } finally {
+        f.close();
+      }
+    } finally {
+      if (!tmp.delete()) {
+        tmp.deleteOnExit();
+      }
+    }
+  }
+
+  private static class Entry extends JarFileEntry implements MappedModuleEntry {
+
+    Entry(String entryName, MappedJarFileModule jarFile) {
+      super(entryName, jarFile);
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() throws IOException {
+      return ((MappedJarFileModule) getContainer()).getByteBuffer(getName());
+    }
+  }
+}
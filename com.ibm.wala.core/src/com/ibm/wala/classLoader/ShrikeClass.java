@@ -66,6 +66,120 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeModifiers();
     computeInterfaceNames();
     computeFields();
+    fieldsComputed = true;
+  }
+
+  /**
+   * Create a class from a header recorded earlier, e.g. in a class hierarchy snapshot, without reading the class file. The class
+   * file is read only when the members of this class are needed.
+   * 
+   * @throws IllegalArgumentException
+   *           if reader or header is null
+   */
+  public ShrikeClass(ShrikeClassReaderHandle reader, IClassLoader loader, IClassHierarchy cha, Header header) {
+    super(loader, cha);
+    if (reader == null) {
+      throw new IllegalArgumentException("reader is null");
+    }
+    if (header == null) {
+      throw new IllegalArgumentException("header is null");
+    }
+    this.reader = reader;
+    this.typeReference = TypeReference.findOrCreate(loader.getReference(), header.getName());
+    this.hashCode = 2161 * getReference().hashCode();
+    this.superName = header.getSuperName();
+    this.modifiers = header.getModifiers();
+    this.interfaceNames = header.getInterfaceNames();
+  }
+
+  /**
+   * The parts of a class that the class hierarchy needs, which can be kept without the class file.
+   */
+  public static final class Header {
+
+    private final TypeName name;
+
+    private final int modifiers;
+
+    private final ImmutableByteArray superName;
+
+    private final ImmutableByteArray[] interfaceNames;
+
+    /**
+     * @param superName name of the superclass, like Ljava/lang/Object, or null
+     * @param interfaceNames names of the directly implemented interfaces
+     */
+    public Header(TypeName name, int modifiers, ImmutableByteArray superName, ImmutableByteArray[] interfaceNames) {
+      if (name == null) {
+        throw new IllegalArgumentException("name is null");
+      }
+      if (interfaceNames == null) {
+        throw new IllegalArgumentException("interfaceNames is null");
+      }
+      this.name = name;
+      this.modifiers = modifiers;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+    }
+
+    public TypeName getName() {
+      return name;
+    }
+
+    public int getModifiers() {
+      return modifiers;
+    }
+
+    public ImmutableByteArray getSuperName() {
+      return superName;
+    }
+
+    public ImmutableByteArray[] getInterfaceNames() {
+      return interfaceNames;
+    }
+  }
+
+  public Header getHeader() {
+    return new Header(getName(), modifiers, superName, interfaceNames);
+  }
+
+  /**
+   * have the declared fields been read from the class file?
+   */
+  private volatile boolean fieldsComputed = false;
+
+  private void computeFieldsIfNeeded() {
+    if (!fieldsComputed) {
+      synchronized (this) {
+        if (!fieldsComputed) {
+          try {
+            computeFields();
+          } catch (InvalidClassFileException e) {
+            e.printStackTrace();
+            Assertions.UNREACHABLE();
+          }
+          fieldsComputed = true;
+        }
+      }
+    }
+  }
+
+  @Override
+  public Collection<IField> getDeclaredInstanceFields() {
+    computeFieldsIfNeeded();
+    return super.getDeclaredInstanceFields();
+  }
+
+  @Override
+  public Collection<IField> getDeclaredStaticFields() {
+    computeFieldsIfNeeded();
+    return super.getDeclaredStaticFields();
+  }
+
+  @Override
+  protected List<IField> findDeclaredField(Atom name) {
+    computeFieldsIfNeeded();
+    return super.findDeclaredField(name);
   }
 
   /**
@@ -14,6 +14,7 @@ import com.ibm.wala.util.collections.SparseVector;
 import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.BimodalMutableIntSet;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
@@ -144,6 +145,44 @@ public class CallFlowEdges {
 
   }
 
+  /**
+   * @return set of d2 s.t. <c, d1> -> <s_p, d2> was recorded as call flow (for some c and d1)
+   */
+  public IntSet getCallFlowTargets() {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (IntIterator it = edges.iterateIndices(); it.hasNext();) {
+      result.add(it.next());
+    }
+    for (IntIterator it = identityEdges.iterateIndices(); it.hasNext();) {
+      result.add(it.next());
+    }
+    return result;
+  }
+
+  /**
+   * Forget the call flow edges from the given call site nodes.
+   * 
+   * @param cs global numbers of call site nodes
+   */
+  public void removeCallSites(IntSet cs) {
+    if (cs == null) {
+      throw new IllegalArgumentException("cs is null");
+    }
+    for (IBinaryNaturalRelation R : edges) {
+      for (IntIterator it = cs.intIterator(); it.hasNext();) {
+        int c = it.next();
+        if (R.anyRelated(c)) {
+          R.removeAll(c);
+        }
+      }
+    }
+    for (IntSet s : identityEdges) {
+      for (IntIterator it = cs.intIterator(); it.hasNext();) {
+        ((MutableIntSet) s).remove(it.next());
+      }
+    }
+  }
+
   // TODO optimize
   private IntSet getDomain(IBinaryNaturalRelation r) {
     MutableIntSet result = MutableSparseIntSet.makeEmpty();
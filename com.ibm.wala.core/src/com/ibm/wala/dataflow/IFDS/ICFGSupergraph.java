@@ -147,8 +147,9 @@ public class ICFGSupergraph implements ISupergraph<BasicBlockInContext<IExploded
 
   @Override
   public int getNumberOfBlocks(CGNode procedure) {
-    Assertions.UNREACHABLE();
-    return 0;
+    ControlFlowGraph<SSAInstruction, IExplodedBasicBlock> cfg = icfg.getCFG(procedure);
+    // native methods have no blocks
+    return cfg == null ? 0 : cfg.getNumberOfNodes();
   }
 
   @Override
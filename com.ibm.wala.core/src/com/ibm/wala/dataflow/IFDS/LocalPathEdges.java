@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.dataflow.IFDS;
 
+import java.nio.IntBuffer;
 import java.util.Iterator;
 
 import com.ibm.wala.util.collections.SparseVector;
@@ -450,4 +451,95 @@ public class LocalPathEdges {
     }
     return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * @return the number of path edges recorded
+   */
+  int size() {
+    int result = 0;
+    for (IBinaryNaturalRelation R : paths) {
+      for (Iterator<IntPair> it = R.iterator(); it.hasNext(); it.next()) {
+        result++;
+      }
+    }
+    for (IntSet s : identityPaths) {
+      result += s.size();
+    }
+    for (IntSet s : zeroPaths) {
+      result += s.size();
+    }
+    return result;
+  }
+
+  /**
+   * Write each of the {@link #size()} path edges <s_p,i> -> <n,j> to b as the three ints i, n and j.
+   */
+  void write(IntBuffer b) {
+    // this is convoluted on purpose for efficiency: to avoid random access to
+    // the sparse vector, we do parallel iteration with the vector's indices
+    // and contents.
+    Iterator<IBinaryNaturalRelation> relations = paths.iterator();
+    for (IntIterator it = paths.iterateIndices(); it.hasNext();) {
+      int j = it.next();
+      for (IntPair p : relations.next()) {
+        b.put(p.getY()).put(p.getX()).put(j);
+      }
+    }
+    Iterator<IntSet> identities = identityPaths.iterator();
+    for (IntIterator it = identityPaths.iterateIndices(); it.hasNext();) {
+      int i = it.next();
+      for (IntIterator ns = identities.next().intIterator(); ns.hasNext();) {
+        b.put(i).put(ns.next()).put(i);
+      }
+    }
+    Iterator<IntSet> zeros = zeroPaths.iterator();
+    for (IntIterator it = zeroPaths.iterateIndices(); it.hasNext();) {
+      int j = it.next();
+      for (IntIterator ns = zeros.next().intIterator(); ns.hasNext();) {
+        b.put(0).put(ns.next()).put(j);
+      }
+    }
+  }
+
+  /**
+   * @param size the number of path edges that {@link #write(IntBuffer)} wrote to b
+   * @return the path edges read from b
+   */
+  static LocalPathEdges read(IntBuffer b, int size, boolean fastMerge) {
+    LocalPathEdges result = new LocalPathEdges(fastMerge);
+    for (int k = 0; k < size; k++) {
+      int i = b.get();
+      int n = b.get();
+      int j = b.get();
+      result.addPathEdge(i, n, j);
+    }
+    return result;
+  }
+
+  /**
+   * @return the path edges <s_p,i> -> <n,j> of this for which i is in sources; this itself if that is all of them
+   */
+  LocalPathEdges restrictTo(IntSet sources) {
+    int size = size();
+    IntBuffer b = IntBuffer.allocate(3 * size);
+    write(b);
+    boolean all = true;
+    for (int k = 0; k < size && all; k++) {
+      all = sources.contains(b.get(3 * k));
+    }
+    if (all) {
+      return this;
+    }
+    LocalPathEdges result = new LocalPathEdges(altPaths != null);
+    b.flip();
+    for (int k = 0; k < size; k++) {
+      int i = b.get();
+      int n = b.get();
+      int j = b.get();
+      if (sources.contains(i)) {
+        result.addPathEdge(i, n, j);
+      }
+    }
+    return result;
+  }
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.dataflow.IFDS;
 
+import java.nio.IntBuffer;
 import java.util.Iterator;
 
 import com.ibm.wala.util.collections.SparseVector;
@@ -17,6 +18,7 @@ import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.LongIterator;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.SparseLongIntVector;
 import com.ibm.wala.util.math.LongUtil;
@@ -156,4 +158,49 @@ public class LocalSummaryEdges {
     return result;
   }
 
-}
\ No newline at end of file
+  /**
+   * @return the number of summary edges recorded
+   */
+  int size() {
+    int result = 0;
+    for (IBinaryNaturalRelation R : summaries) {
+      for (Iterator<IntPair> it = R.iterator(); it.hasNext(); it.next()) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Write each of the {@link #size()} summary edges <s_p,d1> -> <x,d2> to b as the four ints s_p, x, d1 and d2.
+   */
+  void write(IntBuffer b) {
+    for (LongIterator it = entryExitMap.iterateIndices(); it.hasNext();) {
+      long id = it.next();
+      IBinaryNaturalRelation R = summaries.get(entryExitMap.get(id));
+      if (R != null) {
+        int s_p = (int) (id >>> 32);
+        int x = (int) id;
+        for (IntPair p : R) {
+          b.put(s_p).put(x).put(p.getX()).put(p.getY());
+        }
+      }
+    }
+  }
+
+  /**
+   * @param size the number of summary edges that {@link #write(IntBuffer)} wrote to b
+   * @return the summary edges read from b
+   */
+  static LocalSummaryEdges read(IntBuffer b, int size) {
+    LocalSummaryEdges result = new LocalSummaryEdges();
+    for (int k = 0; k < size; k++) {
+      int s_p = b.get();
+      int x = b.get();
+      int d1 = b.get();
+      int d2 = b.get();
+      result.insertSummaryEdge(s_p, x, d1, d2);
+    }
+    return result;
+  }
+}
@@ -10,11 +10,14 @@
  *******************************************************************************/
 package com.ibm.wala.dataflow.IFDS;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
-import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntIterator;
@@ -34,7 +37,7 @@ public class PartiallyBalancedTabulationSolver<T, P, F> extends TabulationSolver
     return new PartiallyBalancedTabulationSolver<T, P, F>(p, monitor);
   }
 
-  private final Collection<Pair<T,Integer>> unbalancedSeeds = HashSetFactory.make();
+  private final Collection<Pair<T,Integer>> unbalancedSeeds = Collections.newSetFromMap(new ConcurrentHashMap<Pair<T, Integer>, Boolean>());
 
   protected PartiallyBalancedTabulationSolver(PartiallyBalancedTabulationProblem<T, P, F> p, IProgressMonitor monitor) {
     super(p, monitor);
@@ -46,29 +49,78 @@ public class PartiallyBalancedTabulationSolver<T, P, F> extends TabulationSolver
     if (result && wasUsedAsUnbalancedSeed(s_p, i) && supergraph.isExit(n)) {
       // j was reached from an entry seed. if there are any facts which are reachable from j, even without
       // balanced parentheses, we can use these as new seeds.
-      for (Iterator<? extends T> it2 = supergraph.getSuccNodes(n); it2.hasNext();) {
-        T retSite = it2.next();
-        PartiallyBalancedTabulationProblem<T, P, F> problem = (PartiallyBalancedTabulationProblem<T, P, F>) getProblem();
-        IFlowFunction f = problem.getFunctionMap().getUnbalancedReturnFlowFunction(n, retSite);
-        // for each fact that can be reached by the return flow ...
-        if (f instanceof IUnaryFlowFunction) {
-          IUnaryFlowFunction uf = (IUnaryFlowFunction) f;
-          IntSet facts = uf.getTargets(j);
-          if (facts != null) {
-            for (IntIterator it4 = facts.intIterator(); it4.hasNext();) {
-              int d3 = it4.next();
-              // d3 would be reached if we ignored parentheses. use it as a new seed.
-              T fakeEntry = problem.getFakeEntry(retSite);
-              PathEdge<T> seed = PathEdge.createPathEdge(fakeEntry, d3, retSite, d3);
-              addSeed(seed);
+      addUnbalancedSeeds(n, j, null);
+    }
+    return result;
+  }
+
+  /**
+   * Add the facts that the unbalanced return flow takes fact j at exit to as seeds at its return sites
+   * 
+   * @param procs if not null, only add seeds at return sites in these procedures
+   */
+  private void addUnbalancedSeeds(T exit, int j, Set<P> procs) {
+    for (Iterator<? extends T> it2 = supergraph.getSuccNodes(exit); it2.hasNext();) {
+      T retSite = it2.next();
+      if (procs != null && !procs.contains(supergraph.getProcOf(retSite))) {
+        continue;
+      }
+      PartiallyBalancedTabulationProblem<T, P, F> problem = (PartiallyBalancedTabulationProblem<T, P, F>) getProblem();
+      IFlowFunction f = problem.getFunctionMap().getUnbalancedReturnFlowFunction(exit, retSite);
+      // for each fact that can be reached by the return flow ...
+      if (f instanceof IUnaryFlowFunction) {
+        IUnaryFlowFunction uf = (IUnaryFlowFunction) f;
+        IntSet facts = uf.getTargets(j);
+        if (facts != null) {
+          for (IntIterator it4 = facts.intIterator(); it4.hasNext();) {
+            int d3 = it4.next();
+            // d3 would be reached if we ignored parentheses. use it as a new seed.
+            T fakeEntry = problem.getFakeEntry(retSite);
+            PathEdge<T> seed = PathEdge.createPathEdge(fakeEntry, d3, retSite, d3);
+            addSeed(seed);
+          }
+        }
+      } else {
+        Assertions.UNREACHABLE("Partially balanced logic not supported for binary return flow functions");
+      }
+    }
+  }
+
+  @Override
+  protected void discardSeeds(Set<P> affected) {
+    super.discardSeeds(affected);
+    for (Iterator<Pair<T, Integer>> it = unbalancedSeeds.iterator(); it.hasNext();) {
+      T s_p = it.next().fst;
+      if (!supergraph.containsNode(s_p) || affected.contains(supergraph.getProcOf(s_p))) {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Besides the initial seeds, add again the seeds that unbalanced returns from procedures that were not affected led to in the
+   * affected procedures, since those returns will not be processed again.
+   */
+  @Override
+  protected void reseed(Set<P> affected) {
+    super.reseed(affected);
+    for (Pair<T, Integer> p : new ArrayList<Pair<T, Integer>>(unbalancedSeeds)) {
+      P proc = supergraph.getProcOf(p.fst);
+      if (affected.contains(proc)) {
+        continue;
+      }
+      LocalPathEdges lp = getLocalPathEdges(p.fst);
+      if (lp != null) {
+        for (T exit : supergraph.getExitsForProcedure(proc)) {
+          IntSet reached = lp.getReachable(supergraph.getLocalBlockNumber(exit), p.snd);
+          if (reached != null) {
+            for (IntIterator it = reached.intIterator(); it.hasNext();) {
+              addUnbalancedSeeds(exit, it.next(), affected);
             }
           }
-        } else {
-          Assertions.UNREACHABLE("Partially balanced logic not supported for binary return flow functions");
         }
       }
     }
-    return result;
   }
 
   @Override
@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dataflow.IFDS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * Saves the summary edges of some procedures, typically those of libraries, to a file after a {@link TabulationSolver} has solved a
+ * problem, and gives them to the solver of the same problem in a later run, which then applies them at calls instead of
+ * tabulating the procedures' bodies. See {@link TabulationSolver#setSummaryComplete(Object, int)}.
+ * <p>
+ * Procedures and facts are recognized across runs by the names a {@link Codec} gives them, such as method signatures; the summaries
+ * of a file are only used by a problem with the same identity. Since the summaries of a procedure reflect everything it calls, a
+ * procedure is only saved if all the procedures it transitively calls are saved too, and only loaded if it calls the same
+ * procedures as when it was saved, all of which are loaded too. The successors of a procedure in
+ * {@link ISupergraph#getProcedureGraph()} are taken to be the procedures it calls, so the supergraph must implement that and
+ * {@link ISupergraph#getNumberOfBlocks(Object)}, as {@link ICFGSupergraph} does.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure
+ */
+public class PersistentSummaryStore<T, P> {
+
+  private static final int MAGIC = 0x49464453;
+
+  private static final int VERSION = 1;
+
+  /**
+   * How to name procedures and facts so that they are recognized in a later run
+   */
+  public interface Codec<P> {
+    /**
+     * @return a name for proc that is the same in every run, such as its method signature, or null if its summaries should not be
+     *         saved
+     */
+    String getProcedureKey(P proc);
+
+    /**
+     * @return a name for the fact numbered fact that is the same in every run, or null if it cannot be saved
+     */
+    String encodeFact(int fact);
+
+    /**
+     * @return the number of the fact with the given name in this run, adding it to the domain if need be, or -1 if there is none
+     */
+    int decodeFact(String name);
+  }
+
+  private final String problemId;
+
+  private final Codec<P> codec;
+
+  /**
+   * @param problemId identifies the problem, including its version and options; summaries are only loaded into solvers of a
+   *          problem with the same identity
+   */
+  public PersistentSummaryStore(String problemId, Codec<P> codec) {
+    if (problemId == null) {
+      throw new IllegalArgumentException("problemId is null");
+    }
+    if (codec == null) {
+      throw new IllegalArgumentException("codec is null");
+    }
+    this.problemId = problemId;
+    this.codec = codec;
+  }
+
+  /**
+   * Save the summary edges that solver computed or was given for the procedures in procs, after it has solved its problem.
+   *
+   * @return the number of procedures saved
+   */
+  public int save(TabulationSolver<T, P, ?> solver, Collection<? extends P> procs, File file) throws IOException {
+    if (solver == null) {
+      throw new IllegalArgumentException("solver is null");
+    }
+    if (procs == null) {
+      throw new IllegalArgumentException("procs is null");
+    }
+    ISupergraph<T, P> supergraph = solver.getSupergraph();
+    Map<P, String> keys = HashMapFactory.make();
+    for (P proc : procs) {
+      String key = codec.getProcedureKey(proc);
+      if (key != null) {
+        keys.put(proc, key);
+      }
+    }
+    retainClosed(getProcedureGraph(supergraph), keys);
+
+    // facts are named once, in a table, and referred to by their position in it
+    Map<Integer, Integer> factIndex = HashMapFactory.make();
+    List<String> factNames = new ArrayList<String>();
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(problemId);
+      List<byte[]> records = new ArrayList<byte[]>();
+      for (Map.Entry<P, String> e : keys.entrySet()) {
+        records.add(encodeProcedure(solver, e.getKey(), e.getValue(), keys, factIndex, factNames));
+      }
+      out.writeInt(factNames.size());
+      for (String name : factNames) {
+        out.writeUTF(name);
+      }
+      out.writeInt(records.size());
+      for (byte[] r : records) {
+        out.write(r);
+      }
+    } finally {
+      out.close();
+    }
+    return keys.size();
+  }
+
+  /**
+   * Give solver the summary edges saved in file for the procedures of its supergraph that can use them, before it solves its
+   * problem. Nothing is loaded from a file saved for another problem.
+   *
+   * @return the number of procedures loaded
+   */
+  public int load(TabulationSolver<T, P, ?> solver, File file) throws IOException {
+    if (solver == null) {
+      throw new IllegalArgumentException("solver is null");
+    }
+    ISupergraph<T, P> supergraph = solver.getSupergraph();
+    Graph<P> procedures = getProcedureGraph(supergraph);
+    Map<String, P> byKey = HashMapFactory.make();
+    for (P proc : procedures) {
+      String key = codec.getProcedureKey(proc);
+      if (key != null) {
+        byKey.put(key, proc);
+      }
+    }
+
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    Map<P, SavedProcedure> saved = HashMapFactory.make();
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !problemId.equals(in.readUTF())) {
+        return 0;
+      }
+      int[] facts = new int[in.readInt()];
+      for (int i = 0; i < facts.length; i++) {
+        facts[i] = codec.decodeFact(in.readUTF());
+      }
+      int nProcs = in.readInt();
+      for (int i = 0; i < nProcs; i++) {
+        SavedProcedure s = SavedProcedure.read(in, facts);
+        P proc = byKey.get(s.key);
+        if (proc != null && supergraph.getNumberOfBlocks(proc) == s.nBlocks) {
+          saved.put(proc, s);
+        }
+      }
+    } finally {
+      in.close();
+    }
+
+    // only keep the procedures that call the same procedures as when they were saved, all of which are kept
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Iterator<Map.Entry<P, SavedProcedure>> it = saved.entrySet().iterator(); it.hasNext();) {
+        Map.Entry<P, SavedProcedure> e = it.next();
+        Set<String> callees = HashSetFactory.make();
+        boolean ok = true;
+        for (Iterator<P> cs = procedures.getSuccNodes(e.getKey()); ok && cs.hasNext();) {
+          P callee = cs.next();
+          ok = saved.containsKey(callee);
+          callees.add(codec.getProcedureKey(callee));
+        }
+        if (!ok || !callees.equals(e.getValue().callees)) {
+          it.remove();
+          changed = true;
+        }
+      }
+    }
+
+    for (Map.Entry<P, SavedProcedure> e : saved.entrySet()) {
+      e.getValue().addTo(solver, e.getKey());
+    }
+    return saved.size();
+  }
+
+  /**
+   * The procedure graph only holds procedures of the supergraph, so it may be read as a graph of P.
+   */
+  @SuppressWarnings("unchecked")
+  private static <P> Graph<P> getProcedureGraph(ISupergraph<?, P> supergraph) {
+    return (Graph<P>) supergraph.getProcedureGraph();
+  }
+
+  /**
+   * Remove from keys the procedures that call a procedure that is not in keys.
+   */
+  private static <P> void retainClosed(Graph<P> procedures, Map<P, String> keys) {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Iterator<P> it = keys.keySet().iterator(); it.hasNext();) {
+        P proc = it.next();
+        for (Iterator<P> cs = procedures.getSuccNodes(proc); cs.hasNext();) {
+          if (!keys.containsKey(cs.next())) {
+            it.remove();
+            changed = true;
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The record of a procedure is: its key, its number of blocks, the keys of its callees, and for each entry, its local block
+   * number and the facts d1 whose summaries are known, each followed by the summary edges from it as pairs of an exit's local block
+   * number and a fact. Facts are positions in the table of fact names; a fact that cannot be named makes the summaries of the d1
+   * that leads to it unknown.
+   */
+  private byte[] encodeProcedure(TabulationSolver<T, P, ?> solver, P proc, String key, Map<P, String> keys,
+      Map<Integer, Integer> factIndex, List<String> factNames) throws IOException {
+    ISupergraph<T, P> supergraph = solver.getSupergraph();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeUTF(key);
+    int nBlocks = supergraph.getNumberOfBlocks(proc);
+    out.writeInt(nBlocks);
+    Set<String> callees = HashSetFactory.make();
+    for (Iterator<P> cs = getProcedureGraph(supergraph).getSuccNodes(proc); cs.hasNext();) {
+      callees.add(keys.get(cs.next()));
+    }
+    out.writeInt(callees.size());
+    for (String c : callees) {
+      out.writeUTF(c);
+    }
+    if (nBlocks == 0) {
+      // a procedure without a body, such as a native method, has no summaries
+      out.writeInt(0);
+      out.close();
+      return bytes.toByteArray();
+    }
+    T[] entries = supergraph.getEntriesForProcedure(proc);
+    T[] exits = supergraph.getExitsForProcedure(proc);
+    out.writeInt(entries.length);
+    for (T s_p : entries) {
+      out.writeInt(supergraph.getLocalBlockNumber(s_p));
+      List<int[]> known = new ArrayList<int[]>();
+      for (IntIterator d1s = solver.getSummarizedFacts(s_p).intIterator(); d1s.hasNext();) {
+        int d1 = d1s.next();
+        int[] summary = encodeSummary(solver, s_p, d1, exits, factIndex, factNames);
+        if (summary != null) {
+          known.add(summary);
+        }
+      }
+      out.writeInt(known.size());
+      for (int[] summary : known) {
+        out.writeInt(summary[0]);
+        out.writeInt(summary.length / 2);
+        for (int i = 1; i < summary.length; i++) {
+          out.writeInt(summary[i]);
+        }
+      }
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return the fact d1 followed by the pairs of an exit's local block number and a fact d2 of the summary edges from d1; or
+   *         null if a fact cannot be named
+   */
+  private int[] encodeSummary(TabulationSolver<T, P, ?> solver, T s_p, int d1, T[] exits, Map<Integer, Integer> factIndex,
+      List<String> factNames) {
+    ISupergraph<T, P> supergraph = solver.getSupergraph();
+    List<Integer> result = new ArrayList<Integer>();
+    int f = encodeFact(d1, factIndex, factNames);
+    if (f == -1) {
+      return null;
+    }
+    result.add(f);
+    for (T x : exits) {
+      IntSet d2s = solver.getSummaryEdges(s_p, d1, x);
+      if (d2s != null) {
+        for (IntIterator it = d2s.intIterator(); it.hasNext();) {
+          int d2 = encodeFact(it.next(), factIndex, factNames);
+          if (d2 == -1) {
+            return null;
+          }
+          result.add(supergraph.getLocalBlockNumber(x));
+          result.add(d2);
+        }
+      }
+    }
+    int[] a = new int[result.size()];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = result.get(i);
+    }
+    return a;
+  }
+
+  /**
+   * @return the position of the name of fact in factNames, or -1 if it cannot be named
+   */
+  private int encodeFact(int fact, Map<Integer, Integer> factIndex, List<String> factNames) {
+    Integer result = factIndex.get(fact);
+    if (result == null) {
+      String name = codec.encodeFact(fact);
+      if (name == null) {
+        result = -1;
+      } else {
+        result = factNames.size();
+        factNames.add(name);
+      }
+      factIndex.put(fact, result);
+    }
+    return result;
+  }
+
+  /**
+   * The summaries of a procedure, as read from a file, with facts numbered as in this run
+   */
+  private static class SavedProcedure {
+    String key;
+
+    int nBlocks;
+
+    final Set<String> callees = HashSetFactory.make();
+
+    /**
+     * for each entry: its local block number, and for each fact d1 whose summaries are known, d1 followed by the pairs of an exit's
+     * local block number and a fact d2; a fact that does not exist in this run makes the summaries of its d1 unknown
+     */
+    final List<int[]> entries = new ArrayList<int[]>();
+
+    final List<List<int[]>> summaries = new ArrayList<List<int[]>>();
+
+    static SavedProcedure read(DataInputStream in, int[] facts) throws IOException {
+      SavedProcedure result = new SavedProcedure();
+      result.key = in.readUTF();
+      result.nBlocks = in.readInt();
+      int nCallees = in.readInt();
+      for (int i = 0; i < nCallees; i++) {
+        result.callees.add(in.readUTF());
+      }
+      int nEntries = in.readInt();
+      for (int i = 0; i < nEntries; i++) {
+        result.entries.add(new int[] { in.readInt() });
+        List<int[]> known = new ArrayList<int[]>();
+        int nKnown = in.readInt();
+        for (int j = 0; j < nKnown; j++) {
+          int d1 = facts[in.readInt()];
+          int nEdges = in.readInt();
+          int[] summary = new int[2 * nEdges + 1];
+          summary[0] = d1;
+          boolean ok = d1 != -1;
+          for (int k = 0; k < nEdges; k++) {
+            summary[2 * k + 1] = in.readInt();
+            summary[2 * k + 2] = facts[in.readInt()];
+            ok &= summary[2 * k + 2] != -1;
+          }
+          if (ok) {
+            known.add(summary);
+          }
+        }
+        result.summaries.add(known);
+      }
+      return result;
+    }
+
+    <T, P> void addTo(TabulationSolver<T, P, ?> solver, P proc) {
+      ISupergraph<T, P> supergraph = solver.getSupergraph();
+      for (int i = 0; i < entries.size(); i++) {
+        T s_p = supergraph.getLocalBlock(proc, entries.get(i)[0]);
+        for (int[] summary : summaries.get(i)) {
+          int d1 = summary[0];
+          for (int k = 1; k < summary.length; k += 2) {
+            solver.addSummaryEdge(s_p, d1, supergraph.getLocalBlock(proc, summary[k]), summary[k + 1]);
+          }
+          solver.setSummaryComplete(s_p, d1);
+        }
+      }
+    }
+  }
+}
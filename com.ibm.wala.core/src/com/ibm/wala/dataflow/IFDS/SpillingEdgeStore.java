@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.dataflow.IFDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Keeps the number of path edges and summary edges that a {@link TabulationSolver} holds on the heap within a budget. When the
+ * budget is exceeded, the edges of the entries and procedures that were used least recently are written to a memory-mapped scratch
+ * file and dropped from the solver's maps; they are read back the next time the solver asks for them.
+ * <p>
+ * Edges are only spilled when the solver calls {@link #spillIfOverBudget()}, at points where it holds no reference to a
+ * {@link LocalPathEdges} or {@link LocalSummaryEdges}. Not thread safe.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure
+ */
+class SpillingEdgeStore<T, P> {
+
+  /**
+   * the largest region that can be mapped at once, in bytes
+   */
+  private static final long MAX_REGION = Integer.MAX_VALUE;
+
+  private final Map<T, LocalPathEdges> pathEdges;
+
+  private final Map<P, LocalSummaryEdges> summaryEdges;
+
+  private final boolean fastMerge;
+
+  private final long maxResidentEdges;
+
+  private final File file;
+
+  private final RandomAccessFile raf;
+
+  private final FileChannel channel;
+
+  /**
+   * the entries whose path edges are on the heap, least recently used first
+   */
+  private final LinkedHashMap<T, Resident> residentPaths = new LinkedHashMap<T, Resident>(16, 0.75f, true);
+
+  /**
+   * the procedures whose summary edges are on the heap, least recently used first
+   */
+  private final LinkedHashMap<P, Resident> residentSummaries = new LinkedHashMap<P, Resident>(16, 0.75f, true);
+
+  private final Map<T, Region> spilledPaths = HashMapFactory.make();
+
+  private final Map<P, Region> spilledSummaries = HashMapFactory.make();
+
+  /**
+   * free regions of the file: a map from position to length, in bytes
+   */
+  private final TreeMap<Long, Long> free = new TreeMap<Long, Long>();
+
+  /**
+   * the end of the used part of the file
+   */
+  private long end = 0;
+
+  /**
+   * the number of edges in the resident maps
+   */
+  private long residentEdges = 0;
+
+  /**
+   * the time of the last use of a resident entry or procedure
+   */
+  private long clock = 0;
+
+  private int spillCount = 0;
+
+  private int reloadCount = 0;
+
+  /**
+   * @param pathEdges the solver's map from entry to path edges
+   * @param summaryEdges the solver's map from procedure to summary edges
+   * @param fastMerge passed to {@link LocalPathEdges#LocalPathEdges(boolean)} when path edges are read back
+   * @param maxResidentEdges the number of path and summary edges to keep on the heap
+   * @param directory where to create the scratch file, or null for the default temporary directory
+   */
+  SpillingEdgeStore(Map<T, LocalPathEdges> pathEdges, Map<P, LocalSummaryEdges> summaryEdges, boolean fastMerge,
+      long maxResidentEdges, File directory) throws IOException {
+    this.pathEdges = pathEdges;
+    this.summaryEdges = summaryEdges;
+    this.fastMerge = fastMerge;
+    this.maxResidentEdges = maxResidentEdges;
+    this.file = File.createTempFile("ifds-", ".edges", directory);
+    file.deleteOnExit();
+    this.raf = new RandomAccessFile(file, "rw");
+    this.channel = raf.getChannel();
+  }
+
+  private final static class Resident {
+    long edges;
+
+    long lastUse;
+  }
+
+  private final static class Region {
+    final long position;
+
+    final long length;
+
+    final int size;
+
+    Region(long position, long length, int size) {
+      this.position = position;
+      this.length = length;
+      this.size = size;
+    }
+  }
+
+  /**
+   * @return the path edges for entry s_p, read back from the file if they were spilled, or null if there are none
+   */
+  LocalPathEdges getPathEdges(T s_p) {
+    LocalPathEdges result = pathEdges.get(s_p);
+    if (result == null) {
+      Region r = spilledPaths.remove(s_p);
+      if (r != null) {
+        result = LocalPathEdges.read(readRegion(r), r.size, fastMerge);
+        pathEdges.put(s_p, result);
+        residentPaths.put(s_p, makeResident(r.size));
+        residentEdges += r.size;
+        reloadCount++;
+        return result;
+      }
+    }
+    touch(residentPaths.get(s_p));
+    return result;
+  }
+
+  /**
+   * @return the summary edges for proc, read back from the file if they were spilled, or null if there are none
+   */
+  LocalSummaryEdges getSummaryEdges(P proc) {
+    LocalSummaryEdges result = summaryEdges.get(proc);
+    if (result == null) {
+      Region r = spilledSummaries.remove(proc);
+      if (r != null) {
+        result = LocalSummaryEdges.read(readRegion(r), r.size);
+        summaryEdges.put(proc, result);
+        residentSummaries.put(proc, makeResident(r.size));
+        residentEdges += r.size;
+        reloadCount++;
+        return result;
+      }
+    }
+    touch(residentSummaries.get(proc));
+    return result;
+  }
+
+  /**
+   * Record that a path edge was added to the path edges of s_p
+   */
+  void pathEdgeAdded(T s_p) {
+    Resident r = residentPaths.get(s_p);
+    if (r == null) {
+      r = makeResident(0);
+      residentPaths.put(s_p, r);
+    }
+    touch(r);
+    r.edges++;
+    residentEdges++;
+  }
+
+  /**
+   * Record that a summary edge was added to the summary edges of proc
+   */
+  void summaryEdgeAdded(P proc) {
+    Resident r = residentSummaries.get(proc);
+    if (r == null) {
+      r = makeResident(0);
+      residentSummaries.put(proc, r);
+    }
+    touch(r);
+    r.edges++;
+    residentEdges++;
+  }
+
+  /**
+   * Replace the path edges of s_p, wherever they are, by lp
+   */
+  void putPathEdges(T s_p, LocalPathEdges lp) {
+    removePathEdges(s_p);
+    pathEdges.put(s_p, lp);
+    int size = lp.size();
+    residentPaths.put(s_p, makeResident(size));
+    residentEdges += size;
+  }
+
+  /**
+   * Forget the path edges of s_p, wherever they are
+   */
+  void removePathEdges(T s_p) {
+    pathEdges.remove(s_p);
+    Region r = spilledPaths.remove(s_p);
+    if (r != null) {
+      release(r);
+    }
+    Resident e = residentPaths.remove(s_p);
+    if (e != null) {
+      residentEdges -= e.edges;
+    }
+  }
+
+  /**
+   * Forget the summary edges of proc, wherever they are
+   */
+  void removeSummaryEdges(P proc) {
+    summaryEdges.remove(proc);
+    Region r = spilledSummaries.remove(proc);
+    if (r != null) {
+      release(r);
+    }
+    Resident e = residentSummaries.remove(proc);
+    if (e != null) {
+      residentEdges -= e.edges;
+    }
+  }
+
+  /**
+   * @return the procedures that have summary edges, whether on the heap or spilled
+   */
+  Set<P> getSummaryEdgeProcedures() {
+    Set<P> result = HashSetFactory.make(summaryEdges.keySet());
+    result.addAll(spilledSummaries.keySet());
+    return result;
+  }
+
+  /**
+   * @return the entries that have path edges, whether on the heap or spilled
+   */
+  Set<T> getPathEdgeEntries() {
+    Set<T> result = HashSetFactory.make(pathEdges.keySet());
+    result.addAll(spilledPaths.keySet());
+    return result;
+  }
+
+  /**
+   * Spill the least recently used path and summary edges to the file until no more than the budget remain on the heap. Edges that
+   * cannot be written stay where they are.
+   */
+  void spillIfOverBudget() {
+    int attempts = residentPaths.size() + residentSummaries.size();
+    while (residentEdges > maxResidentEdges && attempts-- > 0) {
+      Map.Entry<T, Resident> p = eldest(residentPaths);
+      Map.Entry<P, Resident> s = eldest(residentSummaries);
+      if (p == null && s == null) {
+        return;
+      }
+      if (s == null || (p != null && p.getValue().lastUse <= s.getValue().lastUse)) {
+        T s_p = p.getKey();
+        LocalPathEdges lp = pathEdges.get(s_p);
+        Region r = lp == null ? null : write(lp);
+        if (r != null) {
+          pathEdges.remove(s_p);
+          spilledPaths.put(s_p, r);
+          residentPaths.remove(s_p);
+          residentEdges -= p.getValue().edges;
+          spillCount++;
+        } else {
+          touch(residentPaths.get(s_p));
+        }
+      } else {
+        P proc = s.getKey();
+        LocalSummaryEdges ls = summaryEdges.get(proc);
+        Region r = ls == null ? null : write(ls);
+        if (r != null) {
+          summaryEdges.remove(proc);
+          spilledSummaries.put(proc, r);
+          residentSummaries.remove(proc);
+          residentEdges -= s.getValue().edges;
+          spillCount++;
+        } else {
+          touch(residentSummaries.get(proc));
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of path and summary edges currently on the heap
+   */
+  long getResidentEdgeCount() {
+    return residentEdges;
+  }
+
+  /**
+   * @return the number of times the edges of an entry or procedure were written to the file
+   */
+  int getSpillCount() {
+    return spillCount;
+  }
+
+  /**
+   * @return the number of times the edges of an entry or procedure were read back from the file
+   */
+  int getReloadCount() {
+    return reloadCount;
+  }
+
+  /**
+   * Close and delete the file. Any edges still in it are lost.
+   */
+  void dispose() {
+    spilledPaths.clear();
+    spilledSummaries.clear();
+    try {
+      raf.close();
+    } catch (IOException e) {
+      // nothing more to do with it
+    }
+    file.delete();
+  }
+
+  private static <K> Map.Entry<K, Resident> eldest(LinkedHashMap<K, Resident> m) {
+    Iterator<Map.Entry<K, Resident>> it = m.entrySet().iterator();
+    return it.hasNext() ? it.next() : null;
+  }
+
+  private Resident makeResident(long edges) {
+    Resident r = new Resident();
+    r.edges = edges;
+    r.lastUse = clock++;
+    return r;
+  }
+
+  private void touch(Resident r) {
+    if (r != null) {
+      r.lastUse = clock++;
+    }
+  }
+
+  /**
+   * @return the region lp was written to, or null if it could not be written
+   */
+  private Region write(LocalPathEdges lp) {
+    int size = lp.size();
+    long length = 12L * size;
+    if (length > MAX_REGION) {
+      return null;
+    }
+    Region r = allocate(length, size);
+    try {
+      lp.write(map(r, FileChannel.MapMode.READ_WRITE));
+    } catch (IOException e) {
+      release(r);
+      return null;
+    }
+    return r;
+  }
+
+  /**
+   * @return the region ls was written to, or null if it could not be written
+   */
+  private Region write(LocalSummaryEdges ls) {
+    int size = ls.size();
+    long length = 16L * size;
+    if (length > MAX_REGION) {
+      return null;
+    }
+    Region r = allocate(length, size);
+    try {
+      ls.write(map(r, FileChannel.MapMode.READ_WRITE));
+    } catch (IOException e) {
+      release(r);
+      return null;
+    }
+    return r;
+  }
+
+  /**
+   * Map a region to read it back, and free it. The buffer stays valid until the region is next allocated.
+   */
+  private IntBuffer readRegion(Region r) {
+    try {
+      return map(r, FileChannel.MapMode.READ_ONLY);
+    } catch (IOException e) {
+      throw new WalaRuntimeException("could not read spilled edges from " + file, e);
+    } finally {
+      release(r);
+    }
+  }
+
+  private IntBuffer map(Region r, FileChannel.MapMode mode) throws IOException {
+    if (r.length == 0) {
+      return IntBuffer.allocate(0);
+    }
+    return channel.map(mode, r.position, r.length).asIntBuffer();
+  }
+
+  /**
+   * find room for length bytes, first fit, at the end of the file if no free region is big enough
+   */
+  private Region allocate(long length, int size) {
+    for (Map.Entry<Long, Long> e : free.entrySet()) {
+      if (e.getValue() >= length) {
+        long position = e.getKey();
+        long rest = e.getValue() - length;
+        free.remove(position);
+        if (rest > 0) {
+          free.put(position + length, rest);
+        }
+        return new Region(position, length, size);
+      }
+    }
+    Region r = new Region(end, length, size);
+    end += length;
+    return r;
+  }
+
+  /**
+   * return a region to the free list, merging it with its free neighbors
+   */
+  private void release(Region r) {
+    if (r.length == 0) {
+      return;
+    }
+    long position = r.position;
+    long length = r.length;
+    Map.Entry<Long, Long> before = free.floorEntry(position);
+    if (before != null && before.getKey() + before.getValue() == position) {
+      free.remove(before.getKey());
+      position = before.getKey();
+      length += before.getValue();
+    }
+    Long after = free.get(position + length);
+    if (after != null) {
+      free.remove(position + length);
+      length += after;
+    }
+    if (position + length == end) {
+      end = position;
+    } else {
+      free.put(position, length);
+    }
+  }
+}
@@ -10,16 +10,30 @@
  *******************************************************************************/
 package com.ibm.wala.dataflow.IFDS;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.ibm.wala.cfg.IBasicBlock;
 import com.ibm.wala.util.CancelException;
@@ -32,6 +46,8 @@ import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.collections.ToStringComparator;
+import com.ibm.wala.util.concurrent.ParallelUtil;
+import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
@@ -50,6 +66,12 @@ import com.ibm.wala.util.ref.ReferenceCleanser;
  * <li>to support exceptional control flow ... there may be several return sites for each call site.
  * <li>it supports an optional merge operator, useful for non-IFDS problems and widening.
  * <li>it stores summary edges at each callee instead of at each call site.
+ * <li>it can process path edges on several threads; see {@link #solve(ExecutorService, int)}.
+ * <li>it can keep the path and summary edges of procedures it is not working on in a file; see
+ * {@link #setSpillBudget(long, File)}.
+ * <li>it can update a result after some procedures change; see {@link #solveIncrementally(Collection)}.
+ * <li>it can be given the summary edges of some procedures up front, and then does not tabulate their bodies; see
+ * {@link #setSummaryComplete(Object, int)} and {@link PersistentSummaryStore}.
  * </ul>
  * <p>
  * 
@@ -115,7 +137,7 @@ public class TabulationSolver<T, P, F> {
    * Logically, this represents a set of edges (s_p,d_i) -> (n, d_j). The data structure is chosen to attempt to save space over
    * representing each edge explicitly.
    */
-  final private Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
+  final private ConcurrentMap<T, LocalPathEdges> pathEdges = new ConcurrentHashMap<T, LocalPathEdges>();
 
   /**
    * A map from Object (entry node in supergraph) -> CallFlowEdges.
@@ -123,23 +145,23 @@ public class TabulationSolver<T, P, F> {
    * Logically, this represents a set of edges (c,d_i) -> (s_p, d_j). The data structure is chosen to attempt to save space over
    * representing each edge explicitly.
    */
-  final private Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
+  final private ConcurrentMap<T, CallFlowEdges> callFlowEdges = new ConcurrentHashMap<T, CallFlowEdges>();
 
   /**
    * A map from Object (procedure) -> LocalSummaryEdges.
    * 
    */
-  final protected Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
+  final protected ConcurrentMap<P, LocalSummaryEdges> summaryEdges = new ConcurrentHashMap<P, LocalSummaryEdges>();
 
   /**
-   * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by procedure.
+   * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by procedure. Guarded by itself.
    */
   private final Map<P, Set<PathEdge<T>>> seeds = HashMapFactory.make();
 
   /**
    * All seeds, stored redundantly for quick access.
    */
-  private final Set<PathEdge<T>> allSeeds = HashSetFactory.make();
+  private final Set<PathEdge<T>> allSeeds = Collections.newSetFromMap(new ConcurrentHashMap<PathEdge<T>, Boolean>());
 
   /**
    * The worklist
@@ -152,18 +174,28 @@ public class TabulationSolver<T, P, F> {
   protected final IProgressMonitor progressMonitor;
 
   /**
-   * the path edge currently being processed in the main loop of {@link #forwardTabulateSLRPs()}; <code>null</code> if
-   * {@link #forwardTabulateSLRPs()} is not currently running. Note that if we are applying a summary edge in
-   * {@link #processExit(PathEdge)}, curPathEdge is modified to be the path edge terminating at the call node in the caller, to
-   * match the behavior in {@link #processCall(PathEdge)}.
+   * the edges being processed by {@link #forwardTabulateSLRPs()}, and by the calling thread outside it
    */
-  private PathEdge<T> curPathEdge;
+  private final Worker sequentialWorker = new Worker(null);
 
   /**
-   * the summary edge currently being applied in {@link #processCall(PathEdge)} or {@link #processExit(PathEdge)}, or
-   * <code>null</code> if summary edges are not currently being processed.
+   * the work list and threads of {@link #solve(ExecutorService, int)}; <code>null</code> unless it is running. While it is, the
+   * structures that record path, call flow and summary edges are only accessed while holding their locks.
    */
-  private PathEdge<T> curSummaryEdge;
+  private ParallelWorklist parallel;
+
+  /**
+   * where path and summary edges are spilled to when there are too many of them; <code>null</code> unless
+   * {@link #setSpillBudget(long, File)} was called. While it is not, the maps of path and summary edges only hold those on the
+   * heap, and must be read through {@link #getLocalPathEdges(Object)} and {@link #getLocalSummaryEdges(Object)}.
+   */
+  private SpillingEdgeStore<T, P> spill;
+
+  /**
+   * a map from entry s_p to the facts d1 s.t. all summary edges from <s_p,d1> were given by {@link #addSummaryEdge}, so that the
+   * procedure is not tabulated from <s_p,d1>. Only modified when not solving.
+   */
+  private final Map<T, MutableIntSet> completeSummaries = HashMapFactory.make();
 
   /**
    * @param p a description of the dataflow problem to solve
@@ -217,6 +249,385 @@ public class TabulationSolver<T, P, F> {
     }
   }
 
+  /**
+   * Solve the dataflow problem, processing path edges on several threads. Each thread keeps the path edges it discovers to itself,
+   * and takes edges from the others when it runs out. The result is the same as that of {@link #solve()}.
+   * <p>
+   * The supergraph, flow functions and domain must tolerate being used by several threads at once. Note that an
+   * {@link ICFGSupergraph} builds itself lazily, so it should be fully built, for instance by iterating over its nodes, first.
+   * Worklist priorities are ignored, and soft reference caches are not periodically wiped, since other threads may be using them.
+   * 
+   * @param executor the pool on which to process path edges
+   * @param nThreads the number of path edges to process at once
+   * @return a representation of the result
+   * @throws UnsupportedOperationException if the problem has a merge function, whose results depend on the order in which path
+   *           edges are processed, or if a spill budget was set
+   */
+  public TabulationResult<T, P, F> solve(ExecutorService executor, int nThreads) throws CancelException {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    if (problem.getMergeFunction() != null) {
+      throw new UnsupportedOperationException("cannot tabulate a problem with a merge function in parallel");
+    }
+    if (spill != null) {
+      throw new UnsupportedOperationException("cannot spill edges while tabulating in parallel");
+    }
+    parallel = new ParallelWorklist(nThreads);
+    try {
+      if (worklist != null) {
+        while (worklist.size() > 0) {
+          parallel.insert(worklist.take());
+        }
+      }
+      initialize();
+      parallel.run(executor);
+      Result r = new Result();
+      return r;
+    } catch (CancelException e) {
+      // store a partially-tabulated result in the thrown exception.
+      Result r = new Result();
+      throw new TabulationCancelException(e, r);
+    } catch (CancelRuntimeException e) {
+      // store a partially-tabulated result in the thrown exception.
+      Result r = new Result();
+      throw new TabulationCancelException(e, r);
+    } finally {
+      parallel = null;
+    }
+  }
+
+  /**
+   * Update the result of an earlier {@link #solve()} after the nodes, edges or flow functions of some procedures of the supergraph
+   * changed, giving the same result as solving again from scratch.
+   * <p>
+   * The path edges and summary edges of a procedure only depend on the procedure and on those it calls. So only those of the
+   * changed procedures and of their transitive callers are discarded and tabulated again, from the seeds of the problem; the
+   * summaries of the other procedures are reused as they are. Finally, the path edges of other procedures for entry facts that are
+   * no longer reached are discarded.
+   * <p>
+   * The supergraph must be the one the problem was first solved on, with the changes made in place, and nodes of procedures that
+   * did not change must keep their numbers. The callers of a procedure that was removed from the supergraph must be among the
+   * changed procedures. Seeds that clients added to the changed procedures or their callers with {@link #addSeed(PathEdge)} are
+   * discarded, and must be added again.
+   * 
+   * @param changed the procedures that changed, or were added
+   * @return a representation of the result
+   */
+  public TabulationResult<T, P, F> solveIncrementally(Collection<? extends P> changed) throws CancelException {
+    if (changed == null) {
+      throw new IllegalArgumentException("changed is null");
+    }
+    Set<P> affected = getAffectedProcedures(changed);
+    discardEdges(affected);
+    discardSeeds(affected);
+    try {
+      reseed(affected);
+      forwardTabulateSLRPs();
+      discardUnreachablePathEdges();
+      Result r = new Result();
+      return r;
+    } catch (CancelException e) {
+      // store a partially-tabulated result in the thrown exception.
+      Result r = new Result();
+      throw new TabulationCancelException(e, r);
+    } catch (CancelRuntimeException e) {
+      // store a partially-tabulated result in the thrown exception.
+      Result r = new Result();
+      throw new TabulationCancelException(e, r);
+    }
+  }
+
+  /**
+   * @return the changed procedures and their transitive callers, whose path and summary edges may have changed
+   */
+  protected Set<P> getAffectedProcedures(Collection<? extends P> changed) {
+    Set<P> result = HashSetFactory.make();
+    result.addAll(changed);
+    List<P> todo = new ArrayList<P>(changed);
+    while (!todo.isEmpty()) {
+      P p = todo.remove(todo.size() - 1);
+      for (T entry : supergraph.getEntriesForProcedure(p)) {
+        for (Iterator<? extends T> it = supergraph.getPredNodes(entry); it.hasNext();) {
+          T pred = it.next();
+          if (supergraph.isCall(pred) && result.add(supergraph.getProcOf(pred))) {
+            todo.add(supergraph.getProcOf(pred));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Discard the path and summary edges of the affected procedures, and the call flow edges from their call sites
+   */
+  private void discardEdges(Set<P> affected) {
+    for (T s_p : getPathEdgeEntries()) {
+      if (!supergraph.containsNode(s_p) || affected.contains(supergraph.getProcOf(s_p))) {
+        removeLocalPathEdges(s_p);
+        callFlowEdges.remove(s_p);
+      }
+    }
+    for (Iterator<T> it = completeSummaries.keySet().iterator(); it.hasNext();) {
+      T s_p = it.next();
+      if (!supergraph.containsNode(s_p) || affected.contains(supergraph.getProcOf(s_p))) {
+        it.remove();
+      }
+    }
+    for (P proc : affected) {
+      if (spill == null) {
+        summaryEdges.remove(proc);
+      } else {
+        spill.removeSummaryEdges(proc);
+      }
+    }
+    for (CallFlowEdges callFlow : callFlowEdges.values()) {
+      MutableIntSet discard = MutableSparseIntSet.makeEmpty();
+      for (IntIterator d2s = callFlow.getCallFlowTargets().intIterator(); d2s.hasNext();) {
+        IntSet cs = callFlow.getCallFlowSourceNodes(d2s.next());
+        if (cs != null) {
+          for (IntIterator it = cs.intIterator(); it.hasNext();) {
+            int c = it.next();
+            T call = supergraph.getNode(c);
+            if (call == null || affected.contains(supergraph.getProcOf(call))) {
+              discard.add(c);
+            }
+          }
+        }
+      }
+      if (!discard.isEmpty()) {
+        callFlow.removeCallSites(discard);
+      }
+    }
+  }
+
+  /**
+   * Discard the seeds of the affected procedures, before {@link #solveIncrementally(Collection)} adds them again.
+   */
+  protected void discardSeeds(Set<P> affected) {
+    synchronized (seeds) {
+      for (P proc : affected) {
+        Set<PathEdge<T>> s = seeds.remove(proc);
+        if (s != null) {
+          allSeeds.removeAll(s);
+        }
+      }
+    }
+  }
+
+  /**
+   * Add the seeds that {@link #solveIncrementally(Collection)} should tabulate the affected procedures from again. By default, these
+   * are the initial seeds; seeds in procedures that were not affected are still there, and are ignored.
+   */
+  protected void reseed(Set<P> affected) {
+    initialize();
+  }
+
+  /**
+   * Discard the path edges for the entry facts that are not reached from a seed any more, since they would not have been
+   * discovered by solving from scratch.
+   */
+  private void discardUnreachablePathEdges() {
+    // a map from entry s_p to the facts d1 s.t. <s_p,d1> is reached
+    Map<T, MutableIntSet> reached = HashMapFactory.make();
+    for (PathEdge<T> seed : allSeeds) {
+      findOrCreateFacts(reached, seed.entry).add(seed.d1);
+    }
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Map.Entry<T, CallFlowEdges> e : callFlowEdges.entrySet()) {
+        T s_p = e.getKey();
+        CallFlowEdges callFlow = e.getValue();
+        for (IntIterator d2s = callFlow.getCallFlowTargets().intIterator(); d2s.hasNext();) {
+          int d2 = d2s.next();
+          MutableIntSet facts = reached.get(s_p);
+          if (facts != null && facts.contains(d2)) {
+            continue;
+          }
+          IntSet cs = callFlow.getCallFlowSourceNodes(d2);
+          if (cs != null) {
+            for (IntIterator it = cs.intIterator(); it.hasNext();) {
+              int c = it.next();
+              if (isReached(supergraph.getNode(c), callFlow.getCallFlowSources(c, d2), reached)) {
+                findOrCreateFacts(reached, s_p).add(d2);
+                changed = true;
+                break;
+              }
+            }
+          }
+        }
+      }
+    }
+    for (T s_p : getPathEdgeEntries()) {
+      IntSet facts = reached.get(s_p);
+      if (facts == null) {
+        removeLocalPathEdges(s_p);
+      } else {
+        LocalPathEdges lp = getLocalPathEdges(s_p);
+        LocalPathEdges kept = lp.restrictTo(facts);
+        if (kept != lp) {
+          if (spill == null) {
+            pathEdges.put(s_p, kept);
+          } else {
+            spill.putPathEdges(s_p, kept);
+          }
+        }
+      }
+      if (spill != null) {
+        spill.spillIfOverBudget();
+      }
+    }
+  }
+
+  /**
+   * @return true iff one of the facts holds at the call node by way of a path edge from a reached entry fact
+   */
+  private boolean isReached(T call, IntSet facts, Map<T, MutableIntSet> reached) {
+    if (call == null || facts == null) {
+      return false;
+    }
+    int n = supergraph.getLocalBlockNumber(call);
+    for (T s_p : getEntries(supergraph.getProcOf(call))) {
+      IntSet entryFacts = reached.get(s_p);
+      LocalPathEdges lp = entryFacts == null ? null : getLocalPathEdges(s_p);
+      if (lp != null) {
+        for (IntIterator it = facts.intIterator(); it.hasNext();) {
+          IntSet sources = lp.getInverse(n, it.next());
+          if (sources != null && sources.containsAny(entryFacts)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static <T> MutableIntSet findOrCreateFacts(Map<T, MutableIntSet> m, T key) {
+    MutableIntSet result = m.get(key);
+    if (result == null) {
+      result = MutableSparseIntSet.makeEmpty();
+      m.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Record a summary edge <s_p,d1> -> <x,d2> that was computed elsewhere, for instance by an earlier run.
+   * 
+   * @param s_p an entry of a procedure
+   * @param x an exit of the same procedure
+   */
+  public void addSummaryEdge(T s_p, int d1, T x, int d2) {
+    if (s_p == null) {
+      throw new IllegalArgumentException("s_p is null");
+    }
+    if (x == null) {
+      throw new IllegalArgumentException("x is null");
+    }
+    P proc = supergraph.getProcOf(s_p);
+    if (insertSummaryEdge(findOrCreateLocalSummaryEdges(proc), supergraph.getLocalBlockNumber(s_p), supergraph
+        .getLocalBlockNumber(x), d1, d2) && spill != null) {
+      spill.summaryEdgeAdded(proc);
+    }
+  }
+
+  /**
+   * Declare that all the summary edges from <s_p,d1> have been recorded with {@link #addSummaryEdge(Object, int, Object, int)}.
+   * When a call reaches <s_p,d1>, those summary edges are applied, and the body of the procedure is not tabulated for d1. The
+   * summary edges must then reflect the procedure and everything it calls in this supergraph. Must not be called while solving.
+   */
+  public void setSummaryComplete(T s_p, int d1) {
+    if (s_p == null) {
+      throw new IllegalArgumentException("s_p is null");
+    }
+    findOrCreateFacts(completeSummaries, s_p).add(d1);
+  }
+
+  /**
+   * @return true iff the summary edges from <s_p,d1> were declared complete by {@link #setSummaryComplete(Object, int)}
+   */
+  public boolean isSummaryComplete(T s_p, int d1) {
+    IntSet facts = completeSummaries.get(s_p);
+    return facts != null && facts.contains(d1);
+  }
+
+  /**
+   * @return the facts d1 s.t. all summary edges from <s_p,d1> are known, either because the procedure was tabulated from
+   *         <s_p,d1>, or because they were declared complete; once solving finishes, these are the summaries worth keeping
+   */
+  public IntSet getSummarizedFacts(T s_p) {
+    MutableIntSet result = MutableSparseIntSet.makeEmpty();
+    IntSet complete = completeSummaries.get(s_p);
+    if (complete != null) {
+      result.addAll(complete);
+    }
+    LocalPathEdges lp = getLocalPathEdges(s_p);
+    if (lp != null) {
+      int n = supergraph.getLocalBlockNumber(s_p);
+      for (IntIterator it = lp.getReachable(n).intIterator(); it.hasNext();) {
+        int d1 = it.next();
+        if (lp.contains(d1, n, d1)) {
+          result.add(d1);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return set of d2 s.t. <s_p,d1> -> <x,d2> is recorded as a summary edge, or null if none
+   */
+  public IntSet getSummaryEdges(T s_p, int d1, T x) {
+    LocalSummaryEdges summaries = getLocalSummaryEdges(supergraph.getProcOf(s_p));
+    if (summaries == null) {
+      return null;
+    }
+    return summaries.getSummaryEdges(supergraph.getLocalBlockNumber(s_p), supergraph.getLocalBlockNumber(x), d1);
+  }
+
+  /**
+   * Keep at most maxResidentEdges path and summary edges on the heap while solving, so that problems too large for the heap finish,
+   * slowly, instead of failing. When there are more, the edges of the procedure entries and procedures that were used least
+   * recently are written to a memory-mapped file, and read back when they are next needed. Must be called before solving; not
+   * supported by {@link #solve(ExecutorService, int)}.
+   * 
+   * @param maxResidentEdges the number of path and summary edges to keep on the heap
+   * @param directory where to create the file, or null for the default temporary directory
+   * @throws IOException if the file cannot be created
+   * @throws IllegalStateException if some path edges have already been recorded
+   */
+  public void setSpillBudget(long maxResidentEdges, File directory) throws IOException {
+    if (maxResidentEdges < 0) {
+      throw new IllegalArgumentException("illegal maxResidentEdges: " + maxResidentEdges);
+    }
+    if (!pathEdges.isEmpty() || spill != null) {
+      throw new IllegalStateException("the spill budget must be set before solving, and only once");
+    }
+    spill = new SpillingEdgeStore<T, P>(pathEdges, summaryEdges, problem.getMergeFunction() != null, maxResidentEdges, directory);
+  }
+
+  /**
+   * @return the number of times the path or summary edges of a procedure were written to the file given by
+   *         {@link #setSpillBudget(long, File)}, or 0 if there is no budget
+   */
+  public int getSpillCount() {
+    return spill == null ? 0 : spill.getSpillCount();
+  }
+
+  /**
+   * Delete the file that edges are spilled to, if any. The results then no longer reflect the edges that were in it.
+   */
+  public void disposeSpillFile() {
+    if (spill != null) {
+      spill.dispose();
+    }
+  }
+
   /**
    * Start tabulation with the initial seeds.
    */
@@ -230,8 +641,10 @@ public class TabulationSolver<T, P, F> {
    * Restart tabulation from a particular path edge. Use with care.
    */
   public void addSeed(PathEdge<T> seed) {
-    Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
-    s.add(seed);
+    synchronized (seeds) {
+      Set<PathEdge<T>> s = MapUtil.findOrCreateSet(seeds, supergraph.getProcOf(seed.entry));
+      s.add(seed);
+    }
     allSeeds.add(seed);
     propagate(seed.entry, seed.d1, seed.target, seed.d2);
   }
@@ -242,7 +655,7 @@ public class TabulationSolver<T, P, F> {
    * @throws CancelException
    */
   private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+    assert sequentialWorker.curPathEdge == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -256,38 +669,48 @@ public class TabulationSolver<T, P, F> {
       }
 
       final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
-      }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
+      tabulate(edge, sequentialWorker);
+      if (spill != null) {
+        spill.spillIfOverBudget();
       }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+    }
+    sequentialWorker.curPathEdge = null;
+  }
+
+  /**
+   * Process one path edge taken from the work list, on the thread of worker w.
+   */
+  private void tabulate(final PathEdge<T> edge, Worker w) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    w.curPathEdge = edge;
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
   }
 
   /**
@@ -362,30 +785,72 @@ public class TabulationSolver<T, P, F> {
       System.err.println("process exit: " + edge);
     }
 
-    final LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(supergraph.getProcOf(edge.target));
+    final P proc = supergraph.getProcOf(edge.target);
+    final LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(proc);
     int s_p_n = supergraph.getLocalBlockNumber(edge.entry);
     int x = supergraph.getLocalBlockNumber(edge.target);
-    if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
-      summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
+    // in parallel, the summary edge must be recorded before the call flow edges are read, and processParticularCallee records a
+    // call flow edge before it reads the summary edges; so for each pair of them, at least one of the two threads sees both.
+    if (parallel == null) {
+      if (insertSummaryEdge(summaries, s_p_n, x, edge.d1, edge.d2) && spill != null) {
+        spill.summaryEdgeAdded(proc);
+      }
+    } else {
+      synchronized (summaries) {
+        insertSummaryEdge(summaries, s_p_n, x, edge.d1, edge.d2);
+      }
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    Worker w = currentWorker();
+    assert w.curSummaryEdge == null : "curSummaryEdge should be null here";
+    w.curSummaryEdge = edge;
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
     // [22] for each c /in callers(p)
-    IntSet callFlowSourceNodes = callFlow.getCallFlowSourceNodes(edge.d1);
+    IntSet callFlowSourceNodes;
+    if (parallel == null) {
+      callFlowSourceNodes = callFlow.getCallFlowSourceNodes(edge.d1);
+    } else {
+      synchronized (callFlow) {
+        callFlowSourceNodes = copy(callFlow.getCallFlowSourceNodes(edge.d1));
+      }
+    }
     if (callFlowSourceNodes != null) {
       for (IntIterator it = callFlowSourceNodes.intIterator(); it.hasNext();) {
         // [23] for each d4 s.t. <c,d4> -> <s_p,d1> occurred earlier
         int globalC = it.next();
-        final IntSet D4 = callFlow.getCallFlowSources(globalC, edge.d1);
+        final IntSet D4;
+        if (parallel == null) {
+          D4 = callFlow.getCallFlowSources(globalC, edge.d1);
+        } else {
+          synchronized (callFlow) {
+            D4 = copy(callFlow.getCallFlowSources(globalC, edge.d1));
+          }
+        }
 
         // [23] for each d5 s.t. <e_p,d2> -> <returnSite(c),d5> ...
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    w.curSummaryEdge = null;
+  }
+
+  /**
+   * @return true iff the summary edge was not already in summaries
+   */
+  private static boolean insertSummaryEdge(LocalSummaryEdges summaries, int s_p, int x, int d1, int d2) {
+    if (summaries.contains(s_p, x, d1, d2)) {
+      return false;
+    }
+    summaries.insertSummaryEdge(s_p, x, d1, d2);
+    return true;
+  }
+
+  /**
+   * @return a copy of s, which another thread may be modifying once the lock that guards it is released, or null if s is null
+   */
+  private static IntSet copy(IntSet s) {
+    return s == null ? null : MutableSparseIntSet.make(s);
   }
 
   /**
@@ -479,6 +944,7 @@ public class TabulationSolver<T, P, F> {
    */
   private void propToReturnSite(final T c, final T[] entries, final T retSite, final int d4, final IntSet D5) {
     if (D5 != null) {
+      final Worker w = currentWorker();
       D5.foreach(new IntSetAction() {
         @Override
         public void act(final int d5) {
@@ -504,7 +970,7 @@ public class TabulationSolver<T, P, F> {
                 @Override
                 public void act(int d3) {
                   // set curPathEdge to be consistent with its setting in processCall() when applying a summary edge
-                  curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
+                  w.curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
                   propagate(s_p, d3, retSite, d5);
                 }
               });
@@ -523,11 +989,17 @@ public class TabulationSolver<T, P, F> {
    */
   protected IntSet getInversePathEdges(T s_p, T n, int d2) {
     int number = supergraph.getLocalBlockNumber(n);
-    LocalPathEdges lp = pathEdges.get(s_p);
+    LocalPathEdges lp = getLocalPathEdges(s_p);
     if (lp == null) {
       return null;
     }
-    return lp.getInverse(number, d2);
+    if (parallel == null) {
+      return lp.getInverse(number, d2);
+    } else {
+      synchronized (lp) {
+        return copy(lp.getInverse(number, d2));
+      }
+    }
   }
 
   /**
@@ -641,21 +1113,28 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
+      final Worker w = currentWorker();
 
       reached.foreach(new IntSetAction() {
         @Override
         public void act(final int d1) {
-          // we get reuse if we _don't_ propagate a new fact to the callee entry
-          final boolean gotReuse = !propagate(calleeEntry, d1, calleeEntry, d1);
+          // we get reuse if we _don't_ propagate a new fact to the callee entry, or if its summaries were given
+          final boolean gotReuse = isSummaryComplete(calleeEntry, d1) || !propagate(calleeEntry, d1, calleeEntry, d1);
           recordCall(edge.target, calleeEntry, d1, gotReuse);
           // cache the fact that we've flowed <c, d2> -> <callee, d1> by a
           // call flow
-          callFlow.addCallEdge(callNodeNum, edge.d2, d1);
+          if (parallel == null) {
+            callFlow.addCallEdge(callNodeNum, edge.d2, d1);
+          } else {
+            synchronized (callFlow) {
+              callFlow.addCallEdge(callNodeNum, edge.d2, d1);
+            }
+          }
           // handle summary edges now as well. this is different from the PoPL
-          // 95 paper.
+          // 95 paper. in parallel, the summaries must be looked up after the call flow edge is recorded; see processExit.
+          final LocalSummaryEdges summaries = getLocalSummaryEdges(supergraph.getProcOf(calleeEntry));
           if (summaries != null) {
             // for each exit from the callee
             P p = supergraph.getProcOf(calleeEntry);
@@ -668,7 +1147,14 @@ public class TabulationSolver<T, P, F> {
               int x_num = supergraph.getLocalBlockNumber(exit);
               // reachedBySummary := {d2} s.t. <callee,d1> -> <exit,d2>
               // was recorded as a summary edge
-              IntSet reachedBySummary = summaries.getSummaryEdges(s_p_num, x_num, d1);
+              IntSet reachedBySummary;
+              if (parallel == null) {
+                reachedBySummary = summaries.getSummaryEdges(s_p_num, x_num, d1);
+              } else {
+                synchronized (summaries) {
+                  reachedBySummary = copy(summaries.getSummaryEdges(s_p_num, x_num, d1));
+                }
+              }
               if (reachedBySummary != null) {
                 for (final T returnSite : returnSitesForCallee) {
                   // if "exit" is a valid exit from the callee to the return
@@ -678,8 +1164,8 @@ public class TabulationSolver<T, P, F> {
                     reachedBySummary.foreach(new IntSetAction() {
                       @Override
                       public void act(int d2) {
-                        assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                        curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                        assert w.curSummaryEdge == null : "curSummaryEdge should be null here";
+                        w.curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
                         if (retf instanceof IBinaryReturnFlowFunction) {
                           final IntSet D5 = computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                           if (D5 != null) {
@@ -701,7 +1187,7 @@ public class TabulationSolver<T, P, F> {
                             });
                           }
                         }
-                        curSummaryEdge = null;
+                        w.curSummaryEdge = null;
                       }
                     });
                   }
@@ -795,19 +1281,61 @@ public class TabulationSolver<T, P, F> {
 
     assert j >= 0;
 
-    if (!pLocal.contains(i, number, j)) {
+    boolean added;
+    if (parallel == null) {
+      added = addPathEdge(pLocal, i, number, j);
+    } else {
+      synchronized (pLocal) {
+        added = addPathEdge(pLocal, i, number, j);
+      }
+    }
+    if (added) {
       if (DEBUG_LEVEL > 0) {
         System.err.println("propagate " + s_p + "  " + i + " " + number + " " + j);
       }
-      pLocal.addPathEdge(i, number, j);
+      if (spill != null) {
+        spill.pathEdgeAdded(s_p);
+      }
       addToWorkList(s_p, i, n, j);
-      return true;
     }
-    return false;
+    return added;
+  }
+
+  /**
+   * @return true iff the path edge was not already in pLocal
+   */
+  private static boolean addPathEdge(LocalPathEdges pLocal, int i, int n, int j) {
+    if (pLocal.contains(i, n, j)) {
+      return false;
+    }
+    pLocal.addPathEdge(i, n, j);
+    return true;
   }
 
   public LocalPathEdges getLocalPathEdges(T s_p) {
-    return pathEdges.get(s_p);
+    return spill == null ? pathEdges.get(s_p) : spill.getPathEdges(s_p);
+  }
+
+  /**
+   * @return the entries that have path edges
+   */
+  private Set<T> getPathEdgeEntries() {
+    return spill == null ? HashSetFactory.make(pathEdges.keySet()) : spill.getPathEdgeEntries();
+  }
+
+  private void removeLocalPathEdges(T s_p) {
+    if (spill == null) {
+      pathEdges.remove(s_p);
+    } else {
+      spill.removePathEdges(s_p);
+    }
+  }
+
+  /**
+   * @return the summary edges of proc, or null if there are none
+   */
+  protected LocalSummaryEdges getLocalSummaryEdges(P proc) {
+    return spill == null ? summaryEdges.get(proc) : spill.getSummaryEdges(proc);
   }
 
   /**
@@ -822,7 +1350,7 @@ public class TabulationSolver<T, P, F> {
     assert j >= 0;
     IMergeFunction alpha = problem.getMergeFunction();
     if (alpha != null) {
-      LocalPathEdges lp = pathEdges.get(s_p);
+      LocalPathEdges lp = getLocalPathEdges(s_p);
       IntSet preExistFacts = lp.getReachable(supergraph.getLocalBlockNumber(n), i);
       if (preExistFacts == null) {
         return j;
@@ -841,6 +1369,10 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected void addToWorkList(T s_p, int i, T n, int j) {
+    if (parallel != null) {
+      parallel.insert(PathEdge.createPathEdge(s_p, i, n, j));
+      return;
+    }
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -851,10 +1383,13 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
-    LocalPathEdges result = pathEdges.get(s_p);
+    LocalPathEdges result = getLocalPathEdges(s_p);
     if (result == null) {
       result = makeLocalPathEdges();
-      pathEdges.put(s_p, result);
+      LocalPathEdges old = pathEdges.putIfAbsent(s_p, result);
+      if (old != null) {
+        result = old;
+      }
     }
     return result;
   }
@@ -864,10 +1399,13 @@ public class TabulationSolver<T, P, F> {
   }
 
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
-    LocalSummaryEdges result = summaryEdges.get(proc);
+    LocalSummaryEdges result = getLocalSummaryEdges(proc);
     if (result == null) {
       result = new LocalSummaryEdges();
-      summaryEdges.put(proc, result);
+      LocalSummaryEdges old = summaryEdges.putIfAbsent(proc, result);
+      if (old != null) {
+        result = old;
+      }
     }
     return result;
   }
@@ -876,7 +1414,10 @@ public class TabulationSolver<T, P, F> {
     CallFlowEdges result = callFlowEdges.get(s_p);
     if (result == null) {
       result = new CallFlowEdges();
-      callFlowEdges.put(s_p, result);
+      CallFlowEdges old = callFlowEdges.putIfAbsent(s_p, result);
+      if (old != null) {
+        result = old;
+      }
     }
     return result;
   }
@@ -889,27 +1430,38 @@ public class TabulationSolver<T, P, F> {
   public IntSet getResult(T node) {
     P proc = supergraph.getProcOf(node);
     int n = supergraph.getLocalBlockNumber(node);
-    T[] entries = supergraph.getEntriesForProcedure(proc);
     MutableIntSet result = MutableSparseIntSet.makeEmpty();
 
-    Set<T> allEntries = HashSetFactory.make(Arrays.asList(entries));
-    Set<PathEdge<T>> pSeeds = seeds.get(proc);
-    if (pSeeds != null) {
-    	for (PathEdge<T> seed : pSeeds) {
-    		allEntries.add(seed.entry);
-    	}
-    }    
-
+    Set<T> allEntries = getEntries(proc);
     for (T entry : allEntries){
-    	LocalPathEdges lp = pathEdges.get(entry);
+    	LocalPathEdges lp = getLocalPathEdges(entry);
     	if (lp != null) {
     		result.addAll(lp.getReachable(n));
     	}
     }    	
+    if (spill != null) {
+      spill.spillIfOverBudget();
+    }
     
     return result;
   }
 
+  /**
+   * @return the entries of proc, and the entries of the seeds in proc
+   */
+  private Set<T> getEntries(P proc) {
+    Set<T> result = HashSetFactory.make(Arrays.asList(supergraph.getEntriesForProcedure(proc)));
+    synchronized (seeds) {
+      Set<PathEdge<T>> pSeeds = seeds.get(proc);
+      if (pSeeds != null) {
+        for (PathEdge<T> seed : pSeeds) {
+          result.add(seed.entry);
+        }
+      }
+    }
+    return result;
+  }
+
   public class Result implements TabulationResult<T, P, F> {
 
     /**
@@ -976,13 +1528,15 @@ public class TabulationSolver<T, P, F> {
     @Override
     public Collection<T> getSupergraphNodesReached() {
       Collection<T> result = HashSetFactory.make();
-      for (Entry<T, LocalPathEdges> e : pathEdges.entrySet()) {
-        T key = e.getKey();
+      for (T key : getPathEdgeEntries()) {
         P proc = supergraph.getProcOf(key);
-        IntSet reached = e.getValue().getReachedNodeNumbers();
+        IntSet reached = getLocalPathEdges(key).getReachedNodeNumbers();
         for (IntIterator ii = reached.intIterator(); ii.hasNext();) {
           result.add(supergraph.getLocalBlock(proc, ii.next()));
         }
+        if (spill != null) {
+          spill.spillIfOverBudget();
+        }
       }
 
       return result;
@@ -996,7 +1550,7 @@ public class TabulationSolver<T, P, F> {
      */
     @Override
     public IntSet getSummaryTargets(T n1, int d1, T n2) {
-      LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(n1));
+      LocalSummaryEdges summaries = getLocalSummaryEdges(supergraph.getProcOf(n1));
       if (summaries == null) {
         return null;
       }
@@ -1058,11 +1612,229 @@ public class TabulationSolver<T, P, F> {
     return progressMonitor;
   }
 
+  /**
+   * @return the path edge currently being processed by the calling thread in the main loop of {@link #forwardTabulateSLRPs()} or
+   *         of {@link #solve(ExecutorService, int)}; <code>null</code> if it is not processing one. Note that if we are applying a
+   *         summary edge in {@link #processExit(PathEdge)}, this is the path edge terminating at the call node in the caller, to
+   *         match the behavior in {@link #processCall(PathEdge)}.
+   */
   protected PathEdge<T> getCurPathEdge() {
-    return curPathEdge;
+    return currentWorker().curPathEdge;
   }
 
+  /**
+   * @return the summary edge currently being applied by the calling thread in {@link #processCall(PathEdge)} or
+   *         {@link #processExit(PathEdge)}, or <code>null</code> if it is not applying summary edges.
+   */
   protected PathEdge<T> getCurSummaryEdge() {
-    return curSummaryEdge;
+    return currentWorker().curSummaryEdge;
+  }
+
+  /**
+   * @return the state of the calling thread
+   */
+  private Worker currentWorker() {
+    ParallelWorklist p = parallel;
+    if (p != null) {
+      Worker w = p.current.get();
+      if (w != null) {
+        return w;
+      }
+    }
+    return sequentialWorker;
+  }
+
+  /**
+   * The state of a thread that processes path edges
+   */
+  private class Worker {
+    /**
+     * the path edge being processed; see {@link TabulationSolver#getCurPathEdge()}
+     */
+    PathEdge<T> curPathEdge;
+
+    /**
+     * the summary edge being applied; see {@link TabulationSolver#getCurSummaryEdge()}
+     */
+    PathEdge<T> curSummaryEdge;
+
+    /**
+     * the path edges this thread discovered and has not yet processed, or that it took from another; null for the sequential
+     * solver
+     */
+    final ConcurrentLinkedDeque<PathEdge<T>> deque;
+
+    Worker(ConcurrentLinkedDeque<PathEdge<T>> deque) {
+      this.deque = deque;
+    }
+  }
+
+  /**
+   * The work list of {@link TabulationSolver#solve(ExecutorService, int)}: a deque per thread. A thread pushes the path edges it
+   * discovers onto the front of its own deque and takes from the front, so that it works depth-first on the procedures it is
+   * already in; when its deque is empty it steals from the back of the others'.
+   */
+  private class ParallelWorklist {
+    final List<Worker> workers;
+
+    /**
+     * the worker run by each thread of the pool, while it runs one
+     */
+    final ThreadLocal<Worker> current = new ThreadLocal<Worker>();
+
+    /**
+     * number of path edges inserted and not yet completely processed; the tabulation is done when it reaches 0
+     */
+    final AtomicLong pending = new AtomicLong();
+
+    /**
+     * set when some thread fails, so that the others stop
+     */
+    volatile boolean aborted = false;
+
+    /**
+     * guards the parking of idle workers, so that none misses a wake up
+     */
+    final ReentrantLock idleLock = new ReentrantLock();
+
+    /**
+     * signalled once for each edge inserted while some worker is idle, and to all when the tabulation is over
+     */
+    final Condition wakeUp = idleLock.newCondition();
+
+    /**
+     * number of workers parked on wakeUp, or about to park
+     */
+    final AtomicInteger idle = new AtomicInteger();
+
+    ParallelWorklist(int nThreads) {
+      workers = new ArrayList<Worker>(nThreads);
+      for (int i = 0; i < nThreads; i++) {
+        workers.add(new Worker(new ConcurrentLinkedDeque<PathEdge<T>>()));
+      }
+    }
+
+    void insert(PathEdge<T> edge) {
+      // count the edge before it can be taken, so that pending never drops to 0 while work remains
+      pending.incrementAndGet();
+      Worker w = current.get();
+      (w == null ? workers.get(0) : w).deque.addFirst(edge);
+      // an idle worker counts itself before it looks for edges, so it sees this edge or gets the signal
+      if (idle.get() > 0) {
+        idleLock.lock();
+        try {
+          wakeUp.signal();
+        } finally {
+          idleLock.unlock();
+        }
+      }
+    }
+
+    void wakeAll() {
+      idleLock.lock();
+      try {
+        wakeUp.signalAll();
+      } finally {
+        idleLock.unlock();
+      }
+    }
+
+    void abort() {
+      aborted = true;
+      wakeAll();
+    }
+
+    PathEdge<T> take(int self) {
+      PathEdge<T> edge = workers.get(self).deque.pollFirst();
+      for (int i = 1; edge == null && i < workers.size(); i++) {
+        edge = workers.get((self + i) % workers.size()).deque.pollLast();
+      }
+      return edge;
+    }
+
+    void run(ExecutorService executor) throws CancelException {
+      List<Future<Object>> futures = new ArrayList<Future<Object>>(workers.size());
+      for (int i = 0; i < workers.size(); i++) {
+        final int self = i;
+        futures.add(executor.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws CancelException {
+            current.set(workers.get(self));
+            boolean done = false;
+            try {
+              work(self);
+              done = true;
+            } finally {
+              if (!done) {
+                abort();
+              }
+              workers.get(self).curPathEdge = null;
+              current.remove();
+            }
+            return null;
+          }
+        }));
+      }
+      Throwable failure = null;
+      for (Future<Object> f : futures) {
+        try {
+          f.get();
+        } catch (InterruptedException e) {
+          abort();
+          Thread.currentThread().interrupt();
+          Assertions.UNREACHABLE("interrupted while tabulating");
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+      }
+      if (failure != null) {
+        ParallelUtil.rethrow(failure, CancelException.class);
+      }
+    }
+
+    private void work(int self) throws CancelException {
+      Worker w = workers.get(self);
+      while (!aborted) {
+        MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+        PathEdge<T> edge = take(self);
+        if (edge == null) {
+          edge = awaitEdge(self);
+          if (edge == null) {
+            return;
+          }
+        }
+        try {
+          tabulate(edge, w);
+        } finally {
+          if (pending.decrementAndGet() == 0) {
+            wakeAll();
+          }
+        }
+      }
+    }
+
+    /**
+     * Park until some thread inserts an edge, since other threads are still processing edges and may discover more.
+     * 
+     * @return an edge to process, or null when the tabulation is over or aborted
+     */
+    private PathEdge<T> awaitEdge(int self) {
+      idleLock.lock();
+      idle.incrementAndGet();
+      try {
+        while (true) {
+          PathEdge<T> edge = take(self);
+          if (edge != null || pending.get() == 0 || aborted) {
+            return edge;
+          }
+          wakeUp.awaitUninterruptibly();
+        }
+      } finally {
+        idle.decrementAndGet();
+        idleLock.unlock();
+      }
+    }
   }
 }
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.demandpa.alg;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.demandpa.alg.refinepolicy.RefinementPolicyFactory;
+import com.ibm.wala.demandpa.alg.statemachine.StateMachine.State;
+import com.ibm.wala.demandpa.alg.statemachine.StateMachineFactory;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel;
+import com.ibm.wala.demandpa.util.MemoryAccessMap;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.concurrent.ParallelUtil;
+import com.ibm.wala.util.intset.IntSetAction;
+
+/**
+ * A long-lived service that answers many demand-driven points-to queries over the same call graph and heap model, as an IDE-like
+ * client would.
+ * <p>
+ * The result of each query is remembered, keyed by the queried {@link PointerKeyAndState}, and later queries of the same pointer
+ * are answered from it when possible: a query that did not succeed ran every refinement pass, and so its final points-to set answers
+ * the query for any predicate, and a set that passed one predicate answers any other predicate that it also passes. The remembered
+ * results are discarded whenever the refinement policy or state machine factory changes, since they depend on both.
+ * <p>
+ * Queries are run by {@link DemandRefinementPointsTo} analyses, which are reused from one query to the next so that the parts of
+ * the {@link com.ibm.wala.demandpa.flowgraph.DemandPointerFlowGraph} built for earlier queries need not be built again. An analysis
+ * and its flow graph are only used by one thread at a time; queries run concurrently, by
+ * {@link #getPointsTo(List, Predicate, ExecutorService, int)} or by clients calling from several threads, each get their own.
+ */
+public class DemandPointsToQueryEngine implements IDemandPointerAnalysis {
+
+  private final CallGraph cg;
+
+  private final HeapModel model;
+
+  private final MemoryAccessMap mam;
+
+  private final IClassHierarchy cha;
+
+  private final AnalysisOptions options;
+
+  /**
+   * analyses not currently running a query
+   */
+  private final ConcurrentLinkedQueue<DemandRefinementPointsTo> idle = new ConcurrentLinkedQueue<DemandRefinementPointsTo>();
+
+  /**
+   * the current configuration and the results computed under it; replaced, never modified, when the configuration changes
+   */
+  private volatile Generation current;
+
+  private final AtomicInteger hits = new AtomicInteger();
+
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * The arguments are those of
+   * {@link DemandRefinementPointsTo#makeWithDefaultFlowGraph(CallGraph, HeapModel, MemoryAccessMap, IClassHierarchy, AnalysisOptions, StateMachineFactory)}
+   * . The refinement policy is that of a {@link DemandRefinementPointsTo} until changed with
+   * {@link #setRefinementPolicyFactory(RefinementPolicyFactory)}.
+   */
+  public DemandPointsToQueryEngine(CallGraph cg, HeapModel model, MemoryAccessMap mam, IClassHierarchy cha,
+      AnalysisOptions options, StateMachineFactory<IFlowLabel> stateMachineFactory) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (model == null) {
+      throw new IllegalArgumentException("model is null");
+    }
+    if (stateMachineFactory == null) {
+      throw new IllegalArgumentException("stateMachineFactory is null");
+    }
+    this.cg = cg;
+    this.model = model;
+    this.mam = mam;
+    this.cha = cha;
+    this.options = options;
+    DemandRefinementPointsTo first = DemandRefinementPointsTo.makeWithDefaultFlowGraph(cg, model, mam, cha, options,
+        stateMachineFactory);
+    idle.add(first);
+    current = new Generation(first.getRefinementPolicyFactory(), stateMachineFactory);
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return model;
+  }
+
+  @Override
+  public CallGraph getBaseCallGraph() {
+    return cg;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  public RefinementPolicyFactory getRefinementPolicyFactory() {
+    return current.refinementPolicyFactory;
+  }
+
+  /**
+   * Change the refinement policy of subsequent queries, and forget all results computed so far.
+   */
+  public synchronized void setRefinementPolicyFactory(RefinementPolicyFactory refinementPolicyFactory) {
+    if (refinementPolicyFactory == null) {
+      throw new IllegalArgumentException("refinementPolicyFactory is null");
+    }
+    current = new Generation(refinementPolicyFactory, current.stateMachineFactory);
+  }
+
+  public StateMachineFactory<IFlowLabel> getStateMachineFactory() {
+    return current.stateMachineFactory;
+  }
+
+  /**
+   * Change the state machine of subsequent queries, and forget all results computed so far.
+   */
+  public synchronized void setStateMachineFactory(StateMachineFactory<IFlowLabel> stateMachineFactory) {
+    if (stateMachineFactory == null) {
+      throw new IllegalArgumentException("stateMachineFactory is null");
+    }
+    current = new Generation(current.refinementPolicyFactory, stateMachineFactory);
+  }
+
+  /**
+   * Forget all results computed so far, for instance after the heap model has been changed. The flow graphs built so far are kept.
+   */
+  public synchronized void clearCache() {
+    current = new Generation(current.refinementPolicyFactory, current.stateMachineFactory);
+  }
+
+  /**
+   * @return the number of queries answered from remembered results
+   */
+  public int getCacheHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of queries that ran an analysis
+   */
+  public int getCacheMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the points-to set of <code>pk</code>, or <code>null</code> if the points-to set can't be computed in the allocated
+   *         budget
+   * @see DemandRefinementPointsTo#getPointsTo(PointerKey)
+   */
+  @Override
+  public Collection<InstanceKey> getPointsTo(PointerKey pk) {
+    return getPointsTo(pk, Predicate.<InstanceKey> falsePred()).snd;
+  }
+
+  /**
+   * compute a points-to set for a pointer key, aiming to satisfy some predicate, or find one computed by an earlier query. The
+   * returned set must not be modified.
+   *
+   * @see DemandRefinementPointsTo#getPointsTo(PointerKey, Predicate)
+   */
+  public Pair<PointsToResult, Collection<InstanceKey>> getPointsTo(PointerKey pk, Predicate<InstanceKey> ikeyPred)
+      throws IllegalArgumentException {
+    if (pk == null) {
+      throw new IllegalArgumentException("pk is null");
+    }
+    if (ikeyPred == null) {
+      throw new IllegalArgumentException("ikeyPred is null");
+    }
+    Generation gen = current;
+    PointerKeyAndState key = new PointerKeyAndState(pk, gen.startState);
+    CachedResult cached = gen.results.get(key);
+    if (cached != null) {
+      Pair<PointsToResult, Collection<InstanceKey>> answer = cached.answer(ikeyPred);
+      if (answer != null) {
+        hits.incrementAndGet();
+        return answer;
+      }
+    }
+    misses.incrementAndGet();
+    Pair<PointsToResult, Collection<InstanceKey>> p = runQuery(gen, pk, ikeyPred);
+    Collection<InstanceKey> p2set = p.snd == null ? null : Collections.unmodifiableCollection(p.snd);
+    CachedResult computed = new CachedResult(p.fst, p2set);
+    // keep a result that answers every predicate over one that may not
+    if (cached == null || !cached.isFinal() || computed.isFinal()) {
+      gen.results.put(key, computed);
+    }
+    return Pair.make(p.fst, p2set);
+  }
+
+  /**
+   * Compute points-to sets for many pointer keys, in order, on the calling thread.
+   *
+   * @return the result for each pointer key, as by {@link #getPointsTo(PointerKey, Predicate)}
+   */
+  public List<Pair<PointsToResult, Collection<InstanceKey>>> getPointsTo(List<? extends PointerKey> pks,
+      Predicate<InstanceKey> ikeyPred) {
+    if (pks == null) {
+      throw new IllegalArgumentException("pks is null");
+    }
+    List<Pair<PointsToResult, Collection<InstanceKey>>> result = new ArrayList<Pair<PointsToResult, Collection<InstanceKey>>>(
+        pks.size());
+    for (PointerKey pk : pks) {
+      result.add(getPointsTo(pk, ikeyPred));
+    }
+    return result;
+  }
+
+  /**
+   * Compute points-to sets for many pointer keys, running independent queries concurrently. Each worker claims the next unanswered
+   * key until none remain, and runs its queries with an analysis of its own.
+   *
+   * @param executor the pool on which to run queries
+   * @param nThreads the number of queries to run at once
+   * @return the result for each pointer key, as by {@link #getPointsTo(PointerKey, Predicate)}
+   */
+  public List<Pair<PointsToResult, Collection<InstanceKey>>> getPointsTo(final List<? extends PointerKey> pks,
+      final Predicate<InstanceKey> ikeyPred, ExecutorService executor, int nThreads) {
+    if (pks == null) {
+      throw new IllegalArgumentException("pks is null");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    @SuppressWarnings("unchecked")
+    final Pair<PointsToResult, Collection<InstanceKey>>[] results = new Pair[pks.size()];
+    ParallelUtil.forEach(executor, nThreads, 0, results.length, new IntSetAction() {
+      @Override
+      public void act(int j) {
+        results[j] = getPointsTo(pks.get(j), ikeyPred);
+      }
+    });
+    List<Pair<PointsToResult, Collection<InstanceKey>>> result = new ArrayList<Pair<PointsToResult, Collection<InstanceKey>>>(
+        results.length);
+    Collections.addAll(result, results);
+    return result;
+  }
+
+  /**
+   * run a query with an analysis that no other thread is using, configured as in gen
+   */
+  private Pair<PointsToResult, Collection<InstanceKey>> runQuery(Generation gen, PointerKey pk, Predicate<InstanceKey> ikeyPred) {
+    DemandRefinementPointsTo analysis = idle.poll();
+    if (analysis == null) {
+      analysis = DemandRefinementPointsTo.makeWithDefaultFlowGraph(cg, model, mam, cha, options, gen.stateMachineFactory);
+    }
+    try {
+      analysis.setRefinementPolicyFactory(gen.refinementPolicyFactory);
+      analysis.setStateMachineFactory(gen.stateMachineFactory);
+      return analysis.getPointsTo(pk, ikeyPred);
+    } finally {
+      idle.add(analysis);
+    }
+  }
+
+  /**
+   * A configuration of the analyses, and the results of queries run under it
+   */
+  private static class Generation {
+    final RefinementPolicyFactory refinementPolicyFactory;
+
+    final StateMachineFactory<IFlowLabel> stateMachineFactory;
+
+    /**
+     * the state in which every query starts
+     */
+    final State startState;
+
+    final ConcurrentMap<PointerKeyAndState, CachedResult> results = new ConcurrentHashMap<PointerKeyAndState, CachedResult>();
+
+    Generation(RefinementPolicyFactory refinementPolicyFactory, StateMachineFactory<IFlowLabel> stateMachineFactory) {
+      this.refinementPolicyFactory = refinementPolicyFactory;
+      this.stateMachineFactory = stateMachineFactory;
+      this.startState = stateMachineFactory.make().getStartState();
+    }
+  }
+
+  /**
+   * The outcome of a query, which may answer later queries with other predicates
+   */
+  private static class CachedResult {
+    final PointsToResult result;
+
+    /**
+     * the last points-to set computed, or null if none was computed in the budget
+     */
+    final Collection<InstanceKey> p2set;
+
+    CachedResult(PointsToResult result, Collection<InstanceKey> p2set) {
+      this.result = result;
+      this.p2set = p2set;
+    }
+
+    /**
+     * A query that did not succeed ran every refinement pass that the policy allowed, so it ended with the most precise set that can
+     * be computed, whatever the predicate; so did one whose set is empty.
+     *
+     * @return true iff this result answers a query with any predicate
+     */
+    boolean isFinal() {
+      return result != PointsToResult.SUCCESS || p2set.isEmpty();
+    }
+
+    /**
+     * @return the answer to a query with the given predicate, or null if the query must be run
+     */
+    Pair<PointsToResult, Collection<InstanceKey>> answer(Predicate<InstanceKey> ikeyPred) {
+      if (p2set != null && passes(ikeyPred)) {
+        return Pair.make(PointsToResult.SUCCESS, p2set);
+      } else if (isFinal()) {
+        return Pair.make(result, p2set);
+      } else {
+        return null;
+      }
+    }
+
+    private boolean passes(Predicate<InstanceKey> ikeyPred) {
+      for (InstanceKey ik : p2set) {
+        if (!ikeyPred.test(ik)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
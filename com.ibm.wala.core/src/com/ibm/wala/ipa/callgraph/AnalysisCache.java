@@ -37,6 +37,16 @@ public class AnalysisCache {
     ReferenceCleanser.registerCache(this);
   }
 
+  /**
+   * @param maxCachedIRs maximum number of IRs to keep; see {@link SSACache#SSACache(IRFactory, int)}
+   */
+  public AnalysisCache(IRFactory<IMethod> irFactory, int maxCachedIRs) {
+    super();
+    this.irFactory = irFactory;
+    this.ssaCache = new SSACache(irFactory, maxCachedIRs);
+    ReferenceCleanser.registerCache(this);
+  }
+
   public AnalysisCache() {
     this(new DefaultIRFactory());
   }
@@ -12,9 +12,14 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelSolver;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
+import com.ibm.wala.ipa.callgraph.propagation.StandardSolver;
 import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.util.collections.Factory;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * Basic interface for options that control call graph generation.
@@ -191,6 +196,43 @@ public class AnalysisOptions {
    */
   private long maxNumberOfNodes = -1;
 
+  /**
+   * The number of worker threads the pointer analysis solver may use to evaluate constraints. A value of 1, the default, selects the
+   * sequential {@link StandardSolver}; larger values select the {@link ParallelSolver}.
+   */
+  private int solverThreads = 1;
+
+  /**
+   * Should the pointer analysis solver propagate only the instance keys newly added to each points-to set, rather than whole sets?
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * Should the pointer analysis solver detect cycles of assignments while solving, and collapse each into a single points-to set?
+   */
+  private boolean collapseAssignmentCycles = false;
+
+  /**
+   * Once the pointer analysis is solved, should points-to sets with the same contents share a single canonical representation?
+   */
+  private boolean hashConsPointsToSets = false;
+
+  /**
+   * makes the sets that hold the contents of points-to sets; null for the default
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /**
+   * makes the work list that schedules the pointer analysis solver; null for the default
+   */
+  private Factory<? extends IFixedPointWorklist> workListFactory = null;
+
+  /**
+   * The number of worker threads that build the IRs of the methods reachable from the entrypoints, according to the class
+   * hierarchy, before the pointer analysis starts; 0, the default, builds each IR when the solver first needs it.
+   */
+  private int irPrebuildThreads = 0;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -230,6 +272,109 @@ public class AnalysisOptions {
   }
 
 
+  /**
+   * @return the number of worker threads the pointer analysis solver may use to evaluate constraints
+   */
+  public int getSolverThreads() {
+    return solverThreads;
+  }
+
+  /**
+   * @param solverThreads the number of worker threads the pointer analysis solver may use to evaluate constraints; 1 means solve
+   *          sequentially
+   * @throws IllegalArgumentException if solverThreads &lt; 1
+   */
+  public void setSolverThreads(int solverThreads) {
+    if (solverThreads < 1) {
+      throw new IllegalArgumentException("illegal solverThreads: " + solverThreads);
+    }
+    this.solverThreads = solverThreads;
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * @param useDifferencePropagation should the pointer analysis solver propagate only the instance keys newly added to each points-to
+   *          set?
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  public boolean getCollapseAssignmentCycles() {
+    return collapseAssignmentCycles;
+  }
+
+  /**
+   * @param collapseAssignmentCycles should the pointer analysis solver detect cycles of assignments while solving, and collapse each
+   *          into a single points-to set?
+   */
+  public void setCollapseAssignmentCycles(boolean collapseAssignmentCycles) {
+    this.collapseAssignmentCycles = collapseAssignmentCycles;
+  }
+
+  public boolean getHashConsPointsToSets() {
+    return hashConsPointsToSets;
+  }
+
+  /**
+   * @param hashConsPointsToSets once the pointer analysis is solved, should points-to sets with the same contents share a single
+   *          canonical representation?
+   */
+  public void setHashConsPointsToSets(boolean hashConsPointsToSets) {
+    this.hashConsPointsToSets = hashConsPointsToSets;
+  }
+
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * Choose how the pointer analysis represents the contents of points-to sets. For deeply context-sensitive analyses, a
+   * {@link com.ibm.wala.util.intset.BDDMutableIntSetFactory} lets the many similar points-to sets share their structure.
+   *
+   * @param pointsToSetFactory makes the sets; null for {@link com.ibm.wala.util.intset.IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
+  public Factory<? extends IFixedPointWorklist> getWorkListFactory() {
+    return workListFactory;
+  }
+
+  /**
+   * Choose the order in which the pointer analysis solver evaluates its constraints, e.g. a
+   * {@link com.ibm.wala.fixedpoint.impl.TwoPhaseWorklist}. Each call graph construction makes a fresh work list.
+   *
+   * @param workListFactory makes the work list; null for the default {@link com.ibm.wala.fixedpoint.impl.Worklist}
+   */
+  public void setWorkListFactory(Factory<? extends IFixedPointWorklist> workListFactory) {
+    this.workListFactory = workListFactory;
+  }
+
+  public int getIRPrebuildThreads() {
+    return irPrebuildThreads;
+  }
+
+  /**
+   * Build the IRs of the methods reachable from the entrypoints in a class-hierarchy-based call graph on a pool of threads,
+   * before the pointer analysis starts, so that the solver finds them in the {@link AnalysisCache}. This builds IRs for some methods
+   * the pointer analysis will not reach, so it pays off when there are cores to spare.
+   *
+   * @param irPrebuildThreads the number of threads; 0 to build each IR when the solver first needs it
+   * @throws IllegalArgumentException if irPrebuildThreads &lt; 0
+   * @see com.ibm.wala.ipa.callgraph.impl.ParallelIRBuilder
+   */
+  public void setIRPrebuildThreads(int irPrebuildThreads) {
+    if (irPrebuildThreads < 0) {
+      throw new IllegalArgumentException("illegal irPrebuildThreads: " + irPrebuildThreads);
+    }
+    this.irPrebuildThreads = irPrebuildThreads;
+  }
+
   /**
    * @return Policy that determines methods called at call sites.
    */
@@ -10,9 +10,13 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import com.ibm.wala.dataflow.graph.BitVectorSolver;
 import com.ibm.wala.fixpoint.BitVectorVariable;
@@ -20,8 +24,11 @@ import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.functions.Function;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.OrdinalSet;
 
 /**
@@ -69,4 +76,156 @@ public class CallGraphTransitiveClosure {
     return result;
     
   }
+
+  /**
+   * Like {@link #transitiveClosure(CallGraph, Map)}, but the result for a node is only computed when it is first looked up, along
+   * with the results for the callees it transitively depends on. Use this when only a few nodes will be looked up. Iterating over
+   * the map computes the results for all nodes.
+   * 
+   * @param cg the call graph
+   * @param nodeResultComputer computes the analysis result for an individual node; called at most once per node
+   * @return a map from each node to the analysis result for the node and its transitive callees
+   */
+  public static <T> Map<CGNode, OrdinalSet<T>> lazyTransitiveClosure(CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    if (nodeResultComputer == null) {
+      throw new IllegalArgumentException("nodeResultComputer is null");
+    }
+    return new LazyClosure<T>(cg, nodeResultComputer);
+  }
+
+  private static class LazyClosure<T> extends AbstractMap<CGNode, OrdinalSet<T>> {
+
+    private final CallGraph cg;
+
+    private final Function<CGNode, Collection<T>> nodeResultComputer;
+
+    /**
+     * numbers the results of all nodes, so that results can be unioned as bit vectors
+     */
+    private final MutableMapping<T> mapping = MutableMapping.make();
+
+    /**
+     * the results computed so far
+     */
+    private final Map<CGNode, OrdinalSet<T>> closed = HashMapFactory.make();
+
+    LazyClosure(CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer) {
+      this.cg = cg;
+      this.nodeResultComputer = nodeResultComputer;
+    }
+
+    @Override
+    public OrdinalSet<T> get(Object key) {
+      if (!(key instanceof CGNode) || !cg.containsNode((CGNode) key)) {
+        return null;
+      }
+      CGNode n = (CGNode) key;
+      if (!closed.containsKey(n)) {
+        close(n);
+      }
+      return closed.get(n);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof CGNode && cg.containsNode((CGNode) key);
+    }
+
+    @Override
+    public int size() {
+      return cg.getNumberOfNodes();
+    }
+
+    @Override
+    public Set<Map.Entry<CGNode, OrdinalSet<T>>> entrySet() {
+      for (CGNode n : cg) {
+        get(n);
+      }
+      return Collections.unmodifiableMap(closed).entrySet();
+    }
+
+    /**
+     * Compute the results for root and the nodes it reaches that have none yet. The strongly connected components of those nodes
+     * are found with Tarjan's algorithm, without recursion since call chains can be long, and each component gets the union of
+     * the results of its nodes and of the components it calls, which come before it.
+     */
+    private void close(CGNode root) {
+      Map<CGNode, Integer> index = HashMapFactory.make();
+      Map<CGNode, Integer> low = HashMapFactory.make();
+      ArrayList<CGNode> components = new ArrayList<CGNode>();
+      Set<CGNode> onComponents = HashSetFactory.make();
+      ArrayList<CGNode> path = new ArrayList<CGNode>();
+      ArrayList<Iterator<? extends CGNode>> succs = new ArrayList<Iterator<? extends CGNode>>();
+
+      index.put(root, 0);
+      low.put(root, 0);
+      components.add(root);
+      onComponents.add(root);
+      path.add(root);
+      succs.add(cg.getSuccNodes(root));
+      while (!path.isEmpty()) {
+        CGNode v = path.get(path.size() - 1);
+        Iterator<? extends CGNode> it = succs.get(succs.size() - 1);
+        if (it.hasNext()) {
+          CGNode w = it.next();
+          if (closed.containsKey(w)) {
+            continue;
+          }
+          if (!index.containsKey(w)) {
+            int i = index.size();
+            index.put(w, i);
+            low.put(w, i);
+            components.add(w);
+            onComponents.add(w);
+            path.add(w);
+            succs.add(cg.getSuccNodes(w));
+          } else if (onComponents.contains(w)) {
+            low.put(v, Math.min(low.get(v), index.get(w)));
+          }
+        } else {
+          path.remove(path.size() - 1);
+          succs.remove(succs.size() - 1);
+          if (!path.isEmpty()) {
+            CGNode u = path.get(path.size() - 1);
+            low.put(u, Math.min(low.get(u), low.get(v)));
+          }
+          if (low.get(v).equals(index.get(v))) {
+            Set<CGNode> component = HashSetFactory.make();
+            CGNode m;
+            do {
+              m = components.remove(components.size() - 1);
+              onComponents.remove(m);
+              component.add(m);
+            } while (m != v);
+            closeComponent(component);
+          }
+        }
+      }
+    }
+
+    /**
+     * all callees of the component outside it have results already
+     */
+    private void closeComponent(Set<CGNode> component) {
+      BitVectorIntSet result = new BitVectorIntSet();
+      for (CGNode m : component) {
+        for (T t : nodeResultComputer.apply(m)) {
+          result.add(mapping.add(t));
+        }
+        for (Iterator<? extends CGNode> it = cg.getSuccNodes(m); it.hasNext();) {
+          CGNode callee = it.next();
+          if (!component.contains(callee)) {
+            result.addAll(closed.get(callee).getBackingSet());
+          }
+        }
+      }
+      OrdinalSet<T> s = new OrdinalSet<T>(result, mapping);
+      for (CGNode m : component) {
+        closed.put(m, s);
+      }
+    }
+  }
 }
@@ -45,8 +45,9 @@ import com.ibm.wala.util.intset.BasicNaturalRelation;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
-import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.SparseIntSet;
 
 /**
@@ -67,6 +68,11 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
    */
   private final ExplicitEdgeManager edgeManager = makeEdgeManger();
 
+  /**
+   * makes the sets of call targets held by each node
+   */
+  private MutableIntSetFactory<?> intSetFactory = IntSetUtil.getDefaultIntSetFactory();
+
   public ExplicitCallGraph(IClassHierarchy cha, AnalysisOptions options, AnalysisCache cache) {
     super();
     if (options == null) {
@@ -82,6 +88,23 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
 
   }
 
+  /**
+   * Set the kind of int set that holds the targets of the nodes created from now on; by default, that of
+   * {@link IntSetUtil#getDefaultIntSetFactory()}.
+   * 
+   * @throws IllegalArgumentException if intSetFactory is null
+   */
+  public void setIntSetFactory(MutableIntSetFactory<?> intSetFactory) {
+    if (intSetFactory == null) {
+      throw new IllegalArgumentException("null intSetFactory");
+    }
+    this.intSetFactory = intSetFactory;
+  }
+
+  public MutableIntSetFactory<?> getIntSetFactory() {
+    return intSetFactory;
+  }
+
   /**
    * subclasses may wish to override!
    */
@@ -140,7 +163,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
      */
     protected final SparseVector<Object> targets = new SparseVector<Object>();
 
-    private final MutableSharedBitVectorIntSet allTargets = new MutableSharedBitVectorIntSet();
+    private final MutableIntSet allTargets = intSetFactory.make();
     
     private WeakReference<IR> ir = new WeakReference<IR>(null);
     private WeakReference<DefUse> du = new WeakReference<DefUse>(null);
@@ -225,7 +248,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
           if (S.equals(tNode)) {
             return false;
           } else {
-            MutableSharedBitVectorIntSet s = new MutableSharedBitVectorIntSet();
+            MutableIntSet s = intSetFactory.make();
             s.add(getCallGraph().getNumber((CGNode) S));
             s.add(getCallGraph().getNumber(tNode));
             getCallGraph().addEdge(this, tNode);
@@ -288,7 +311,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter> imp
       return getMethod().hashCode() * 8681 + getContext().hashCode();
     }
 
-    protected MutableSharedBitVectorIntSet getAllTargetNumbers() {
+    protected MutableIntSet getAllTargetNumbers() {
       return allTargets;
     }
 
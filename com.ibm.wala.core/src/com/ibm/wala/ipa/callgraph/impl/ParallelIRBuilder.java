@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSACache;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.concurrent.ParallelUtil;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * Builds the {@link IR}s and {@link com.ibm.wala.ssa.DefUse}s of many methods ahead of time, on a pool of threads, and leaves them
+ * in an {@link AnalysisCache}; a call graph builder that later asks that cache for them, with the same {@link SSAOptions}, finds
+ * them already built instead of decoding bytecode and building SSA form on the solver thread.
+ * <p>
+ * Only bytecode methods are built; synthetic methods are cheap, and may not expect to be looked at by several threads. The methods
+ * to build are found on the calling thread. The worker threads decode bytecode, and, to build control flow graphs, look up the
+ * exception types that handlers catch with {@link IClassHierarchy#lookupClass} and {@link IClassHierarchy#isSubclassOf}. Those
+ * only read the class hierarchy, except that a {@link com.ibm.wala.ipa.cha.ClassHierarchy} records the types it fails to find in a
+ * concurrent set, and array classes are created on demand by a concurrent map.
+ */
+public class ParallelIRBuilder {
+
+  private final IClassHierarchy cha;
+
+  private final SSACache cache;
+
+  private final SSAOptions options;
+
+  /**
+   * @param cache the cache to populate
+   * @param options the options that the IRs will later be asked for with; see
+   *          {@link com.ibm.wala.ipa.callgraph.AnalysisOptions#getSSAOptions()}
+   */
+  public ParallelIRBuilder(IClassHierarchy cha, AnalysisCache cache, SSAOptions options) {
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("cache is null");
+    }
+    if (options == null) {
+      throw new IllegalArgumentException("options is null");
+    }
+    this.cha = cha;
+    this.cache = cache.getSSACache();
+    this.options = options;
+  }
+
+  /**
+   * @return the concrete methods declared by the classes of the application loader
+   */
+  public static Collection<IMethod> getApplicationMethods(IClassHierarchy cha) {
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    List<IMethod> result = new ArrayList<IMethod>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        for (IMethod m : klass.getDeclaredMethods()) {
+          if (!m.isAbstract() && !m.isNative()) {
+            result.add(m);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Build the IR and DefUse of each of the given methods.
+   *
+   * @return the number of IRs built or found in the cache
+   */
+  public int build(Collection<? extends IMethod> methods, ExecutorService executor, IProgressMonitor monitor) throws CancelException {
+    if (methods == null) {
+      throw new IllegalArgumentException("methods is null");
+    }
+    return build(methods, false, executor, monitor).size();
+  }
+
+  /**
+   * Build the IR and DefUse of each method reachable from the entrypoints in a call graph built from the class hierarchy alone:
+   * the targets of each call site are all the methods that the class hierarchy says it may dispatch to. The IRs of the methods are
+   * built as they are discovered, and their call sites are resolved on the calling thread.
+   *
+   * @return the methods whose IRs were built or found in the cache
+   */
+  public Set<IMethod> buildReachable(Iterable<? extends Entrypoint> entrypoints, ExecutorService executor, IProgressMonitor monitor)
+      throws CancelException {
+    if (entrypoints == null) {
+      throw new IllegalArgumentException("entrypoints is null");
+    }
+    Set<IMethod> roots = HashSetFactory.make();
+    for (Entrypoint e : entrypoints) {
+      roots.add(e.getMethod());
+    }
+    return build(roots, true, executor, monitor);
+  }
+
+  private Set<IMethod> build(Collection<? extends IMethod> methods, boolean followCalls, ExecutorService executor,
+      IProgressMonitor monitor) throws CancelException {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    CompletionService<IR> done = new ExecutorCompletionService<IR>(executor);
+    Set<IMethod> submitted = HashSetFactory.make();
+    Set<IMethod> built = HashSetFactory.make();
+    int pending = 0;
+    for (IMethod m : methods) {
+      if (submit(m, submitted, done)) {
+        pending++;
+      }
+    }
+    try {
+      while (pending > 0) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+        IR ir = ParallelUtil.get(done.take());
+        pending--;
+        if (ir == null) {
+          continue;
+        }
+        built.add(ir.getMethod());
+        if (followCalls) {
+          for (Iterator<CallSiteReference> sites = ir.iterateCallSites(); sites.hasNext();) {
+            for (IMethod target : getPossibleTargets(sites.next())) {
+              if (submit(target, submitted, done)) {
+                pending++;
+              }
+            }
+          }
+        }
+        MonitorUtil.worked(monitor, 1);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Assertions.UNREACHABLE("interrupted while building IRs");
+    }
+    return built;
+  }
+
+  private Collection<IMethod> getPossibleTargets(CallSiteReference site) {
+    if (site.isStatic() || site.isSpecial()) {
+      IMethod target = cha.resolveMethod(site.getDeclaredTarget());
+      return target == null ? Collections.<IMethod> emptySet() : Collections.singleton(target);
+    } else {
+      return cha.getPossibleTargets(site.getDeclaredTarget());
+    }
+  }
+
+  /**
+   * @return true iff m was handed to a worker
+   */
+  private boolean submit(final IMethod m, Set<IMethod> submitted, CompletionService<IR> done) {
+    if (m == null || !(m instanceof ShrikeCTMethod) || m.isAbstract() || m.isNative() || !submitted.add(m)) {
+      return false;
+    }
+    done.submit(new Callable<IR>() {
+      @Override
+      public IR call() {
+        IR ir = cache.findOrCreateIR(m, Everywhere.EVERYWHERE, options);
+        if (ir != null) {
+          cache.findOrCreateDU(m, Everywhere.EVERYWHERE, options);
+        }
+        return ir;
+      }
+    });
+    return true;
+  }
+}
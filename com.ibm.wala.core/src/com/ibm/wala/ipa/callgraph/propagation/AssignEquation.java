@@ -11,12 +11,12 @@
 package com.ibm.wala.ipa.callgraph.propagation;
 
 import com.ibm.wala.fixpoint.UnaryOperator;
-import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.util.intset.IntSet;
 
 /**
  * A specialized equation class introduced for efficiency.
  */
-public final class AssignEquation extends UnaryStatement<PointsToSetVariable> {
+public final class AssignEquation extends DeltaEquation {
 
   AssignEquation(PointsToSetVariable lhs, PointsToSetVariable rhs) {
     super(lhs, rhs);
@@ -27,6 +27,16 @@ public final class AssignEquation extends UnaryStatement<PointsToSetVariable> {
     return PropagationCallGraphBuilder.assignOperator;
   }
 
+  @Override
+  protected byte evaluateDelta(IntSet delta) {
+    return lhs.addAll(delta) ? CHANGED : NOT_CHANGED;
+  }
+
+  @Override
+  protected boolean canEvaluateDelta() {
+    return true;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof AssignEquation) {
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.FixedPointConstants;
+import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * A unary points-to equation which, under difference propagation, can push just the instance keys added to its right-hand side
+ * since it was last evaluated, rather than the whole right-hand side.
+ * 
+ * Equations over implicitly represented constraints are created afresh each time they are looked up, so an equation cannot carry
+ * state from one evaluation to the next. Instead, the {@link PropagationSystem} accumulates the pending delta for each equation on the
+ * work list, and attaches it to the equation just before it is evaluated. An equation with no delta attached is evaluated in full.
+ * 
+ * @see PropagationSystem#setUseDifferencePropagation(boolean)
+ */
+public abstract class DeltaEquation extends UnaryStatement<PointsToSetVariable> implements FixedPointConstants {
+
+  /**
+   * instance keys added to the rhs since this equation was last evaluated, or null if this equation must be evaluated in full
+   */
+  private IntSet delta;
+
+  protected DeltaEquation(PointsToSetVariable lhs, PointsToSetVariable rhs) {
+    super(lhs, rhs);
+  }
+
+  @Override
+  public byte evaluate() {
+    IntSet d = delta;
+    if (d == null) {
+      return super.evaluate();
+    }
+    delta = null;
+    return evaluateDelta(d);
+  }
+
+  /**
+   * Evaluate this equation considering only the instance keys in delta, which have been added to the rhs.
+   */
+  protected abstract byte evaluateDelta(IntSet delta);
+
+  /**
+   * Can this equation be evaluated on deltas alone?
+   */
+  protected abstract boolean canEvaluateDelta();
+
+  /**
+   * Evaluate this equation, the next time, considering only the instance keys in delta.
+   */
+  void setDelta(IntSet delta) {
+    this.delta = delta;
+  }
+}
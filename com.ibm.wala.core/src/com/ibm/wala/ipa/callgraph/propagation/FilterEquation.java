@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
+import com.ibm.wala.util.intset.IntSet;
+
+/**
+ * An equation of the form lhs U= (rhs n k), where k is the set of instance keys admitted by the type filter of lhs.
+ * 
+ * The set k grows as new instance keys are discovered. Delta evaluation is nevertheless sound, since the {@link PropagationSystem}
+ * registers each instance key with the classes it is an instance of when the key is first added to a points-to set, before it can
+ * flow anywhere; so no key in the rhs can enter k after this equation has filtered it out.
+ */
+final class FilterEquation extends DeltaEquation {
+
+  private final FilterOperator operator;
+
+  FilterEquation(PointsToSetVariable lhs, FilterOperator operator, PointsToSetVariable rhs) {
+    super(lhs, rhs);
+    this.operator = operator;
+  }
+
+  @Override
+  public UnaryOperator<PointsToSetVariable> getOperator() {
+    return operator;
+  }
+
+  @Override
+  protected byte evaluateDelta(IntSet delta) {
+    return operator.evaluateDelta(lhs, delta, operator.getFilterInstanceKeys(lhs));
+  }
+
+  @Override
+  protected boolean canEvaluateDelta() {
+    return operator.canEvaluateDelta(lhs);
+  }
+}
@@ -125,7 +125,7 @@ public interface FilteredPointerKey extends PointerKey {
       return true;
     }
 
-    private IntSet bits(PropagationSystem system) {
+    IntSet bits(PropagationSystem system) {
       IntSet f = null;
       for(IClass cls : concreteType) {
         if (f == null) {
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.concurrent.ParallelUtil;
+
+/**
+ * fixed-point iterative solver for pointer analysis that evaluates independent constraints on a pool of worker threads.
+ * 
+ * The outer loop, which discovers new call graph nodes and handles reflection, is the same as for {@link StandardSolver}; only the
+ * evaluation of simple (assignment and filter) constraints is spread across threads.
+ * 
+ * @see AbstractFixedPointSolver#solve(IProgressMonitor, ExecutorService, int)
+ */
+public class ParallelSolver extends StandardSolver {
+
+  private final int nThreads;
+
+  /**
+   * the worker pool; only live during a call to {@link #solve(IProgressMonitor)}
+   */
+  private ExecutorService executor;
+
+  public ParallelSolver(PropagationSystem system, PropagationCallGraphBuilder builder, int nThreads) {
+    super(system, builder);
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+  }
+
+  @Override
+  public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    executor = Executors.newFixedThreadPool(nThreads, ParallelUtil.makeDaemonThreadFactory("ParallelSolver"));
+    try {
+      super.solve(monitor);
+    } finally {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  @Override
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    getSystem().solve(monitor, executor, nThreads);
+  }
+
+  public int getNumberOfThreads() {
+    return nThreads;
+  }
+}
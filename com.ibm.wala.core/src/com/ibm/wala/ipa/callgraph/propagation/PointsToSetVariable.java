@@ -20,6 +20,7 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
@@ -45,6 +46,17 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * Under difference propagation, are we recording the instance keys added to this variable?
+   */
+  private boolean trackDeltas = false;
+
+  /**
+   * Under difference propagation, the instance keys added to this variable since the last call to {@link #takeDelta()}, or null if
+   * there are none.
+   */
+  private MutableSparseIntSet delta;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -75,6 +87,63 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     }
   }
   
+  /**
+   * Start recording the instance keys added to this variable, for difference propagation.
+   */
+  void trackDeltas() {
+    trackDeltas = true;
+  }
+
+  /**
+   * @return true iff this variable records the instance keys added to it, for difference propagation
+   */
+  public boolean isTrackingDeltas() {
+    return trackDeltas;
+  }
+
+  /**
+   * Under difference propagation, return the instance keys added to this variable since the last call to this method, and start
+   * recording afresh.
+   * 
+   * @return the instance keys added, or null if none have been recorded
+   */
+  IntSet takeDelta() {
+    IntSet result = delta;
+    delta = null;
+    return result;
+  }
+
+  /**
+   * add to this variable the elements of B that pass filter (if non-null), recording the ones that are new in the delta.
+   */
+  private boolean addAllAndRecordDelta(IntSet B, final IntSet filter) {
+    final MutableSparseIntSet fresh = MutableSparseIntSet.makeEmpty();
+    IntSetAction action = new IntSetAction() {
+      @Override
+      public void act(int x) {
+        if (filter == null || filter.contains(x)) {
+          fresh.add(x);
+        }
+      }
+    };
+    MutableIntSet value = getValue();
+    if (value == null) {
+      B.foreach(action);
+    } else {
+      B.foreachExcluding(value, action);
+    }
+    if (fresh.isEmpty()) {
+      return false;
+    }
+    super.addAll(fresh);
+    if (delta == null) {
+      delta = fresh;
+    } else {
+      delta.addAll(fresh);
+    }
+    return true;
+  }
+
   @Override
   public void add(int b) {
     if (PARANOID) {
@@ -82,6 +151,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       m.add(b);
       checkTypes(m);
     }
+    if (trackDeltas && !contains(b)) {
+      if (delta == null) {
+        delta = MutableSparseIntSet.makeEmpty();
+      }
+      delta.add(b);
+    }
     super.add(b);
     cryIfTooBig();
   }
@@ -91,11 +166,42 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
-    boolean v = super.addAll(B);
+    boolean v = trackDeltas ? addAllAndRecordDelta(B, null) : super.addAll(B);
     cryIfTooBig();
     return v;
   }
 
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (trackDeltas) {
+      return addAllAndRecordDelta(other, filter);
+    } else {
+      return super.addAllInIntersection(other, filter);
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    if (trackDeltas) {
+      return other.getValue() == null ? false : addAllAndRecordDelta(other.getValue(), filter);
+    } else {
+      return super.addAllInIntersection(other, filter);
+    }
+  }
+
+  @Override
+  public void copyState(PointsToSetVariable other) {
+    super.copyState(other);
+    if (trackDeltas && other.getValue() != null) {
+      // conservatively treat the whole copied value as new
+      if (delta == null) {
+        delta = MutableSparseIntSet.make(other.getValue());
+      } else {
+        delta.addAll(other.getValue());
+      }
+    }
+  }
+
   /**
    * check that the types of all instance keys are assignable to declared type of pointer key
    */
@@ -143,8 +249,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(other.getValue());
     }
-    // TODO Auto-generated method stub
-    boolean v = super.addAll(other);
+    boolean v;
+    if (trackDeltas) {
+      v = other.getValue() == null ? false : addAllAndRecordDelta(other.getValue(), null);
+    } else {
+      v = super.addAll(other);
+    }
     cryIfTooBig();
     return v;
   }
@@ -13,6 +13,8 @@ package com.ibm.wala.ipa.callgraph.propagation;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.ibm.wala.analysis.reflection.IllegalArgumentExceptionContext;
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -23,6 +25,7 @@ import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.classLoader.NewSiteReference;
 import com.ibm.wala.classLoader.SyntheticClass;
 import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
@@ -34,6 +37,7 @@ import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.impl.ParallelIRBuilder;
 import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -42,6 +46,7 @@ import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
@@ -239,6 +244,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setUseDifferencePropagation(options.getUseDifferencePropagation());
+    system.setCollapseAssignmentCycles(options.getCollapseAssignmentCycles());
+    system.setPointsToSetFactory(options.getPointsToSetFactory());
+    if (options.getWorkListFactory() != null) {
+      system.setWorkList(options.getWorkListFactory().make());
+    }
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -267,6 +278,9 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
 
     solver = makeSolver();
     try {
+      if (options.getIRPrebuildThreads() > 0) {
+        prebuildIRs(options, monitor);
+      }
       solver.solve(monitor);
     } catch (CancelException e) {
       CallGraphBuilderCancelException c = CallGraphBuilderCancelException.createCallGraphBuilderCancelException(e, callGraph,
@@ -278,9 +292,28 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       throw c;
     }
 
+    if (options.getHashConsPointsToSets()) {
+      system.hashConsPointsToSets();
+    }
+
     return callGraph;
   }
 
+  /**
+   * Build the IRs of the methods reachable from the entrypoints ahead of the solver, on a pool of
+   * {@link AnalysisOptions#getIRPrebuildThreads()} threads.
+   */
+  private void prebuildIRs(AnalysisOptions options, IProgressMonitor monitor) throws CancelException {
+    ExecutorService executor = Executors.newFixedThreadPool(options.getIRPrebuildThreads(),
+        ParallelUtil.makeDaemonThreadFactory("ParallelIRBuilder"));
+    try {
+      new ParallelIRBuilder(cha, getAnalysisCache(), options.getSSAOptions()).buildReachable(options.getEntrypoints(), executor,
+          monitor);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   protected PropagationSystem makeSystem(AnalysisOptions options) {
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
@@ -630,6 +663,45 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       return changed ? CHANGED : NOT_CHANGED;
     }
 
+    @Override
+    public UnaryStatement<PointsToSetVariable> makeEquation(PointsToSetVariable lhs, PointsToSetVariable rhs) {
+      return new FilterEquation(lhs, this, rhs);
+    }
+
+    /**
+     * Under difference propagation, may equations that use this operator to define lhs be evaluated on deltas? Only if the filter
+     * on lhs is a pure type filter, whose instance keys can be computed without side effects.
+     */
+    protected boolean canEvaluateDelta(PointsToSetVariable lhs) {
+      FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) lhs.getPointerKey()).getTypeFilter();
+      return filter instanceof FilteredPointerKey.SingleClassFilter || filter instanceof FilteredPointerKey.MultipleClassesFilter;
+    }
+
+    /**
+     * @return the instance keys admitted by the type filter on lhs, or null if there are none
+     */
+    protected IntSet getFilterInstanceKeys(PointsToSetVariable lhs) {
+      FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) lhs.getPointerKey()).getTypeFilter();
+      if (filter instanceof FilteredPointerKey.SingleClassFilter) {
+        return system.getInstanceKeysForClass(((FilteredPointerKey.SingleClassFilter) filter).getConcreteType());
+      } else if (filter instanceof FilteredPointerKey.MultipleClassesFilter) {
+        return ((FilteredPointerKey.MultipleClassesFilter) filter).bits(system);
+      } else {
+        Assertions.UNREACHABLE("unexpected filter for delta evaluation: " + filter);
+        return null;
+      }
+    }
+
+    /**
+     * LHS U= (delta n f), where delta holds instance keys recently added to the rhs and f is the filter set.
+     */
+    protected byte evaluateDelta(PointsToSetVariable lhs, IntSet delta, IntSet f) {
+      if (f == null) {
+        return NOT_CHANGED;
+      }
+      return lhs.addAllInIntersection(delta, f) ? CHANGED : NOT_CHANGED;
+    }
+
     /*
      * @see com.ibm.wala.ipa.callgraph.propagation.IPointerOperator#isComplex()
      */
@@ -1463,6 +1535,14 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder {
       }
       return changed ? CHANGED : NOT_CHANGED;
     }
+
+    /**
+     * LHS U= (delta - f)
+     */
+    @Override
+    protected byte evaluateDelta(PointsToSetVariable lhs, IntSet delta, IntSet f) {
+      return lhs.addAll(f == null ? delta : IntSetUtil.diff(delta, f)) ? CHANGED : NOT_CHANGED;
+    }
   }
 
   protected IPointsToSolver getSolver() {
@@ -854,6 +854,29 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     }
   }
 
+  /**
+   * @return the graph node numbers of the variables v2 s.t. there exists an assignment equation v2 := v, or null if none
+   */
+  IntSet getAssignmentSuccessors(PointsToSetVariable v) {
+    IBinaryNaturalRelation R = invImplicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return (R == null || v.getGraphNodeId() == -1) ? null : R.getRelated(v.getGraphNodeId());
+  }
+
+  /**
+   * @return the graph node numbers of the variables v2 s.t. there exists an assignment equation v := v2, or null if none
+   */
+  IntSet getAssignmentPredecessors(PointsToSetVariable v) {
+    IBinaryNaturalRelation R = implicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return (R == null || v.getGraphNodeId() == -1) ? null : R.getRelated(v.getGraphNodeId());
+  }
+
+  /**
+   * @return the variable with the given graph node number
+   */
+  PointsToSetVariable getVariable(int number) {
+    return (PointsToSetVariable) delegateGraph.getNode(number);
+  }
+
   /**
    * A graph of just the variables in the system. v1 -> v2 iff there exists an assignment equation e s.t. e uses v1 and e defs v2.
    * 
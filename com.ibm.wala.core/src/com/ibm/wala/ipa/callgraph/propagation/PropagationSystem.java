@@ -10,6 +10,7 @@
  *******************************************************************************/
 package com.ibm.wala.ipa.callgraph.propagation;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -23,7 +24,6 @@ import java.util.Set;
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
-import com.ibm.wala.fixedpoint.impl.Worklist;
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.IFixedPointSystem;
@@ -37,6 +37,7 @@ import com.ibm.wala.ipa.cha.ClassHierarchyWarning;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntStack;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
@@ -44,11 +45,15 @@ import com.ibm.wala.util.debug.VerboseAction;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.IntSetRepository;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.ref.ReferenceCleanser;
 import com.ibm.wala.util.warnings.Warnings;
@@ -118,6 +123,48 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /**
+   * Should equations propagate only the instance keys newly added to their right-hand sides?
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * Under difference propagation, the instance keys added to the rhs of each {@link DeltaEquation} on the work list since the
+   * equation was last evaluated. An equation on the work list with no entry here must be evaluated in full.
+   */
+  private final Map<AbstractStatement, IntSet> pendingDeltas = HashMapFactory.make();
+
+  /**
+   * Should we detect cycles of assignments while solving, and collapse each into a single variable?
+   */
+  private boolean collapseAssignmentCycles = false;
+
+  /**
+   * Assignments lhs := rhs, as pairs of graph node numbers (lhs, rhs), from which we have already searched for a cycle. Each
+   * assignment triggers at most one search.
+   */
+  private final BasicNaturalRelation checkedForCycles = new BasicNaturalRelation();
+
+  /**
+   * makes the sets that hold the contents of points-to sets; null for {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  private MutableIntSetFactory<?> pointsToSetFactory = null;
+
+  /**
+   * canonical points-to sets, once {@link #hashConsPointsToSets()} has been called; null before
+   */
+  private IntSetRepository pointsToSetRepository;
+
+  /**
+   * Assignments that were about to propagate nothing, since their sides had equal points-to sets: likely members of a cycle.
+   */
+  private final List<AssignEquation> cycleCandidates = new ArrayList<AssignEquation>();
+
+  /**
+   * Number of variables eliminated by collapsing cycles
+   */
+  private int nCollapsed = 0;
+
   public PropagationSystem(CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
     if (cg == null) {
       throw new IllegalArgumentException("null cg");
@@ -269,6 +316,12 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     PointsToSetVariable result = pointsToMap.getPointsToSet(key);
     if (result == null) {
       result = new PointsToSetVariable(key);
+      if (pointsToSetFactory != null) {
+        result.setIntSetFactory(pointsToSetFactory);
+      }
+      if (useDifferencePropagation) {
+        result.trackDeltas();
+      }
       pointsToMap.put(key, result);
     } else {
       // check that the filter for this variable remains unique
@@ -437,6 +490,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
       // variable.
       if (L.getGraphNodeId() > -1) {
         changedVariable(L);
+      } else if (L.isTrackingDeltas()) {
+        L.takeDelta();
       }
       return true;
     }
@@ -600,11 +655,279 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     newStatement(null, op, v1, v2, true, true);
   }
 
+  /**
+   * Assignments, and filters whose type filter only reads the class-to-instance-key map, touch nothing but their own left- and
+   * right-hand sides, so they may be evaluated concurrently by
+   * {@link #solve(com.ibm.wala.util.MonitorUtil.IProgressMonitor, java.util.concurrent.ExecutorService, int)}. Everything else may
+   * create new constraints, instance keys or call graph nodes, and so must run on the solver thread.
+   */
+  @Override
+  protected boolean isParallelizable(AbstractStatement s) {
+    if (!(s instanceof UnaryStatement) || s.getLHS() == null) {
+      return false;
+    }
+    AbstractOperator op = s.getOperator();
+    if (op instanceof AssignOperator) {
+      return true;
+    } else if (op instanceof FilterOperator) {
+      PointerKey pk = ((PointsToSetVariable) s.getLHS()).getPointerKey();
+      if (pk instanceof FilteredPointerKey) {
+        FilteredPointerKey.TypeFilter filter = ((FilteredPointerKey) pk).getTypeFilter();
+        return filter instanceof FilteredPointerKey.SingleClassFilter || filter instanceof FilteredPointerKey.MultipleClassesFilter;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected void initializeWorkList() {
     addAllStatementsToWorkList();
   }
 
+  /**
+   * Under difference propagation, hand the instance keys added to v since it last changed to each equation that uses it.
+   */
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    if (!v.isTrackingDeltas()) {
+      super.changedVariable(v);
+      return;
+    }
+    IntSet delta = v.takeDelta();
+    for (Iterator it = getFixedPointSystem().getStatementsThatUse(v); it.hasNext();) {
+      AbstractStatement s = (AbstractStatement) it.next();
+      if (s instanceof DeltaEquation && ((DeltaEquation) s).canEvaluateDelta()) {
+        IntSet pending = pendingDeltas.get(s);
+        if (pending != null) {
+          if (delta != null) {
+            pendingDeltas.put(s, pending.union(delta));
+          }
+        } else if (!workList.contains(s)) {
+          // s is up to date but for delta
+          pendingDeltas.put(s, delta == null ? IntSetUtil.make() : delta);
+        }
+      }
+      super.addToWorkList(s);
+    }
+  }
+
+  /**
+   * Any statement added to the work list other than by {@link #changedVariable(PointsToSetVariable)} is evaluated in full.
+   */
+  @Override
+  public void addToWorkList(AbstractStatement s) {
+    if (useDifferencePropagation) {
+      pendingDeltas.remove(s);
+    }
+    super.addToWorkList(s);
+  }
+
+  @Override
+  protected void prepareForEvaluation(AbstractStatement s) {
+    if (s instanceof DeltaEquation) {
+      ((DeltaEquation) s).setDelta(pendingDeltas.remove(s));
+    }
+    if (collapseAssignmentCycles && s instanceof AssignEquation) {
+      noteCycleCandidate((AssignEquation) s);
+    }
+  }
+
+  /**
+   * Lazy cycle detection: an assignment whose sides already have equal points-to sets is likely to lie on a cycle, so remember it
+   * as a place to look for one.
+   */
+  private void noteCycleCandidate(AssignEquation eq) {
+    PointsToSetVariable lhs = eq.getLHS();
+    PointsToSetVariable rhs = eq.getRightHandSide();
+    if (lhs == rhs || lhs.size() == 0 || lhs.size() != rhs.size()) {
+      return;
+    }
+    if (checkedForCycles.contains(lhs.getGraphNodeId(), rhs.getGraphNodeId())) {
+      return;
+    }
+    if (lhs.getValue().sameValue(rhs.getValue())) {
+      checkedForCycles.add(lhs.getGraphNodeId(), rhs.getGraphNodeId());
+      cycleCandidates.add(eq);
+    }
+  }
+
+  /**
+   * Collapse any cycles found since the last step, before choosing the next statement to evaluate.
+   */
+  @Override
+  public void orderStatements() {
+    if (!cycleCandidates.isEmpty()) {
+      collapseCycles();
+    }
+    super.orderStatements();
+  }
+
+  private void collapseCycles() {
+    for (AssignEquation eq : cycleCandidates) {
+      PointsToSetVariable lhs = eq.getLHS();
+      PointsToSetVariable rhs = eq.getRightHandSide();
+      // either side may have been collapsed into another variable already
+      if (flowGraph.getVariable(lhs.getGraphNodeId()) == lhs && flowGraph.getVariable(rhs.getGraphNodeId()) == rhs) {
+        IntSet cycle = findAssignmentCycle(rhs, lhs);
+        if (cycle != null) {
+          collapse(cycle);
+        }
+      }
+    }
+    cycleCandidates.clear();
+  }
+
+  /**
+   * Given an assignment y := x, find the variables on assignment paths from y back to x.
+   * 
+   * @return the graph node numbers of the strongly connected component of the assignment graph that contains x and y, or null if x
+   *         is not reachable from y
+   */
+  private IntSet findAssignmentCycle(PointsToSetVariable x, PointsToSetVariable y) {
+    BitVectorIntSet reached = new BitVectorIntSet();
+    IntStack stack = new IntStack();
+    reached.add(y.getGraphNodeId());
+    stack.push(y.getGraphNodeId());
+    while (!stack.isEmpty()) {
+      IntSet succ = flowGraph.getAssignmentSuccessors(flowGraph.getVariable(stack.pop()));
+      if (succ != null) {
+        for (IntIterator it = succ.intIterator(); it.hasNext();) {
+          int n = it.next();
+          if (reached.add(n)) {
+            stack.push(n);
+          }
+        }
+      }
+    }
+    if (!reached.contains(x.getGraphNodeId())) {
+      return null;
+    }
+    BitVectorIntSet result = new BitVectorIntSet();
+    result.add(x.getGraphNodeId());
+    stack.push(x.getGraphNodeId());
+    while (!stack.isEmpty()) {
+      IntSet pred = flowGraph.getAssignmentPredecessors(flowGraph.getVariable(stack.pop()));
+      if (pred != null) {
+        for (IntIterator it = pred.intIterator(); it.hasNext();) {
+          int n = it.next();
+          if (reached.contains(n) && result.add(n)) {
+            stack.push(n);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Unify the variables on a cycle of assignments, which must have equal points-to sets at the fixed point.
+   * 
+   * Unification shares a single pointer key, and so a single type filter, among the variables; and the filter on a local or return
+   * value may be added after the variable is created. To keep the filters of the analysis unchanged, we only collapse cycles of
+   * locals that are never filtered, or of heap locations, which never are.
+   * 
+   * @param cycle graph node numbers of the variables to unify
+   */
+  private void collapse(IntSet cycle) {
+    MutableIntSet keys = IntSetUtil.make();
+    boolean sawLocal = false;
+    boolean sawOther = false;
+    for (IntIterator it = cycle.intIterator(); it.hasNext();) {
+      PointerKey key = flowGraph.getVariable(it.next()).getPointerKey();
+      if (key instanceof FilteredPointerKey || key instanceof ReturnValueKey) {
+        return;
+      } else if (key instanceof LocalPointerKey) {
+        if (((LocalPointerKey) key).isParameter()) {
+          return;
+        }
+        sawLocal = true;
+      } else {
+        sawOther = true;
+      }
+      keys.add(pointsToMap.getIndex(key));
+    }
+    if (keys.size() < 2 || (sawLocal && sawOther)) {
+      return;
+    }
+
+    unify(keys);
+    nCollapsed += keys.size() - 1;
+
+    // equations on the representative have been rewritten; evaluate them afresh
+    PointsToSetVariable rep = pointsToMap.getPointsToSet(keys.intIterator().next());
+    if (rep.isTrackingDeltas()) {
+      rep.takeDelta();
+    }
+    for (Iterator it = getStatementsThatDef(rep); it.hasNext();) {
+      addToWorkList((AbstractStatement) it.next());
+    }
+    for (Iterator it = getStatementsThatUse(rep); it.hasNext();) {
+      addToWorkList((AbstractStatement) it.next());
+    }
+  }
+
+  public boolean getCollapseAssignmentCycles() {
+    return collapseAssignmentCycles;
+  }
+
+  /**
+   * Turn online detection and collapsing of assignment cycles on or off.
+   */
+  public void setCollapseAssignmentCycles(boolean collapseAssignmentCycles) {
+    this.collapseAssignmentCycles = collapseAssignmentCycles;
+  }
+
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  public MutableIntSetFactory<?> getPointsToSetFactory() {
+    return pointsToSetFactory;
+  }
+
+  /**
+   * Choose the representation of the contents of points-to sets. This must be set before any points-to sets are created.
+   *
+   * @param pointsToSetFactory makes the sets; null for {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public void setPointsToSetFactory(MutableIntSetFactory<?> pointsToSetFactory) {
+    this.pointsToSetFactory = pointsToSetFactory;
+  }
+
+  /**
+   * Turn difference propagation on or off. This must be set before any points-to sets are created.
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  /**
+   * Replace the contents of every points-to set with a canonical representative, so points-to sets with the same contents share
+   * the same {@link IntSet}. This is meant to be called once the system is solved; a points-to set that changes afterward gets a
+   * private copy again.
+   */
+  public void hashConsPointsToSets() {
+    if (pointsToSetRepository == null) {
+      pointsToSetRepository = new IntSetRepository();
+    }
+    for (Iterator<PointerKey> it = pointsToMap.iterateKeys(); it.hasNext();) {
+      PointerKey key = it.next();
+      if (!pointsToMap.isImplicit(key)) {
+        PointsToSetVariable v = pointsToMap.getPointsToSet(pointsToMap.getIndex(key));
+        if (v != null) {
+          v.shareValue(pointsToSetRepository);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of distinct points-to sets, or -1 if they have not been hash-consed
+   */
+  public int getNumberOfDistinctPointsToSets() {
+    return pointsToSetRepository == null ? -1 : pointsToSetRepository.size();
+  }
+
   /**
    * @return an object that encapsulates the pointer analysis results
    */
@@ -634,6 +957,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (getFixedPointSystem() instanceof VerboseAction) {
       ((VerboseAction) getFixedPointSystem()).performVerboseAction();
     }
+    if (collapseAssignmentCycles) {
+      System.err.println("Collapsed " + nCollapsed);
+    }
     if (!workList.isEmpty()) {
       AbstractStatement s = workList.takeStatement();
       System.err.println(printRHSInstances(s));
@@ -691,13 +1017,6 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     return pointsToMap.getNumberOfPointerKeys();
   }
 
-  /**
-   * Use with care.
-   */
-  Worklist getWorklist() {
-    return workList;
-  }
-
   public Iterator<AbstractStatement> getStatementsThatUse(PointsToSetVariable v) {
     return flowGraph.getStatementsThatUse(v);
   }
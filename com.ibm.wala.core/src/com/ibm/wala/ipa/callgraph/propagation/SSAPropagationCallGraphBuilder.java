@@ -2330,6 +2330,9 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
    */
   @Override
   protected IPointsToSolver makeSolver() {
+    if (getOptions().getSolverThreads() > 1) {
+      return new ParallelSolver(system, this, getOptions().getSolverThreads());
+    }
     return new StandardSolver(system, this);
     // return usePreTransitiveSolver ? (IPointsToSolver) new PreTransitiveSolver(system, this) : new StandardSolver(system, this);
     // return true ? (IPointsToSolver)new PreTransitiveSolver(system,this) : new
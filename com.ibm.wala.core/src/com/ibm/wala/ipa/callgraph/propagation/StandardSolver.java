@@ -37,7 +37,7 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("Iteration " + i);
       }
-      getSystem().solve(monitor);
+      solveSystem(monitor);
       if (DEBUG_PHASES) {
         System.err.println("Solved " + i);
       }
@@ -78,4 +78,11 @@ public class StandardSolver extends AbstractPointsToSolver {
 
   }
 
+  /**
+   * Run the fixed-point solver over the constraints discovered so far.
+   */
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    getSystem().solve(monitor);
+  }
+
 }
@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
@@ -134,9 +135,10 @@ public class ZeroXInstanceKeys implements InstanceKeyFactory {
   final private RTAContextInterpreter contextInterpreter;
 
   /**
-   * a Map from CGNode->Set<IClass> that should be smushed.
+   * a Map from CGNode->Set<IClass> that should be smushed. Concurrent, since demand-driven queries on several threads may share
+   * this heap model.
    */
-  protected final Map<CGNode, Set<IClass>> smushMap = HashMapFactory.make();
+  protected final Map<CGNode, Set<IClass>> smushMap = new ConcurrentHashMap<CGNode, Set<IClass>>();
 
   public ZeroXInstanceKeys(AnalysisOptions options, IClassHierarchy cha, RTAContextInterpreter contextInterpreter, int policy) {
     if (options == null) {
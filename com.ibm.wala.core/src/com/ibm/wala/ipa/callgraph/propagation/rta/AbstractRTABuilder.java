@@ -33,6 +33,7 @@ import com.ibm.wala.ipa.callgraph.impl.FakeWorldClinitMethod;
 import com.ibm.wala.ipa.callgraph.propagation.ClassBasedInstanceKeys;
 import com.ibm.wala.ipa.callgraph.propagation.IPointsToSolver;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelSolver;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
@@ -369,6 +370,9 @@ public abstract class AbstractRTABuilder extends PropagationCallGraphBuilder {
    */
   @Override
   protected IPointsToSolver makeSolver() {
+    if (getOptions().getSolverThreads() > 1) {
+      return new ParallelSolver(system, this, getOptions().getSolverThreads());
+    }
     return new StandardSolver(system, this);
   }
 
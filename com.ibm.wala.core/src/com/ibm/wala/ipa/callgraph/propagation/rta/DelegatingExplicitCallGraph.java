@@ -27,7 +27,7 @@ import com.ibm.wala.util.intset.BitVectorIntSet;
 import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
-import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
 /**
@@ -71,8 +71,8 @@ public class DelegatingExplicitCallGraph extends ExplicitCallGraph {
      * @see com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph.ExplicitNode#getAllTargetNumbers()
      */
     @Override
-    public MutableSharedBitVectorIntSet getAllTargetNumbers() {
-      MutableSharedBitVectorIntSet result = new MutableSharedBitVectorIntSet(super.getAllTargetNumbers());
+    public MutableIntSet getAllTargetNumbers() {
+      MutableIntSet result = getIntSetFactory().makeCopy(super.getAllTargetNumbers());
       for (Iterator it = targets.iterator(); it.hasNext();) {
         Object n = it.next();
         if (n instanceof CallSite) {
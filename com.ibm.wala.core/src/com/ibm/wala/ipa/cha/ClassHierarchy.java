@@ -19,7 +19,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ibm.wala.classLoader.ArrayClass;
 import com.ibm.wala.classLoader.ClassLoaderFactory;
@@ -42,6 +46,7 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.MapIterator;
 import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.functions.Function;
@@ -179,6 +184,14 @@ public class ClassHierarchy implements IClassHierarchy {
 
   private ClassHierarchy(AnalysisScope scope, ClassLoaderFactory factory, Collection<Language> languages,
       IProgressMonitor progressMonitor) throws ClassHierarchyException, IllegalArgumentException {
+    this(scope, factory, languages, progressMonitor, null);
+  }
+
+  /**
+   * @param snapshot if non-null, nodes for the classes of the loaders it covers are restored from it, rather than computed
+   */
+  private ClassHierarchy(AnalysisScope scope, ClassLoaderFactory factory, Collection<Language> languages,
+      IProgressMonitor progressMonitor, ClassHierarchySnapshot snapshot) throws ClassHierarchyException, IllegalArgumentException {
     // now is a good time to clear the warnings globally.
     // TODO: think of a better way to guard against warning leaks.
     Warnings.clear();
@@ -206,6 +219,9 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
     }
+    int threads = factory instanceof ClassLoaderFactoryImpl ? ((ClassLoaderFactoryImpl) factory).getLoadingThreads() : 1;
+    ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, ParallelUtil.makeDaemonThreadFactory("ClassHierarchy"))
+        : null;
     try {
       int numLoaders = 0;
       for (ClassLoaderReference ref : scope.getLoaders()) {
@@ -237,11 +253,17 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
 
+      if (snapshot != null) {
+        restore(snapshot);
+      }
+
       for (IClassLoader icl : loaders) {
         if (progressMonitor != null) {
           progressMonitor.subTask("From " + icl.getName().toString());
         }
-        addAllClasses(icl, progressMonitor);
+        if (snapshot == null || !snapshot.covers(icl.getReference())) {
+          addAllClasses(icl, progressMonitor, executor);
+        }
 
         if (progressMonitor != null) {
           progressMonitor.worked(idx++);
@@ -251,6 +273,9 @@ public class ClassHierarchy implements IClassHierarchy {
     } catch (IOException e) {
       throw new ClassHierarchyException("factory.getLoader failed " + e);
     } finally {
+      if (executor != null) {
+        executor.shutdown();
+      }
       if (progressMonitor != null) {
         progressMonitor.done(); // In case an exception is thrown.
       }
@@ -260,18 +285,66 @@ public class ClassHierarchy implements IClassHierarchy {
       throw new ClassHierarchyException("failed to load root " + rootTypeRef + " of class hierarchy");
     }
 
-    // perform numbering for subclass tests.
-    numberTree();
+    // perform numbering for subclass tests, unless the numbering from the snapshot covers all classes.
+    if (snapshot == null || map.size() != snapshot.getNumberOfClasses()) {
+      nextNumber = 1;
+      numberTree();
+    }
     ReferenceCleanser.registerClassHierarchy(this);
   }
 
+  /**
+   * Restore the nodes, numbering and implementors recorded in a snapshot.
+   */
+  private void restore(ClassHierarchySnapshot snapshot) {
+    IClass[] classes = snapshot.getClasses(this);
+    Node[] nodes = new Node[classes.length];
+    for (int i = 0; i < classes.length; i++) {
+      nodes[i] = findOrCreateNode(classes[i]);
+      if (classes[i].getReference().equals(rootTypeRef)) {
+        root = nodes[i];
+      }
+    }
+    for (int i = 0; i < classes.length; i++) {
+      int parent = snapshot.getParent(i);
+      if (parent != -1) {
+        nodes[parent].addChild(nodes[i]);
+      }
+      nodes[i].left = snapshot.getLeft(i);
+      nodes[i].right = snapshot.getRight(i);
+      for (int iface : snapshot.getImplementedInterfaces(i)) {
+        recordImplements(classes[i], classes[iface]);
+      }
+    }
+  }
+
   /**
    * Add all classes in a class loader to the hierarchy.
+   * 
+   * @param executor if non-null, the supertypes of the classes are looked up on this executor; the classes are still added one at a
+   *          time, in the same order
    */
-  private void addAllClasses(IClassLoader loader, IProgressMonitor progressMonitor) throws CancelCHAConstructionException {
+  private void addAllClasses(IClassLoader loader, IProgressMonitor progressMonitor, ExecutorService executor)
+      throws CancelCHAConstructionException {
     if (DEBUG) {
       System.err.println(("Add all classes from loader " + loader));
     }
+    Map<IClass, Future<Supertypes>> supertypes = null;
+    if (executor != null) {
+      supertypes = HashMapFactory.make();
+      for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
+        final IClass klass = it.next();
+        // other kinds of classes may not expect to be looked at by several threads
+        if (klass instanceof ShrikeClass) {
+          supertypes.put(klass, executor.submit(new Callable<Supertypes>() {
+            @Override
+            public Supertypes call() {
+              return computeSupertypes(klass);
+            }
+          }));
+        }
+      }
+    }
     Collection<IClass> toRemove = HashSetFactory.make();
     for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
       if (progressMonitor != null) {
@@ -280,7 +353,7 @@ public class ClassHierarchy implements IClassHierarchy {
         }
       }
       IClass klass = it.next();
-      boolean added = addClass(klass);
+      boolean added = addClass(klass, supertypes == null ? null : getSupertypes(supertypes.get(klass)));
       if (!added) {
         toRemove.add(klass);
       }
@@ -289,6 +362,37 @@ public class ClassHierarchy implements IClassHierarchy {
 
   }
 
+  /**
+   * The superclasses and implemented interfaces of a class, or the reason they could not be found
+   */
+  private static final class Supertypes {
+    final Set<IClass> superclasses;
+
+    final Collection<IClass> interfaces;
+
+    final Exception failure;
+
+    Supertypes(Set<IClass> superclasses, Collection<IClass> interfaces, Exception failure) {
+      this.superclasses = superclasses;
+      this.interfaces = interfaces;
+      this.failure = failure;
+    }
+  }
+
+  private Supertypes computeSupertypes(IClass klass) {
+    try {
+      Set<IClass> superclasses = computeSuperclasses(klass);
+      return new Supertypes(superclasses, klass.getAllImplementedInterfaces(), null);
+    } catch (Exception e) {
+      return new Supertypes(null, null, e);
+    }
+  }
+
+  private static Supertypes getSupertypes(Future<Supertypes> f) {
+    return f == null ? null : ParallelUtil.get(f);
+  }
+
+
   /**
    * @return true if the add succeeded; false if it failed for some reason
    * @throws IllegalArgumentException if klass is null
@@ -298,6 +402,13 @@ public class ClassHierarchy implements IClassHierarchy {
     if (klass == null) {
       throw new IllegalArgumentException("klass is null");
     }
+    return addClass(klass, null);
+  }
+
+  /**
+   * @param supertypes the supertypes of klass, from {@link #computeSupertypes(IClass)}, or null to look them up here
+   */
+  private boolean addClass(IClass klass, Supertypes supertypes) {
     if (klass.getReference().getName().equals(rootTypeRef.getName())) {
       if (!klass.getReference().getClassLoader().equals(rootTypeRef.getClassLoader())) {
         throw new IllegalArgumentException("class " + klass + " is invalid, unexpected classloader");
@@ -306,21 +417,21 @@ public class ClassHierarchy implements IClassHierarchy {
     if (DEBUG) {
       System.err.println(("Attempt to add class " + klass));
     }
-    Set<IClass> loadedSuperclasses;
-    Collection loadedSuperInterfaces;
-    try {
-      loadedSuperclasses = computeSuperclasses(klass);
-      loadedSuperInterfaces = klass.getAllImplementedInterfaces();
-    } catch (Exception e) {
+    if (supertypes == null) {
+      supertypes = computeSupertypes(klass);
+    }
+    if (supertypes.failure != null) {
       // a little cleanup
       if (klass instanceof ShrikeClass) {
         if (DEBUG) {
           System.err.println(("Exception.  Clearing " + klass));
         }
       }
-      Warnings.add(ClassExclusion.create(klass.getReference(), e.getMessage()));
+      Warnings.add(ClassExclusion.create(klass.getReference(), supertypes.failure.getMessage()));
       return false;
     }
+    Set<IClass> loadedSuperclasses = supertypes.superclasses;
+    Collection loadedSuperInterfaces = supertypes.interfaces;
     Node node = findOrCreateNode(klass);
 
     if (klass.getReference().equals(this.rootTypeRef)) {
@@ -1259,6 +1370,14 @@ public class ClassHierarchy implements IClassHierarchy {
     return new ClassHierarchy(scope, factory, language, monitor);
   }
 
+  /**
+   * Make a class hierarchy whose loaders and nodes are restored from a snapshot
+   */
+  static ClassHierarchy make(AnalysisScope scope, ClassLoaderFactory factory, ClassHierarchySnapshot snapshot)
+      throws ClassHierarchyException {
+    return new ClassHierarchy(scope, factory, scope.getLanguages(), null, snapshot);
+  }
+
   @Override
   public IClass getRootClass() {
     return root.getJavaClass();
@@ -1277,6 +1396,13 @@ public class ClassHierarchy implements IClassHierarchy {
     return map.get(c.getReference()).left;
   }
 
+  /**
+   * @return the number of the last subclass of c, in the numbering of {@link #getNumber(IClass)}
+   */
+  int getLastSubclassNumber(IClass c) {
+    return map.get(c.getReference()).right;
+  }
+
   /**
    * A warning for when we fail to resolve the type for a checkcast
    */
@@ -1330,7 +1456,10 @@ public class ClassHierarchy implements IClassHierarchy {
   }
 
 /** BEGIN Custom change: remember unresolved classes */
-  private final Set<TypeReference> unresolved = HashSetFactory.make();
+  /**
+   * concurrent, since IRs may be built on several threads, which look up the exception types that handlers catch
+   */
+  private final Set<TypeReference> unresolved = Collections.newSetFromMap(new ConcurrentHashMap<TypeReference, Boolean>());
 
   @Override
   public final Set<TypeReference> getUnresolvedClasses() {
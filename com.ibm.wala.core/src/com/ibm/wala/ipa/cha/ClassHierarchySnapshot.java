@@ -0,0 +1,531 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ipa.cha;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.ClassLoaderImpl;
+import com.ibm.wala.classLoader.DirectoryTreeModule;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.config.SetOfClasses;
+import com.ibm.wala.util.strings.ImmutableByteArray;
+import com.ibm.wala.util.strings.UTF8Convert;
+
+/**
+ * A compact file holding a built {@link ClassHierarchy}, so that later runs over the same {@link AnalysisScope} can skip reading
+ * and linking every class.
+ *
+ * The snapshot records the header of each class (name, modifiers, superclass and interfaces), the tree of the hierarchy with its
+ * numbering, and the implementors of each interface. A hierarchy read from a snapshot creates its {@link ShrikeClass}es from the
+ * headers; a class file is only read when the members of its class are first needed.
+ *
+ * Only loaders that are plain {@link ClassLoaderImpl}s are recorded; others, e.g. the synthetic loader, are built as usual. A
+ * snapshot is only used if the modules of the scope (their paths, sizes and modification times) and its exclusions are unchanged.
+ */
+public final class ClassHierarchySnapshot {
+
+  private static final int MAGIC = 0x57434831;
+
+  private static final int VERSION = 1;
+
+  /**
+   * description of the scope the snapshot was taken from
+   */
+  private final List<String> fingerprint;
+
+  /**
+   * the recorded loaders
+   */
+  private final ClassLoaderReference[] loaders;
+
+  /**
+   * the headers of the classes of each recorded loader
+   */
+  private final List<List<ShrikeClass.Header>> headers;
+
+  /**
+   * for each class, numbered in the order of headers, the number of its superclass, or -1 for the root
+   */
+  private final int[] parents;
+
+  /**
+   * for each class, the left and right end of its interval in the numbering of the hierarchy
+   */
+  private final int[] left;
+
+  private final int[] right;
+
+  /**
+   * for each class, the numbers of the interfaces it is recorded to implement
+   */
+  private final int[][] implemented;
+
+  private ClassHierarchySnapshot(List<String> fingerprint, ClassLoaderReference[] loaders, List<List<ShrikeClass.Header>> headers,
+      int[] parents, int[] left, int[] right, int[][] implemented) {
+    this.fingerprint = fingerprint;
+    this.loaders = loaders;
+    this.headers = headers;
+    this.parents = parents;
+    this.left = left;
+    this.right = right;
+    this.implemented = implemented;
+  }
+
+  /**
+   * Read the class hierarchy for scope from a snapshot if there is an up-to-date one in file; otherwise, build it and write a
+   * snapshot to file for next time. Failures to write the snapshot are ignored.
+   */
+  public static ClassHierarchy make(AnalysisScope scope, File file) throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    if (fingerprint(scope) == null) {
+      return ClassHierarchy.make(scope);
+    }
+    if (file.exists()) {
+      try {
+        return read(scope, file);
+      } catch (IOException e) {
+        // stale or unreadable; build it again
+      }
+    }
+    ClassHierarchy cha = ClassHierarchy.make(scope);
+    try {
+      write(cha, file);
+    } catch (IOException e) {
+      // no snapshot this time
+    }
+    return cha;
+  }
+
+  /**
+   * Read a class hierarchy for scope from a snapshot written by {@link #write(ClassHierarchy, File)}.
+   *
+   * @throws IOException if the snapshot cannot be read, or was not written for the scope as it is now
+   */
+  public static ClassHierarchy read(AnalysisScope scope, File file) throws IOException, ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    ClassHierarchySnapshot snapshot;
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+    try {
+      snapshot = read(scope, in);
+    } finally {
+      in.close();
+    }
+    return ClassHierarchy.make(scope, snapshot.new Factory(scope.getExclusions()), snapshot);
+  }
+
+  private static ClassHierarchySnapshot read(AnalysisScope scope, DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("not a class hierarchy snapshot");
+    }
+    List<String> fingerprint = readStrings(in);
+    if (!fingerprint.equals(fingerprint(scope))) {
+      throw new IOException("snapshot was taken from a different scope");
+    }
+    List<String> strings = readStrings(in);
+
+    ClassLoaderReference[] loaders = new ClassLoaderReference[in.readInt()];
+    List<List<ShrikeClass.Header>> headers = new ArrayList<List<ShrikeClass.Header>>(loaders.length);
+    int numberOfClasses = 0;
+    for (int i = 0; i < loaders.length; i++) {
+      String name = string(strings, in.readInt());
+      for (ClassLoaderReference ref : scope.getLoaders()) {
+        if (ref.getName().toString().equals(name)) {
+          loaders[i] = ref;
+        }
+      }
+      if (loaders[i] == null) {
+        throw new IOException("no loader " + name + " in scope");
+      }
+      int n = in.readInt();
+      List<ShrikeClass.Header> h = new ArrayList<ShrikeClass.Header>(n);
+      for (int j = 0; j < n; j++) {
+        TypeName className = TypeName.findOrCreate(ImmutableByteArray.make(string(strings, in.readInt())));
+        int modifiers = in.readInt();
+        int superName = in.readInt();
+        ImmutableByteArray[] interfaceNames = new ImmutableByteArray[in.readInt()];
+        for (int k = 0; k < interfaceNames.length; k++) {
+          interfaceNames[k] = ImmutableByteArray.make(string(strings, in.readInt()));
+        }
+        h.add(new ShrikeClass.Header(className, modifiers, superName == -1 ? null : ImmutableByteArray.make(string(strings,
+            superName)), interfaceNames));
+      }
+      headers.add(h);
+      numberOfClasses += n;
+    }
+
+    int[] parents = new int[numberOfClasses];
+    int[] left = new int[numberOfClasses];
+    int[] right = new int[numberOfClasses];
+    int[][] implemented = new int[numberOfClasses][];
+    for (int i = 0; i < numberOfClasses; i++) {
+      parents[i] = in.readInt();
+      if (parents[i] < -1 || parents[i] >= numberOfClasses) {
+        throw new IOException("bad class number " + parents[i]);
+      }
+      left[i] = in.readInt();
+      right[i] = in.readInt();
+      implemented[i] = new int[in.readInt()];
+      for (int j = 0; j < implemented[i].length; j++) {
+        implemented[i][j] = in.readInt();
+        if (implemented[i][j] < 0 || implemented[i][j] >= numberOfClasses) {
+          throw new IOException("bad class number " + implemented[i][j]);
+        }
+      }
+    }
+    return new ClassHierarchySnapshot(fingerprint, loaders, headers, parents, left, right, implemented);
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int n = in.readInt();
+    List<String> result = new ArrayList<String>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(in.readUTF());
+    }
+    return result;
+  }
+
+  private static String string(List<String> strings, int i) throws IOException {
+    if (i < 0 || i >= strings.size()) {
+      throw new IOException("bad string number " + i);
+    }
+    return strings.get(i);
+  }
+
+  /**
+   * Write a snapshot of cha to file.
+   *
+   * @throws IllegalArgumentException if the scope of cha has modules that a snapshot cannot check for changes
+   */
+  public static void write(ClassHierarchy cha, File file) throws IOException {
+    if (cha == null) {
+      throw new IllegalArgumentException("null cha");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("null file");
+    }
+    ClassHierarchySnapshot snapshot = take(cha);
+    File tmp = new File(file.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536));
+    try {
+      snapshot.write(out);
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+      tmp.delete();
+      throw new IOException("could not write " + file);
+    }
+  }
+
+  private static ClassHierarchySnapshot take(ClassHierarchy cha) {
+    AnalysisScope scope = cha.getScope();
+    List<String> fingerprint = fingerprint(scope);
+    if (fingerprint == null) {
+      throw new IllegalArgumentException("cannot check the modules of " + scope + " for changes");
+    }
+
+    List<ClassLoaderReference> loaders = new ArrayList<ClassLoaderReference>();
+    List<IClass> classes = new ArrayList<IClass>();
+    List<List<ShrikeClass.Header>> headers = new ArrayList<List<ShrikeClass.Header>>();
+    for (IClassLoader loader : cha.getLoaders()) {
+      if (loader.getClass() != ClassLoaderImpl.class || scope.getLoaderImpl(loader.getReference()) != null) {
+        continue;
+      }
+      List<IClass> loaderClasses = new ArrayList<IClass>();
+      for (Iterator<IClass> it = loader.iterateAllClasses(); it.hasNext();) {
+        loaderClasses.add(it.next());
+      }
+      // sort, so that the same hierarchy gives the same file
+      Collections.sort(loaderClasses, new Comparator<IClass>() {
+        @Override
+        public int compare(IClass o1, IClass o2) {
+          return o1.getName().toString().compareTo(o2.getName().toString());
+        }
+      });
+      List<ShrikeClass.Header> h = new ArrayList<ShrikeClass.Header>(loaderClasses.size());
+      for (IClass klass : loaderClasses) {
+        h.add(((ShrikeClass) klass).getHeader());
+      }
+      loaders.add(loader.getReference());
+      classes.addAll(loaderClasses);
+      headers.add(h);
+    }
+
+    Map<IClass, Integer> numbers = HashMapFactory.make(classes.size());
+    for (IClass klass : classes) {
+      numbers.put(klass, numbers.size());
+    }
+    int[] parents = new int[classes.size()];
+    int[] left = new int[classes.size()];
+    int[] right = new int[classes.size()];
+    List<List<Integer>> implemented = new ArrayList<List<Integer>>(classes.size());
+    for (int i = 0; i < classes.size(); i++) {
+      IClass klass = classes.get(i);
+      if (cha.isRootClass(klass)) {
+        parents[i] = -1;
+      } else {
+        Integer parent = numbers.get(klass.getSuperclass());
+        if (parent == null) {
+          throw new IllegalArgumentException("superclass of " + klass + " is not in a recorded loader");
+        }
+        parents[i] = parent;
+      }
+      left[i] = cha.getNumber(klass);
+      right[i] = cha.getLastSubclassNumber(klass);
+      implemented.add(new ArrayList<Integer>(0));
+    }
+    for (int i = 0; i < classes.size(); i++) {
+      IClass klass = classes.get(i);
+      if (klass.isInterface()) {
+        for (IClass impl : cha.getImplementors(klass.getReference())) {
+          Integer n = numbers.get(impl);
+          if (n != null) {
+            implemented.get(n).add(i);
+          }
+        }
+      }
+    }
+    int[][] implementedArray = new int[classes.size()][];
+    for (int i = 0; i < classes.size(); i++) {
+      List<Integer> l = implemented.get(i);
+      implementedArray[i] = new int[l.size()];
+      for (int j = 0; j < l.size(); j++) {
+        implementedArray[i][j] = l.get(j);
+      }
+    }
+    return new ClassHierarchySnapshot(fingerprint, loaders.toArray(new ClassLoaderReference[loaders.size()]), headers, parents,
+        left, right, implementedArray);
+  }
+
+  private void write(DataOutputStream out) throws IOException {
+    Map<String, Integer> strings = HashMapFactory.make();
+    List<String> stringList = new ArrayList<String>();
+    int[][] loaderStrings = new int[loaders.length][];
+    for (int i = 0; i < loaders.length; i++) {
+      List<ShrikeClass.Header> h = headers.get(i);
+      // loader name, then for each class its name, super name, and interface names
+      List<Integer> s = new ArrayList<Integer>();
+      s.add(intern(loaders[i].getName().toString(), strings, stringList));
+      for (ShrikeClass.Header header : h) {
+        s.add(intern(header.getName().toUnicodeString(), strings, stringList));
+        s.add(header.getSuperName() == null ? -1 : intern(UTF8Convert.fromUTF8(header.getSuperName()), strings, stringList));
+        for (ImmutableByteArray name : header.getInterfaceNames()) {
+          s.add(intern(UTF8Convert.fromUTF8(name), strings, stringList));
+        }
+      }
+      loaderStrings[i] = new int[s.size()];
+      for (int j = 0; j < s.size(); j++) {
+        loaderStrings[i][j] = s.get(j);
+      }
+    }
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    writeStrings(fingerprint, out);
+    writeStrings(stringList, out);
+
+    out.writeInt(loaders.length);
+    for (int i = 0; i < loaders.length; i++) {
+      int[] s = loaderStrings[i];
+      int next = 0;
+      out.writeInt(s[next++]);
+      out.writeInt(headers.get(i).size());
+      for (ShrikeClass.Header header : headers.get(i)) {
+        out.writeInt(s[next++]);
+        out.writeInt(header.getModifiers());
+        out.writeInt(s[next++]);
+        out.writeInt(header.getInterfaceNames().length);
+        for (int k = 0; k < header.getInterfaceNames().length; k++) {
+          out.writeInt(s[next++]);
+        }
+      }
+    }
+
+    for (int i = 0; i < parents.length; i++) {
+      out.writeInt(parents[i]);
+      out.writeInt(left[i]);
+      out.writeInt(right[i]);
+      out.writeInt(implemented[i].length);
+      for (int iface : implemented[i]) {
+        out.writeInt(iface);
+      }
+    }
+  }
+
+  private static int intern(String s, Map<String, Integer> strings, List<String> stringList) {
+    Integer result = strings.get(s);
+    if (result == null) {
+      result = stringList.size();
+      strings.put(s, result);
+      stringList.add(s);
+    }
+    return result;
+  }
+
+  private static void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+    out.writeInt(strings.size());
+    for (String s : strings) {
+      out.writeUTF(s);
+    }
+  }
+
+  /**
+   * Describe the loaders and modules of a scope, including the sizes and modification times of the files, and its exclusions.
+   *
+   * @return the description, or null if scope has a module whose files are unknown
+   */
+  private static List<String> fingerprint(AnalysisScope scope) {
+    List<String> result = new ArrayList<String>();
+    result.add(String.valueOf(scope.getExclusions()));
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      result.add(loader.getName() + "," + loader.getLanguage() + "," + scope.getLoaderImpl(loader));
+      for (Module m : scope.getModules(loader)) {
+        String description = describe(m);
+        if (description == null) {
+          return null;
+        }
+        result.add(description);
+      }
+    }
+    return result;
+  }
+
+  private static String describe(Module m) {
+    if (m instanceof JarFileModule) {
+      return "jarFile," + describe(new File(((JarFileModule) m).getAbsolutePath()));
+    } else if (m instanceof DirectoryTreeModule) {
+      // combine the sizes and times of the files in the tree
+      long hash = 0;
+      int count = 0;
+      for (Iterator<FileModule> it = ((DirectoryTreeModule) m).getEntries(); it.hasNext();) {
+        File f = it.next().getFile();
+        hash += (f.getPath().hashCode() * 31L + f.length()) * 31L + f.lastModified();
+        count++;
+      }
+      return m.getClass().getName() + "," + ((DirectoryTreeModule) m).getPath() + "," + count + "," + hash;
+    } else if (m instanceof FileModule) {
+      return m.getClass().getName() + "," + describe(((FileModule) m).getFile());
+    } else {
+      return null;
+    }
+  }
+
+  private static String describe(File f) {
+    return f.getAbsolutePath() + "," + f.length() + "," + f.lastModified();
+  }
+
+  /**
+   * Loads the recorded loaders from the class headers
+   */
+  private class Factory extends ClassLoaderFactoryImpl {
+
+    Factory(SetOfClasses exclusions) {
+      super(exclusions);
+    }
+
+    @Override
+    protected IClassLoader makeNewClassLoader(ClassLoaderReference classLoaderReference, IClassHierarchy cha, IClassLoader parent,
+        AnalysisScope scope) throws IOException {
+      for (int i = 0; i < loaders.length; i++) {
+        if (loaders[i].equals(classLoaderReference)) {
+          ClassLoaderImpl cl = new ClassLoaderImpl(classLoaderReference, scope.getArrayClassLoader(), parent, getExclusions(), cha);
+          cl.init(scope.getModules(classLoaderReference), headers.get(i));
+          return cl;
+        }
+      }
+      return super.makeNewClassLoader(classLoaderReference, cha, parent, scope);
+    }
+  }
+
+  /**
+   * @return true iff the classes of loader are recorded in this snapshot
+   */
+  boolean covers(ClassLoaderReference loader) {
+    for (ClassLoaderReference ref : loaders) {
+      if (ref.equals(loader)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int getNumberOfClasses() {
+    return parents.length;
+  }
+
+  /**
+   * @return the recorded classes, as loaded by the loaders of cha, in the order used by the other accessors
+   */
+  IClass[] getClasses(ClassHierarchy cha) {
+    IClass[] result = new IClass[parents.length];
+    int next = 0;
+    for (int i = 0; i < loaders.length; i++) {
+      IClassLoader loader = cha.getLoader(loaders[i]);
+      for (ShrikeClass.Header header : headers.get(i)) {
+        IClass klass = loader.lookupClass(header.getName());
+        if (klass == null) {
+          throw new IllegalStateException("could not restore " + header.getName() + " in " + loader);
+        }
+        result[next++] = klass;
+      }
+    }
+    return result;
+  }
+
+  int getParent(int i) {
+    return parents[i];
+  }
+
+  int getLeft(int i) {
+    return left[i];
+  }
+
+  int getRight(int i) {
+    return right[i];
+  }
+
+  int[] getImplementedInterfaces(int i) {
+    return implemented[i];
+  }
+}
@@ -79,6 +79,44 @@ public class ModRef<T extends InstanceKey> {
     return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
   }
 
+  /**
+   * Like {@link #computeMod(CallGraph, PointerAnalysis, HeapExclusions)}, but the heap locations of a node are only computed when
+   * the node is first looked up in the result, along with those of its transitive callees.
+   * 
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeModLazily(CallGraph cg, final PointerAnalysis<T> pa,
+      final HeapExclusions heapExclude) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return CallGraphTransitiveClosure.lazyTransitiveClosure(cg, new Function<CGNode, Collection<PointerKey>>() {
+      @Override
+      public Collection<PointerKey> apply(CGNode n) {
+        return scanNodeForMod(n, pa, heapExclude);
+      }
+    });
+  }
+
+  /**
+   * Like {@link #computeRef(CallGraph, PointerAnalysis, HeapExclusions)}, but the heap locations of a node are only computed when
+   * the node is first looked up in the result, along with those of its transitive callees.
+   * 
+   * @throws IllegalArgumentException if cg is null
+   */
+  public Map<CGNode, OrdinalSet<PointerKey>> computeRefLazily(CallGraph cg, final PointerAnalysis<T> pa,
+      final HeapExclusions heapExclude) {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    return CallGraphTransitiveClosure.lazyTransitiveClosure(cg, new Function<CGNode, Collection<PointerKey>>() {
+      @Override
+      public Collection<PointerKey> apply(CGNode n) {
+        return scanNodeForRef(n, pa, heapExclude);
+      }
+    });
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write, including its callees transitively
    * 
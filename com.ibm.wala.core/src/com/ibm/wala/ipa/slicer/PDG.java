@@ -80,7 +80,7 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
 /** BEGIN Custom change: control deps */                
   public enum Dependency {CONTROL_DEP, DATA_AND_CONTROL_DEP};
   
-  private final SlowSparseNumberedLabeledGraph<Statement, Dependency> delegate =
+  private SlowSparseNumberedLabeledGraph<Statement, Dependency> delegate =
     new SlowSparseNumberedLabeledGraph<Statement, Dependency>(Dependency.DATA_AND_CONTROL_DEP);
 /** END Custom change: control deps */                
 
@@ -126,6 +126,15 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
 
   private boolean isPopulated = false;
 
+  /**
+   * Told how many dependences this PDG holds whenever that changes, so that an {@link SDG} can bound them
+   */
+  interface DependenceListener {
+    void dependencesChanged(PDG<?> pdg, int dependences);
+  }
+
+  private DependenceListener listener;
+
   /**
    * @param mod the set of heap locations which may be written (transitively) by this node. These are logically return values in the
    *          SDG.
@@ -178,8 +187,48 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
       isPopulated = true;
 
       Map<SSAInstruction, Integer> instructionIndices = computeInstructionIndices(ir);
-      createNodes(ref, cOptions, ir);
+      // statements survive release, so only a new PDG creates them
+      if (delegate.getNumberOfNodes() == 0) {
+        createNodes(ref, cOptions, ir);
+      }
       createScalarEdges(cOptions, ir, instructionIndices);
+      countDependences();
+    }
+  }
+
+  void setDependenceListener(DependenceListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * recount the dependences held, and tell the listener
+   */
+  private void countDependences() {
+    if (listener == null) {
+      return;
+    }
+    int count = 0;
+    for (Statement s : delegate) {
+      count += delegate.getSuccNodeCount(s);
+    }
+    listener.dependencesChanged(this, count);
+  }
+
+  /**
+   * Forget the dependences of this PDG, including heap dependences, to save space. They are computed again when next needed. The
+   * statements are kept, with their numbers, so the same instances are used when the dependences are rebuilt, and iterators and
+   * sets of statements handed out earlier stay valid.
+   */
+  void release() {
+    if (isPopulated) {
+      isPopulated = false;
+      SlowSparseNumberedLabeledGraph<Statement, Dependency> statements = new SlowSparseNumberedLabeledGraph<Statement, Dependency>(
+          Dependency.DATA_AND_CONTROL_DEP);
+      for (int i = 0; i <= delegate.getMaxNumber(); i++) {
+        statements.addNode(delegate.getNode(i));
+      }
+      delegate = statements;
+      locationsHandled.clear();
     }
   }
 
@@ -737,6 +786,7 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
         break;
       }
     }
+    countDependences();
   }
 
   private boolean hasBasePointer(SSAInstruction use) {
@@ -1069,9 +1119,8 @@ public class PDG<T extends InstanceKey> implements NumberedGraph<Statement> {
   }
 
   public Statement[] getParamCalleeStatements() {
-    if (paramCalleeStatements == null) {
-      createCalleeParams();
-    }
+    // populate first, so that statements are numbered the same way however the PDG is first used
+    populate();
     Statement[] result = new Statement[paramCalleeStatements.length];
     System.arraycopy(paramCalleeStatements, 0, result, 0, result.length);
     return result;
@@ -13,6 +13,7 @@ package com.ibm.wala.ipa.slicer;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.ibm.wala.classLoader.CallSiteReference;
@@ -122,6 +123,30 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
    */
   private boolean eagerComputed = false;
 
+  /**
+   * If non-null, the PDGs that are populated, least recently used first, with their numbers of dependences. Whenever they hold more
+   * than maxPopulatedDependences dependences, the least recently used are released.
+   */
+  private final LinkedHashMap<PDG, Integer> populated;
+
+  private final int maxPopulatedDependences;
+
+  private int populatedDependences = 0;
+
+  /**
+   * Installed in each PDG of a bounded SDG, so that every population of a PDG, however it is reached, is counted
+   */
+  private final PDG.DependenceListener dependenceListener = new PDG.DependenceListener() {
+    @Override
+    public void dependencesChanged(PDG<?> pdg, int dependences) {
+      Integer old = populated.put(pdg, dependences);
+      populatedDependences += dependences - (old == null ? 0 : old);
+      releaseLeastRecentlyUsed();
+    }
+  };
+
+  private int releaseCount = 0;
+
   public SDG(final CallGraph cg, PointerAnalysis<T> pa, DataDependenceOptions dOptions, ControlDependenceOptions cOptions) {
     this(cg, pa, ModRef.make(), dOptions, cOptions, null);
   }
@@ -133,18 +158,51 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
 
   public SDG(CallGraph cg, PointerAnalysis<T> pa, ModRef modRef, DataDependenceOptions dOptions, ControlDependenceOptions cOptions,
       HeapExclusions heapExclude) throws IllegalArgumentException {
+    this(cg, pa, modRef, dOptions, cOptions, heapExclude, false, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Create an SDG that only does work for the parts of the program a traversal reaches, such as a slice from a few statements of a
+   * large program. The heap locations read and written by a node are computed when its PDG is built, and at most about
+   * maxPopulatedDependences dependences, including heap dependences, are kept in built PDGs; the PDGs used least recently drop
+   * their dependences, which are built again when needed. Statements are not released: those of every PDG built stay resident, in
+   * the PDG and in this SDG, so that they keep their identities and numbers.
+   * 
+   * @param maxPopulatedDependences a bound on the dependences kept in built PDGs; the PDG in use is kept even if it is larger
+   * @throws IllegalArgumentException if maxPopulatedDependences is negative
+   */
+  public SDG(CallGraph cg, PointerAnalysis<T> pa, ModRef modRef, DataDependenceOptions dOptions, ControlDependenceOptions cOptions,
+      HeapExclusions heapExclude, int maxPopulatedDependences) throws IllegalArgumentException {
+    this(cg, pa, modRef, dOptions, cOptions, heapExclude, true, maxPopulatedDependences);
+  }
+
+  private SDG(CallGraph cg, PointerAnalysis<T> pa, ModRef modRef, DataDependenceOptions dOptions, ControlDependenceOptions cOptions,
+      HeapExclusions heapExclude, boolean lazy, int maxPopulatedDependences) throws IllegalArgumentException {
     super();
     if (dOptions == null) {
       throw new IllegalArgumentException("dOptions must not be null");
     }
+    if (maxPopulatedDependences < 0) {
+      throw new IllegalArgumentException("negative maxPopulatedDependences: " + maxPopulatedDependences);
+    }
     this.modRef = modRef;
     this.cg = cg;
     this.pa = pa;
-    this.mod = dOptions.isIgnoreHeap() ? null : modRef.computeMod(cg, pa, heapExclude);
-    this.ref = dOptions.isIgnoreHeap() ? null : modRef.computeRef(cg, pa, heapExclude);
+    if (dOptions.isIgnoreHeap()) {
+      this.mod = null;
+      this.ref = null;
+    } else if (lazy) {
+      this.mod = modRef.computeModLazily(cg, pa, heapExclude);
+      this.ref = modRef.computeRefLazily(cg, pa, heapExclude);
+    } else {
+      this.mod = modRef.computeMod(cg, pa, heapExclude);
+      this.ref = modRef.computeRef(cg, pa, heapExclude);
+    }
     this.dOptions = dOptions;
     this.cOptions = cOptions;
     this.heapExclude = heapExclude;
+    this.populated = lazy ? new LinkedHashMap<PDG, Integer>(16, 0.75f, true) : null;
+    this.maxPopulatedDependences = maxPopulatedDependences;
   }
 
   /**
@@ -794,14 +852,48 @@ public class SDG<T extends InstanceKey> extends AbstractNumberedGraph<Statement>
     if (result == null) {
       result = new PDG(node, pa, mod, ref, dOptions, cOptions, heapExclude, cg, modRef);
       pdgMap.put(node, result);
+      if (populated != null) {
+        result.setDependenceListener(dependenceListener);
+      }
       // Let's not eagerly add nodes, shall we?
       // for (Iterator<? extends Statement> it = result.iterator(); it.hasNext();) {
       // nodeMgr.addNode(it.next());
       // }
+    } else if (populated != null) {
+      // mark it recently used
+      populated.get(result);
     }
     return result;
   }
 
+  /**
+   * release populated PDGs, least recently used first, until their dependences fit in the budget or only the one in use is left
+   */
+  private void releaseLeastRecentlyUsed() {
+    for (Iterator<Map.Entry<PDG, Integer>> it = populated.entrySet().iterator(); populatedDependences > maxPopulatedDependences
+        && populated.size() > 1;) {
+      Map.Entry<PDG, Integer> e = it.next();
+      populatedDependences -= e.getValue();
+      e.getKey().release();
+      it.remove();
+      releaseCount++;
+    }
+  }
+
+  /**
+   * @return the number of times a PDG was released to stay within the budget given when this SDG was created
+   */
+  public int getReleaseCount() {
+    return releaseCount;
+  }
+
+  /**
+   * @return the number of dependences held by the PDGs of this SDG that are built, if it was created with a budget
+   */
+  public int getPopulatedDependenceCount() {
+    return populatedDependences;
+  }
+
   @Override
   public ControlDependenceOptions getCOptions() {
     return cOptions;
@@ -10,121 +10,367 @@
  *******************************************************************************/
 package com.ibm.wala.ssa;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
-import com.ibm.wala.util.collections.HashMapFactory;
-import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Factory;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.ref.CacheReference;
 
 /**
  * A cache for auxiliary information based on an SSA representation
- * 
- * A mapping from (IMethod,Context) -> SSAOptions -> SoftReference -> something
- * 
- * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ *
+ * A mapping from (IMethod,Context) -> SSAOptions -> something
+ *
+ * The cache is safe for concurrent use. Each item is computed at most once at a time: a thread asking for an item that another
+ * thread is computing waits for that computation instead of repeating it.
+ *
+ * An unbounded cache holds its items through soft references, as before. A bounded cache holds at most a fixed number of items
+ * strongly, and evicts the least recently used ones (approximated with a clock / second-chance policy) when it overflows.
  */
 class AuxiliaryCache {
 
   /**
-   * A mapping from IMethod -> SSAOptions -> SoftReference -> IR
+   * A mapping from (IMethod,Context) -> SSAOptions -> Entry
    */
-  private HashMap<Pair<IMethod, Context>, Map<SSAOptions, Object>> dictionary = HashMapFactory.make();
+  private volatile ConcurrentMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Entry>> dictionary = new ConcurrentHashMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Entry>>();
 
   /**
-   * Help out the garbage collector: clear this cache when the number of items is > RESET_THRESHOLD
+   * Entries of a bounded cache, in the order in which the eviction clock visits them
+   */
+  private volatile Queue<Entry> clock = new ConcurrentLinkedQueue<Entry>();
+
+  /**
+   * Help out the garbage collector: in an unbounded cache, drop entries whose referents have been reclaimed every RESET_THRESHOLD
+   * new items
    */
   final private static int RESET_THRESHOLD = 2000;
 
+  /**
+   * maximum number of items held by this cache, or -1 if the cache is unbounded
+   */
+  private final int maxItems;
+
   /**
    * number of items cached here.
    */
-  private int nItems = 0;
+  private final AtomicInteger nItems = new AtomicInteger();
+
+  /**
+   * number of items created since the last sweep of an unbounded cache
+   */
+  private final AtomicInteger nCreated = new AtomicInteger();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * an unbounded cache
+   */
+  AuxiliaryCache() {
+    this(-1);
+  }
+
+  /**
+   * @param maxItems maximum number of items to hold, or -1 for an unbounded cache
+   */
+  AuxiliaryCache(int maxItems) {
+    if (maxItems == 0 || maxItems < -1) {
+      throw new IllegalArgumentException("invalid maxItems: " + maxItems);
+    }
+    this.maxItems = maxItems;
+  }
+
+  boolean isBounded() {
+    return maxItems != -1;
+  }
 
   /**
    * The existence of this is unfortunate.
    */
-  public synchronized void wipe() {
-    dictionary = HashMapFactory.make();
-    nItems = 0;
+  public void wipe() {
+    Map<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Entry>> old = dictionary;
+    dictionary = new ConcurrentHashMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Entry>>();
+    clock = new ConcurrentLinkedQueue<Entry>();
+    for (ConcurrentMap<SSAOptions, Entry> methodMap : old.values()) {
+      for (Entry e : methodMap.values()) {
+        e.markRemoved();
+      }
+    }
   }
 
   /**
    * clear out things from which no IR is reachable
    */
   private void reset() {
-    Map<Pair<IMethod, Context>, Map<SSAOptions, Object>> oldDictionary = dictionary;
-    dictionary = HashMapFactory.make();
-    nItems = 0;
-
-    for (Iterator<Map.Entry<Pair<IMethod, Context>, Map<SSAOptions, Object>>> it = oldDictionary.entrySet().iterator(); it
-        .hasNext();) {
-      Map.Entry<Pair<IMethod, Context>, Map<SSAOptions, Object>> e = it.next();
-      Map<SSAOptions, Object> m = e.getValue();
-      HashSet<Object> toRemove = HashSetFactory.make();
-      for (Iterator it2 = m.entrySet().iterator(); it2.hasNext();) {
-        Map.Entry e2 = (Map.Entry) it2.next();
-        Object key = e2.getKey();
-        Object val = e2.getValue();
-        if (CacheReference.get(val) == null) {
-          toRemove.add(key);
+    for (ConcurrentMap<SSAOptions, Entry> methodMap : dictionary.values()) {
+      for (Entry e : methodMap.values()) {
+        if (e.isReclaimed()) {
+          remove(methodMap, e);
         }
       }
-      for (Iterator<Object> it2 = toRemove.iterator(); it2.hasNext();) {
-        m.remove(it2.next());
-      }
-      if (m.size() > 0) {
-        dictionary.put(e.getKey(), m);
-      }
     }
   }
 
   /**
    * @param m a method
    * @param options options governing ssa construction
-   * @return the object cached for m, or null if none found
+   * @param creator computes the item if it is not cached yet
+   * @return the object cached for m, or the result of creator if none found. Null results are not cached.
    */
-  public synchronized Object find(IMethod m, Context c, SSAOptions options) {
-    // methodMap: SSAOptions -> SoftReference
+  public Object findOrCreate(IMethod m, Context c, SSAOptions options, Factory<?> creator) {
     Pair<IMethod, Context> p = Pair.make(m, c);
-    Map methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = methodMap.get(options);
-    if (ref == null || CacheReference.get(ref) == null) {
-      return null;
-    } else {
-      return CacheReference.get(ref);
+    while (true) {
+      ConcurrentMap<SSAOptions, Entry> methodMap = findOrCreateMethodMap(p);
+      Entry e = methodMap.get(options);
+      if (e == null) {
+        Entry fresh = new Entry(p, options, creator);
+        e = methodMap.putIfAbsent(options, fresh);
+        if (e == null) {
+          misses.incrementAndGet();
+          nItems.incrementAndGet();
+          if (dictionary.get(p) != methodMap) {
+            // methodMap was dropped from the dictionary meanwhile, so no request could find fresh; compute it without caching it
+            remove(methodMap, fresh);
+          }
+          return create(methodMap, fresh);
+        }
+      }
+      Object result = e.get();
+      if (result != null) {
+        hits.incrementAndGet();
+        e.referenced = true;
+        return result;
+      }
+      // the referent was reclaimed, or was never cached; compute it again.
+      remove(methodMap, e);
+    }
+  }
+
+  private ConcurrentMap<SSAOptions, Entry> findOrCreateMethodMap(Pair<IMethod, Context> p) {
+    ConcurrentMap<Pair<IMethod, Context>, ConcurrentMap<SSAOptions, Entry>> d = dictionary;
+    ConcurrentMap<SSAOptions, Entry> methodMap = d.get(p);
+    if (methodMap == null) {
+      ConcurrentMap<SSAOptions, Entry> fresh = new ConcurrentHashMap<SSAOptions, Entry>(2);
+      methodMap = d.putIfAbsent(p, fresh);
+      if (methodMap == null) {
+        methodMap = fresh;
+      }
+    }
+    return methodMap;
+  }
+
+  private Object create(ConcurrentMap<SSAOptions, Entry> methodMap, Entry e) {
+    Object result;
+    try {
+      result = e.compute(isBounded());
+    } catch (RuntimeException ex) {
+      remove(methodMap, e);
+      throw ex;
+    } catch (Error ex) {
+      remove(methodMap, e);
+      throw ex;
     }
+    if (result == null) {
+      remove(methodMap, e);
+    } else if (isBounded()) {
+      if (!e.isRemoved()) {
+        clock.offer(e);
+      }
+      if (nItems.get() > maxItems) {
+        evict();
+      }
+    } else if (nCreated.incrementAndGet() > RESET_THRESHOLD) {
+      nCreated.set(0);
+      reset();
+    }
+    return result;
   }
 
   /**
-   * cache new auxiliary information for an <m,options> pair
-   * 
-   * @param m a method
-   * @param options options governing ssa construction
+   * Run the clock until the cache is back within its budget. An entry that has been used since the clock last visited it gets a
+   * second chance; others are evicted.
    */
-  public synchronized void cache(IMethod m, Context c, SSAOptions options, Object aux) {
-    nItems++;
+  private void evict() {
+    Queue<Entry> q = clock;
+    while (nItems.get() > maxItems) {
+      Entry e = q.poll();
+      if (e == null) {
+        return;
+      }
+      if (e.isRemoved()) {
+        continue;
+      }
+      ConcurrentMap<SSAOptions, Entry> methodMap = dictionary.get(e.p);
+      if (methodMap == null || methodMap.get(e.options) != e) {
+        // lost to a concurrent invalidation
+        e.markRemoved();
+      } else if (e.referenced) {
+        e.referenced = false;
+        q.offer(e);
+      } else if (remove(methodMap, e)) {
+        evictions.incrementAndGet();
+      }
+    }
+  }
 
-    if (nItems > RESET_THRESHOLD) {
-      reset();
+  /**
+   * @return true iff e was still cached
+   */
+  private boolean remove(ConcurrentMap<SSAOptions, Entry> methodMap, Entry e) {
+    boolean result = methodMap.remove(e.options, e);
+    e.markRemoved();
+    if (methodMap.isEmpty() && dictionary.remove(e.p, methodMap)) {
+      // another thread may have added an entry since methodMap was found empty; no request can find it now
+      for (Entry orphan : methodMap.values()) {
+        methodMap.remove(orphan.options, orphan);
+        orphan.markRemoved();
+      }
     }
-    Pair<IMethod, Context> p = Pair.make(m, c);
-    // methodMap: SSAOptions -> SoftReference
-    Map<SSAOptions, Object> methodMap = MapUtil.findOrCreateMap(dictionary, p);
-    Object ref = CacheReference.make(aux);
-    methodMap.put(options, ref);
+    return result;
   }
 
   /**
    * invalidate all cached information about a method
    */
   public void invalidate(IMethod method, Context c) {
-    dictionary.remove(Pair.make(method, c));
+    ConcurrentMap<SSAOptions, Entry> methodMap = dictionary.remove(Pair.make(method, c));
+    if (methodMap != null) {
+      for (Entry e : methodMap.values()) {
+        e.markRemoved();
+      }
+    }
+  }
+
+  /**
+   * @return number of items currently cached
+   */
+  int size() {
+    return nItems.get();
+  }
+
+  /**
+   * @return number of requests answered from the cache
+   */
+  long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of requests that had to compute a new item
+   */
+  long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of items dropped to keep a bounded cache within its budget
+   */
+  long getEvictions() {
+    return evictions.get();
+  }
+
+  private final class Entry {
+
+    private final Pair<IMethod, Context> p;
+
+    private final SSAOptions options;
+
+    /**
+     * computes the item; null once the item is available
+     */
+    private volatile FutureTask<Object> task;
+
+    /**
+     * the item, or a reference to it in an unbounded cache
+     */
+    private volatile Object value;
+
+    /**
+     * has the item been used since the eviction clock last visited it?
+     */
+    private volatile boolean referenced;
+
+    private final AtomicBoolean removed = new AtomicBoolean();
+
+    Entry(Pair<IMethod, Context> p, SSAOptions options, final Factory<?> creator) {
+      this.p = p;
+      this.options = options;
+      this.task = new FutureTask<Object>(new Callable<Object>() {
+        @Override
+        public Object call() {
+          return creator.make();
+        }
+      });
+    }
+
+    Object compute(boolean strong) {
+      FutureTask<Object> t = task;
+      t.run();
+      Object result = getResult(t);
+      value = strong ? result : CacheReference.make(result);
+      task = null;
+      return result;
+    }
+
+    /**
+     * @return the item, waiting for it if it is being computed; null if it has been reclaimed
+     */
+    Object get() {
+      FutureTask<Object> t = task;
+      if (t != null) {
+        return getResult(t);
+      }
+      return isBounded() ? value : CacheReference.get(value);
+    }
+
+    boolean isReclaimed() {
+      return task == null && !isBounded() && CacheReference.get(value) == null;
+    }
+
+    void markRemoved() {
+      if (removed.compareAndSet(false, true)) {
+        nItems.decrementAndGet();
+      }
+    }
+
+    boolean isRemoved() {
+      return removed.get();
+    }
+  }
+
+  private static Object getResult(FutureTask<Object> task) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          ParallelUtil.rethrow(e.getCause());
+          return null;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
   }
 }
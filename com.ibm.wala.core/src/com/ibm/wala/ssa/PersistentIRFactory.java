@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.ShrikeCTMethod;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.debug.Assertions;
+
+/**
+ * An {@link IRFactory} that keeps the IRs of bytecode methods in a directory on disk, so that later analysis runs can load them
+ * instead of running SSA construction again.
+ *
+ * An IR is stored under a key made of the defining class loader, a digest of the class file, the method's selector and the
+ * {@link SSAOptions}, so entries for changed class files are never used. Entries are memory-mapped when loaded. An entry that
+ * cannot be read is rebuilt and overwritten.
+ *
+ * Only IRs for {@link ShrikeCTMethod}s built without pi nodes or default values are stored; everything else goes straight to the
+ * delegate factory. The delegate must build IRs for those methods the way {@link com.ibm.wala.classLoader.ShrikeIRFactory} does.
+ *
+ * Use with an {@link com.ibm.wala.ipa.callgraph.AnalysisCache}, e.g. <code>new AnalysisCache(new PersistentIRFactory(dir))</code>.
+ */
+public class PersistentIRFactory implements IRFactory<IMethod> {
+
+  private final IRFactory<IMethod> delegate;
+
+  private final File directory;
+
+  /**
+   * class -> hex digest of its class file
+   */
+  private final ConcurrentMap<IClass, String> classDigests = new ConcurrentHashMap<IClass, String>();
+
+  private final AtomicLong loaded = new AtomicLong();
+
+  private final AtomicLong stored = new AtomicLong();
+
+  /**
+   * @param directory where to keep IRs; created if needed
+   */
+  public PersistentIRFactory(File directory) {
+    this(new DefaultIRFactory(), directory);
+  }
+
+  /**
+   * @param delegate builds the IRs that are not found on disk
+   * @param directory where to keep IRs; created if needed
+   * @throws IllegalArgumentException if directory cannot be used
+   */
+  public PersistentIRFactory(IRFactory<IMethod> delegate, File directory) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("null delegate");
+    }
+    if (directory == null) {
+      throw new IllegalArgumentException("null directory");
+    }
+    directory.mkdirs();
+    if (!directory.isDirectory()) {
+      throw new IllegalArgumentException("not a directory: " + directory);
+    }
+    this.delegate = delegate;
+    this.directory = directory;
+  }
+
+  @Override
+  public IR makeIR(IMethod method, Context c, SSAOptions options) {
+    if (method == null) {
+      throw new IllegalArgumentException("method cannot be null");
+    }
+    if (!(method instanceof ShrikeCTMethod) || !ShrikeIRCodec.canEncode(options) || !delegate.contextIsIrrelevant(method)) {
+      return delegate.makeIR(method, c, options);
+    }
+    ShrikeCTMethod m = (ShrikeCTMethod) method;
+    String key = makeKey(m);
+    File file = getFile(key);
+    if (file.exists()) {
+      IR ir = load(file, key, m, options);
+      if (ir != null) {
+        loaded.incrementAndGet();
+        return ir;
+      }
+    }
+    IR ir = delegate.makeIR(method, c, options);
+    if (ir != null) {
+      byte[] data = ShrikeIRCodec.encode(ir, key);
+      if (data != null) {
+        store(file, data);
+      }
+    }
+    return ir;
+  }
+
+  @Override
+  public boolean contextIsIrrelevant(IMethod method) {
+    return delegate.contextIsIrrelevant(method);
+  }
+
+  /**
+   * @return number of IRs loaded from disk
+   */
+  public long getLoadedCount() {
+    return loaded.get();
+  }
+
+  /**
+   * @return number of IRs written to disk
+   */
+  public long getStoredCount() {
+    return stored.get();
+  }
+
+  private String makeKey(ShrikeCTMethod m) {
+    IClass klass = m.getDeclaringClass();
+    String digest = classDigests.get(klass);
+    if (digest == null) {
+      digest = toHex(digest(((ShrikeClass) klass).getReader().getBuffer()));
+      classDigests.putIfAbsent(klass, digest);
+    }
+    // the pi node policy and default values must be null; see ShrikeIRCodec.canEncode
+    return ShrikeIRCodec.VERSION + ":" + klass.getClassLoader().getReference().getName() + ":" + digest + ":"
+        + m.getSelector();
+  }
+
+  private File getFile(String key) {
+    String name = toHex(digest(key.getBytes(Charset.forName("UTF-8"))));
+    return new File(new File(directory, name.substring(0, 2)), name.substring(2) + ".ir");
+  }
+
+  private static IR load(File file, String key, ShrikeCTMethod m, SSAOptions options) {
+    try {
+      RandomAccessFile f = new RandomAccessFile(file, "r");
+      try {
+        FileChannel channel = f.getChannel();
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        return ShrikeIRCodec.decode(m, options, key, data);
+      } finally {
+        f.close();
+      }
+    } catch (IOException e) {
+      return null;
+    } catch (BufferUnderflowException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Write data to file by way of a temporary file, so that concurrent readers never see a partial entry. Failures are ignored; the
+   * IR will simply be built again next time.
+   */
+  private void store(File file, byte[] data) {
+    File dir = file.getParentFile();
+    dir.mkdirs();
+    File tmp = null;
+    try {
+      tmp = File.createTempFile("ir-", ".tmp", dir);
+      FileOutputStream out = new FileOutputStream(tmp);
+      try {
+        out.write(data);
+      } finally {
+        out.close();
+      }
+      if (tmp.renameTo(file) || (file.delete() && tmp.renameTo(file))) {
+        stored.incrementAndGet();
+        tmp = null;
+      }
+    } catch (IOException e) {
+      // leave the entry out
+    } finally {
+      if (tmp != null) {
+        tmp.delete();
+      }
+    }
+  }
+
+  private static byte[] digest(byte[] bytes) {
+    return digest(ByteBuffer.wrap(bytes));
+  }
+
+  private static byte[] digest(ByteBuffer bytes) {
+    try {
+      MessageDigest d = MessageDigest.getInstance("SHA-1");
+      d.update(bytes);
+      return d.digest();
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-1
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.toString();
+  }
+}
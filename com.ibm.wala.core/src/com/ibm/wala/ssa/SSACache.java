@@ -13,11 +13,16 @@ package com.ibm.wala.ssa;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
 import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.util.collections.Factory;
 
 /**
- * A mapping from IMethod -> SSAOptions -> SoftReference -> Something
+ * A mapping from (IMethod, Context, SSAOptions) -> IR and DefUse
  * 
- * This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp it.
+ * This cache may be used from several threads at once; each IR is built by one thread only, while others asking for it wait.
+ * 
+ * By default, items are held through soft references. A cache created with a budget instead holds at most that many IRs (and as
+ * many DefUses) and evicts the least recently used ones, so that a long-running client does not depend on the GC's handling of
+ * soft references or on {@link #wipe()}.
  */
 public class SSACache {
 
@@ -34,18 +39,34 @@ public class SSACache {
   /**
    * A cache of SSA IRs
    */
-  final private AuxiliaryCache irCache = new AuxiliaryCache();
+  final private AuxiliaryCache irCache;
 
   /**
    * A cache of DefUse information
    */
-  final private AuxiliaryCache duCache = new AuxiliaryCache();
+  final private AuxiliaryCache duCache;
 
   /**
    * @param factory a factory for creating IRs
    */
   public SSACache(IRFactory<IMethod> factory) {
     this.factory = factory;
+    this.irCache = new AuxiliaryCache();
+    this.duCache = new AuxiliaryCache();
+  }
+
+  /**
+   * @param factory a factory for creating IRs
+   * @param maxEntries maximum number of IRs, and of DefUses, to keep
+   * @throws IllegalArgumentException if maxEntries is not positive
+   */
+  public SSACache(IRFactory<IMethod> factory, int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+    }
+    this.factory = factory;
+    this.irCache = new AuxiliaryCache(maxEntries);
+    this.duCache = new AuxiliaryCache(maxEntries);
   }
 
   /**
@@ -54,7 +75,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -71,12 +92,13 @@ public class SSACache {
       return factory.makeIR(m, c, options);
     }
 
-    IR ir = (IR) irCache.find(m, c, options);
-    if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
-    }
-    return ir;
+    final Context context = c;
+    return (IR) irCache.findOrCreate(m, c, options, new Factory<IR>() {
+      @Override
+      public IR make() {
+        return factory.makeIR(m, context, options);
+      }
+    });
   }
 
   /**
@@ -85,7 +107,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(final IMethod m, Context c, final SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -96,29 +118,30 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    final Context context = c;
+    return (DefUse) duCache.findOrCreate(m, c, options, new Factory<DefUse>() {
+      @Override
+      public DefUse make() {
+        IR ir = findOrCreateIR(m, context, options);
+        return new DefUse(ir);
+      }
+    });
   }
 
   /**
    * @return {@link DefUse} information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(final IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
-    }
-    return du;
+    return (DefUse) duCache.findOrCreate(ir.getMethod(), C, ir.getOptions(), new Factory<DefUse>() {
+      @Override
+      public DefUse make() {
+        return new DefUse(ir);
+      }
+    });
   }
 
   /**
@@ -150,4 +173,60 @@ public class SSACache {
     invalidateIR(method, c);
     invalidateDU(method, c);
   }
+
+  /**
+   * @return true iff this cache holds a bounded number of items, rather than soft references
+   */
+  public boolean isBounded() {
+    return irCache.isBounded();
+  }
+
+  /**
+   * @return number of IRs currently cached
+   */
+  public int getIRCount() {
+    return irCache.size();
+  }
+
+  /**
+   * @return number of IR requests answered from the cache
+   */
+  public long getIRHits() {
+    return irCache.getHits();
+  }
+
+  /**
+   * @return number of IR requests that built a new IR
+   */
+  public long getIRMisses() {
+    return irCache.getMisses();
+  }
+
+  /**
+   * @return number of IRs evicted to keep a bounded cache within its budget
+   */
+  public long getIREvictions() {
+    return irCache.getEvictions();
+  }
+
+  /**
+   * @return number of {@link DefUse} requests answered from the cache
+   */
+  public long getDUHits() {
+    return duCache.getHits();
+  }
+
+  /**
+   * @return number of {@link DefUse} requests that built a new {@link DefUse}
+   */
+  public long getDUMisses() {
+    return duCache.getMisses();
+  }
+
+  /**
+   * @return number of {@link DefUse}s evicted to keep a bounded cache within its budget
+   */
+  public long getDUEvictions() {
+    return duCache.getEvictions();
+  }
 }
@@ -0,0 +1,1004 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.ssa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.cfg.ShrikeCFG;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IBytecodeMethod;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.shrikeBT.IBinaryOpInstruction;
+import com.ibm.wala.shrikeBT.IComparisonInstruction;
+import com.ibm.wala.shrikeBT.IConditionalBranchInstruction;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.shrikeBT.IShiftInstruction;
+import com.ibm.wala.shrikeBT.IUnaryOpInstruction;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * A compact binary encoding of the {@link IR}s that {@link com.ibm.wala.classLoader.ShrikeIRFactory} builds, for
+ * {@link PersistentIRFactory}.
+ *
+ * Only the results of SSA construction are encoded: the instructions, the phis and catch instructions of each basic block, the
+ * symbol table and the mapping from values to source locals. Decoding rebuilds the control-flow graph from the bytecode, which
+ * is cheap compared to SSA construction.
+ *
+ * Pi nodes and indirect local accesses are not supported; {@link #encode(IR, String)} returns null for IRs that use them.
+ */
+final class ShrikeIRCodec {
+
+  /**
+   * Change this whenever the encoding, or the IRs built by SSA construction, change.
+   */
+  static final int VERSION = 1;
+
+  private static final int MAGIC = 0x57495231;
+
+  private static final byte NONE = 0;
+
+  private static final byte ARRAY_LENGTH = 1;
+
+  private static final byte ARRAY_LOAD = 2;
+
+  private static final byte ARRAY_STORE = 3;
+
+  private static final byte BINARY_OP = 4;
+
+  private static final byte CHECK_CAST = 5;
+
+  private static final byte COMPARISON = 6;
+
+  private static final byte CONDITIONAL_BRANCH = 7;
+
+  private static final byte CONVERSION = 8;
+
+  private static final byte GET = 9;
+
+  private static final byte GOTO = 10;
+
+  private static final byte INSTANCEOF = 11;
+
+  private static final byte INVOKE = 12;
+
+  private static final byte LOAD_METADATA = 13;
+
+  private static final byte MONITOR = 14;
+
+  private static final byte NEW = 15;
+
+  private static final byte PUT = 16;
+
+  private static final byte RETURN = 17;
+
+  private static final byte SWITCH = 18;
+
+  private static final byte THROW = 19;
+
+  private static final byte UNARY_OP = 20;
+
+  private static final byte VALUE = 1;
+
+  private static final byte PHI = 2;
+
+  private static final byte CONSTANT_NULL = 3;
+
+  private static final byte CONSTANT_BOOLEAN = 4;
+
+  private static final byte CONSTANT_INT = 5;
+
+  private static final byte CONSTANT_LONG = 6;
+
+  private static final byte CONSTANT_FLOAT = 7;
+
+  private static final byte CONSTANT_DOUBLE = 8;
+
+  private static final byte CONSTANT_STRING = 9;
+
+  private static final byte BINARY_OPERATOR = 0;
+
+  private static final byte SHIFT_OPERATOR = 1;
+
+  private ShrikeIRCodec() {
+  }
+
+  /**
+   * Can IRs built with the given options be encoded?
+   */
+  static boolean canEncode(SSAOptions options) {
+    return options.getPiNodePolicy() == null && options.getDefaultValues() == null;
+  }
+
+  /**
+   * Thrown when an IR contains something this encoding does not support.
+   */
+  private static class UnsupportedIRException extends Exception {
+    private static final long serialVersionUID = 5246612412578237370L;
+  }
+
+  /**
+   * @param ir an IR built by {@link com.ibm.wala.classLoader.ShrikeIRFactory}
+   * @param key identifies the method, options and class file for which ir was built; checked when decoding
+   * @return the encoding of ir, or null if ir cannot be encoded
+   */
+  static byte[] encode(IR ir, String key) {
+    try {
+      Writer w = new Writer();
+      encodeInstructions(w, ir.getInstructions());
+      encodeSymbolTable(w, ir.getSymbolTable());
+      encodeBlocks(w, ir);
+      encodeLocalMap(w, ir.getLocalMap());
+      if (ir.getIndirectionData() != null && !ir.getIndirectionData().getNames().isEmpty()) {
+        throw new UnsupportedIRException();
+      }
+      return w.toByteArray(key);
+    } catch (UnsupportedIRException e) {
+      return null;
+    } catch (IOException e) {
+      // we are writing to memory
+      Assertions.UNREACHABLE();
+      return null;
+    }
+  }
+
+  private static void encodeInstructions(Writer w, SSAInstruction[] instructions) throws IOException, UnsupportedIRException {
+    w.writeInt(instructions.length);
+    for (SSAInstruction s : instructions) {
+      encodeInstruction(w, s);
+    }
+  }
+
+  private static void encodeInstruction(Writer w, SSAInstruction s) throws IOException, UnsupportedIRException {
+    if (s == null) {
+      w.writeByte(NONE);
+      return;
+    }
+    if (s instanceof SSAArrayLengthInstruction) {
+      SSAArrayLengthInstruction x = (SSAArrayLengthInstruction) s;
+      w.writeByte(ARRAY_LENGTH);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.getArrayRef());
+    } else if (s instanceof SSAArrayLoadInstruction) {
+      SSAArrayLoadInstruction x = (SSAArrayLoadInstruction) s;
+      w.writeByte(ARRAY_LOAD);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.getArrayRef());
+      w.writeInt(x.getIndex());
+      w.writeType(x.getElementType());
+    } else if (s instanceof SSAArrayStoreInstruction) {
+      SSAArrayStoreInstruction x = (SSAArrayStoreInstruction) s;
+      w.writeByte(ARRAY_STORE);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getArrayRef());
+      w.writeInt(x.getIndex());
+      w.writeInt(x.getValue());
+      w.writeType(x.getElementType());
+    } else if (s instanceof SSABinaryOpInstruction) {
+      SSABinaryOpInstruction x = (SSABinaryOpInstruction) s;
+      w.writeByte(BINARY_OP);
+      w.writeInt(x.iindex);
+      if (x.getOperator() instanceof IBinaryOpInstruction.Operator) {
+        w.writeByte(BINARY_OPERATOR);
+        w.writeByte(((IBinaryOpInstruction.Operator) x.getOperator()).ordinal());
+      } else if (x.getOperator() instanceof IShiftInstruction.Operator) {
+        w.writeByte(SHIFT_OPERATOR);
+        w.writeByte(((IShiftInstruction.Operator) x.getOperator()).ordinal());
+      } else {
+        throw new UnsupportedIRException();
+      }
+      w.writeInt(x.getDef());
+      w.writeInt(x.getUse(0));
+      w.writeInt(x.getUse(1));
+      w.writeBoolean(x.mayBeIntegerOp());
+    } else if (s instanceof SSACheckCastInstruction) {
+      SSACheckCastInstruction x = (SSACheckCastInstruction) s;
+      w.writeByte(CHECK_CAST);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getResult());
+      w.writeInt(x.getVal());
+      TypeReference[] types = x.getDeclaredResultTypes();
+      w.writeInt(types.length);
+      for (TypeReference t : types) {
+        w.writeType(t);
+      }
+      w.writeBoolean(x.isPEI());
+    } else if (s instanceof SSAComparisonInstruction) {
+      SSAComparisonInstruction x = (SSAComparisonInstruction) s;
+      w.writeByte(COMPARISON);
+      w.writeInt(x.iindex);
+      w.writeByte(x.getOperator().ordinal());
+      w.writeInt(x.getDef());
+      w.writeInt(x.getUse(0));
+      w.writeInt(x.getUse(1));
+    } else if (s instanceof SSAConditionalBranchInstruction) {
+      SSAConditionalBranchInstruction x = (SSAConditionalBranchInstruction) s;
+      if (!(x.getOperator() instanceof IConditionalBranchInstruction.Operator)) {
+        throw new UnsupportedIRException();
+      }
+      w.writeByte(CONDITIONAL_BRANCH);
+      w.writeInt(x.iindex);
+      w.writeByte(((IConditionalBranchInstruction.Operator) x.getOperator()).ordinal());
+      w.writeType(x.getType());
+      w.writeInt(x.getUse(0));
+      w.writeInt(x.getUse(1));
+      w.writeInt(x.getTarget());
+    } else if (s instanceof SSAConversionInstruction) {
+      SSAConversionInstruction x = (SSAConversionInstruction) s;
+      w.writeByte(CONVERSION);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.getUse(0));
+      w.writeType(x.getFromType());
+      w.writeType(x.getToType());
+    } else if (s instanceof SSAGetInstruction) {
+      SSAGetInstruction x = (SSAGetInstruction) s;
+      w.writeByte(GET);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.isStatic() ? -1 : x.getRef());
+      w.writeField(x.getDeclaredField());
+    } else if (s instanceof SSAGotoInstruction) {
+      SSAGotoInstruction x = (SSAGotoInstruction) s;
+      w.writeByte(GOTO);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getTarget());
+    } else if (s instanceof SSAInstanceofInstruction) {
+      SSAInstanceofInstruction x = (SSAInstanceofInstruction) s;
+      w.writeByte(INSTANCEOF);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.getRef());
+      w.writeType(x.getCheckedType());
+    } else if (s instanceof SSAInvokeInstruction && !(s instanceof SSAInvokeDynamicInstruction)) {
+      SSAInvokeInstruction x = (SSAInvokeInstruction) s;
+      if (!(x.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+        throw new UnsupportedIRException();
+      }
+      w.writeByte(INVOKE);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getNumberOfReturnValues() == 0 ? -1 : x.getReturnValue(0));
+      writeUses(w, x);
+      w.writeInt(x.getException());
+      w.writeInt(x.getProgramCounter());
+      w.writeByte(((IInvokeInstruction.Dispatch) x.getInvocationCode()).ordinal());
+      w.writeMethod(x.getDeclaredTarget());
+    } else if (s instanceof SSALoadMetadataInstruction) {
+      SSALoadMetadataInstruction x = (SSALoadMetadataInstruction) s;
+      if (!(x.getToken() instanceof TypeReference)) {
+        throw new UnsupportedIRException();
+      }
+      w.writeByte(LOAD_METADATA);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeType(x.getType());
+      w.writeType((TypeReference) x.getToken());
+    } else if (s instanceof SSAMonitorInstruction) {
+      SSAMonitorInstruction x = (SSAMonitorInstruction) s;
+      w.writeByte(MONITOR);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getRef());
+      w.writeBoolean(x.isMonitorEnter());
+    } else if (s instanceof SSANewInstruction) {
+      SSANewInstruction x = (SSANewInstruction) s;
+      w.writeByte(NEW);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getDef());
+      w.writeInt(x.getNewSite().getProgramCounter());
+      w.writeType(x.getNewSite().getDeclaredType());
+      writeUses(w, x);
+    } else if (s instanceof SSAPutInstruction) {
+      SSAPutInstruction x = (SSAPutInstruction) s;
+      w.writeByte(PUT);
+      w.writeInt(x.iindex);
+      w.writeInt(x.isStatic() ? -1 : x.getRef());
+      w.writeInt(x.getVal());
+      w.writeField(x.getDeclaredField());
+    } else if (s instanceof SSAReturnInstruction) {
+      SSAReturnInstruction x = (SSAReturnInstruction) s;
+      w.writeByte(RETURN);
+      w.writeInt(x.iindex);
+      w.writeInt(x.returnsVoid() ? -1 : x.getResult());
+      w.writeBoolean(x.returnsPrimitiveType());
+    } else if (s instanceof SSASwitchInstruction) {
+      SSASwitchInstruction x = (SSASwitchInstruction) s;
+      w.writeByte(SWITCH);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getUse(0));
+      w.writeInt(x.getDefault());
+      w.writeInts(x.getCasesAndLabels());
+    } else if (s instanceof SSAThrowInstruction) {
+      SSAThrowInstruction x = (SSAThrowInstruction) s;
+      w.writeByte(THROW);
+      w.writeInt(x.iindex);
+      w.writeInt(x.getException());
+    } else if (s instanceof SSAUnaryOpInstruction) {
+      SSAUnaryOpInstruction x = (SSAUnaryOpInstruction) s;
+      if (!(x.getOpcode() instanceof IUnaryOpInstruction.Operator)) {
+        throw new UnsupportedIRException();
+      }
+      w.writeByte(UNARY_OP);
+      w.writeInt(x.iindex);
+      w.writeByte(((IUnaryOpInstruction.Operator) x.getOpcode()).ordinal());
+      w.writeInt(x.getDef());
+      w.writeInt(x.getUse(0));
+    } else {
+      throw new UnsupportedIRException();
+    }
+  }
+
+  private static void writeUses(Writer w, SSAInstruction s) throws IOException {
+    int[] uses = new int[s.getNumberOfUses()];
+    for (int i = 0; i < uses.length; i++) {
+      uses[i] = s.getUse(i);
+    }
+    w.writeInts(uses);
+  }
+
+  private static void encodeSymbolTable(Writer w, SymbolTable symbolTable) throws IOException, UnsupportedIRException {
+    int nParams = symbolTable.getNumberOfParameters();
+    for (int i = 0; i < nParams; i++) {
+      if (symbolTable.getParameter(i) != i + 1 || symbolTable.getValue(i + 1) != null) {
+        throw new UnsupportedIRException();
+      }
+    }
+    w.writeInt(nParams);
+    w.writeInt(symbolTable.getMaxValueNumber());
+    for (int vn = nParams + 1; vn <= symbolTable.getMaxValueNumber(); vn++) {
+      Value v = symbolTable.getValue(vn);
+      if (v == null) {
+        w.writeByte(VALUE);
+      } else if (v instanceof PhiValue) {
+        SSAPhiInstruction phi = ((PhiValue) v).getPhiInstruction();
+        if (phi.getDef() != vn) {
+          throw new UnsupportedIRException();
+        }
+        w.writeByte(PHI);
+        writeUses(w, phi);
+      } else if (v instanceof ConstantValue) {
+        Object c = ((ConstantValue) v).getValue();
+        if (c == null) {
+          w.writeByte(CONSTANT_NULL);
+        } else if (c instanceof Boolean) {
+          w.writeByte(CONSTANT_BOOLEAN);
+          w.writeBoolean(((Boolean) c).booleanValue());
+        } else if (c instanceof Integer) {
+          w.writeByte(CONSTANT_INT);
+          w.writeInt(((Integer) c).intValue());
+        } else if (c instanceof Long) {
+          w.writeByte(CONSTANT_LONG);
+          w.writeLong(((Long) c).longValue());
+        } else if (c instanceof Float) {
+          w.writeByte(CONSTANT_FLOAT);
+          w.writeFloat(((Float) c).floatValue());
+        } else if (c instanceof Double) {
+          w.writeByte(CONSTANT_DOUBLE);
+          w.writeDouble(((Double) c).doubleValue());
+        } else if (c instanceof String) {
+          w.writeByte(CONSTANT_STRING);
+          w.writeString((String) c);
+        } else {
+          throw new UnsupportedIRException();
+        }
+      } else {
+        throw new UnsupportedIRException();
+      }
+    }
+  }
+
+  private static void encodeBlocks(Writer w, IR ir) throws IOException, UnsupportedIRException {
+    SSACFG cfg = ir.getControlFlowGraph();
+    SymbolTable symbolTable = ir.getSymbolTable();
+    w.writeInt(cfg.getMaxNumber() + 1);
+    for (int i = 0; i <= cfg.getMaxNumber(); i++) {
+      SSACFG.BasicBlock b = cfg.getNode(i);
+      if (b.iteratePis().hasNext()) {
+        throw new UnsupportedIRException();
+      }
+      List<SSAPhiInstruction> phis = new ArrayList<SSAPhiInstruction>();
+      for (Iterator<SSAPhiInstruction> it = b.iteratePhis(); it.hasNext();) {
+        SSAPhiInstruction phi = it.next();
+        // decoding recreates phis from the symbol table, so make sure that is where they came from
+        Value v = symbolTable.getValue(phi.getDef());
+        if (!(v instanceof PhiValue) || ((PhiValue) v).getPhiInstruction() != phi) {
+          throw new UnsupportedIRException();
+        }
+        phis.add(phi);
+      }
+      w.writeInt(phis.size());
+      for (SSAPhiInstruction phi : phis) {
+        w.writeInt(phi.getDef());
+      }
+      SSAGetCaughtExceptionInstruction c = b instanceof SSACFG.ExceptionHandlerBasicBlock ? ((SSACFG.ExceptionHandlerBasicBlock) b)
+          .getCatchInstruction() : null;
+      if (c == null) {
+        w.writeBoolean(false);
+      } else {
+        w.writeBoolean(true);
+        w.writeInt(c.iindex);
+        w.writeInt(c.getException());
+      }
+    }
+  }
+
+  private static void encodeLocalMap(Writer w, IR.SSA2LocalMap localMap) throws IOException, UnsupportedIRException {
+    if (localMap == null) {
+      w.writeBoolean(false);
+      return;
+    }
+    if (!(localMap instanceof SSABuilder.SSA2LocalMap)) {
+      throw new UnsupportedIRException();
+    }
+    w.writeBoolean(true);
+    SSABuilder.SSA2LocalMap m = (SSABuilder.SSA2LocalMap) localMap;
+    IntPair[] stores = m.getLocalStoreMap();
+    w.writeInt(stores.length);
+    for (IntPair p : stores) {
+      if (p == null) {
+        w.writeBoolean(false);
+      } else {
+        w.writeBoolean(true);
+        w.writeInt(p.getX());
+        w.writeInt(p.getY());
+      }
+    }
+    int[][] states = m.getBlock2LocalState();
+    w.writeInt(states.length);
+    for (int[] state : states) {
+      if (state == null) {
+        w.writeBoolean(false);
+      } else {
+        w.writeBoolean(true);
+        w.writeInts(state);
+      }
+    }
+  }
+
+  /**
+   * @param method the method whose IR was encoded
+   * @param key must match the key given to {@link #encode(IR, String)}
+   * @param data the encoding
+   * @return the decoded IR
+   * @throws IOException if data is not a valid encoding for key
+   */
+  static IR decode(final IBytecodeMethod method, SSAOptions options, String key, ByteBuffer data) throws IOException {
+    Reader r = new Reader(method, key, data);
+
+    SSAInstructionFactory insts = method.getDeclaringClass().getClassLoader().getInstructionFactory();
+    SSAInstruction[] instructions = new SSAInstruction[r.readInt()];
+    for (int i = 0; i < instructions.length; i++) {
+      instructions[i] = decodeInstruction(r, insts);
+    }
+
+    int nParams = r.readInt();
+    if (nParams != method.getNumberOfParameters()) {
+      throw new IOException("parameter count mismatch");
+    }
+    SymbolTable symbolTable = new SymbolTable(nParams);
+    decodeSymbolTable(r, symbolTable);
+
+    ShrikeCFG shrikeCFG = ShrikeCFG.make(method);
+    if (instructions.length != shrikeCFG.getInstructions().length) {
+      throw new IOException("instruction count mismatch");
+    }
+    SSACFG cfg = new SSACFG(method, shrikeCFG, instructions);
+    decodeBlocks(r, insts, symbolTable, cfg);
+
+    SSABuilder.SSA2LocalMap localMap = null;
+    if (r.readBoolean()) {
+      IntPair[] stores = new IntPair[r.readInt()];
+      for (int i = 0; i < stores.length; i++) {
+        if (r.readBoolean()) {
+          int x = r.readInt();
+          stores[i] = new IntPair(x, r.readInt());
+        }
+      }
+      int[][] states = new int[r.readInt()][];
+      for (int i = 0; i < states.length; i++) {
+        if (r.readBoolean()) {
+          states[i] = r.readInts();
+        }
+      }
+      localMap = new SSABuilder.SSA2LocalMap(shrikeCFG, stores, states);
+    }
+    if (data.hasRemaining()) {
+      throw new IOException("trailing data");
+    }
+    return new DecodedIR(method, instructions, symbolTable, cfg, options, localMap);
+  }
+
+  private static SSAInstruction decodeInstruction(Reader r, SSAInstructionFactory insts) throws IOException {
+    byte tag = r.readByte();
+    if (tag == NONE) {
+      return null;
+    }
+    int iindex = r.readInt();
+    switch (tag) {
+    case ARRAY_LENGTH: {
+      int def = r.readInt();
+      return insts.ArrayLengthInstruction(iindex, def, r.readInt());
+    }
+    case ARRAY_LOAD: {
+      int def = r.readInt();
+      int ref = r.readInt();
+      int index = r.readInt();
+      return insts.ArrayLoadInstruction(iindex, def, ref, index, r.readType());
+    }
+    case ARRAY_STORE: {
+      int ref = r.readInt();
+      int index = r.readInt();
+      int value = r.readInt();
+      return insts.ArrayStoreInstruction(iindex, ref, index, value, r.readType());
+    }
+    case BINARY_OP: {
+      byte family = r.readByte();
+      int ordinal = r.readByte();
+      IBinaryOpInstruction.IOperator operator;
+      if (family == BINARY_OPERATOR) {
+        operator = r.select(IBinaryOpInstruction.Operator.values(), ordinal);
+      } else if (family == SHIFT_OPERATOR) {
+        operator = r.select(IShiftInstruction.Operator.values(), ordinal);
+      } else {
+        throw new IOException("bad operator family " + family);
+      }
+      int def = r.readInt();
+      int val1 = r.readInt();
+      int val2 = r.readInt();
+      return insts.BinaryOpInstruction(iindex, operator, false, false, def, val1, val2, r.readBoolean());
+    }
+    case CHECK_CAST: {
+      int def = r.readInt();
+      int val = r.readInt();
+      TypeReference[] types = new TypeReference[r.readInt()];
+      for (int i = 0; i < types.length; i++) {
+        types[i] = r.readType();
+      }
+      return insts.CheckCastInstruction(iindex, def, val, types, r.readBoolean());
+    }
+    case COMPARISON: {
+      IComparisonInstruction.Operator operator = r.select(IComparisonInstruction.Operator.values(), r.readByte());
+      int def = r.readInt();
+      int val1 = r.readInt();
+      return insts.ComparisonInstruction(iindex, operator, def, val1, r.readInt());
+    }
+    case CONDITIONAL_BRANCH: {
+      IConditionalBranchInstruction.Operator operator = r.select(IConditionalBranchInstruction.Operator.values(), r.readByte());
+      TypeReference type = r.readType();
+      int val1 = r.readInt();
+      int val2 = r.readInt();
+      return insts.ConditionalBranchInstruction(iindex, operator, type, val1, val2, r.readInt());
+    }
+    case CONVERSION: {
+      int def = r.readInt();
+      int val = r.readInt();
+      TypeReference fromType = r.readType();
+      return insts.ConversionInstruction(iindex, def, val, fromType, r.readType(), false);
+    }
+    case GET: {
+      int def = r.readInt();
+      int ref = r.readInt();
+      FieldReference field = r.readField();
+      return ref == -1 ? insts.GetInstruction(iindex, def, field) : insts.GetInstruction(iindex, def, ref, field);
+    }
+    case GOTO:
+      return insts.GotoInstruction(iindex, r.readInt());
+    case INSTANCEOF: {
+      int def = r.readInt();
+      int ref = r.readInt();
+      return insts.InstanceofInstruction(iindex, def, ref, r.readType());
+    }
+    case INVOKE: {
+      int def = r.readInt();
+      int[] params = r.readInts();
+      int exception = r.readInt();
+      int pc = r.readInt();
+      IInvokeInstruction.Dispatch code = r.select(IInvokeInstruction.Dispatch.values(), r.readByte());
+      CallSiteReference site = CallSiteReference.make(pc, r.readMethod(), code);
+      return def == -1 ? insts.InvokeInstruction(iindex, params, exception, site, null) : insts.InvokeInstruction(iindex, def,
+          params, exception, site, null);
+    }
+    case LOAD_METADATA: {
+      int def = r.readInt();
+      TypeReference type = r.readType();
+      return insts.LoadMetadataInstruction(iindex, def, type, r.readType());
+    }
+    case MONITOR: {
+      int ref = r.readInt();
+      return insts.MonitorInstruction(iindex, ref, r.readBoolean());
+    }
+    case NEW: {
+      int def = r.readInt();
+      int pc = r.readInt();
+      NewSiteReference site = NewSiteReference.make(pc, r.readType());
+      int[] params = r.readInts();
+      return site.getDeclaredType().isArrayType() ? insts.NewInstruction(iindex, def, site, params) : insts.NewInstruction(iindex,
+          def, site);
+    }
+    case PUT: {
+      int ref = r.readInt();
+      int val = r.readInt();
+      FieldReference field = r.readField();
+      return ref == -1 ? insts.PutInstruction(iindex, val, field) : insts.PutInstruction(iindex, ref, val, field);
+    }
+    case RETURN: {
+      int result = r.readInt();
+      boolean isPrimitive = r.readBoolean();
+      return result == -1 ? insts.ReturnInstruction(iindex) : insts.ReturnInstruction(iindex, result, isPrimitive);
+    }
+    case SWITCH: {
+      int val = r.readInt();
+      int defaultLabel = r.readInt();
+      return insts.SwitchInstruction(iindex, val, defaultLabel, r.readInts());
+    }
+    case THROW:
+      return insts.ThrowInstruction(iindex, r.readInt());
+    case UNARY_OP: {
+      IUnaryOpInstruction.Operator operator = r.select(IUnaryOpInstruction.Operator.values(), r.readByte());
+      int def = r.readInt();
+      return insts.UnaryOpInstruction(iindex, operator, def, r.readInt());
+    }
+    default:
+      throw new IOException("bad instruction tag " + tag);
+    }
+  }
+
+  private static void decodeSymbolTable(Reader r, SymbolTable symbolTable) throws IOException {
+    int maxValueNumber = r.readInt();
+    for (int vn = symbolTable.getNumberOfParameters() + 1; vn <= maxValueNumber; vn++) {
+      byte tag = r.readByte();
+      int actual;
+      switch (tag) {
+      case VALUE:
+        actual = symbolTable.newSymbol();
+        break;
+      case PHI:
+        actual = symbolTable.newPhi(r.readInts());
+        break;
+      case CONSTANT_NULL:
+        actual = symbolTable.getNullConstant();
+        break;
+      case CONSTANT_BOOLEAN:
+        actual = symbolTable.getConstant(r.readBoolean());
+        break;
+      case CONSTANT_INT:
+        actual = symbolTable.getConstant(r.readInt());
+        break;
+      case CONSTANT_LONG:
+        actual = symbolTable.getConstant(r.readLong());
+        break;
+      case CONSTANT_FLOAT:
+        actual = symbolTable.getConstant(r.readFloat());
+        break;
+      case CONSTANT_DOUBLE:
+        actual = symbolTable.getConstant(r.readDouble());
+        break;
+      case CONSTANT_STRING:
+        actual = symbolTable.getConstant(r.readString());
+        break;
+      default:
+        throw new IOException("bad value tag " + tag);
+      }
+      if (actual != vn) {
+        throw new IOException("value number mismatch: " + actual + " for " + vn);
+      }
+    }
+  }
+
+  private static void decodeBlocks(Reader r, SSAInstructionFactory insts, SymbolTable symbolTable, SSACFG cfg)
+      throws IOException {
+    int nBlocks = r.readInt();
+    if (nBlocks != cfg.getMaxNumber() + 1) {
+      throw new IOException("block count mismatch");
+    }
+    for (int i = 0; i < nBlocks; i++) {
+      SSACFG.BasicBlock b = cfg.getNode(i);
+      int nPhis = r.readInt();
+      for (int j = 0; j < nPhis; j++) {
+        b.addPhiForLocal(j, symbolTable.getPhiValue(r.readInt()).getPhiInstruction());
+      }
+      if (r.readBoolean()) {
+        if (!(b instanceof SSACFG.ExceptionHandlerBasicBlock)) {
+          throw new IOException("catch instruction in normal block " + i);
+        }
+        int iindex = r.readInt();
+        ((SSACFG.ExceptionHandlerBasicBlock) b).setCatchInstruction(insts.GetCaughtExceptionInstruction(iindex, i, r.readInt()));
+      }
+    }
+  }
+
+  /**
+   * An IR reconstituted from its encoding, equivalent to the one built by {@link com.ibm.wala.classLoader.ShrikeIRFactory}
+   */
+  private static class DecodedIR extends IR {
+
+    private final SSA2LocalMap localMap;
+
+    private final ShrikeIndirectionData indirectionData;
+
+    DecodedIR(IBytecodeMethod method, SSAInstruction[] instructions, SymbolTable symbolTable, SSACFG cfg, SSAOptions options,
+        SSA2LocalMap localMap) {
+      super(method, instructions, symbolTable, cfg, options);
+      this.localMap = localMap;
+      this.indirectionData = new ShrikeIndirectionData(instructions.length);
+      setupLocationMap();
+    }
+
+    @Override
+    protected String instructionPosition(int instructionIndex) {
+      try {
+        IBytecodeMethod method = (IBytecodeMethod) getMethod();
+        int bcIndex = method.getBytecodeIndex(instructionIndex);
+        int lineNumber = method.getLineNumber(bcIndex);
+
+        if (lineNumber == -1) {
+          return "";
+        } else {
+          return "(line " + lineNumber + ")";
+        }
+      } catch (InvalidClassFileException e) {
+        return "";
+      }
+    }
+
+    @Override
+    public SSA2LocalMap getLocalMap() {
+      return localMap;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected ShrikeIndirectionData getIndirectionData() {
+      return indirectionData;
+    }
+  }
+
+  /**
+   * Writes the body of an encoding, sharing strings through a table written ahead of it
+   */
+  private static class Writer {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private final Map<String, Integer> strings = HashMapFactory.make();
+
+    private final List<String> stringTable = new ArrayList<String>();
+
+    void writeByte(int b) throws IOException {
+      out.writeByte(b);
+    }
+
+    void writeBoolean(boolean b) throws IOException {
+      out.writeBoolean(b);
+    }
+
+    void writeInt(int i) throws IOException {
+      out.writeInt(i);
+    }
+
+    void writeLong(long l) throws IOException {
+      out.writeLong(l);
+    }
+
+    void writeFloat(float f) throws IOException {
+      out.writeFloat(f);
+    }
+
+    void writeDouble(double d) throws IOException {
+      out.writeDouble(d);
+    }
+
+    void writeInts(int[] a) throws IOException {
+      out.writeInt(a.length);
+      for (int i : a) {
+        out.writeInt(i);
+      }
+    }
+
+    void writeString(String s) throws IOException {
+      Integer index = strings.get(s);
+      if (index == null) {
+        index = stringTable.size();
+        strings.put(s, index);
+        stringTable.add(s);
+      }
+      out.writeInt(index);
+    }
+
+    void writeType(TypeReference t) throws IOException {
+      writeString(t.getClassLoader().getName().toString());
+      writeString(t.getName().toString());
+    }
+
+    void writeField(FieldReference f) throws IOException {
+      writeType(f.getDeclaringClass());
+      writeString(f.getName().toString());
+      writeType(f.getFieldType());
+    }
+
+    void writeMethod(MethodReference m) throws IOException {
+      writeType(m.getDeclaringClass());
+      writeString(m.getName().toString());
+      Descriptor d = m.getDescriptor();
+      TypeName[] parameters = d.getParameters();
+      if (parameters == null) {
+        out.writeInt(0);
+      } else {
+        out.writeInt(parameters.length);
+        for (TypeName p : parameters) {
+          writeString(p.toString());
+        }
+      }
+      writeString(d.getReturnType().toString());
+    }
+
+    byte[] toByteArray(String key) throws IOException {
+      out.flush();
+      ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.size() + 64 * stringTable.size());
+      DataOutputStream header = new DataOutputStream(result);
+      header.writeInt(MAGIC);
+      header.writeInt(VERSION);
+      writeChars(header, key);
+      header.writeInt(stringTable.size());
+      for (String s : stringTable) {
+        writeChars(header, s);
+      }
+      header.flush();
+      bytes.writeTo(result);
+      return result.toByteArray();
+    }
+
+    private static void writeChars(DataOutputStream out, String s) throws IOException {
+      out.writeInt(s.length());
+      out.writeChars(s);
+    }
+  }
+
+  /**
+   * Reads an encoding written by {@link Writer}
+   */
+  private static class Reader {
+
+    private final ByteBuffer data;
+
+    private final String[] stringTable;
+
+    private final Map<String, ClassLoaderReference> loaders = HashMapFactory.make();
+
+    Reader(IBytecodeMethod method, String key, ByteBuffer data) throws IOException {
+      this.data = data;
+      if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+        throw new IOException("not an encoded IR");
+      }
+      if (!key.equals(readChars())) {
+        throw new IOException("key mismatch");
+      }
+      stringTable = new String[readInt()];
+      for (int i = 0; i < stringTable.length; i++) {
+        stringTable[i] = readChars();
+      }
+      for (IClassLoader l : method.getClassHierarchy().getLoaders()) {
+        loaders.put(l.getReference().getName().toString(), l.getReference());
+      }
+    }
+
+    private String readChars() throws IOException {
+      int length = data.getInt();
+      if (length < 0 || 2 * length > data.remaining()) {
+        throw new IOException("bad string length " + length);
+      }
+      char[] chars = new char[length];
+      data.asCharBuffer().get(chars);
+      data.position(data.position() + 2 * length);
+      return new String(chars);
+    }
+
+    byte readByte() {
+      return data.get();
+    }
+
+    boolean readBoolean() {
+      return data.get() != 0;
+    }
+
+    int readInt() {
+      return data.getInt();
+    }
+
+    long readLong() {
+      return data.getLong();
+    }
+
+    float readFloat() {
+      return data.getFloat();
+    }
+
+    double readDouble() {
+      return data.getDouble();
+    }
+
+    int[] readInts() throws IOException {
+      int length = data.getInt();
+      if (length < 0 || 4 * length > data.remaining()) {
+        throw new IOException("bad array length " + length);
+      }
+      int[] result = new int[length];
+      for (int i = 0; i < length; i++) {
+        result[i] = data.getInt();
+      }
+      return result;
+    }
+
+    String readString() throws IOException {
+      int index = data.getInt();
+      if (index < 0 || index >= stringTable.length) {
+        throw new IOException("bad string index " + index);
+      }
+      return stringTable[index];
+    }
+
+    <T> T select(T[] values, int ordinal) throws IOException {
+      if (ordinal < 0 || ordinal >= values.length) {
+        throw new IOException("bad ordinal " + ordinal);
+      }
+      return values[ordinal];
+    }
+
+    TypeReference readType() throws IOException {
+      String loaderName = readString();
+      ClassLoaderReference loader = loaders.get(loaderName);
+      if (loader == null) {
+        throw new IOException("unknown loader " + loaderName);
+      }
+      return TypeReference.findOrCreate(loader, TypeName.string2TypeName(readString()));
+    }
+
+    FieldReference readField() throws IOException {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      return FieldReference.findOrCreate(declaringClass, name, readType());
+    }
+
+    MethodReference readMethod() throws IOException {
+      TypeReference declaringClass = readType();
+      Atom name = Atom.findOrCreateUnicodeAtom(readString());
+      int nParameters = readInt();
+      TypeName[] parameters = nParameters == 0 ? null : new TypeName[nParameters];
+      for (int i = 0; i < nParameters; i++) {
+        parameters[i] = TypeName.string2TypeName(readString());
+      }
+      TypeName returnType = TypeName.string2TypeName(readString());
+      Descriptor d = Descriptor.findOrCreate(parameters, returnType);
+      return MethodReference.findOrCreate(declaringClass, new Selector(name, d));
+    }
+  }
+}
@@ -12,7 +12,6 @@ package com.ibm.wala.ssa.analysis;
 
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.fixedpoint.impl.DefaultFixedPointSolver;
@@ -25,8 +24,11 @@ import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAPhiInstruction;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.CancelRuntimeException;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntObjectHashMap;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableIntSet;
 
 /**
  * Eliminate dead assignments (phis) from an SSA IR.
@@ -92,12 +94,12 @@ public class DeadAssignmentElimination {
     /**
      * Map: value number -> BooleanVariable isLive
      */
-    final private Map<Integer, BooleanVariable> vars = HashMapFactory.make();
+    final private IntObjectHashMap<BooleanVariable> vars = new IntObjectHashMap<BooleanVariable>();
 
     /**
      * set of value numbers that are trivially dead
      */
-    final private HashSet<Integer> trivialDead = HashSetFactory.make();
+    final private MutableIntSet trivialDead = new BitVectorIntSet();
 
     /**
      * @param ir the IR to analyze
@@ -113,7 +115,7 @@ public class DeadAssignmentElimination {
         int def = phi.getDef();
         if (DU.getNumberOfUses(def) == 0) {
           // the phi is certainly dead ... record this with a dataflow fact.
-          trivialDead.add(new Integer(def));
+          trivialDead.add(def);
         } else {
           boolean maybeDead = true;
           for (Iterator uses = DU.getUses(def); uses.hasNext();) {
@@ -127,23 +129,22 @@ public class DeadAssignmentElimination {
           if (maybeDead) {
             // perhaps the phi is dead .. create a variable
             BooleanVariable B = new BooleanVariable(false);
-            vars.put(new Integer(def), B);
+            vars.put(def, B);
           }
         }
       }
 
       // Now create dataflow equations; v is live iff any phi that uses v is live
-      for (Iterator it = vars.entrySet().iterator(); it.hasNext();) {
-        Map.Entry E = (Map.Entry) it.next();
-        Integer def = (Integer) E.getKey();
-        BooleanVariable B = (BooleanVariable) E.getValue();
-        for (Iterator uses = DU.getUses(def.intValue()); uses.hasNext();) {
+      for (IntIterator it = vars.keyIterator(); it.hasNext();) {
+        int def = it.next();
+        BooleanVariable B = vars.get(def);
+        for (Iterator uses = DU.getUses(def); uses.hasNext();) {
           SSAPhiInstruction u = (SSAPhiInstruction) uses.next();
-          Integer ud = new Integer(u.getDef());
+          int ud = u.getDef();
           if (trivialDead.contains(ud)) {
             // do nothing ... u will not keep def live
           } else {
-            if (!vars.keySet().contains(ud)) {
+            if (!vars.containsKey(ud)) {
               // u is not potentially dead ... certainly v is live.
               // record this.
               B.set(true);
@@ -173,11 +174,10 @@ public class DeadAssignmentElimination {
      * @return true iff there are no uses of the given value number
      */
     private boolean isDead(int value) {
-      Integer V = Integer.valueOf(value);
-      if (trivialDead.contains(V)) {
+      if (trivialDead.contains(value)) {
         return true;
       } else {
-        BooleanVariable B = vars.get(V);
+        BooleanVariable B = vars.get(value);
         if (B == null) {
           return false;
         } else {
@@ -10,10 +10,10 @@
  *******************************************************************************/
 package com.ibm.wala.types;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.ibm.wala.classLoader.Language;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.shrike.ShrikeUtil;
 import com.ibm.wala.util.strings.Atom;
 
@@ -24,7 +24,7 @@ public final class MethodReference extends MemberReference {
   /**
    * Used to canonicalize MethodReferences a mapping from Key -> MethodReference
    */
-  final private static HashMap<Key, MethodReference> dictionary = HashMapFactory.make();
+  final private static ConcurrentMap<Key, MethodReference> dictionary = new ConcurrentHashMap<Key, MethodReference>();
 
   public final static Atom newInstanceAtom = Atom.findOrCreateUnicodeAtom("newInstance");
 
@@ -99,7 +99,7 @@ public final class MethodReference extends MemberReference {
    * @param mn the name of the member
    * @param md the descriptor of the member
    */
-  public static synchronized MethodReference findOrCreate(TypeReference tref, Atom mn, Descriptor md) {
+  public static MethodReference findOrCreate(TypeReference tref, Atom mn, Descriptor md) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
     }
@@ -109,8 +109,8 @@ public final class MethodReference extends MemberReference {
     if (val != null)
       return val;
     val = new MethodReference(key);
-    dictionary.put(key, val);
-    return val;
+    MethodReference prev = dictionary.putIfAbsent(key, val);
+    return prev == null ? val : prev;
   }
 
   /**
@@ -120,7 +120,7 @@ public final class MethodReference extends MemberReference {
    * @param selector the selector for the method
    * @throws IllegalArgumentException if selector is null
    */
-  public static synchronized MethodReference findOrCreate(TypeReference tref, Selector selector) {
+  public static MethodReference findOrCreate(TypeReference tref, Selector selector) {
     if (selector == null) {
       throw new IllegalArgumentException("selector is null");
     }
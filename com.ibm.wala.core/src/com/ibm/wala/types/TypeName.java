@@ -12,9 +12,9 @@ package com.ibm.wala.types;
 
 import java.io.Serializable;
 import java.io.UTFDataFormatException;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.strings.Atom;
 import com.ibm.wala.util.strings.ImmutableByteArray;
@@ -41,14 +41,16 @@ public final class TypeName implements Serializable {
   /**
    * canonical mapping from TypeNameKey -> TypeName
    */
-  private final static Map<TypeNameKey, TypeName> map = HashMapFactory.make();
+  private final static ConcurrentMap<TypeNameKey, TypeName> map = new ConcurrentHashMap<TypeNameKey, TypeName>();
 
-  private static synchronized TypeName findOrCreate(TypeNameKey t) {
+  private static TypeName findOrCreate(TypeNameKey t) {
     TypeName result = map.get(t);
     if (result == null) {
       result = new TypeName(t);
-      map.put(t, result);
-
+      TypeName prev = map.putIfAbsent(t, result);
+      if (prev != null) {
+        result = prev;
+      }
     }
     return result;
   }
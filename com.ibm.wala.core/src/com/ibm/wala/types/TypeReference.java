@@ -15,9 +15,9 @@ import static com.ibm.wala.types.TypeName.ElementBits;
 import static com.ibm.wala.types.TypeName.PrimitiveMask;
 
 import java.io.Serializable;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 
 /**
  * A class to represent the reference in a class file to some type (class, primitive or array). A type reference is
@@ -43,12 +43,13 @@ public final class TypeReference implements Serializable {
   /**
    * Used for fast access to primitives. Primitives appear in the main dictionary also.
    */
-  private final static Map<TypeName, TypeReference> primitiveMap = HashMapFactory.make();
+  private final static ConcurrentMap<TypeName, TypeReference> primitiveMap = new ConcurrentHashMap<TypeName, TypeReference>();
 
   /**
-   * Used to canonicalize TypeReferences.
+   * Used to canonicalize TypeReferences. Lookups do not lock; threads that race to create the same TypeReference agree on the first
+   * one to be published.
    */
-  private final static Map<Key, TypeReference> dictionary = HashMapFactory.make();
+  private final static ConcurrentMap<Key, TypeReference> dictionary = new ConcurrentHashMap<Key, TypeReference>();
 
   /*********************************************************************************************************************
    * Primitive Dispatch *
@@ -378,7 +379,7 @@ public final class TypeReference implements Serializable {
    * 
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference findOrCreate(ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, TypeName typeName) {
 
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
@@ -403,8 +404,8 @@ public final class TypeReference implements Serializable {
       return val;
     } else {
       val = new TypeReference(cl, typeName);
-      dictionary.put(key, val);
-      return val;
+      TypeReference prev = dictionary.putIfAbsent(key, val);
+      return prev == null ? val : prev;
     }
   }
 
@@ -414,11 +415,11 @@ public final class TypeReference implements Serializable {
    * @param cl the classloader (defining/initiating depending on usage)
    * @param typeName something like "Ljava/util/Arrays"
    */
-  public static synchronized TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
     return findOrCreate(cl, TypeName.string2TypeName(typeName));
   }
 
-  public static synchronized TypeReference find(ClassLoaderReference cl, String typeName) {
+  public static TypeReference find(ClassLoaderReference cl, String typeName) {
     return find(cl, TypeName.string2TypeName(typeName));
   }
 
@@ -427,7 +428,7 @@ public final class TypeReference implements Serializable {
    * 
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference find(ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference find(ClassLoaderReference cl, TypeName typeName) {
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
     }
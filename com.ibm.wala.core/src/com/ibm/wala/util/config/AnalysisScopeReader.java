@@ -21,6 +21,7 @@ import java.util.jar.JarFile;
 import java.net.URI;
 
 import com.ibm.wala.classLoader.BinaryDirectoryTreeModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.Module;
 import com.ibm.wala.classLoader.SourceDirectoryTreeModule;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
@@ -165,6 +166,10 @@ public class AnalysisScopeReader {
       File bd = fp.getFile(entryPathname, javaLoader);
       assert bd.isDirectory();
       scope.addToScope(walaLoader, new BinaryDirectoryTreeModule(bd));
+    } else if ("mappedBinaryDir".equals(entryType)) {
+      File bd = fp.getFile(entryPathname, javaLoader);
+      assert bd.isDirectory();
+      scope.addToScope(walaLoader, new BinaryDirectoryTreeModule(bd, true));
     } else if ("sourceDir".equals(entryType)) {
       File sd = fp.getFile(entryPathname, javaLoader);
       assert sd.isDirectory();
@@ -172,6 +177,9 @@ public class AnalysisScopeReader {
     } else if ("jarFile".equals(entryType)) {
       Module M = fp.getJarFileModule(entryPathname, javaLoader);
       scope.addToScope(walaLoader, M);
+    } else if ("mappedJarFile".equals(entryType)) {
+      File jf = fp.getFile(entryPathname, javaLoader);
+      scope.addToScope(walaLoader, new MappedJarFileModule(new JarFile(jf, false)));
     } else if ("loaderImpl".equals(entryType)) {
       scope.setLoaderImpl(walaLoader, entryPathname);
     } else if ("stdlib".equals(entryType)) {
@@ -68,7 +68,7 @@ public class ReferenceCleanser {
       return;
     }
     AnalysisCache cache = getAnalysisCache();
-    if (cache != null) {
+    if (cache != null && !cache.getSSACache().isBounded()) {
       cache.getSSACache().wipe();
     }
     IClassHierarchy cha = getClassHierarchy();
@@ -13,7 +13,9 @@ package com.ibm.wala.util.shrike;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import com.ibm.wala.classLoader.MappedModuleEntry;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.shrikeCT.ClassReader;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
@@ -49,6 +51,14 @@ public class ShrikeClassReaderHandle {
     this.entry = entry;
   }
 
+  /**
+   * For subclasses that find the module entry only when the class file is first read; they must override
+   * {@link #getModuleEntry()}.
+   */
+  protected ShrikeClassReaderHandle() {
+    this.entry = null;
+  }
+
   /**
    * @return an instance of the class reader ... create one if necessary
    * @throw InvalidClassFileException iff Shrike fails to read the class file
@@ -60,7 +70,7 @@ public class ShrikeClassReaderHandle {
       hydrateCount++;
       if (DEBUG) {
         if (hydrateCount > 1) {
-          System.err.println(("Hydrate " + entry + " " + hydrateCount));
+          System.err.println(("Hydrate " + getModuleEntry() + " " + hydrateCount));
           try {
             throw new Exception();
           } catch (Exception e) {
@@ -68,16 +78,29 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
+      ModuleEntry e = getModuleEntry();
+      ByteBuffer mapped = null;
+      if (e instanceof MappedModuleEntry) {
+        try {
+          mapped = ((MappedModuleEntry) e).getByteBuffer();
+        } catch (IOException x) {
+          // fall back to reading the entry onto the heap
+        }
+      }
+      if (mapped != null) {
+        result = new ClassReader(mapped);
+      } else {
+        ByteArrayOutputStream S = new ByteArrayOutputStream();
+        try {
+          InputStream s = e.getInputStream();
+          readBytes(s, S);
+          s.close();
+        } catch (IOException x) {
+          x.printStackTrace();
+          Assertions.UNREACHABLE();
+        }
+        result = new ClassReader(S.toByteArray());
       }
-      result = new ClassReader(S.toByteArray());
       reader = CacheReference.make(result);
     }
     return result;
@@ -99,7 +122,7 @@ public class ShrikeClassReaderHandle {
   }
 
   public String getFileName() {
-    return entry.getName();
+    return getModuleEntry().getName();
   }
 
   /**
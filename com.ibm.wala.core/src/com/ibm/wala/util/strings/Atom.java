@@ -11,9 +11,9 @@
 package com.ibm.wala.util.strings;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import com.ibm.wala.util.collections.HashMapFactory;
 
 /**
  * An utf8-encoded byte string.
@@ -28,9 +28,10 @@ public final class Atom implements Serializable {
   private static final long serialVersionUID = -3256390509887654329L;
 
   /**
-   * Used to canonicalize Atoms, a mapping from AtomKey -> Atom. AtomKeys are not canonical, but Atoms are.
+   * Used to canonicalize Atoms, a mapping from AtomKey -> Atom. AtomKeys are not canonical, but Atoms are. Lookups do not lock;
+   * threads that race to create the same Atom agree on the first one to be published.
    */
-  final private static HashMap<AtomKey, Atom> dictionary = HashMapFactory.make();
+  final private static ConcurrentMap<AtomKey, Atom> dictionary = new ConcurrentHashMap<AtomKey, Atom>();
 
   /**
    * The utf8 value this atom represents
@@ -113,7 +114,7 @@ public final class Atom implements Serializable {
 
   }
 
-  public static synchronized Atom findOrCreate(byte[] bytes) {
+  public static Atom findOrCreate(byte[] bytes) {
     if (bytes == null) {
       throw new IllegalArgumentException("bytes is null");
     }
@@ -123,18 +124,18 @@ public final class Atom implements Serializable {
       return val;
     }
     val = new Atom(key);
-    dictionary.put(key, val);
-    return val;
+    Atom prev = dictionary.putIfAbsent(key, val);
+    return prev == null ? val : prev;
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b) {
+  public static Atom findOrCreate(ImmutableByteArray b) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
     return findOrCreate(b.b);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b, int start, int length) {
+  public static Atom findOrCreate(ImmutableByteArray b, int start, int length) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
@@ -10,14 +10,24 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 /**
  * This is the core class for reading class file data.
  * 
  * ClassReader performs lazy parsing, and thus most of the methods can throw an InvalidClassFileException.
  */
 public final class ClassReader implements ClassConstants {
+  /**
+   * the class data, if it is held in an array; faster to read than {@link #buffer}
+   */
   private final byte[] bytes;
 
+  /**
+   * the class data
+   */
+  private final ByteBuffer buffer;
+
   private int[] methodOffsets;
 
   private int[] fieldOffsets;
@@ -40,14 +50,34 @@ public final class ClassReader implements ClassConstants {
    * @throws InvalidClassFileException the class file data is corrupt
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("null bytes");
+    }
     this.bytes = bytes;
+    this.buffer = ByteBuffer.wrap(bytes);
+    parse();
+  }
+
+  /**
+   * Build a reader over the remaining bytes of a buffer, e.g. a memory-mapped class file. The reader reads the class data in place
+   * and never changes the position or contents of the buffer, so the buffer may be shared with other readers.
+   * 
+   * @param bytes the class file data, from the buffer's position to its limit
+   * @throws InvalidClassFileException the class file data is corrupt
+   */
+  public ClassReader(ByteBuffer bytes) throws InvalidClassFileException {
+    if (bytes == null) {
+      throw new IllegalArgumentException("null bytes");
+    }
+    this.buffer = bytes.slice();
+    this.bytes = null;
     parse();
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (buffer.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (buffer.limit() - offset));
     }
   }
 
@@ -68,7 +98,8 @@ public final class ClassReader implements ClassConstants {
       throw new InvalidClassFileException(offset, "unknown class file version: " + majorVersion + "." + minorVersion);
     }
     
-    cpParser = new ConstantPoolParser(bytes, offset, constantPoolCount);
+    cpParser = bytes != null ? new ConstantPoolParser(bytes, offset, constantPoolCount) : new ConstantPoolParser(buffer, offset,
+        constantPoolCount);
     offset += cpParser.getRawSize();
 
     classInfoOffset = offset;
@@ -103,7 +134,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != buffer.limit()) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -149,10 +180,32 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
-   * @return the raw class data bytes
+   * @return the raw class data bytes; a copy if the reader was not built from a byte array
    */
   public byte[] getBytes() {
-    return bytes;
+    return bytes != null ? bytes : getBytes(0, buffer.limit());
+  }
+
+  /**
+   * @return a copy of the len bytes at offset i in the class data
+   */
+  public byte[] getBytes(int i, int len) {
+    byte[] result = new byte[len];
+    if (bytes != null) {
+      System.arraycopy(bytes, i, result, 0, len);
+    } else {
+      ByteBuffer b = buffer.duplicate();
+      b.position(i);
+      b.get(result);
+    }
+    return result;
+  }
+
+  /**
+   * @return a read-only view of the raw class data
+   */
+  public ByteBuffer getBuffer() {
+    return buffer.asReadOnlyBuffer();
   }
 
   /**
@@ -302,6 +355,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
+    if (bytes == null) {
+      return buffer.getInt(i);
+    }
     return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
   }
 
@@ -309,6 +365,9 @@ public final class ClassReader implements ClassConstants {
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
+    if (bytes == null) {
+      return buffer.getShort(i) & 0xFFFF;
+    }
     return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -316,6 +375,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
+    if (bytes == null) {
+      return buffer.getShort(i);
+    }
     return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -323,6 +385,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
+    if (bytes == null) {
+      return buffer.get(i);
+    }
     return bytes[i];
   }
 
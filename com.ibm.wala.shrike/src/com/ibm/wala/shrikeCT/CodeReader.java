@@ -68,9 +68,7 @@ public final class CodeReader extends AttributeReader {
    * @return the bytecode bytes
    */
   public byte[] getBytecode() {
-    byte[] r = new byte[codeLen];
-    System.arraycopy(cr.getBytes(), attr + 14, r, 0, r.length);
-    return r;
+    return cr.getBytes(attr + 14, codeLen);
   }
 
   /**
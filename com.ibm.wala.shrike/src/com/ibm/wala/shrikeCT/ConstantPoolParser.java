@@ -10,6 +10,8 @@
  *******************************************************************************/
 package com.ibm.wala.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 import com.ibm.wala.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrikeCT.ClassReader.AttrIterator;
 
@@ -87,8 +89,16 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
+  /**
+   * the class data, if it is held in an array; faster to read than {@link #buffer}
+   */
   final private byte[] bytes;
 
+  /**
+   * the class data
+   */
+  final private ByteBuffer buffer;
+
   private int[] cpOffsets;
 
   private String[] cpItems;
@@ -100,7 +110,14 @@ public final class ConstantPoolParser implements ClassConstants {
 
   private BootstrapMethodsReader getBootstrapReader() throws InvalidClassFileException {
     if (invokeDynamicBootstraps == null) { 
-      ClassReader thisClass = new ClassReader(bytes);
+      ClassReader thisClass;
+      if (bytes != null) {
+        thisClass = new ClassReader(bytes);
+      } else {
+        ByteBuffer b = buffer.duplicate();
+        b.position(0);
+        thisClass = new ClassReader(b);
+      }
       AttrIterator attrs = new AttrIterator();
       thisClass.initClassAttributeIterator(attrs);
       for (; attrs.isValid(); attrs.advance()) {
@@ -122,7 +139,24 @@ public final class ConstantPoolParser implements ClassConstants {
    * @param classReader 
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount) throws InvalidClassFileException {
+    this(bytes, ByteBuffer.wrap(bytes), offset, itemCount);
+  }
+
+  /**
+   * @param bytes the raw class file data, starting at index 0 of the buffer; read in place and never modified
+   * @param offset the start of the constant pool data
+   * @param itemCount the number of items in the pool
+   */
+  public ConstantPoolParser(ByteBuffer bytes, int offset, int itemCount) throws InvalidClassFileException {
+    this(null, bytes, offset, itemCount);
+  }
+
+  private ConstantPoolParser(byte[] bytes, ByteBuffer buffer, int offset, int itemCount) throws InvalidClassFileException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("null bytes");
+    }
     this.bytes = bytes;
+    this.buffer = buffer;
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
     }
@@ -133,10 +167,17 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   /**
-   * @return the buffer holding the raw class file data
+   * @return the buffer holding the raw class file data; a copy if the parser was not built from a byte array
    */
   public byte[] getRawBytes() {
-    return bytes;
+    if (bytes != null) {
+      return bytes;
+    }
+    byte[] result = new byte[buffer.limit()];
+    ByteBuffer b = buffer.duplicate();
+    b.position(0);
+    b.get(result);
+    return result;
   }
 
   /**
@@ -167,9 +208,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (buffer.limit() < offset + required) {
       throw new InvalidClassFileException(offset, "file truncated, expected " + required + " bytes, saw only "
-          + (bytes.length - offset));
+          + (buffer.limit() - offset));
     }
   }
 
@@ -650,10 +691,16 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
+    if (bytes == null) {
+      return buffer.get(i);
+    }
     return bytes[i];
   }
 
   private int getUShort(int i) {
+    if (bytes == null) {
+      return buffer.getShort(i) & 0xFFFF;
+    }
     return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -662,6 +709,9 @@ public final class ConstantPoolParser implements ClassConstants {
   // }
 
   private int getInt(int i) {
+    if (bytes == null) {
+      return buffer.getInt(i);
+    }
     return (bytes[i] << 24) + ((bytes[i + 1] & 0xFF) << 16) + ((bytes[i + 2] & 0xFF) << 8) + (bytes[i + 3] & 0xFF);
   }
 
@@ -10,21 +10,31 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.AbstractStatement;
 import com.ibm.wala.fixpoint.FixedPointConstants;
 import com.ibm.wala.fixpoint.IFixedPointSolver;
 import com.ibm.wala.fixpoint.IFixedPointStatement;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.fixpoint.UnaryOperator;
 import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.debug.VerboseAction;
+import com.ibm.wala.util.intset.IntSetAction;
 
 /**
  * Represents a set of {@link IFixedPointStatement}s to be solved by a {@link IFixedPointSolver}
@@ -50,6 +60,18 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
   static public final int DEFAULT_PERIODIC_MAINTENANCE_INTERVAL = 100000;
 
+  /**
+   * A tuning parameter for {@link #solve(IProgressMonitor, ExecutorService, int)}: the maximum number of statements evaluated
+   * concurrently in a single wave, per worker thread.
+   */
+  static public final int DEFAULT_WAVE_SIZE_PER_THREAD = 256;
+
+  /**
+   * A tuning parameter for {@link #solve(IProgressMonitor, ExecutorService, int)}: waves smaller than this are evaluated on the
+   * calling thread, since handing them to the workers costs more than it saves.
+   */
+  static public final int MIN_PARALLEL_WAVE_SIZE = 64;
+
   /**
    * A tuning parameter; how may new IStatementDefinitionss must be added before doing a new topological sort? TODO: Tune this
    * empirically.
@@ -94,7 +116,7 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
   /**
    * worklist for the iterative solver
    */
-  protected Worklist workList = new Worklist();
+  protected IFixedPointWorklist workList = new Worklist();
 
   /**
    * A boolean which is initially true, but set to false after the first call to solve();
@@ -120,6 +142,30 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
     return workList.isEmpty();
   }
 
+  /**
+   * @return the work list, whose counts tell how much work its strategy has scheduled so far
+   */
+  public IFixedPointWorklist getWorkList() {
+    return workList;
+  }
+
+  /**
+   * Choose the scheduling strategy of this solver: from now on, statements are taken from w. Any statements waiting on the old work
+   * list move to w. The default is a {@link Worklist}, which follows the topological order of the system; which strategy converges
+   * fastest depends on the shape of the system.
+   * 
+   * @throws IllegalArgumentException if w is null
+   */
+  public void setWorkList(IFixedPointWorklist w) {
+    if (w == null) {
+      throw new IllegalArgumentException("w is null");
+    }
+    while (!workList.isEmpty()) {
+      w.insertStatement(workList.takeStatement());
+    }
+    workList = w;
+  }
+
   /**
    * Solve the set of dataflow graph.
    * <p>
@@ -143,33 +189,209 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
 
       // duplicate insertion detection
       AbstractStatement s = workList.takeStatement();
+      globalChange |= evaluateAndUpdate(s);
+    }
+    return globalChange;
+  }
+
+  /**
+   * Solve the system, evaluating statements concurrently where it is safe to do so.
+   * <p>
+   * Statements for which {@link #isParallelizable(AbstractStatement)} holds are pulled off the work list in waves. Within a wave, no
+   * variable that is defined by one statement is used by another, and all statements that define the same variable are evaluated by
+   * the same worker; so, each variable has at most one writer and no concurrent readers while it is being written. All other
+   * statements, and all work list and system bookkeeping, are processed on the calling thread. Since the operators are monotone, the
+   * fixed point reached is the same as that of {@link #solve(IProgressMonitor)}.
+   * <p>
+   * PRECONDITION: graph is set up
+   * 
+   * @param executor the pool on which to evaluate waves
+   * @param nThreads the number of workers to split each wave across
+   * @return true iff the evaluation of some equation caused a change in the value of some variable.
+   */
+  @SuppressWarnings("unchecked")
+  public boolean solve(IProgressMonitor monitor, ExecutorService executor, int nThreads) throws CancelException {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+
+    boolean globalChange = false;
 
-      if (DEBUG) {
-        System.err.println(("Before evaluation " + s));
+    if (firstSolve) {
+      initForFirstSolve();
+    }
+
+    int maxWaveSize = nThreads * DEFAULT_WAVE_SIZE_PER_THREAD;
+    while (!workList.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      orderStatements();
+
+      AbstractStatement s = workList.takeStatement();
+      if (!isParallelizable(s)) {
+        globalChange |= evaluateAndUpdate(s);
+        continue;
       }
-      byte code = s.evaluate();
-      if (verbose) {
-        nEvaluated++;
-        if (nEvaluated % getVerboseInterval() == 0) {
-          performVerboseAction();
+
+      List<AbstractStatement> wave = collectWave(s, maxWaveSize);
+      if (wave.size() < MIN_PARALLEL_WAVE_SIZE) {
+        for (AbstractStatement w : wave) {
+          globalChange |= evaluateAndUpdate(w);
         }
-        if (nEvaluated % getPeriodicMaintainInterval() == 0) {
-          periodicMaintenance();
+      } else {
+        for (AbstractStatement w : wave) {
+          prepareForEvaluation(w);
         }
+        byte[] codes = evaluateWave(wave, executor, nThreads);
+        for (int i = 0; i < codes.length; i++) {
+          globalChange |= updateAfterEvaluation(wave.get(i), codes[i]);
+        }
+      }
+    }
+    return globalChange;
+  }
 
+  /**
+   * Can statement s be evaluated concurrently with other such statements, provided the statements in question do not share
+   * variables other than as common right-hand sides or a common left-hand side? Subclasses should override as desired; the default
+   * is to evaluate everything sequentially.
+   */
+  protected boolean isParallelizable(AbstractStatement s) {
+    return false;
+  }
+
+  /**
+   * Called on the solver thread just after statement s is taken off the work list and before it is evaluated. Subclasses may
+   * override to hand s state that lives outside the statement; the default does nothing.
+   */
+  protected void prepareForEvaluation(AbstractStatement s) {
+  }
+
+  /**
+   * Pull a wave of mutually independent, parallelizable statements off the work list, starting with s. Statements that conflict
+   * with the wave are returned to the work list.
+   */
+  @SuppressWarnings("unchecked")
+  private List<AbstractStatement> collectWave(AbstractStatement s, int maxWaveSize) {
+    List<AbstractStatement> wave = new ArrayList<AbstractStatement>();
+    List<AbstractStatement> deferred = new ArrayList<AbstractStatement>();
+    Set<IVariable> defs = HashSetFactory.make();
+    Set<IVariable> uses = HashSetFactory.make();
+    addToWave(s, wave, defs, uses);
+    while (!workList.isEmpty() && wave.size() < maxWaveSize && deferred.size() < maxWaveSize) {
+      AbstractStatement next = workList.takeStatement();
+      if (isParallelizable(next) && !conflictsWithWave(next, defs, uses)) {
+        addToWave(next, wave, defs, uses);
+      } else {
+        deferred.add(next);
       }
-      if (DEBUG) {
-        System.err.println(("After evaluation  " + s + " " + isChanged(code)));
+    }
+    for (AbstractStatement d : deferred) {
+      workList.insertStatement(d);
+    }
+    return wave;
+  }
+
+  private static void addToWave(AbstractStatement<?, ?> s, List<AbstractStatement> wave, Set<IVariable> defs, Set<IVariable> uses) {
+    wave.add(s);
+    defs.add(s.getLHS());
+    for (IVariable v : rhsOf(s)) {
+      uses.add(v);
+    }
+  }
+
+  private static boolean conflictsWithWave(AbstractStatement<?, ?> s, Set<IVariable> defs, Set<IVariable> uses) {
+    IVariable lhs = s.getLHS();
+    if (uses.contains(lhs)) {
+      return true;
+    }
+    for (IVariable v : rhsOf(s)) {
+      if (v == lhs || defs.contains(v)) {
+        return true;
       }
-      if (isChanged(code)) {
-        globalChange = true;
-        updateWorkList(s);
+    }
+    return false;
+  }
+
+  private static IVariable[] rhsOf(AbstractStatement<?, ?> s) {
+    if (s instanceof UnaryStatement) {
+      return new IVariable[] { ((UnaryStatement<?>) s).getRightHandSide() };
+    } else {
+      return s.getRHS();
+    }
+  }
+
+  /**
+   * Evaluate a wave of statements on the executor, grouping statements by left-hand side so that each variable is written by a
+   * single worker.
+   * 
+   * @return the result code of each statement in the wave, in order
+   */
+  private byte[] evaluateWave(final List<AbstractStatement> wave, ExecutorService executor, int nThreads) {
+    final byte[] codes = new byte[wave.size()];
+
+    // group statement indices by lhs; preserve the wave order within each group
+    Map<IVariable, List<Integer>> groups = new LinkedHashMap<IVariable, List<Integer>>();
+    for (int i = 0; i < wave.size(); i++) {
+      MapUtil.findOrCreateList(groups, wave.get(i).getLHS()).add(i);
+    }
+
+    // each group is evaluated by a single worker
+    final List<List<Integer>> lhsGroups = new ArrayList<List<Integer>>(groups.values());
+    ParallelUtil.forEach(executor, nThreads, 0, lhsGroups.size(), new IntSetAction() {
+      @Override
+      public void act(int x) {
+        for (int i : lhsGroups.get(x)) {
+          codes[i] = wave.get(i).evaluate();
+        }
       }
-      if (isFixed(code)) {
-        removeStatement(s);
+    });
+    return codes;
+  }
+
+  /**
+   * Evaluate a statement on the calling thread and update the work list accordingly.
+   * 
+   * @return true iff the evaluation changed the value of some variable
+   */
+  private boolean evaluateAndUpdate(AbstractStatement s) {
+    if (DEBUG) {
+      System.err.println(("Before evaluation " + s));
+    }
+    prepareForEvaluation(s);
+    byte code = s.evaluate();
+    if (DEBUG) {
+      System.err.println(("After evaluation  " + s + " " + isChanged(code)));
+    }
+    return updateAfterEvaluation(s, code);
+  }
+
+  /**
+   * Update the work list and system, given that statement s has been evaluated with result code.
+   * 
+   * @return true iff the evaluation changed the value of some variable
+   */
+  @SuppressWarnings("unchecked")
+  private boolean updateAfterEvaluation(AbstractStatement s, byte code) {
+    if (verbose) {
+      nEvaluated++;
+      if (nEvaluated % getVerboseInterval() == 0) {
+        performVerboseAction();
+      }
+      if (nEvaluated % getPeriodicMaintainInterval() == 0) {
+        periodicMaintenance();
       }
     }
-    return globalChange;
+    boolean changed = isChanged(code);
+    if (changed) {
+      updateWorkList(s);
+    }
+    if (isFixed(code)) {
+      removeStatement(s);
+    }
+    return changed;
   }
 
   @Override
@@ -504,22 +726,11 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<?>> implement
    * Re-order the step definitions.
    */
   private void reorder() {
-    // drain the worklist
-    LinkedList<AbstractStatement> temp = new LinkedList<AbstractStatement>();
-    while (!workList.isEmpty()) {
-      AbstractStatement eq = workList.takeStatement();
-      temp.add(eq);
-    }
-    workList = new Worklist();
-
     // compute new ordering
     getFixedPointSystem().reorder();
 
-    // re-populate worklist
-    for (Iterator<AbstractStatement> it = temp.iterator(); it.hasNext();) {
-      AbstractStatement s = it.next();
-      workList.insertStatement(s);
-    }
+    // let the worklist catch up
+    workList.reorder();
   }
 
   public static boolean isChanged(byte code) {
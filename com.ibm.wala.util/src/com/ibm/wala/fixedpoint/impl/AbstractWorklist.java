@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
+import com.ibm.wala.util.collections.HashSetFactory;
+
+/**
+ * Common bookkeeping for work list strategies: membership and counts. Subclasses decide only the order in which statements come
+ * out.
+ * 
+ * Membership is decided by equals(), not by statement number, since some systems (e.g. the propagation graph of the pointer
+ * analysis) make a fresh statement object each time they hand out an implicit statement.
+ */
+@SuppressWarnings("rawtypes")
+public abstract class AbstractWorklist implements IFixedPointWorklist {
+
+  private final HashSet<AbstractStatement> contents = HashSetFactory.make();
+
+  private int insertions = 0;
+
+  private int takes = 0;
+
+  /**
+   * add s, which is not on the work list, to the underlying structure
+   */
+  protected abstract void add(AbstractStatement s);
+
+  /**
+   * remove and return the next statement from the underlying structure, which is not empty
+   */
+  protected abstract AbstractStatement take();
+
+  @Override
+  public void insertStatement(AbstractStatement s) {
+    if (contents.add(s)) {
+      add(s);
+      insertions++;
+    }
+  }
+
+  @Override
+  public AbstractStatement takeStatement() throws NoSuchElementException {
+    if (contents.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    AbstractStatement result = take();
+    contents.remove(result);
+    takes++;
+    return result;
+  }
+
+  @Override
+  public boolean contains(AbstractStatement s) {
+    return contents.contains(s);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return contents.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return contents.size();
+  }
+
+  /**
+   * By default, the order does not depend on the order numbers of the variables, so there is nothing to do.
+   */
+  @Override
+  public void reorder() {
+  }
+
+  @Override
+  public int getNumberOfInsertions() {
+    return insertions;
+  }
+
+  @Override
+  public int getNumberOfTakes() {
+    return takes;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + " size: " + size() + " insertions: " + insertions + " takes: " + takes;
+  }
+}
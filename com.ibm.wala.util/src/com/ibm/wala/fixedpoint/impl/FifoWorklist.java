@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.ArrayDeque;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+
+/**
+ * A work list that hands out statements in the order they were inserted. It ignores the topological order, but costs only a
+ * queue operation per statement, and tends to batch up the changes to a variable before its uses are evaluated.
+ */
+@SuppressWarnings("rawtypes")
+public class FifoWorklist extends AbstractWorklist {
+
+  private final ArrayDeque<AbstractStatement> queue = new ArrayDeque<AbstractStatement>();
+
+  @Override
+  protected void add(AbstractStatement s) {
+    queue.addLast(s);
+  }
+
+  @Override
+  protected AbstractStatement take() {
+    return queue.removeFirst();
+  }
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.Heap;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+
+/**
+ * A work list that hands out the statement that was last evaluated longest ago, statements never evaluated first, and ties in
+ * insertion order. No statement can be starved by a hot cycle of others, and a statement that waits longer tends to see more of
+ * its inputs change before it runs.
+ * 
+ * The work list remembers when each statement it handed out was taken, so it holds an entry for every statement ever evaluated.
+ */
+@SuppressWarnings("rawtypes")
+public class LeastRecentlyFiredWorklist extends AbstractWorklist {
+
+  private static class Entry {
+    final AbstractStatement statement;
+
+    /**
+     * the time the statement was last taken, then the time it was inserted
+     */
+    final long priority;
+
+    Entry(AbstractStatement statement, long priority) {
+      this.statement = statement;
+      this.priority = priority;
+    }
+  }
+
+  private final Heap<Entry> heap = new Heap<Entry>(100) {
+    @Override
+    protected boolean compareElements(Entry e1, Entry e2) {
+      return e1.priority < e2.priority;
+    }
+  };
+
+  /**
+   * for each statement ever taken, the value of {@link #clock} when it was last taken
+   */
+  private final ObjectIntHashMap<AbstractStatement> lastFired = new ObjectIntHashMap<AbstractStatement>(0, 0);
+
+  /**
+   * counts the statements taken
+   */
+  private int clock = 0;
+
+  /**
+   * counts the statements inserted
+   */
+  private int sequence = 0;
+
+  @Override
+  protected void add(AbstractStatement s) {
+    long fired = lastFired.get(s);
+    heap.insert(new Entry(s, (fired << 32) | (sequence++ & 0xFFFFFFFFL)));
+  }
+
+  @Override
+  protected AbstractStatement take() {
+    AbstractStatement result = heap.take().statement;
+    lastFired.put(result, ++clock);
+    return result;
+  }
+}
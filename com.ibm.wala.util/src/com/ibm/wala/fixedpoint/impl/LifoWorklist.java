@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import java.util.ArrayDeque;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+
+/**
+ * A work list that hands out the statement inserted most recently. Changes are chased depth-first along the uses of each variable,
+ * which keeps the working set small but may evaluate a statement many times before its inputs settle.
+ */
+@SuppressWarnings("rawtypes")
+public class LifoWorklist extends AbstractWorklist {
+
+  private final ArrayDeque<AbstractStatement> stack = new ArrayDeque<AbstractStatement>();
+
+  @Override
+  protected void add(AbstractStatement s) {
+    stack.addLast(s);
+  }
+
+  @Override
+  protected AbstractStatement take() {
+    return stack.removeLast();
+  }
+}
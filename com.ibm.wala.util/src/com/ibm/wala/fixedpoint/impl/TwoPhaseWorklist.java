@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixedpoint.impl;
+
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.util.collections.Heap;
+
+/**
+ * A work list that sweeps the system in waves. Within a wave, statements are taken in the topological order computed by the solver,
+ * which visits each strongly connected component of the system in turn. A statement inserted ahead of the current position joins
+ * the current wave; one inserted behind it, e.g. along the back edge of a cycle, waits in the next wave. So each wave evaluates a
+ * statement at most once, and a cycle is iterated by whole sweeps rather than by bouncing between its first few statements, as the
+ * default {@link Worklist} may.
+ */
+@SuppressWarnings("rawtypes")
+public class TwoPhaseWorklist extends AbstractWorklist {
+
+  private static class OrderHeap extends Heap<AbstractStatement> {
+    OrderHeap() {
+      super(100);
+    }
+
+    @Override
+    protected boolean compareElements(AbstractStatement s1, AbstractStatement s2) {
+      return s1.getOrderNumber() < s2.getOrderNumber();
+    }
+  }
+
+  private OrderHeap current = new OrderHeap();
+
+  private OrderHeap next = new OrderHeap();
+
+  /**
+   * the order number of the statement last taken in the current wave
+   */
+  private int position = Integer.MIN_VALUE;
+
+  private int waves = 0;
+
+  @Override
+  protected void add(AbstractStatement s) {
+    if (s.getOrderNumber() > position) {
+      current.insert(s);
+    } else {
+      next.insert(s);
+    }
+  }
+
+  @Override
+  protected AbstractStatement take() {
+    if (current.isEmpty()) {
+      OrderHeap temp = current;
+      current = next;
+      next = temp;
+      position = Integer.MIN_VALUE;
+    }
+    if (position == Integer.MIN_VALUE) {
+      waves++;
+    }
+    AbstractStatement result = current.take();
+    position = result.getOrderNumber();
+    return result;
+  }
+
+  /**
+   * The order numbers have changed, so the position in the current wave means nothing: start a new wave with everything.
+   */
+  @Override
+  public void reorder() {
+    OrderHeap all = new OrderHeap();
+    while (!current.isEmpty()) {
+      all.insert(current.take());
+    }
+    while (!next.isEmpty()) {
+      all.insert(next.take());
+    }
+    current = all;
+    position = Integer.MIN_VALUE;
+  }
+
+  /**
+   * @return the number of waves begun so far
+   */
+  public int getNumberOfWaves() {
+    return waves;
+  }
+}
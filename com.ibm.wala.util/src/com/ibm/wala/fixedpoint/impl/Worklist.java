@@ -10,21 +10,28 @@
  *******************************************************************************/
 package com.ibm.wala.fixedpoint.impl;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.IFixedPointWorklist;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
 
 /**
- * Worklist for fixed-point solver implementation
+ * Worklist for fixed-point solver implementation: the default strategy, which always takes the statement whose left-hand side comes
+ * first in the topological order computed by the solver.
  */
 @SuppressWarnings("rawtypes")
-public class Worklist extends Heap<AbstractStatement> {
+public class Worklist extends Heap<AbstractStatement> implements IFixedPointWorklist {
 
   private final HashSet<AbstractStatement> contents = HashSetFactory.make();
 
+  private int insertions = 0;
+
+  private int takes = 0;
+
   public Worklist() {
     super(100);
   }
@@ -34,17 +41,50 @@ public class Worklist extends Heap<AbstractStatement> {
     return (eq1.getOrderNumber() < eq2.getOrderNumber());
   }
 
+  @Override
   public AbstractStatement takeStatement() throws NoSuchElementException {
     AbstractStatement result = super.take();
     contents.remove(result);
+    takes++;
     return result;
   }
-  
+
+  /**
+   * @return true iff eq is on this work list
+   */
+  @Override
+  public boolean contains(AbstractStatement eq) {
+    return contents.contains(eq);
+  }
+
+  @Override
   public void insertStatement(AbstractStatement eq) {
     if (!contents.contains(eq)) {
       contents.add(eq);
       super.insert(eq);
+      insertions++;
     }
   }
 
-}
\ No newline at end of file
+  @Override
+  public void reorder() {
+    ArrayList<AbstractStatement> temp = new ArrayList<AbstractStatement>(size());
+    while (!isEmpty()) {
+      temp.add(super.take());
+    }
+    for (AbstractStatement s : temp) {
+      super.insert(s);
+    }
+  }
+
+  @Override
+  public int getNumberOfInsertions() {
+    return insertions;
+  }
+
+  @Override
+  public int getNumberOfTakes() {
+    return takes;
+  }
+
+}
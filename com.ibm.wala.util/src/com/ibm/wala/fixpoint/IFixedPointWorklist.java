@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.fixpoint;
+
+import java.util.NoSuchElementException;
+
+/**
+ * The statements waiting to be evaluated by an iterative solver. A work list holds each statement at most once; the order in
+ * which it hands them out is its scheduling strategy, which can make a large difference to the number of evaluations needed to
+ * reach the fixed point.
+ */
+@SuppressWarnings("rawtypes")
+public interface IFixedPointWorklist {
+
+  /**
+   * add s to this work list, unless it is already there
+   */
+  public void insertStatement(AbstractStatement s);
+
+  /**
+   * remove and return the next statement to evaluate
+   */
+  public AbstractStatement takeStatement() throws NoSuchElementException;
+
+  /**
+   * @return true iff s is on this work list
+   */
+  public boolean contains(AbstractStatement s);
+
+  public boolean isEmpty();
+
+  public int size();
+
+  /**
+   * The solver calls this after it renumbers the variables of the system, so that a work list that orders statements by
+   * {@link AbstractStatement#getOrderNumber()} can restore its order.
+   */
+  public void reorder();
+
+  /**
+   * @return the number of statements inserted into this work list that were not already on it
+   */
+  public int getNumberOfInsertions();
+
+  /**
+   * @return the number of statements taken from this work list, which is the number of evaluations it scheduled
+   */
+  public int getNumberOfTakes();
+}
@@ -11,8 +11,10 @@
 package com.ibm.wala.fixpoint;
 
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetRepository;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
 
 /**
  * A variable for dataflow analysis, representing a set of integers.
@@ -24,17 +26,68 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
 
   MutableIntSet V;
 
+  /**
+   * makes the sets that hold the value of this variable; null for {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  private MutableIntSetFactory<?> intSetFactory;
+
+  /**
+   * Choose the kind of set that holds the value of this variable. This must be called before the variable has a value.
+   *
+   * @param intSetFactory makes the sets; null for {@link IntSetUtil#getDefaultIntSetFactory()}
+   */
+  public void setIntSetFactory(MutableIntSetFactory<?> intSetFactory) {
+    if (V != null) {
+      throw new IllegalStateException("variable already has a value");
+    }
+    this.intSetFactory = intSetFactory;
+  }
+
+  private MutableIntSetFactory<?> getIntSetFactory() {
+    return intSetFactory == null ? IntSetUtil.getDefaultIntSetFactory() : intSetFactory;
+  }
+
+  /**
+   * is V a canonical set from an {@link IntSetRepository}, which must be copied before it is changed?
+   */
+  private boolean shared = false;
+
+  /**
+   * Replace the value of this variable with the canonical set with the same contents in repository. Thereafter the value is
+   * copied the first time the variable changes.
+   */
+  public void shareValue(IntSetRepository repository) {
+    if (repository == null) {
+      throw new IllegalArgumentException("repository is null");
+    }
+    if (V != null) {
+      V = repository.findOrCreate(V);
+      shared = true;
+    }
+  }
+
+  /**
+   * make V a private copy, if it is shared
+   */
+  private void unshare() {
+    if (shared) {
+      V = getIntSetFactory().makeCopy(V);
+      shared = false;
+    }
+  }
+
   @Override
   public void copyState(T other) {
     if (V == null) {
       if (other.V == null) {
         return;
       } else {
-        V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other.V);
+        V = getIntSetFactory().makeCopy(other.V);
         return;
       }
     } else {
       if (other.V != null) {
+        unshare();
         V.copySet(other.V);
       }
     }
@@ -47,9 +100,15 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
    */
   public boolean addAll(IntSet B) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
+      V = getIntSetFactory().makeCopy(B);
       return (B.size() > 0);
     } else {
+      if (shared) {
+        if (B.isSubset(V)) {
+          return false;
+        }
+        unshare();
+      }
       boolean result = V.addAll(B);
       return result;
     }
@@ -101,7 +160,12 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
    */
   public void add(int b) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().make();
+      V = getIntSetFactory().make();
+    } else if (shared) {
+      if (V.contains(b)) {
+        return;
+      }
+      unshare();
     }
     V.add(b);
   }
@@ -120,7 +184,8 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
   }
 
   /**
-   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty.
+   * @return the value of this variable as a MutableSparseIntSet ... null if the set is empty. After
+   *         {@link #shareValue(IntSetRepository)}, the result is shared with other variables and must not be modified.
    */
   public MutableIntSet getValue() {
     return V;
@@ -130,7 +195,8 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
    * @param i
    */
   public void remove(int i) {
-    if (V != null) {
+    if (V != null && V.contains(i)) {
+      unshare();
       V.remove(i);
     }
   }
@@ -165,13 +231,14 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
 
   public boolean addAllInIntersection(IntSet other, IntSet filter) {
     if (V == null) {
-      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(other);
+      V = getIntSetFactory().makeCopy(other);
       V.intersectWith(filter);
       if (V.isEmpty()) {
         V = null;
       }
       return (V != null);
     } else {
+      unshare();
       boolean result = V.addAllInIntersection(other, filter);
       return result;
     }
@@ -179,5 +246,6 @@ public abstract class IntSetVariable<T extends IntSetVariable> extends AbstractV
 
   public void removeAll() {
     V = null;
+    shared = false;
   }
 }
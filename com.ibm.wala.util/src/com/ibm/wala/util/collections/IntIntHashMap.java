@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * A map from ints to ints, by open addressing with linear probing. Unlike a {@link java.util.HashMap} with {@link Integer} keys
+ * and values, it allocates no boxes and no entries: just three arrays.
+ *
+ * Looking up a key that is not there yields the missing value chosen when the map was made.
+ */
+public class IntIntHashMap {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final int missingValue;
+
+  private int[] keys;
+
+  private int[] values;
+
+  /**
+   * which slots hold a key
+   */
+  private boolean[] used;
+
+  private int size = 0;
+
+  /**
+   * a map whose missing value is -1
+   */
+  public IntIntHashMap() {
+    this(DEFAULT_CAPACITY, -1);
+  }
+
+  /**
+   * @param expectedSize the number of keys the map should hold without growing
+   * @param missingValue the value of a key that is not in the map
+   */
+  public IntIntHashMap(int expectedSize, int missingValue) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal size " + expectedSize);
+    }
+    this.missingValue = missingValue;
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < 2 * expectedSize) {
+      capacity *= 2;
+    }
+    keys = new int[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+  }
+
+  public int getMissingValue() {
+    return missingValue;
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it belongs
+   */
+  private int find(int key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (used[i] && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * @return the value of key, or the missing value if key is not in the map
+   */
+  public int get(int key) {
+    int i = find(key);
+    return used[i] ? values[i] : missingValue;
+  }
+
+  public boolean containsKey(int key) {
+    return used[find(key)];
+  }
+
+  /**
+   * @return the previous value of key, or the missing value if there was none
+   */
+  public int put(int key, int value) {
+    int i = find(key);
+    if (used[i]) {
+      int result = values[i];
+      values[i] = value;
+      return result;
+    }
+    keys[i] = key;
+    values[i] = value;
+    used[i] = true;
+    if (++size > keys.length / 2) {
+      grow();
+    }
+    return missingValue;
+  }
+
+  /**
+   * @return the value key had, or the missing value if it was not in the map
+   */
+  public int remove(int key) {
+    int i = find(key);
+    if (!used[i]) {
+      return missingValue;
+    }
+    int result = values[i];
+    size--;
+    // shift back any later keys of the same run that hash at or before the hole
+    int mask = keys.length - 1;
+    int hole = i;
+    for (int j = (i + 1) & mask; used[j]; j = (j + 1) & mask) {
+      int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+    }
+    used[hole] = false;
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    keys = new int[2 * oldKeys.length];
+    values = new int[keys.length];
+    used = new boolean[keys.length];
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldUsed[j]) {
+        int i = find(oldKeys[j]);
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+        used[i] = true;
+      }
+    }
+  }
+
+  /**
+   * The map must not change while the iterator is in use.
+   */
+  public IntIterator keyIterator() {
+    return new IntIterator() {
+      private int next = advance(0);
+
+      private int advance(int i) {
+        while (i < used.length && !used[i]) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < used.length;
+      }
+
+      @Override
+      public int next() {
+        if (next >= used.length) {
+          throw new NoSuchElementException();
+        }
+        int result = keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < keys.length; i++) {
+      if (used[i]) {
+        if (result.length() > 1) {
+          result.append(", ");
+        }
+        result.append(keys[i]).append("=").append(values[i]);
+      }
+    }
+    return result.append("}").toString();
+  }
+}
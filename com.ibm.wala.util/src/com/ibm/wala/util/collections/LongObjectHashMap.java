@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.util.intset.LongIterator;
+
+/**
+ * A map from longs to objects, by open addressing with linear probing. Unlike a {@link java.util.HashMap} with {@link Long}
+ * keys, it allocates no boxes and no entries: just two arrays. It suits keys that pack two ints, such as pairs of node numbers.
+ *
+ * The map has no null values; a slot is empty iff its value is null.
+ */
+public class LongObjectHashMap<V> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] keys;
+
+  private Object[] values;
+
+  private int size = 0;
+
+  public LongObjectHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize the number of keys the map should hold without growing
+   */
+  public LongObjectHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal size " + expectedSize);
+    }
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < 2 * expectedSize) {
+      capacity *= 2;
+    }
+    keys = new long[capacity];
+    values = new Object[capacity];
+  }
+
+  private static int hash(long key) {
+    int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it belongs
+   */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (values[i] != null && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * @return the value of key, or null if key is not in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    return (V) values[find(key)];
+  }
+
+  public boolean containsKey(long key) {
+    return values[find(key)] != null;
+  }
+
+  /**
+   * @return the previous value of key, or null if there was none
+   * @throws IllegalArgumentException if value is null
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("null value");
+    }
+    int i = find(key);
+    V result = (V) values[i];
+    keys[i] = key;
+    values[i] = value;
+    if (result == null && ++size > keys.length / 2) {
+      grow();
+    }
+    return result;
+  }
+
+  /**
+   * @return the value key had, or null if it was not in the map
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    int i = find(key);
+    V result = (V) values[i];
+    if (result == null) {
+      return null;
+    }
+    size--;
+    // shift back any later keys of the same run that hash at or before the hole
+    int mask = keys.length - 1;
+    int hole = i;
+    for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+      int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+    }
+    values[hole] = null;
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[2 * oldKeys.length];
+    values = new Object[keys.length];
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != null) {
+        int i = find(oldKeys[j]);
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private int advance(int i) {
+    while (i < values.length && values[i] == null) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * The map must not change while the iterator is in use.
+   */
+  public LongIterator keyIterator() {
+    return new LongIterator() {
+      private int next = advance(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < values.length;
+      }
+
+      @Override
+      public long next() {
+        if (next >= values.length) {
+          throw new NoSuchElementException();
+        }
+        long result = keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  /**
+   * The map must not change while the iterator is in use.
+   */
+  public Iterator<V> valueIterator() {
+    return new Iterator<V>() {
+      private int next = advance(0);
+
+      @Override
+      public boolean hasNext() {
+        return next < values.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public V next() {
+        if (next >= values.length) {
+          throw new NoSuchElementException();
+        }
+        V result = (V) values[next];
+        next = advance(next + 1);
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        if (result.length() > 1) {
+          result.append(", ");
+        }
+        result.append(keys[i]).append("=").append(values[i]);
+      }
+    }
+    return result.append("}").toString();
+  }
+}
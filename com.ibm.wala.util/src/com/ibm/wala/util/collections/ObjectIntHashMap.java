@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.collections;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from objects to ints, by open addressing with linear probing. Unlike a {@link java.util.HashMap} with {@link Integer}
+ * values, it allocates no boxes and no entries: just two arrays.
+ *
+ * The map has no null keys. Looking up a key that is not there yields the missing value chosen when the map was made.
+ */
+public class ObjectIntHashMap<K> implements Serializable {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private final int missingValue;
+
+  private Object[] keys;
+
+  private int[] values;
+
+  private int size = 0;
+
+  /**
+   * a map whose missing value is -1
+   */
+  public ObjectIntHashMap() {
+    this(DEFAULT_CAPACITY, -1);
+  }
+
+  /**
+   * @param expectedSize the number of keys the map should hold without growing
+   * @param missingValue the value of a key that is not in the map
+   */
+  public ObjectIntHashMap(int expectedSize, int missingValue) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("illegal size " + expectedSize);
+    }
+    this.missingValue = missingValue;
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < 2 * expectedSize) {
+      capacity *= 2;
+    }
+    keys = new Object[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   * a map with the same keys, values and missing value as other
+   */
+  public ObjectIntHashMap(ObjectIntHashMap<? extends K> other) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    this.missingValue = other.missingValue;
+    this.keys = other.keys.clone();
+    this.values = other.values.clone();
+    this.size = other.size;
+  }
+
+  public int getMissingValue() {
+    return missingValue;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return the slot holding key, or the empty slot where it belongs
+   */
+  private int find(Object key) {
+    int mask = keys.length - 1;
+    int i = hash(key) & mask;
+    while (keys[i] != null && !keys[i].equals(key)) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * @return the value of key, or the missing value if key is not in the map
+   */
+  public int get(Object key) {
+    if (key == null) {
+      return missingValue;
+    }
+    int i = find(key);
+    return keys[i] == null ? missingValue : values[i];
+  }
+
+  public boolean containsKey(Object key) {
+    return key != null && keys[find(key)] != null;
+  }
+
+  /**
+   * @return the previous value of key, or the missing value if there was none
+   * @throws IllegalArgumentException if key is null
+   */
+  public int put(K key, int value) {
+    if (key == null) {
+      throw new IllegalArgumentException("null key");
+    }
+    int i = find(key);
+    if (keys[i] != null) {
+      int result = values[i];
+      values[i] = value;
+      return result;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > keys.length / 2) {
+      grow();
+    }
+    return missingValue;
+  }
+
+  /**
+   * @return the value key had, or the missing value if it was not in the map
+   */
+  public int remove(Object key) {
+    if (key == null) {
+      return missingValue;
+    }
+    int i = find(key);
+    if (keys[i] == null) {
+      return missingValue;
+    }
+    int result = values[i];
+    size--;
+    // shift back any later keys of the same run that hash at or before the hole
+    int mask = keys.length - 1;
+    int hole = i;
+    for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+      int home = hash(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+    }
+    keys[hole] = null;
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, null);
+    size = 0;
+  }
+
+  private void grow() {
+    Object[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new Object[2 * oldKeys.length];
+    values = new int[keys.length];
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != null) {
+        int i = find(oldKeys[j]);
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   * @return a view of the keys of this map, which does not support removal
+   */
+  public Set<K> keySet() {
+    return new AbstractSet<K>() {
+      @Override
+      public Iterator<K> iterator() {
+        return keyIterator();
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return containsKey(o);
+      }
+    };
+  }
+
+  /**
+   * The map must not change while the iterator is in use.
+   */
+  public Iterator<K> keyIterator() {
+    return new Iterator<K>() {
+      private int next = advance(0);
+
+      private int advance(int i) {
+        while (i < keys.length && keys[i] == null) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return next < keys.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public K next() {
+        if (next >= keys.length) {
+          throw new NoSuchElementException();
+        }
+        K result = (K) keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer result = new StringBuffer("{");
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != null) {
+        if (result.length() > 1) {
+          result.append(", ");
+        }
+        result.append(keys[i]).append("=").append(values[i]);
+      }
+    }
+    return result.append("}").toString();
+  }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.IntSetAction;
+
+/**
+ * Simple utilities for running analysis work on a pool of threads
+ */
+public class ParallelUtil {
+
+  /**
+   * @return a factory for daemon threads named prefix-0, prefix-1, ...; daemon threads keep an abandoned pool from holding the VM
+   *         open
+   */
+  public static ThreadFactory makeDaemonThreadFactory(final String prefix) {
+    if (prefix == null) {
+      throw new IllegalArgumentException("prefix is null");
+    }
+    return new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, prefix + "-" + count.getAndIncrement());
+        t.setDaemon(true);
+        return t;
+      }
+    };
+  }
+
+  /**
+   * Rethrow the cause of a failed task if it is unchecked; a checked cause is a bug in the task
+   */
+  public static void rethrow(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    } else {
+      Assertions.UNREACHABLE(cause);
+    }
+  }
+
+  /**
+   * Rethrow the cause of a failed task if it is unchecked or an instance of checked
+   */
+  public static <X extends Exception> void rethrow(Throwable cause, Class<X> checked) throws X {
+    if (checked.isInstance(cause)) {
+      throw checked.cast(cause);
+    }
+    rethrow(cause);
+  }
+
+  /**
+   * Wait for a task and return its result, rethrowing its failure as by {@link #rethrow(Throwable)}
+   */
+  public static <V> V get(Future<V> f) {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Assertions.UNREACHABLE("interrupted while waiting for a task");
+      return null;
+    } catch (ExecutionException e) {
+      rethrow(e.getCause());
+      return null;
+    }
+  }
+
+  /**
+   * Wait for a task and return its result, rethrowing its failure as by {@link #rethrow(Throwable, Class)}
+   */
+  public static <V, X extends Exception> V get(Future<V> f, Class<X> checked) throws X {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      Assertions.UNREACHABLE("interrupted while waiting for a task");
+      return null;
+    } catch (ExecutionException e) {
+      rethrow(e.getCause(), checked);
+      return null;
+    }
+  }
+
+  /**
+   * Apply action to each index in [from, to) using up to nThreads tasks on executor, and wait for them all to finish. The tasks
+   * claim indices one at a time, so uneven work evens out across threads. If the action fails, no further indices are claimed,
+   * and the first failure is rethrown once the running tasks are done.
+   */
+  public static void forEach(ExecutorService executor, int nThreads, int from, final int to, final IntSetAction action) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("action is null");
+    }
+    final AtomicInteger next = new AtomicInteger(from);
+    int nTasks = Math.min(nThreads, to - from);
+    List<Future<Object>> futures = new ArrayList<Future<Object>>(Math.max(nTasks, 0));
+    for (int i = 0; i < nTasks; i++) {
+      futures.add(executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() {
+          for (int j = next.getAndIncrement(); j < to; j = next.getAndIncrement()) {
+            action.act(j);
+          }
+          return null;
+        }
+      }));
+    }
+    Throwable failure = null;
+    for (Future<Object> f : futures) {
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        Assertions.UNREACHABLE("interrupted while waiting for a task");
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+          next.set(to);
+        }
+      }
+    }
+    if (failure != null) {
+      rethrow(failure);
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.Predicate;
+import com.ibm.wala.util.collections.FilterIterator;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.concurrent.ParallelUtil;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSetAction;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+
+/**
+ * Computes, for each graph node, the set of "interesting" nodes that are reachable from it, with the same results as
+ * {@link GraphReachability} but without a general dataflow solver.
+ * <p>
+ * The graph is condensed into its strongly connected components, which are visited in reverse topological order: the reachable set
+ * of a component is the interesting nodes in it plus the reachable sets of its successor components, all of which are final by the
+ * time it is visited. Each component is visited exactly once, and all nodes of a component share one set. A component with no
+ * interesting nodes and a single successor component shares that component's set too, so long chains cost no copies.
+ * <p>
+ * Components of the same height in the condensed graph (the length of the longest path from them to a sink) do not depend on each
+ * other; {@link #solve(IProgressMonitor, ExecutorService, int)} computes their sets concurrently.
+ */
+public class CondensedGraphReachability<T, S> {
+
+  /**
+   * A tuning parameter for {@link #solve(IProgressMonitor, ExecutorService, int)}: levels with fewer components than this are
+   * computed on the calling thread, since handing them to the executor would cost more than it saves.
+   */
+  private final static int MIN_PARALLEL_LEVEL_SIZE = 64;
+
+  /**
+   * the value of every component that reaches no interesting node; never modified
+   */
+  private final static BitVectorIntSet EMPTY = new BitVectorIntSet();
+
+  /**
+   * Governing graph
+   */
+  private final Graph<T> g;
+
+  /**
+   * set of "interesting" nodes
+   */
+  final OrdinalSetMapping<S> domain;
+
+  /**
+   * number of the strongly connected component of each node; components are numbered in topological order
+   */
+  private ObjectIntHashMap<T> component;
+
+  /**
+   * successor components of component c are succs[succStart[c]] ... succs[succStart[c+1]-1]
+   */
+  private int[] succStart;
+
+  private int[] succs;
+
+  /**
+   * domain indices of the interesting nodes of component c are own[ownStart[c]] ... own[ownStart[c+1]-1]
+   */
+  private int[] ownStart;
+
+  private int[] own;
+
+  /**
+   * reachable set of each component; null until solved
+   */
+  private BitVectorIntSet[] reach;
+
+  /**
+   * @param g graph to analyze
+   * @param filter "interesting" node definition
+   * @throws IllegalArgumentException if g is null
+   */
+  public CondensedGraphReachability(Graph<T> g, Predicate<?> filter) {
+    if (g == null) {
+      throw new IllegalArgumentException("g is null");
+    }
+    this.g = g;
+    Iterator<S> i = new FilterIterator<S>(g.iterator(), filter);
+    domain = new MutableMapping<S>((Iterator2Collection.toSet(i)).toArray());
+  }
+
+  /**
+   * @param n
+   * @return the set of interesting nodes reachable from n
+   * @throws IllegalArgumentException if n is not a node of the graph
+   */
+  public OrdinalSet<S> getReachableSet(Object n) throws IllegalStateException {
+    if (reach == null) {
+      throw new IllegalStateException("must call solve() before calling getReachableSet()");
+    }
+    int c = component.get(n);
+    if (c == -1) {
+      throw new IllegalArgumentException("not a node of the graph: " + n);
+    }
+    BitVectorIntSet v = reach[c];
+    if (v.isEmpty()) {
+      return OrdinalSet.empty();
+    } else {
+      return new OrdinalSet<S>(v, domain);
+    }
+  }
+
+  /**
+   * @return true iff some node reaches some interesting node
+   */
+  public boolean solve(IProgressMonitor monitor) throws CancelException {
+    condense();
+    int nComponents = succStart.length - 1;
+    reach = new BitVectorIntSet[nComponents];
+    for (int c = nComponents - 1; c >= 0; c--) {
+      if (c % 1000 == 0) {
+        MonitorUtil.throwExceptionIfCanceled(monitor);
+      }
+      reach[c] = computeComponent(c);
+    }
+    return anyReached();
+  }
+
+  /**
+   * Solve, computing the sets of independent components concurrently. The result is the same as that of
+   * {@link #solve(IProgressMonitor)}.
+   *
+   * @param executor the pool on which to compute components
+   * @param nThreads the number of workers to split each level across
+   * @return true iff some node reaches some interesting node
+   */
+  public boolean solve(IProgressMonitor monitor, ExecutorService executor, int nThreads) throws CancelException {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    condense();
+    int nComponents = succStart.length - 1;
+    reach = new BitVectorIntSet[nComponents];
+
+    // height of each component; successors have higher numbers, so visit in reverse
+    int[] height = new int[nComponents];
+    int maxHeight = -1;
+    for (int c = nComponents - 1; c >= 0; c--) {
+      int h = 0;
+      for (int i = succStart[c]; i < succStart[c + 1]; i++) {
+        h = Math.max(h, height[succs[i]] + 1);
+      }
+      height[c] = h;
+      maxHeight = Math.max(maxHeight, h);
+    }
+
+    // bucket the components by height
+    int[] levelStart = new int[maxHeight + 2];
+    for (int c = 0; c < nComponents; c++) {
+      levelStart[height[c] + 1]++;
+    }
+    for (int h = 0; h <= maxHeight; h++) {
+      levelStart[h + 1] += levelStart[h];
+    }
+    int[] fill = new int[maxHeight + 1];
+    System.arraycopy(levelStart, 0, fill, 0, maxHeight + 1);
+    final int[] byLevel = new int[nComponents];
+    for (int c = 0; c < nComponents; c++) {
+      byLevel[fill[height[c]]++] = c;
+    }
+
+    for (int h = 0; h <= maxHeight; h++) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      int start = levelStart[h];
+      int end = levelStart[h + 1];
+      if (end - start < MIN_PARALLEL_LEVEL_SIZE) {
+        for (int i = start; i < end; i++) {
+          reach[byLevel[i]] = computeComponent(byLevel[i]);
+        }
+      } else {
+        computeLevel(byLevel, start, end, executor, nThreads);
+      }
+    }
+    return anyReached();
+  }
+
+  /**
+   * Compute the components byLevel[start] ... byLevel[end-1] on the executor and wait for all of them. Each component is computed by
+   * a single worker, which writes only its own reach entry and reads only those of lower levels, which were written before the
+   * level was submitted.
+   */
+  private void computeLevel(final int[] byLevel, int start, int end, ExecutorService executor, int nThreads) {
+    ParallelUtil.forEach(executor, nThreads, start, end, new IntSetAction() {
+      @Override
+      public void act(int i) {
+        reach[byLevel[i]] = computeComponent(byLevel[i]);
+      }
+    });
+  }
+
+  /**
+   * PRECONDITION: the sets of all successor components of c have been computed
+   *
+   * @return the set of interesting nodes reachable from component c
+   */
+  private BitVectorIntSet computeComponent(int c) {
+    int nOwn = ownStart[c + 1] - ownStart[c];
+    int nSuccs = succStart[c + 1] - succStart[c];
+    if (nOwn == 0) {
+      if (nSuccs == 0) {
+        return EMPTY;
+      } else if (nSuccs == 1) {
+        return reach[succs[succStart[c]]];
+      }
+    }
+    BitVectorIntSet result = new BitVectorIntSet();
+    for (int i = succStart[c]; i < succStart[c + 1]; i++) {
+      BitVectorIntSet s = reach[succs[i]];
+      if (!s.isEmpty()) {
+        result.addAll(s);
+      }
+    }
+    for (int i = ownStart[c]; i < ownStart[c + 1]; i++) {
+      result.add(own[i]);
+    }
+    return result.isEmpty() ? EMPTY : result;
+  }
+
+  private boolean anyReached() {
+    for (BitVectorIntSet s : reach) {
+      if (!s.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Number the strongly connected components of the graph in topological order and record, for each, its interesting nodes and
+   * its distinct successor components.
+   */
+  private void condense() {
+    component = new ObjectIntHashMap<T>(g.getNumberOfNodes(), -1);
+    List<Set<T>> components = new ArrayList<Set<T>>();
+    for (Iterator<Set<T>> it = new SCCIterator<T>(g); it.hasNext();) {
+      Set<T> scc = it.next();
+      for (T n : scc) {
+        component.put(n, components.size());
+      }
+      components.add(scc);
+    }
+
+    int nComponents = components.size();
+    succStart = new int[nComponents + 1];
+    ownStart = new int[nComponents + 1];
+    int[] succBuf = new int[Math.max(nComponents, 16)];
+    int[] ownBuf = new int[Math.max(domain.getSize(), 1)];
+    int nSuccs = 0;
+    int nOwn = 0;
+    // last component that recorded each component as a successor, to skip parallel edges
+    int[] lastSeen = new int[nComponents];
+    for (int c = 0; c < nComponents; c++) {
+      lastSeen[c] = -1;
+    }
+    for (int c = 0; c < nComponents; c++) {
+      succStart[c] = nSuccs;
+      ownStart[c] = nOwn;
+      for (T n : components.get(c)) {
+        int index = domain.getMappedIndex(n);
+        if (index > -1) {
+          ownBuf[nOwn++] = index;
+        }
+        for (Iterator<? extends T> ss = g.getSuccNodes(n); ss.hasNext();) {
+          int d = component.get(ss.next());
+          if (d != c && lastSeen[d] != c) {
+            assert d > c : "components out of topological order";
+            lastSeen[d] = c;
+            if (nSuccs == succBuf.length) {
+              int[] old = succBuf;
+              succBuf = new int[old.length * 2];
+              System.arraycopy(old, 0, succBuf, 0, old.length);
+            }
+            succBuf[nSuccs++] = d;
+          }
+        }
+      }
+    }
+    succStart[nComponents] = nSuccs;
+    ownStart[nComponents] = nOwn;
+    succs = new int[nSuccs];
+    System.arraycopy(succBuf, 0, succs, 0, nSuccs);
+    own = new int[nOwn];
+    System.arraycopy(ownBuf, 0, own, 0, nOwn);
+  }
+}
@@ -35,6 +35,8 @@ import com.ibm.wala.util.intset.OrdinalSetMapping;
 
 /**
  * A dataflow system that computes, for each graph node, the set of "interesting" nodes that are reachable
+ *
+ * @see CondensedGraphReachability for an engine that computes the same sets without a general dataflow solver
  */
 public class GraphReachability<T, S> {
 
@@ -40,9 +40,22 @@ public class DominanceFrontiers<T> {
    *          The root from which to compute dominators
    */
   public DominanceFrontiers(Graph<T> G, T root) {
-    this.root = root;
-    this.G = G;
-    this.dom = Dominators.make(G, root);
+    this(Dominators.make(G, root));
+  }
+
+  /**
+   * Compute the dominance frontiers from dominators that have already been computed, for instance by
+   * {@link Dominators#make(java.util.List, java.util.List, java.util.concurrent.ExecutorService, int)}.
+   * 
+   * @throws IllegalArgumentException if dom is null
+   */
+  public DominanceFrontiers(Dominators<T> dom) throws IllegalArgumentException {
+    if (dom == null) {
+      throw new IllegalArgumentException("dom is null");
+    }
+    this.root = dom.root;
+    this.G = dom.getGraph();
+    this.dom = dom;
     analyze();
   }
 
@@ -66,30 +79,31 @@ public class DominanceFrontiers<T> {
     return dom.dominatorTree();
   }
 
+  /**
+   * Cooper, Harvey and Kennedy's formulation: a join node Y is in the frontier of each node on the dominator tree path from each of
+   * its predecessors up to, but not including, idom(Y). This gives the same frontiers as Cytron et al.'s bottom-up walk of the
+   * dominator tree without building the tree.
+   */
   private void analyze() {
-    Graph<T> DT = dom.dominatorTree();
-
-    Iterator<T> XS = DFS.iterateFinishTime(DT, new NonNullSingletonIterator<T>(root));
-    while (XS.hasNext()) {
-      T X = XS.next();
-      Set<T> DF_X = HashSetFactory.make();
-      DF.put(X, DF_X);
+    for (Iterator<T> XS = DFS.iterateDiscoverTime(G, new NonNullSingletonIterator<T>(root)); XS.hasNext();) {
+      DF.put(XS.next(), HashSetFactory.<T> make(2));
+    }
 
-      // DF_local
-      for (Iterator<? extends T> YS = G.getSuccNodes(X); YS.hasNext();) {
-        T Y = YS.next();
-        if (dom.getIdom(Y) != X) {
-          DF_X.add(Y);
-        }
+    for (T Y : DF.keySet()) {
+      if (G.getPredNodeCount(Y) < 2 && Y != root) {
+        // the only predecessor is the immediate dominator
+        continue;
       }
-
-      // DF_up
-      for (Iterator<? extends T> ZS = DT.getSuccNodes(X); ZS.hasNext();) {
-        T Z = ZS.next();
-        for (Iterator<T> YS2 = getDominanceFrontier(Z); YS2.hasNext();) {
-          T Y2 = YS2.next();
-          if (dom.getIdom(Y2) != X)
-            DF_X.add(Y2);
+      T idomY = dom.getIdom(Y);
+      for (Iterator<? extends T> PS = G.getPredNodes(Y); PS.hasNext();) {
+        T runner = PS.next();
+        if (!DF.containsKey(runner)) {
+          // unreachable predecessor
+          continue;
+        }
+        while (runner != null && runner != idomY) {
+          DF.get(runner).add(Y);
+          runner = dom.getIdom(runner);
         }
       }
     }
@@ -10,15 +10,19 @@
  *******************************************************************************/
 package com.ibm.wala.util.graph.dominators;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.ibm.wala.util.collections.EmptyIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.concurrent.ParallelUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.AbstractGraph;
 import com.ibm.wala.util.graph.EdgeManager;
@@ -27,6 +31,7 @@ import com.ibm.wala.util.graph.NodeManager;
 import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.graph.traverse.DFSDiscoverTimeIterator;
 import com.ibm.wala.util.graph.traverse.SlowDFSDiscoverTimeIterator;
+import com.ibm.wala.util.intset.IntSetAction;
 
 /**
  * Calculate dominators using Langauer and Tarjan's fastest algorithm. TOPLAS 1(1), July 1979. This implementation uses path
@@ -42,7 +47,7 @@ public abstract class Dominators<T> {
   /**
    * a mapping from DFS number to node
    */
-  private final T[] vertex;
+  private T[] vertex;
 
   /**
    * a convenient place to locate the graph to avoid passing it internally
@@ -64,7 +69,6 @@ public abstract class Dominators<T> {
    * @param root The root from which to compute dominators
    * @throws IllegalArgumentException if G is null
    */
-  @SuppressWarnings("unchecked")
   public Dominators(Graph<T> G, T root) throws IllegalArgumentException {
     if (G == null) {
       throw new IllegalArgumentException("G is null");
@@ -74,7 +78,6 @@ public abstract class Dominators<T> {
     if (G.getNumberOfNodes() == 0) {
       throw new IllegalArgumentException("G has no nodes");
     }
-    this.vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
   }
 
   public static <T> Dominators<T> make(Graph<T> G, T root) {
@@ -85,6 +88,47 @@ public abstract class Dominators<T> {
     }
   }
 
+  /**
+   * Compute the dominators of many graphs, such as the control-flow graphs of all the methods of a program, on nThreads workers of
+   * executor. Each graph is read by a single worker, so the graphs need not be safe for concurrent use, but they must not share
+   * unsynchronized state with each other.
+   * 
+   * @param graphs the graphs to analyze
+   * @param roots roots.get(i) is the root from which to compute the dominators of graphs.get(i)
+   * @return a list whose ith element is the dominators of graphs.get(i)
+   * @throws IllegalArgumentException if the lists differ in length
+   */
+  public static <T> List<Dominators<T>> make(final List<? extends Graph<T>> graphs, final List<? extends T> roots,
+      ExecutorService executor, int nThreads) throws IllegalArgumentException {
+    if (graphs == null) {
+      throw new IllegalArgumentException("graphs is null");
+    }
+    if (roots == null || roots.size() != graphs.size()) {
+      throw new IllegalArgumentException("need one root per graph");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("illegal nThreads: " + nThreads);
+    }
+    final Object[] result = new Object[graphs.size()];
+    // graph sizes vary a lot, so the workers claim graphs one at a time rather than being dealt fixed shares
+    ParallelUtil.forEach(executor, nThreads, 0, result.length, new IntSetAction() {
+      @Override
+      public void act(int j) {
+        result[j] = make(graphs.get(j), roots.get(j));
+      }
+    });
+    List<Dominators<T>> doms = new ArrayList<Dominators<T>>(result.length);
+    for (Object d : result) {
+      @SuppressWarnings("unchecked")
+      Dominators<T> dom = (Dominators<T>) d;
+      doms.add(dom);
+    }
+    return doms;
+  }
+
   /**
    * is node dominated by master?
    */
@@ -243,10 +287,13 @@ public abstract class Dominators<T> {
   /**
    * analyze dominators
    */
+  @SuppressWarnings("unchecked")
   protected void analyze() {
     if (DEBUG)
       System.out.println("Dominators for " + G);
 
+    vertex = (T[]) new Object[G.getNumberOfNodes() + 1];
+
     // Step 1: Perform a DFS numbering
     step1();
 
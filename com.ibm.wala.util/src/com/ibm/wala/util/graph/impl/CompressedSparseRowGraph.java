@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.graph.impl;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.ibm.wala.util.collections.ObjectIntHashMap;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * An immutable snapshot of a {@link NumberedGraph} in compressed sparse row form: the successors of all nodes are laid out in one
+ * int array, sorted by node number and then by successor number, with a second array giving where the successors of each node
+ * begin; the predecessors likewise.
+ *
+ * Once a graph is fully built, a snapshot of it answers the usual queries from two pairs of flat arrays rather than from the
+ * vectors and int sets of the graph it was made from, so traversals touch less memory. The nodes keep the numbers they had in the
+ * original graph. For the hottest loops, {@link #getSuccNodeCount(int)} and {@link #getSuccNodeNumber(int, int)}, and their
+ * predecessor counterparts, walk the edges of a node without allocating anything.
+ *
+ * The snapshot does not track later changes to the original graph, and all operations that would change it throw
+ * {@link UnsupportedOperationException}.
+ */
+public class CompressedSparseRowGraph<T> implements NumberedGraph<T> {
+
+  /**
+   * the node with each number, or null if there is none
+   */
+  private final Object[] nodes;
+
+  private final ObjectIntHashMap<T> numbers;
+
+  private final int numberOfNodes;
+
+  /**
+   * the successors of node n are succTargets[succOffsets[n]] ... succTargets[succOffsets[n+1]-1]
+   */
+  private final int[] succOffsets;
+
+  private final int[] succTargets;
+
+  /**
+   * the predecessors of node n are predTargets[predOffsets[n]] ... predTargets[predOffsets[n+1]-1]
+   */
+  private final int[] predOffsets;
+
+  private final int[] predTargets;
+
+  private CompressedSparseRowGraph(Object[] nodes, ObjectIntHashMap<T> numbers, int numberOfNodes, int[] succOffsets,
+      int[] succTargets, int[] predOffsets, int[] predTargets) {
+    this.nodes = nodes;
+    this.numbers = numbers;
+    this.numberOfNodes = numberOfNodes;
+    this.succOffsets = succOffsets;
+    this.succTargets = succTargets;
+    this.predOffsets = predOffsets;
+    this.predTargets = predTargets;
+  }
+
+  /**
+   * @return a snapshot of the current nodes and edges of G
+   * @throws IllegalArgumentException if G is null
+   */
+  public static <T> CompressedSparseRowGraph<T> make(NumberedGraph<T> G) {
+    if (G == null) {
+      throw new IllegalArgumentException("G is null");
+    }
+    int maxNumber = G.getMaxNumber();
+    Object[] nodes = new Object[maxNumber + 1];
+    ObjectIntHashMap<T> numbers = new ObjectIntHashMap<T>(G.getNumberOfNodes(), -1);
+    int numberOfNodes = 0;
+    for (T n : G) {
+      int number = G.getNumber(n);
+      nodes[number] = n;
+      numbers.put(n, number);
+      numberOfNodes++;
+    }
+
+    // the successors of each node, in order of node number
+    int[] succOffsets = new int[maxNumber + 2];
+    int[] succTargets = new int[Math.max(16, 2 * numberOfNodes)];
+    int end = 0;
+    for (int i = 0; i <= maxNumber; i++) {
+      int start = end;
+      succOffsets[i] = start;
+      if (nodes[i] != null) {
+        @SuppressWarnings("unchecked")
+        T n = (T) nodes[i];
+        for (Iterator<? extends T> it = G.getSuccNodes(n); it.hasNext();) {
+          if (end == succTargets.length) {
+            succTargets = Arrays.copyOf(succTargets, 2 * end);
+          }
+          succTargets[end++] = G.getNumber(it.next());
+        }
+        // the graph's edge order is arbitrary, and a multigraph may repeat an edge
+        Arrays.sort(succTargets, start, end);
+        end = unique(succTargets, start, end);
+      }
+    }
+    succOffsets[maxNumber + 1] = end;
+    succTargets = Arrays.copyOf(succTargets, end);
+
+    // the predecessors are the transpose; filling them in order of source keeps each row sorted
+    int[] predOffsets = new int[maxNumber + 2];
+    for (int t : succTargets) {
+      predOffsets[t + 1]++;
+    }
+    for (int i = 0; i <= maxNumber; i++) {
+      predOffsets[i + 1] += predOffsets[i];
+    }
+    int[] predTargets = new int[succTargets.length];
+    int[] next = Arrays.copyOf(predOffsets, maxNumber + 1);
+    for (int i = 0; i <= maxNumber; i++) {
+      for (int j = succOffsets[i]; j < succOffsets[i + 1]; j++) {
+        predTargets[next[succTargets[j]]++] = i;
+      }
+    }
+    return new CompressedSparseRowGraph<T>(nodes, numbers, numberOfNodes, succOffsets, succTargets, predOffsets, predTargets);
+  }
+
+  /**
+   * squeeze out the duplicates in the sorted range a[start] ... a[end-1]
+   *
+   * @return the new end of the range
+   */
+  private static int unique(int[] a, int start, int end) {
+    if (end - start < 2) {
+      return end;
+    }
+    int last = start;
+    for (int i = start + 1; i < end; i++) {
+      if (a[i] != a[last]) {
+        a[++last] = a[i];
+      }
+    }
+    return last + 1;
+  }
+
+  /**
+   * @return a snapshot of this graph with every edge reversed; it shares the arrays of this one, so it is cheap to make
+   */
+  public CompressedSparseRowGraph<T> invert() {
+    return new CompressedSparseRowGraph<T>(nodes, numbers, numberOfNodes, predOffsets, predTargets, succOffsets, succTargets);
+  }
+
+  /**
+   * @return the number of the node n, checking that n is in this graph
+   */
+  private int checkedNumber(T n) {
+    if (n == null) {
+      throw new IllegalArgumentException("n is null");
+    }
+    int number = numbers.get(n);
+    if (number == -1) {
+      throw new IllegalArgumentException("node not in graph: " + n);
+    }
+    return number;
+  }
+
+  private void checkNumber(int number) {
+    if (number < 0 || number >= nodes.length || nodes[number] == null) {
+      throw new IllegalArgumentException("no node numbered " + number);
+    }
+  }
+
+  /**
+   * @return the number of successors of the node numbered number
+   */
+  public int getSuccNodeCount(int number) {
+    checkNumber(number);
+    return succOffsets[number + 1] - succOffsets[number];
+  }
+
+  /**
+   * @return the number of the i'th successor of the node numbered number, counting from 0 in increasing order of number
+   */
+  public int getSuccNodeNumber(int number, int i) {
+    if (i < 0 || i >= getSuccNodeCount(number)) {
+      throw new IllegalArgumentException("node " + number + " has no successor " + i);
+    }
+    return succTargets[succOffsets[number] + i];
+  }
+
+  /**
+   * @return the number of predecessors of the node numbered number
+   */
+  public int getPredNodeCount(int number) {
+    checkNumber(number);
+    return predOffsets[number + 1] - predOffsets[number];
+  }
+
+  /**
+   * @return the number of the i'th predecessor of the node numbered number, counting from 0 in increasing order of number
+   */
+  public int getPredNodeNumber(int number, int i) {
+    if (i < 0 || i >= getPredNodeCount(number)) {
+      throw new IllegalArgumentException("node " + number + " has no predecessor " + i);
+    }
+    return predTargets[predOffsets[number] + i];
+  }
+
+  /**
+   * @return the number of edges in this graph
+   */
+  public int getNumberOfEdges() {
+    return succTargets.length;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new NodeIterator(nodes, 0, nodes.length, false);
+  }
+
+  @Override
+  public int getNumberOfNodes() {
+    return numberOfNodes;
+  }
+
+  @Override
+  public boolean containsNode(T n) {
+    return numbers.containsKey(n);
+  }
+
+  @Override
+  public int getNumber(T N) {
+    return numbers.get(N);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T getNode(int number) {
+    return (number < 0 || number >= nodes.length) ? null : (T) nodes[number];
+  }
+
+  @Override
+  public int getMaxNumber() {
+    return nodes.length - 1;
+  }
+
+  @Override
+  public Iterator<T> iterateNodes(IntSet s) {
+    return new NumberedNodeIterator<T>(s, this);
+  }
+
+  @Override
+  public Iterator<T> getPredNodes(T n) {
+    int number = checkedNumber(n);
+    return new NodeIterator(predTargets, predOffsets[number], predOffsets[number + 1], true);
+  }
+
+  @Override
+  public int getPredNodeCount(T n) {
+    int number = checkedNumber(n);
+    return predOffsets[number + 1] - predOffsets[number];
+  }
+
+  @Override
+  public Iterator<T> getSuccNodes(T n) {
+    int number = checkedNumber(n);
+    return new NodeIterator(succTargets, succOffsets[number], succOffsets[number + 1], true);
+  }
+
+  @Override
+  public int getSuccNodeCount(T N) {
+    int number = checkedNumber(N);
+    return succOffsets[number + 1] - succOffsets[number];
+  }
+
+  /**
+   * @return a new set holding the numbers in the sorted range a[start] ... a[end-1]
+   */
+  private static IntSet toIntSet(int[] a, int start, int end) {
+    MutableSparseIntSet result = MutableSparseIntSet.createMutableSparseIntSet(Math.max(1, end - start));
+    for (int i = start; i < end; i++) {
+      result.add(a[i]);
+    }
+    return result;
+  }
+
+  /**
+   * This makes a new set each time; to walk the successors of a node without allocating, use {@link #getSuccNodeCount(int)} and
+   * {@link #getSuccNodeNumber(int, int)}.
+   */
+  @Override
+  public IntSet getSuccNodeNumbers(T node) {
+    int number = checkedNumber(node);
+    return toIntSet(succTargets, succOffsets[number], succOffsets[number + 1]);
+  }
+
+  /**
+   * This makes a new set each time; to walk the predecessors of a node without allocating, use {@link #getPredNodeCount(int)} and
+   * {@link #getPredNodeNumber(int, int)}.
+   */
+  @Override
+  public IntSet getPredNodeNumbers(T node) {
+    int number = checkedNumber(node);
+    return toIntSet(predTargets, predOffsets[number], predOffsets[number + 1]);
+  }
+
+  @Override
+  public boolean hasEdge(T src, T dst) {
+    int s = checkedNumber(src);
+    int d = checkedNumber(dst);
+    return IntSetUtil.binarySearch(succTargets, d, succOffsets[s], succOffsets[s + 1] - 1) >= 0;
+  }
+
+  @Override
+  public void addNode(T n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNode(T n) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNodeAndEdges(T n) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addEdge(T src, T dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge(T src, T dst) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAllIncidentEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeIncomingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeOutgoingEdges(T node) throws UnsupportedOperationException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < nodes.length; i++) {
+      if (nodes[i] != null) {
+        sb.append(nodes[i]).append(" -> ");
+        sb.append(toIntSet(succTargets, succOffsets[i], succOffsets[i + 1])).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * iterates over the nodes in a range of the node array, skipping holes, or over the nodes whose numbers are in a range of an
+   * edge array
+   */
+  private class NodeIterator implements Iterator<T> {
+    private final Object a;
+
+    private final boolean byNumber;
+
+    private final int end;
+
+    private int next;
+
+    NodeIterator(Object a, int start, int end, boolean byNumber) {
+      this.a = a;
+      this.next = start;
+      this.end = end;
+      this.byNumber = byNumber;
+      if (!byNumber) {
+        skipHoles();
+      }
+    }
+
+    private void skipHoles() {
+      Object[] n = (Object[]) a;
+      while (next < end && n[next] == null) {
+        next++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (next >= end) {
+        throw new NoSuchElementException();
+      }
+      if (byNumber) {
+        return (T) nodes[((int[]) a)[next++]];
+      } else {
+        T result = (T) ((Object[]) a)[next++];
+        skipHoles();
+        return result;
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -19,6 +19,9 @@ import com.ibm.wala.util.graph.NumberedGraph;
 public class GraphInverter {
 
   public static <T> NumberedGraph<T> invert(final NumberedGraph<T> G) {
+    if (G instanceof CompressedSparseRowGraph) {
+      return ((CompressedSparseRowGraph<T>) G).invert();
+    }
     return new InvertedNumberedGraph<T>(G);
   }
   
@@ -28,7 +31,7 @@ public class GraphInverter {
    */
   public static <T> Graph<T> invert(final Graph<T> G) {
     if (G instanceof NumberedGraph) {
-      return new InvertedNumberedGraph<T>((NumberedGraph<T>) G);
+      return invert((NumberedGraph<T>) G);
     } else {
       return new InvertedGraph<T>(G);
     }
@@ -14,17 +14,16 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import com.ibm.wala.util.Predicate;
 import com.ibm.wala.util.collections.FilterIterator;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.NonNullSingletonIterator;
+import com.ibm.wala.util.collections.ObjectIntHashMap;
 import com.ibm.wala.util.graph.Graph;
 import com.ibm.wala.util.graph.NumberedGraph;
 
@@ -103,14 +102,14 @@ public class DFS {
    * @return a sorted set of nodes in the graph in depth first order
    */
   public static <T> SortedSet<T> sortByDepthFirstOrder(Graph<T> G, T n) {
-    Map<T, Integer> order = HashMapFactory.make();
+    ObjectIntHashMap<T> order = new ObjectIntHashMap<T>();
     TreeSet<T> result = new TreeSet<T>(new DFSComparator<T>(order));
 
     Iterator<T> dfs = iterateFinishTime(G, new NonNullSingletonIterator<T>(n));
     int i = 0;
     while (dfs.hasNext()) {
       T nxt = dfs.next();
-      order.put(nxt, new Integer(i++));
+      order.put(nxt, i++);
       result.add(nxt);
     }
     return result;
@@ -120,9 +119,9 @@ public class DFS {
    * Comparator class to order the nodes in the DFS according to the depth first order
    */
   static class DFSComparator<T> implements Comparator<T> {
-    final private Map<T, Integer> order;
+    final private ObjectIntHashMap<T> order;
 
-    DFSComparator(Map<T, Integer> order) {
+    DFSComparator(ObjectIntHashMap<T> order) {
       this.order = order;
     }
 
@@ -132,10 +131,13 @@ public class DFS {
       if (o1 == o2) {
         return 0;
       }
-      Integer t1 = order.get(o1);
-      Integer t2 = order.get(o2);
+      int t1 = order.get(o1);
+      int t2 = order.get(o2);
       // throws an exception if either node has not been ordered
-      return (t1.intValue() - t2.intValue());
+      if (t1 == -1 || t2 == -1) {
+        throw new IllegalArgumentException("unordered node: " + (t1 == -1 ? o1 : o2));
+      }
+      return t1 - t2;
     }
   }
 
@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of integers represented as a binary decision diagram in a {@link BDDNodeTable}.
+ *
+ * The sets in one table share the nodes of their diagrams, so many large, similar sets, such as the points-to sets of a deeply
+ * context-sensitive analysis, take far less space than they would one at a time. Two sets from the same table have the same
+ * contents iff they have the same root, and the set operations between them take time in the size of the diagrams rather than in
+ * the number of members. Operations with sets of other kinds first build a diagram for the other set.
+ *
+ * This set holds only integers between 0 and {@link BDDNodeTable#maxElement()}. Its operations synchronize on the table.
+ */
+public class BDDMutableIntSet implements MutableIntSet {
+
+  private final BDDNodeTable table;
+
+  /**
+   * the root of the diagram for this set
+   */
+  int root = BDDNodeTable.FALSE;
+
+  /**
+   * cached number of members, or -1 if not known
+   */
+  private int size = 0;
+
+  public BDDMutableIntSet(BDDNodeTable table) {
+    if (table == null) {
+      throw new IllegalArgumentException("table is null");
+    }
+    this.table = table;
+    synchronized (table) {
+      table.register(this);
+    }
+  }
+
+  public BDDMutableIntSet(BDDMutableIntSet set) throws IllegalArgumentException {
+    this(tableOf(set));
+    synchronized (table) {
+      root = set.root;
+      size = set.size;
+    }
+  }
+
+  private static BDDNodeTable tableOf(BDDMutableIntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    return set.table;
+  }
+
+  public BDDNodeTable getTable() {
+    return table;
+  }
+
+  /**
+   * @return a set in this table to stand for set: set itself if it is a set in this table, or else its members in increasing
+   *         order. Sets in other tables are read here, outside the lock on this table.
+   */
+  private Object prepare(IntSet set) {
+    if (set instanceof BDDMutableIntSet && ((BDDMutableIntSet) set).table == table) {
+      return set;
+    }
+    return toSortedArray(set);
+  }
+
+  private static int[] toSortedArray(IntSet set) {
+    if (set instanceof SparseIntSet) {
+      SparseIntSet s = (SparseIntSet) set;
+      return s.size == 0 ? new int[0] : Arrays.copyOf(s.elements, s.size);
+    }
+    final int[] result = new int[set.size()];
+    set.foreach(new IntSetAction() {
+      private int index = 0;
+
+      @Override
+      public void act(int x) {
+        result[index++] = x;
+      }
+    });
+    // not every implementation enumerates its elements in order
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * @param prepared the result of {@link #prepare(IntSet)}
+   * @return the diagram for prepared; call this holding the lock on the table
+   */
+  private int diagram(Object prepared) {
+    if (prepared instanceof BDDMutableIntSet) {
+      return ((BDDMutableIntSet) prepared).root;
+    } else {
+      int[] elements = (int[]) prepared;
+      return table.fromSortedArray(elements, 0, elements.length);
+    }
+  }
+
+  /**
+   * @return the members of this set, in increasing order
+   */
+  private int[] toArray() {
+    synchronized (table) {
+      return table.toSortedArray(root);
+    }
+  }
+
+  /**
+   * change the diagram for this set
+   *
+   * @return true iff the contents of this set changed
+   */
+  private boolean setRoot(int newRoot) {
+    if (newRoot == root) {
+      return false;
+    }
+    root = newRoot;
+    size = -1;
+    return true;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    synchronized (table) {
+      return table.contains(root, i);
+    }
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    Object s = prepare(set);
+    synchronized (table) {
+      table.checkpoint();
+      return table.intersects(root, diagram(s));
+    }
+  }
+
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    Object s = prepare(that);
+    synchronized (table) {
+      table.checkpoint();
+      BDDMutableIntSet result = new BDDMutableIntSet(table);
+      result.setRoot(table.and(root, diagram(s)));
+      return result;
+    }
+  }
+
+  @Override
+  public IntSet union(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    Object s = prepare(that);
+    synchronized (table) {
+      table.checkpoint();
+      BDDMutableIntSet result = new BDDMutableIntSet(table);
+      result.setRoot(table.or(root, diagram(s)));
+      return result;
+    }
+  }
+
+  /**
+   * @return a new set holding the members of A not in B
+   */
+  public static BDDMutableIntSet diff(BDDMutableIntSet A, IntSet B) {
+    if (A == null) {
+      throw new IllegalArgumentException("A == null");
+    }
+    BDDMutableIntSet result = new BDDMutableIntSet(A);
+    result.removeAll(B);
+    return result;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    synchronized (table) {
+      return root == BDDNodeTable.FALSE;
+    }
+  }
+
+  @Override
+  public int size() {
+    synchronized (table) {
+      if (size == -1) {
+        size = table.size(root);
+      }
+      return size;
+    }
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    final int[] elements = toArray();
+    return new IntIterator() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < elements.length;
+      }
+
+      @Override
+      public int next() throws NoSuchElementException {
+        if (index >= elements.length) {
+          throw new NoSuchElementException();
+        }
+        return elements[index++];
+      }
+    };
+  }
+
+  /**
+   * The members are found first, so action may change this set.
+   */
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int x : toArray()) {
+      action.act(x);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("X == null");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    Object s = prepare(X);
+    int[] elements;
+    synchronized (table) {
+      table.checkpoint();
+      elements = table.toSortedArray(table.diff(root, diagram(s)));
+    }
+    for (int x : elements) {
+      action.act(x);
+    }
+  }
+
+  @Override
+  public int max() {
+    synchronized (table) {
+      return table.max(root);
+    }
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    Object s = prepare(that);
+    synchronized (table) {
+      table.checkpoint();
+      return root == diagram(s);
+    }
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    Object s = prepare(that);
+    synchronized (table) {
+      table.checkpoint();
+      return table.diff(root, diagram(s)) == BDDNodeTable.FALSE;
+    }
+  }
+
+  @Override
+  public void copySet(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    Object s = prepare(set);
+    synchronized (table) {
+      table.checkpoint();
+      setRoot(diagram(s));
+    }
+  }
+
+  @Override
+  public boolean addAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    Object s = prepare(set);
+    synchronized (table) {
+      table.checkpoint();
+      return setRoot(table.or(root, diagram(s)));
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if i is out of the range of the table
+   */
+  @Override
+  public boolean add(int i) {
+    synchronized (table) {
+      if (table.contains(root, i)) {
+        return false;
+      }
+      table.checkpoint();
+      int oldSize = size;
+      setRoot(table.or(root, table.singleton(i)));
+      if (oldSize != -1) {
+        size = oldSize + 1;
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public boolean remove(int i) {
+    synchronized (table) {
+      if (!table.contains(root, i)) {
+        return false;
+      }
+      table.checkpoint();
+      int oldSize = size;
+      setRoot(table.diff(root, table.singleton(i)));
+      if (oldSize != -1) {
+        size = oldSize - 1;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Remove all members of set from this set.
+   *
+   * @return this
+   */
+  public BDDMutableIntSet removeAll(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    Object s = prepare(set);
+    synchronized (table) {
+      table.checkpoint();
+      setRoot(table.diff(root, diagram(s)));
+    }
+    return this;
+  }
+
+  @Override
+  public void clear() {
+    synchronized (table) {
+      root = BDDNodeTable.FALSE;
+      size = 0;
+    }
+  }
+
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    Object s = prepare(set);
+    synchronized (table) {
+      table.checkpoint();
+      setRoot(table.and(root, diagram(s)));
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    Object o = prepare(other);
+    Object f = prepare(filter);
+    synchronized (table) {
+      table.checkpoint();
+      return setRoot(table.or(root, table.and(diagram(o), diagram(f))));
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer("{ ");
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      sb.append(it.next());
+      sb.append(" ");
+    }
+    sb.append("}");
+    return sb.toString();
+  }
+}
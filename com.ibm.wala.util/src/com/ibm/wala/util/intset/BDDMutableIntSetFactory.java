@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+
+/**
+ * Creates {@link BDDMutableIntSet}s, all in one {@link BDDNodeTable}, so that they share structure.
+ */
+public class BDDMutableIntSetFactory implements MutableIntSetFactory<BDDMutableIntSet> {
+
+  private final BDDNodeTable table;
+
+  /**
+   * a factory for sets of any non-negative integers
+   */
+  public BDDMutableIntSetFactory() {
+    this(31);
+  }
+
+  /**
+   * @param bits the number of bits in the members of the sets; fewer bits make smaller diagrams
+   */
+  public BDDMutableIntSetFactory(int bits) {
+    this(new BDDNodeTable(bits));
+  }
+
+  public BDDMutableIntSetFactory(BDDNodeTable table) {
+    if (table == null) {
+      throw new IllegalArgumentException("table is null");
+    }
+    this.table = table;
+  }
+
+  public BDDNodeTable getTable() {
+    return table;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public BDDMutableIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    int[] sorted = set.clone();
+    Arrays.sort(sorted);
+    BDDMutableIntSet result = new BDDMutableIntSet(table);
+    result.copySet(new SparseIntSet(unique(sorted)));
+    return result;
+  }
+
+  /**
+   * @return the distinct values in sorted
+   */
+  private static int[] unique(int[] sorted) {
+    int n = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (n == 0 || sorted[n - 1] != sorted[i]) {
+        sorted[n++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, n);
+  }
+
+  @Override
+  public BDDMutableIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#makeCopy(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public BDDMutableIntSet makeCopy(IntSet x) {
+    if (x == null) {
+      throw new IllegalArgumentException("x is null");
+    }
+    BDDMutableIntSet result = new BDDMutableIntSet(table);
+    result.copySet(x);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make()
+   */
+  @Override
+  public BDDMutableIntSet make() {
+    return new BDDMutableIntSet(table);
+  }
+}
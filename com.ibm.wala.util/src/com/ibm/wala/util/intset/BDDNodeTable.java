@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+
+/**
+ * A table of reduced, ordered binary decision diagrams over a fixed number of boolean variables, after Bryant.
+ *
+ * Each diagram is named by the index of its root node. Nodes are hash-consed, so two diagrams for the same boolean function are
+ * the same node, and diagrams share whatever sub-diagrams they have in common. Here a diagram stands for a set of non-negative
+ * integers: variable 0 is the most significant of {@link #getNumberOfVariables()} bits, and the diagram holds the integers whose
+ * bits satisfy it.
+ *
+ * Nodes no longer reachable from a live {@link BDDMutableIntSet} are reclaimed by a mark-and-sweep collection, which happens only
+ * at the start of a set operation, so that the intermediate results of an operation are never collected. The table is not
+ * thread-safe; the sets synchronize on it.
+ */
+public class BDDNodeTable {
+
+  /**
+   * the diagram for the empty set
+   */
+  public static final int FALSE = 0;
+
+  /**
+   * the diagram for every integer with the given number of bits
+   */
+  public static final int TRUE = 1;
+
+  private static final int AND = 0;
+
+  private static final int OR = 1;
+
+  private static final int DIFF = 2;
+
+  /**
+   * level of a node on the free list
+   */
+  private static final int FREE = -1;
+
+  private static final int INITIAL_CAPACITY = 1 << 12;
+
+  private static final int CACHE_SIZE = 1 << 16;
+
+  /**
+   * don't bother collecting garbage from a table smaller than this
+   */
+  private static final int MIN_COLLECT = 1 << 16;
+
+  private final int numVars;
+
+  /**
+   * variable tested by each node; numVars for the terminals, {@link #FREE} for free nodes
+   */
+  private int[] level;
+
+  private int[] low;
+
+  private int[] high;
+
+  /**
+   * next node in the same bucket of the unique table, or in the free list
+   */
+  private int[] next;
+
+  /**
+   * first node in each bucket of the unique table, or -1
+   */
+  private int[] buckets;
+
+  private int freeList = -1;
+
+  private int nodesInUse;
+
+  /**
+   * a direct-mapped cache of the results of binary operations
+   */
+  private final int[] cacheOp = new int[CACHE_SIZE];
+
+  private final int[] cacheA = new int[CACHE_SIZE];
+
+  private final int[] cacheB = new int[CACHE_SIZE];
+
+  private final int[] cacheResult = new int[CACHE_SIZE];
+
+  /**
+   * the sets whose diagrams must survive a collection
+   */
+  private final List<WeakReference<BDDMutableIntSet>> roots = new ArrayList<WeakReference<BDDMutableIntSet>>();
+
+  /**
+   * when there are this many roots, drop those whose sets are gone
+   */
+  private int rootsLimit = 1024;
+
+  private int collections = 0;
+
+  /**
+   * @param numVars the number of bits in the integers of the sets; at most 31
+   * @throws IllegalArgumentException if numVars is not between 1 and 31
+   */
+  public BDDNodeTable(int numVars) {
+    if (numVars < 1 || numVars > 31) {
+      throw new IllegalArgumentException("illegal number of variables " + numVars);
+    }
+    this.numVars = numVars;
+    allocate(INITIAL_CAPACITY);
+    level[FALSE] = level[TRUE] = numVars;
+    nodesInUse = 2;
+    free(TRUE + 1, INITIAL_CAPACITY);
+    clearCache();
+  }
+
+  private void allocate(int capacity) {
+    level = new int[capacity];
+    low = new int[capacity];
+    high = new int[capacity];
+    next = new int[capacity];
+    buckets = new int[capacity];
+    Arrays.fill(buckets, -1);
+  }
+
+  /**
+   * put the nodes from, ..., to-1 on the free list
+   */
+  private void free(int from, int to) {
+    for (int n = to - 1; n >= from; n--) {
+      level[n] = FREE;
+      next[n] = freeList;
+      freeList = n;
+    }
+  }
+
+  public int getNumberOfVariables() {
+    return numVars;
+  }
+
+  /**
+   * @return the number of nodes currently allocated, including the terminals
+   */
+  public int getNumberOfNodes() {
+    return nodesInUse;
+  }
+
+  /**
+   * @return the number of garbage collections so far
+   */
+  public int getNumberOfCollections() {
+    return collections;
+  }
+
+  /**
+   * @return the largest integer a diagram in this table can hold
+   */
+  public int maxElement() {
+    return (int) ((1L << numVars) - 1);
+  }
+
+  private int hash(int lvl, int lo, int hi) {
+    int h = lvl * 0x9E3779B1 + lo * 0x85EBCA6B + hi * 0xC2B2AE35;
+    return (h ^ (h >>> 15)) & (buckets.length - 1);
+  }
+
+  /**
+   * @return the node testing variable lvl, with the given children
+   */
+  private int makeNode(int lvl, int lo, int hi) {
+    if (lo == hi) {
+      return lo;
+    }
+    int h = hash(lvl, lo, hi);
+    for (int n = buckets[h]; n != -1; n = next[n]) {
+      if (level[n] == lvl && low[n] == lo && high[n] == hi) {
+        return n;
+      }
+    }
+    if (freeList == -1) {
+      grow();
+      h = hash(lvl, lo, hi);
+    }
+    int n = freeList;
+    freeList = next[n];
+    level[n] = lvl;
+    low[n] = lo;
+    high[n] = hi;
+    next[n] = buckets[h];
+    buckets[h] = n;
+    nodesInUse++;
+    return n;
+  }
+
+  private void grow() {
+    int oldCapacity = level.length;
+    int[] oldLevel = level;
+    int[] oldLow = low;
+    int[] oldHigh = high;
+    allocate(2 * oldCapacity);
+    System.arraycopy(oldLevel, 0, level, 0, oldCapacity);
+    System.arraycopy(oldLow, 0, low, 0, oldCapacity);
+    System.arraycopy(oldHigh, 0, high, 0, oldCapacity);
+    freeList = -1;
+    free(oldCapacity, level.length);
+    for (int n = oldCapacity - 1; n > TRUE; n--) {
+      if (level[n] == FREE) {
+        next[n] = freeList;
+        freeList = n;
+      } else {
+        int h = hash(level[n], low[n], high[n]);
+        next[n] = buckets[h];
+        buckets[h] = n;
+      }
+    }
+  }
+
+  private void clearCache() {
+    Arrays.fill(cacheOp, -1);
+  }
+
+  private static int cacheIndex(int op, int a, int b) {
+    int h = (a * 0x9E3779B1) ^ (b * 0x85EBCA6B) ^ op;
+    return (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+  }
+
+  /**
+   * Record that set's diagram must survive garbage collection, for as long as set is reachable.
+   */
+  void register(BDDMutableIntSet set) {
+    if (roots.size() >= rootsLimit) {
+      purgeRoots(null);
+      rootsLimit = Math.max(1024, 2 * roots.size());
+    }
+    roots.add(new WeakReference<BDDMutableIntSet>(set));
+  }
+
+  /**
+   * drop the roots whose sets are gone, and mark the diagrams of the others, if mark is not null
+   */
+  private void purgeRoots(boolean[] mark) {
+    int live = 0;
+    for (int i = 0; i < roots.size(); i++) {
+      BDDMutableIntSet s = roots.get(i).get();
+      if (s != null) {
+        if (mark != null) {
+          mark(s.root, mark);
+        }
+        roots.set(live++, roots.get(i));
+      }
+    }
+    for (int i = roots.size() - 1; i >= live; i--) {
+      roots.remove(i);
+    }
+  }
+
+  /**
+   * Called at the start of every set operation, when no diagram is held except by a set: collect garbage if the table is nearly
+   * full.
+   */
+  void checkpoint() {
+    if (level.length < MIN_COLLECT || nodesInUse < level.length - (level.length >> 3)) {
+      return;
+    }
+    collect();
+    if (nodesInUse > level.length / 2) {
+      // avoid collecting again soon
+      grow();
+    }
+  }
+
+  /**
+   * Reclaim every node not reachable from the diagram of a live set. Any other diagram is lost.
+   */
+  public void collect() {
+    boolean[] mark = new boolean[level.length];
+    mark[FALSE] = mark[TRUE] = true;
+    purgeRoots(mark);
+    freeList = -1;
+    nodesInUse = 2;
+    Arrays.fill(buckets, -1);
+    for (int n = level.length - 1; n > TRUE; n--) {
+      if (mark[n]) {
+        int h = hash(level[n], low[n], high[n]);
+        next[n] = buckets[h];
+        buckets[h] = n;
+        nodesInUse++;
+      } else {
+        free(n, n + 1);
+      }
+    }
+    clearCache();
+    collections++;
+  }
+
+  private void mark(int n, boolean[] mark) {
+    while (!mark[n]) {
+      mark[n] = true;
+      mark(low[n], mark);
+      n = high[n];
+    }
+  }
+
+  public int and(int a, int b) {
+    return apply(AND, a, b);
+  }
+
+  public int or(int a, int b) {
+    return apply(OR, a, b);
+  }
+
+  /**
+   * @return the diagram for a and not b
+   */
+  public int diff(int a, int b) {
+    return apply(DIFF, a, b);
+  }
+
+  private int apply(int op, int a, int b) {
+    switch (op) {
+    case AND:
+      if (a == FALSE || b == FALSE) {
+        return FALSE;
+      }
+      if (a == TRUE || a == b) {
+        return b;
+      }
+      if (b == TRUE) {
+        return a;
+      }
+      break;
+    case OR:
+      if (a == TRUE || b == TRUE) {
+        return TRUE;
+      }
+      if (a == FALSE || a == b) {
+        return b;
+      }
+      if (b == FALSE) {
+        return a;
+      }
+      break;
+    case DIFF:
+      if (a == FALSE || b == TRUE || a == b) {
+        return FALSE;
+      }
+      if (b == FALSE) {
+        return a;
+      }
+      break;
+    }
+    if (op != DIFF && a > b) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    int c = cacheIndex(op, a, b);
+    if (cacheOp[c] == op && cacheA[c] == a && cacheB[c] == b) {
+      return cacheResult[c];
+    }
+    int la = level[a];
+    int lb = level[b];
+    int l = Math.min(la, lb);
+    int r0 = apply(op, la == l ? low[a] : a, lb == l ? low[b] : b);
+    int r1 = apply(op, la == l ? high[a] : a, lb == l ? high[b] : b);
+    int result = makeNode(l, r0, r1);
+    // growing the table does not disturb the cache
+    cacheOp[c] = op;
+    cacheA[c] = a;
+    cacheB[c] = b;
+    cacheResult[c] = result;
+    return result;
+  }
+
+  private int bit(int lvl) {
+    return 1 << (numVars - 1 - lvl);
+  }
+
+  /**
+   * @throws IllegalArgumentException if x does not fit in the variables of this table
+   */
+  private void check(int x) {
+    if (x < 0 || x > maxElement()) {
+      throw new IllegalArgumentException("element out of range: " + x);
+    }
+  }
+
+  /**
+   * @return the diagram for the set { x }
+   */
+  public int singleton(int x) {
+    check(x);
+    int result = TRUE;
+    for (int lvl = numVars - 1; lvl >= 0; lvl--) {
+      result = (x & bit(lvl)) == 0 ? makeNode(lvl, result, FALSE) : makeNode(lvl, FALSE, result);
+    }
+    return result;
+  }
+
+  /**
+   * @param elements distinct integers in increasing order
+   * @return the diagram for the set of elements[from] ... elements[to-1]
+   */
+  public int fromSortedArray(int[] elements, int from, int to) {
+    if (from < to) {
+      check(elements[from]);
+      check(elements[to - 1]);
+    }
+    return build(elements, from, to, 0);
+  }
+
+  /**
+   * build the diagram for elements[from,to), which all have the same bits above lvl
+   */
+  private int build(int[] elements, int from, int to, int lvl) {
+    if (from == to) {
+      return FALSE;
+    }
+    if (lvl == numVars) {
+      return TRUE;
+    }
+    int bit = bit(lvl);
+    // the first element with this bit set
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if ((elements[mid] & bit) == 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    int r0 = build(elements, from, lo, lvl + 1);
+    int r1 = build(elements, lo, to, lvl + 1);
+    return makeNode(lvl, r0, r1);
+  }
+
+  public boolean contains(int root, int x) {
+    if (x < 0 || x > maxElement()) {
+      return false;
+    }
+    int n = root;
+    while (n > TRUE) {
+      n = (x & bit(level[n])) == 0 ? low[n] : high[n];
+    }
+    return n == TRUE;
+  }
+
+  /**
+   * @return the largest integer in the set, or -1 if it is empty
+   */
+  public int max(int root) {
+    if (root == FALSE) {
+      return -1;
+    }
+    int result = 0;
+    int n = root;
+    for (int lvl = 0; lvl < numVars; lvl++) {
+      if (level[n] > lvl) {
+        // either value of this bit will do
+        result |= bit(lvl);
+      } else if (high[n] != FALSE) {
+        result |= bit(lvl);
+        n = high[n];
+      } else {
+        n = low[n];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of integers in the set
+   */
+  public int size(int root) {
+    // the variables above the root may take either value
+    long result = count(root, HashMapFactory.<Integer, Long> make()) << level[root];
+    return (int) Math.min(result, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return the number of assignments to the variables from level[n] on that satisfy n
+   */
+  private long count(int n, Map<Integer, Long> memo) {
+    if (n == FALSE) {
+      return 0;
+    }
+    if (n == TRUE) {
+      return 1;
+    }
+    Long m = memo.get(n);
+    if (m != null) {
+      return m;
+    }
+    int lvl = level[n];
+    long result = (count(low[n], memo) << (level[low[n]] - lvl - 1)) + (count(high[n], memo) << (level[high[n]] - lvl - 1));
+    memo.put(n, result);
+    return result;
+  }
+
+  /**
+   * @return the integers in the set, in increasing order
+   */
+  public int[] toSortedArray(int root) {
+    int[] result = new int[size(root)];
+    enumerate(root, 0, 0, result, 0);
+    return result;
+  }
+
+  private int enumerate(int n, int lvl, int prefix, int[] result, int index) {
+    if (n == FALSE) {
+      return index;
+    }
+    if (lvl == numVars) {
+      result[index] = prefix;
+      return index + 1;
+    }
+    if (level[n] > lvl) {
+      index = enumerate(n, lvl + 1, prefix, result, index);
+      return enumerate(n, lvl + 1, prefix | bit(lvl), result, index);
+    } else {
+      index = enumerate(low[n], lvl + 1, prefix, result, index);
+      return enumerate(high[n], lvl + 1, prefix | bit(lvl), result, index);
+    }
+  }
+
+  /**
+   * @return true iff a and b have a member in common
+   */
+  public boolean intersects(int a, int b) {
+    return apply(AND, a, b) != FALSE;
+  }
+}
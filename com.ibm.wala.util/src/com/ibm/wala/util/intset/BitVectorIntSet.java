@@ -361,7 +361,8 @@ public final class BitVectorIntSet implements MutableIntSet {
     if (that instanceof BitVectorIntSet) {
       BitVectorIntSet b = (BitVectorIntSet) that;
       return bitVector.sameBits(b.bitVector);
-    } else if (that instanceof BimodalMutableIntSet) {
+    } else if (that instanceof BimodalMutableIntSet || that instanceof RoaringMutableIntSet
+        || that instanceof BDDMutableIntSet) {
       return that.sameValue(this);
     } else if (that instanceof SparseIntSet) {
       return sameValueInternal((SparseIntSet) that);
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+
+/**
+ * A hash-consed store of int sets: for each distinct set of integers, the repository holds one canonical representative, so two
+ * sets found in the same repository have the same contents iff they are the same object.
+ *
+ * Unlike {@link BitVectorRepository}, sharing is exact, and a repository is an ordinary object whose sets live as long as it does,
+ * rather than a global table. The canonical sets are {@link MutableSparseIntSet}s backed by arrays of exactly the right size; as
+ * with the shared bit vectors, clients must never modify them.
+ */
+public class IntSetRepository {
+
+  private final static int INITIAL_CAPACITY = 64;
+
+  /**
+   * the canonical sets, in an open-addressed table with linear probing
+   */
+  private MutableSparseIntSet[] table = new MutableSparseIntSet[INITIAL_CAPACITY];
+
+  /**
+   * hash code of the set in each occupied slot of the table
+   */
+  private int[] hashes = new int[INITIAL_CAPACITY];
+
+  /**
+   * the number of canonical sets
+   */
+  private int size = 0;
+
+  /**
+   * @return the canonical set in this repository with the same contents as value, adding a copy of value if there is none
+   * @throws IllegalArgumentException if value is null
+   */
+  public synchronized MutableSparseIntSet findOrCreate(IntSet value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value is null");
+    }
+    int[] elements = toSortedArray(value);
+    int h = hash(elements);
+    int mask = table.length - 1;
+    int i = h & mask;
+    while (table[i] != null) {
+      if (hashes[i] == h && same(table[i], elements)) {
+        return table[i];
+      }
+      i = (i + 1) & mask;
+    }
+    MutableSparseIntSet result = new MutableSparseIntSet(elements);
+    table[i] = result;
+    hashes[i] = h;
+    size++;
+    if (2 * size > table.length) {
+      grow();
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of distinct sets in this repository
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  private static int[] toSortedArray(IntSet value) {
+    if (value instanceof SparseIntSet) {
+      SparseIntSet s = (SparseIntSet) value;
+      int[] result = new int[s.size];
+      if (s.size > 0) {
+        System.arraycopy(s.elements, 0, result, 0, s.size);
+      }
+      return result;
+    }
+    final int[] result = new int[value.size()];
+    value.foreach(new IntSetAction() {
+      private int index = 0;
+
+      @Override
+      public void act(int x) {
+        result[index++] = x;
+      }
+    });
+    // not every implementation enumerates its elements in order
+    Arrays.sort(result);
+    return result;
+  }
+
+  private static int hash(int[] elements) {
+    int h = elements.length;
+    for (int x : elements) {
+      h = 31 * h + x;
+    }
+    // spread the bits, since the table is indexed by the low ones
+    h ^= (h >>> 16);
+    h *= 0x85ebca6b;
+    h ^= (h >>> 13);
+    return h;
+  }
+
+  private static boolean same(SparseIntSet s, int[] elements) {
+    if (s.size != elements.length) {
+      return false;
+    }
+    for (int i = 0; i < elements.length; i++) {
+      if (s.elements[i] != elements[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    MutableSparseIntSet[] oldTable = table;
+    int[] oldHashes = hashes;
+    table = new MutableSparseIntSet[2 * oldTable.length];
+    hashes = new int[table.length];
+    int mask = table.length - 1;
+    for (int j = 0; j < oldTable.length; j++) {
+      if (oldTable[j] != null) {
+        int i = oldHashes[j] & mask;
+        while (table[i] != null) {
+          i = (i + 1) & mask;
+        }
+        table[i] = oldTable[j];
+        hashes[i] = oldHashes[j];
+      }
+    }
+  }
+}
@@ -351,7 +351,8 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       return that.sameValue(makeSparseCopy());
     } else if (that instanceof BitVectorIntSet) {
       return sameValue((BitVectorIntSet) that);
-    } else if (that instanceof SemiSparseMutableIntSet) {
+    } else if (that instanceof SemiSparseMutableIntSet || that instanceof RoaringMutableIntSet
+        || that instanceof BDDMutableIntSet) {
       return that.sameValue(this);
     } else {
       Assertions.UNREACHABLE("unexpected class " + that.getClass());
@@ -51,6 +51,10 @@ public class OrdinalSet<T> implements Iterable<T> {
     if (S == null || that.S == null) {
       return false;
     }
+    if (S == that.S) {
+      // common for hash-consed points-to sets
+      return !S.isEmpty();
+    }
     return S.containsAny(that.S);
   }
 
@@ -0,0 +1,1561 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed bitmap, after the "Roaring" representation of Chambi, Lemire et al.
+ *
+ * The non-negative ints are split into chunks of 2^16 by their high 16 bits. Each chunk that holds at least one member of the set
+ * has a container for the low 16 bits of its members, which is one of
+ * <ul>
+ * <li>a sorted array, when the chunk holds at most {@link #ARRAY_MAX} members,
+ * <li>a bitmap of 2^16 bits, when it holds more, or
+ * <li>a list of runs of consecutive members, when that is smaller than either; see {@link #runOptimize()}.
+ * </ul>
+ * So sparse sets spread over a wide range cost about two bytes per member, dense ones about a bit per member, and the set operations
+ * between two such sets work a chunk at a time, on machine words where the chunks are bitmaps.
+ *
+ * This set holds only non-negative integers.
+ */
+public class RoaringMutableIntSet implements MutableIntSet {
+
+  /**
+   * the most members held in an array container; beyond this a bitmap is smaller
+   */
+  static final int ARRAY_MAX = 4096;
+
+  /**
+   * number of longs in a bitmap container
+   */
+  private static final int BITMAP_WORDS = 1024;
+
+  private static final char[] NO_KEYS = new char[0];
+
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  /**
+   * high 16 bits of the members of each chunk, in increasing order
+   */
+  private char[] keys;
+
+  /**
+   * containers[i] holds the low 16 bits of the members whose high bits are keys[i]; none is empty
+   */
+  private Container[] containers;
+
+  /**
+   * number of chunks in use
+   */
+  private int size;
+
+  public RoaringMutableIntSet() {
+    keys = NO_KEYS;
+    containers = NO_CONTAINERS;
+  }
+
+  public RoaringMutableIntSet(RoaringMutableIntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    copySet(set);
+  }
+
+  private static int highBits(int i) {
+    return i >>> 16;
+  }
+
+  private static char lowBits(int i) {
+    return (char) i;
+  }
+
+  /**
+   * @return the index of the chunk for key, or (-(insertion point) - 1) if there is none
+   */
+  private int find(int key) {
+    // the common cases: the set is being filled in increasing order, or holds a single chunk
+    if (size > 0 && keys[size - 1] == key) {
+      return size - 1;
+    }
+    return Arrays.binarySearch(keys, 0, size, (char) key);
+  }
+
+  private void insertChunk(int index, int key, Container c) {
+    if (size == keys.length) {
+      int newLength = size == 0 ? 4 : size * 2;
+      keys = Arrays.copyOf(keys, newLength);
+      containers = Arrays.copyOf(containers, newLength);
+    }
+    if (index < size) {
+      System.arraycopy(keys, index, keys, index + 1, size - index);
+      System.arraycopy(containers, index, containers, index + 1, size - index);
+    }
+    keys[index] = (char) key;
+    containers[index] = c;
+    size++;
+  }
+
+  private void removeChunk(int index) {
+    if (index < size - 1) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+    }
+    size--;
+    containers[size] = null;
+  }
+
+  /**
+   * Append a chunk with a key greater than any already here.
+   */
+  private void appendChunk(int key, Container c) {
+    insertChunk(size, key, c);
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = find(highBits(i));
+    return index >= 0 && containers[index].contains(lowBits(i));
+  }
+
+  /**
+   * @throws IllegalArgumentException if i is negative
+   */
+  @Override
+  public boolean add(int i) {
+    if (i < 0) {
+      throw new IllegalArgumentException("negative element " + i);
+    }
+    int key = highBits(i);
+    int index = find(key);
+    if (index >= 0) {
+      Container c = containers[index];
+      int before = c.cardinality();
+      c = c.add(lowBits(i));
+      containers[index] = c;
+      return c.cardinality() != before;
+    } else {
+      ArrayContainer c = new ArrayContainer(4);
+      c.add(lowBits(i));
+      insertChunk(-index - 1, key, c);
+      return true;
+    }
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = find(highBits(i));
+    if (index < 0) {
+      return false;
+    }
+    Container c = containers[index];
+    int before = c.cardinality();
+    c = c.remove(lowBits(i));
+    if (c.cardinality() == before) {
+      return false;
+    }
+    if (c.cardinality() == 0) {
+      removeChunk(index);
+    } else {
+      containers[index] = c;
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    keys = NO_KEYS;
+    containers = NO_CONTAINERS;
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    int result = 0;
+    for (int i = 0; i < size; i++) {
+      result += containers[i].cardinality();
+    }
+    return result;
+  }
+
+  @Override
+  public int max() {
+    if (size == 0) {
+      return -1;
+    }
+    return (keys[size - 1] << 16) | containers[size - 1].last();
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public void copySet(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) set;
+      keys = Arrays.copyOf(r.keys, r.size);
+      containers = new Container[r.size];
+      for (int i = 0; i < r.size; i++) {
+        containers[i] = r.containers[i].copy();
+      }
+      size = r.size;
+    } else {
+      clear();
+      addAll(set);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public boolean addAll(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      return addAllInternal((RoaringMutableIntSet) set);
+    } else {
+      boolean result = false;
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        result |= add(it.next());
+      }
+      return result;
+    }
+  }
+
+  private boolean addAllInternal(RoaringMutableIntSet that) {
+    if (that == this || that.size == 0) {
+      return false;
+    }
+    boolean changed = false;
+    // count the chunks of that which are not here
+    int missing = 0;
+    for (int i = 0, j = 0; j < that.size;) {
+      if (i == size || that.keys[j] < keys[i]) {
+        missing++;
+        j++;
+      } else if (that.keys[j] == keys[i]) {
+        i++;
+        j++;
+      } else {
+        i++;
+      }
+    }
+    if (missing == 0) {
+      for (int i = 0, j = 0; j < that.size; i++) {
+        if (keys[i] == that.keys[j]) {
+          Container c = containers[i];
+          int before = c.cardinality();
+          c = ior(c, that.containers[j]);
+          containers[i] = c;
+          changed |= c.cardinality() != before;
+          j++;
+        }
+      }
+      return changed;
+    }
+    char[] newKeys = new char[size + missing];
+    Container[] newContainers = new Container[size + missing];
+    int i = 0, j = 0, k = 0;
+    while (i < size || j < that.size) {
+      if (j == that.size || (i < size && keys[i] < that.keys[j])) {
+        newKeys[k] = keys[i];
+        newContainers[k++] = containers[i++];
+      } else if (i == size || that.keys[j] < keys[i]) {
+        newKeys[k] = that.keys[j];
+        newContainers[k++] = that.containers[j++].copy();
+      } else {
+        Container c = containers[i];
+        int before = c.cardinality();
+        c = ior(c, that.containers[j]);
+        changed |= c.cardinality() != before;
+        newKeys[k] = keys[i];
+        newContainers[k++] = c;
+        i++;
+        j++;
+      }
+    }
+    keys = newKeys;
+    containers = newContainers;
+    size = k;
+    return true;
+  }
+
+  /**
+   * This implementation does not despoil the value of this.
+   */
+  @Override
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) that;
+      for (int i = 0, j = 0; i < size && j < r.size;) {
+        if (keys[i] < r.keys[j]) {
+          i++;
+        } else if (keys[i] > r.keys[j]) {
+          j++;
+        } else {
+          Container c = and(containers[i], r.containers[j]);
+          if (c.cardinality() > 0) {
+            result.appendChunk(keys[i], c);
+          }
+          i++;
+          j++;
+        }
+      }
+    } else {
+      // iterating in increasing order means each add goes to the last chunk
+      IntSet smaller = that.size() < size() ? that : this;
+      IntSet larger = smaller == this ? that : this;
+      for (IntIterator it = smaller.intIterator(); it.hasNext();) {
+        int x = it.next();
+        if (larger.contains(x)) {
+          result.add(x);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * This implementation does not despoil the value of this.
+   */
+  @Override
+  public IntSet union(IntSet that) {
+    RoaringMutableIntSet result = new RoaringMutableIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public void intersectWith(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) set;
+      int k = 0;
+      for (int i = 0, j = 0; i < size && j < r.size;) {
+        if (keys[i] < r.keys[j]) {
+          i++;
+        } else if (keys[i] > r.keys[j]) {
+          j++;
+        } else {
+          Container c = iand(containers[i], r.containers[j]);
+          if (c.cardinality() > 0) {
+            keys[k] = keys[i];
+            containers[k++] = c;
+          }
+          i++;
+          j++;
+        }
+      }
+      Arrays.fill(containers, k, size, null);
+      size = k;
+    } else {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) intersection(set);
+      keys = r.keys;
+      containers = r.containers;
+      size = r.size;
+    }
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (other == null) {
+      throw new IllegalArgumentException("other == null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("filter == null");
+    }
+    if (other instanceof RoaringMutableIntSet) {
+      return addAllInternal((RoaringMutableIntSet) other.intersection(filter));
+    } else {
+      boolean result = false;
+      for (IntIterator it = other.intIterator(); it.hasNext();) {
+        int x = it.next();
+        if (filter.contains(x)) {
+          result |= add(x);
+        }
+      }
+      return result;
+    }
+  }
+
+  @Override
+  public boolean containsAny(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) set;
+      for (int i = 0, j = 0; i < size && j < r.size;) {
+        if (keys[i] < r.keys[j]) {
+          i++;
+        } else if (keys[i] > r.keys[j]) {
+          j++;
+        } else {
+          if (intersects(containers[i], r.containers[j])) {
+            return true;
+          }
+          i++;
+          j++;
+        }
+      }
+      return false;
+    } else {
+      for (IntIterator it = set.intIterator(); it.hasNext();) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Override
+  public boolean sameValue(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) that;
+      if (size != r.size) {
+        return false;
+      }
+      for (int i = 0; i < size; i++) {
+        if (keys[i] != r.keys[i] || !same(containers[i], r.containers[i])) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return size() == that.size() && isSubset(that);
+    }
+  }
+
+  @Override
+  public boolean isSubset(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet r = (RoaringMutableIntSet) that;
+      if (size > r.size) {
+        return false;
+      }
+      for (int i = 0, j = 0; i < size; i++) {
+        while (j < r.size && r.keys[j] < keys[i]) {
+          j++;
+        }
+        if (j == r.size || r.keys[j] != keys[i] || !subset(containers[i], r.containers[j])) {
+          return false;
+        }
+        j++;
+      }
+      return true;
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext();) {
+        if (!that.contains(it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private int index = 0;
+
+      private int high;
+
+      private ValueIterator current = nextContainer();
+
+      private ValueIterator nextContainer() {
+        while (index < size) {
+          high = keys[index] << 16;
+          ValueIterator it = containers[index++].iterator();
+          if (it.hasNext()) {
+            return it;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return current != null;
+      }
+
+      @Override
+      public int next() {
+        if (current == null) {
+          throw new NoSuchElementException();
+        }
+        int result = high | current.next();
+        if (!current.hasNext()) {
+          current = nextContainer();
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < size; i++) {
+      containers[i].foreach(keys[i] << 16, action);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      int x = it.next();
+      if (!X.contains(x)) {
+        action.act(x);
+      }
+    }
+  }
+
+  /**
+   * Recode each chunk as runs of consecutive members where that takes less space. Worth calling on a large set once it will change
+   * little more.
+   */
+  public void runOptimize() {
+    for (int i = 0; i < size; i++) {
+      containers[i] = containers[i].runOptimize();
+    }
+  }
+
+  /**
+   * @return a new set holding the members of A which are not in B
+   * @throws IllegalArgumentException if A or B is null
+   */
+  public static RoaringMutableIntSet diff(RoaringMutableIntSet A, RoaringMutableIntSet B) {
+    if (A == null) {
+      throw new IllegalArgumentException("A == null");
+    }
+    if (B == null) {
+      throw new IllegalArgumentException("B == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    for (int i = 0, j = 0; i < A.size; i++) {
+      while (j < B.size && B.keys[j] < A.keys[i]) {
+        j++;
+      }
+      Container c = j < B.size && B.keys[j] == A.keys[i] ? andNot(A.containers[i].copy(), B.containers[j]) : A.containers[i]
+          .copy();
+      if (c.cardinality() > 0) {
+        result.appendChunk(A.keys[i], c);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Remove the members of B from this.
+   *
+   * @return this
+   * @throws IllegalArgumentException if B is null
+   */
+  public RoaringMutableIntSet removeAll(RoaringMutableIntSet B) {
+    if (B == null) {
+      throw new IllegalArgumentException("B == null");
+    }
+    int k = 0;
+    for (int i = 0, j = 0; i < size; i++) {
+      while (j < B.size && B.keys[j] < keys[i]) {
+        j++;
+      }
+      Container c = j < B.size && B.keys[j] == keys[i] ? andNot(containers[i], B.containers[j]) : containers[i];
+      if (c.cardinality() > 0) {
+        keys[k] = keys[i];
+        containers[k++] = c;
+      }
+    }
+    Arrays.fill(containers, k, size, null);
+    size = k;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    StringBuffer sb = new StringBuffer("{ ");
+    for (IntIterator it = intIterator(); it.hasNext();) {
+      sb.append(it.next());
+      sb.append(" ");
+    }
+    sb.append("}");
+    return sb.toString();
+  }
+
+  /*
+   * Operations between containers. The non-destructive ones never return one of their arguments, so their result may be stored
+   * independently. Runs take part mostly by being expanded first; they are meant for sets which change little.
+   */
+
+  /**
+   * @return a new container holding a | b
+   */
+  private static Container or(Container a, Container b) {
+    if (a instanceof RunContainer || b instanceof RunContainer) {
+      if (a instanceof RunContainer && ((RunContainer) a).isFull()) {
+        return a.copy();
+      }
+      if (b instanceof RunContainer && ((RunContainer) b).isFull()) {
+        return b.copy();
+      }
+      if (a instanceof RunContainer && b instanceof RunContainer) {
+        return ((RunContainer) a).or((RunContainer) b);
+      }
+      return or(a.toNatural(), b.toNatural());
+    }
+    if (a instanceof ArrayContainer) {
+      if (b instanceof ArrayContainer) {
+        return ((ArrayContainer) a).or((ArrayContainer) b);
+      } else {
+        BitmapContainer result = (BitmapContainer) b.copy();
+        result.setAll((ArrayContainer) a);
+        return result;
+      }
+    } else if (b instanceof ArrayContainer) {
+      BitmapContainer result = (BitmapContainer) a.copy();
+      result.setAll((ArrayContainer) b);
+      return result;
+    } else {
+      BitmapContainer result = (BitmapContainer) a.copy();
+      result.or((BitmapContainer) b);
+      return result;
+    }
+  }
+
+  /**
+   * @return a | b, reusing a where possible
+   */
+  private static Container ior(Container a, Container b) {
+    if (a instanceof BitmapContainer) {
+      BitmapContainer bitmap = (BitmapContainer) a;
+      if (b instanceof ArrayContainer) {
+        bitmap.setAll((ArrayContainer) b);
+        return bitmap;
+      } else if (b instanceof BitmapContainer) {
+        bitmap.or((BitmapContainer) b);
+        return bitmap;
+      }
+    }
+    return or(a, b);
+  }
+
+  /**
+   * @return a new container holding a & b
+   */
+  private static Container and(Container a, Container b) {
+    if (a instanceof RunContainer) {
+      a = a.toNatural();
+    }
+    if (b instanceof RunContainer) {
+      b = b.toNatural();
+    }
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).and(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).and(a);
+    } else {
+      BitmapContainer result = (BitmapContainer) a.copy();
+      return result.and((BitmapContainer) b);
+    }
+  }
+
+  /**
+   * @return a & b, reusing a where possible
+   */
+  private static Container iand(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).retainAll(b);
+    } else if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      return ((BitmapContainer) a).and((BitmapContainer) b);
+    } else {
+      return and(a, b);
+    }
+  }
+
+  /**
+   * @return a & ~b; a may be changed, and may be the result
+   */
+  private static Container andNot(Container a, Container b) {
+    if (a instanceof RunContainer) {
+      a = a.toNatural();
+    }
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).removeAll(b);
+    } else {
+      BitmapContainer bitmap = (BitmapContainer) a;
+      if (b instanceof RunContainer) {
+        b = b.toNatural();
+      }
+      if (b instanceof ArrayContainer) {
+        return bitmap.clearAll((ArrayContainer) b);
+      } else {
+        return bitmap.andNot((BitmapContainer) b);
+      }
+    }
+  }
+
+  private static boolean intersects(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).intersects(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).intersects(a);
+    } else if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      return ((BitmapContainer) a).intersects((BitmapContainer) b);
+    } else {
+      return intersects(a.toNatural(), b.toNatural());
+    }
+  }
+
+  /**
+   * @return true iff a is a subset of b
+   */
+  private static boolean subset(Container a, Container b) {
+    if (a.cardinality() > b.cardinality()) {
+      return false;
+    }
+    if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      return ((BitmapContainer) a).isSubset((BitmapContainer) b);
+    }
+    for (ValueIterator it = a.iterator(); it.hasNext();) {
+      if (!b.contains((char) it.next())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean same(Container a, Container b) {
+    if (a.cardinality() != b.cardinality()) {
+      return false;
+    }
+    if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+      ArrayContainer x = (ArrayContainer) a;
+      ArrayContainer y = (ArrayContainer) b;
+      for (int i = 0; i < x.cardinality; i++) {
+        if (x.content[i] != y.content[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return subset(a, b);
+  }
+
+  /**
+   * iterates the low 16 bits of the members of a container, in increasing order
+   */
+  private interface ValueIterator {
+    boolean hasNext();
+
+    int next();
+  }
+
+  /**
+   * The low 16 bits of the members of one chunk. Mutators may return a different container, of a more suitable kind, in place of
+   * this one; the caller must keep the result.
+   */
+  private static abstract class Container implements Serializable {
+
+    abstract int cardinality();
+
+    abstract boolean contains(char x);
+
+    abstract Container add(char x);
+
+    abstract Container remove(char x);
+
+    abstract Container copy();
+
+    abstract int last();
+
+    abstract ValueIterator iterator();
+
+    abstract void foreach(int high, IntSetAction action);
+
+    /**
+     * @return this as an array or bitmap container
+     */
+    abstract Container toNatural();
+
+    /**
+     * @return this, or an equivalent run container if that is smaller
+     */
+    abstract Container runOptimize();
+
+    /**
+     * @return the number of runs of consecutive values in this container
+     */
+    int numberOfRuns() {
+      int runs = 0;
+      int previous = -2;
+      for (ValueIterator it = iterator(); it.hasNext();) {
+        int x = it.next();
+        if (x != previous + 1) {
+          runs++;
+        }
+        previous = x;
+      }
+      return runs;
+    }
+
+    /**
+     * @return a run container holding the same values as this
+     */
+    RunContainer toRuns(int runs) {
+      RunContainer result = new RunContainer(runs);
+      for (ValueIterator it = iterator(); it.hasNext();) {
+        int x = it.next();
+        result.appendRun(x, x);
+      }
+      return result;
+    }
+  }
+
+  private static final class ArrayContainer extends Container {
+
+    private char[] content;
+
+    private int cardinality;
+
+    ArrayContainer(int capacity) {
+      content = new char[capacity];
+    }
+
+    ArrayContainer(char[] content, int cardinality) {
+      this.content = content;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+    }
+
+    @Override
+    Container add(char x) {
+      int index;
+      if (cardinality == 0 || x > content[cardinality - 1]) {
+        index = cardinality;
+      } else {
+        index = Arrays.binarySearch(content, 0, cardinality, x);
+        if (index >= 0) {
+          return this;
+        }
+        index = -index - 1;
+      }
+      if (cardinality == ARRAY_MAX) {
+        BitmapContainer result = toBitmap();
+        result.add(x);
+        return result;
+      }
+      if (cardinality == content.length) {
+        int newLength = cardinality < 64 ? cardinality * 2 + 4 : cardinality < 1024 ? cardinality * 3 / 2 : cardinality * 5 / 4;
+        content = Arrays.copyOf(content, Math.min(newLength, ARRAY_MAX));
+      }
+      if (index < cardinality) {
+        System.arraycopy(content, index, content, index + 1, cardinality - index);
+      }
+      content[index] = x;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      int index = Arrays.binarySearch(content, 0, cardinality, x);
+      if (index >= 0) {
+        System.arraycopy(content, index + 1, content, index, cardinality - index - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(content, cardinality), cardinality);
+    }
+
+    @Override
+    int last() {
+      return content[cardinality - 1];
+    }
+
+    @Override
+    ValueIterator iterator() {
+      return new ValueIterator() {
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+          return index < cardinality;
+        }
+
+        @Override
+        public int next() {
+          return content[index++];
+        }
+      };
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < cardinality; i++) {
+        action.act(high | content[i]);
+      }
+    }
+
+    @Override
+    Container toNatural() {
+      return this;
+    }
+
+    @Override
+    Container runOptimize() {
+      int runs = numberOfRuns();
+      return 4 * runs < 2 * cardinality ? toRuns(runs) : this;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      result.setAll(this);
+      return result;
+    }
+
+    /**
+     * @return a new container holding this | that
+     */
+    Container or(ArrayContainer that) {
+      if (cardinality + that.cardinality > ARRAY_MAX) {
+        BitmapContainer result = toBitmap();
+        result.setAll(that);
+        return result.cardinality() <= ARRAY_MAX ? result.toArray() : result;
+      }
+      char[] result = new char[cardinality + that.cardinality];
+      int i = 0, j = 0, k = 0;
+      while (i < cardinality && j < that.cardinality) {
+        char x = content[i];
+        char y = that.content[j];
+        if (x < y) {
+          result[k++] = x;
+          i++;
+        } else if (x > y) {
+          result[k++] = y;
+          j++;
+        } else {
+          result[k++] = x;
+          i++;
+          j++;
+        }
+      }
+      while (i < cardinality) {
+        result[k++] = content[i++];
+      }
+      while (j < that.cardinality) {
+        result[k++] = that.content[j++];
+      }
+      return new ArrayContainer(k == result.length ? result : Arrays.copyOf(result, k), k);
+    }
+
+    /**
+     * @return a new container holding this & that
+     */
+    Container and(Container that) {
+      char[] result = new char[Math.min(cardinality, that.cardinality())];
+      int k = 0;
+      if (that instanceof ArrayContainer) {
+        ArrayContainer a = (ArrayContainer) that;
+        for (int i = 0, j = 0; i < cardinality && j < a.cardinality;) {
+          if (content[i] < a.content[j]) {
+            i++;
+          } else if (content[i] > a.content[j]) {
+            j++;
+          } else {
+            result[k++] = content[i];
+            i++;
+            j++;
+          }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++) {
+          if (that.contains(content[i])) {
+            result[k++] = content[i];
+          }
+        }
+      }
+      return new ArrayContainer(k == result.length ? result : Arrays.copyOf(result, k), k);
+    }
+
+    /**
+     * remove the members not in that
+     */
+    Container retainAll(Container that) {
+      int k = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (that.contains(content[i])) {
+          content[k++] = content[i];
+        }
+      }
+      cardinality = k;
+      return this;
+    }
+
+    /**
+     * remove the members in that
+     */
+    Container removeAll(Container that) {
+      int k = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (!that.contains(content[i])) {
+          content[k++] = content[i];
+        }
+      }
+      cardinality = k;
+      return this;
+    }
+
+    boolean intersects(Container that) {
+      if (that instanceof ArrayContainer) {
+        ArrayContainer a = (ArrayContainer) that;
+        for (int i = 0, j = 0; i < cardinality && j < a.cardinality;) {
+          if (content[i] < a.content[j]) {
+            i++;
+          } else if (content[i] > a.content[j]) {
+            j++;
+          } else {
+            return true;
+          }
+        }
+        return false;
+      } else {
+        for (int i = 0; i < cardinality; i++) {
+          if (that.contains(content[i])) {
+            return true;
+          }
+        }
+        return false;
+      }
+    }
+  }
+
+  private static final class BitmapContainer extends Container {
+
+    private final long[] words;
+
+    private int cardinality;
+
+    BitmapContainer() {
+      words = new long[BITMAP_WORDS];
+    }
+
+    private BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char x) {
+      return (words[x >>> 6] & (1L << x)) != 0;
+    }
+
+    @Override
+    Container add(char x) {
+      long w = words[x >>> 6];
+      long n = w | (1L << x);
+      if (n != w) {
+        words[x >>> 6] = n;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(char x) {
+      long w = words[x >>> 6];
+      long n = w & ~(1L << x);
+      if (n != w) {
+        words[x >>> 6] = n;
+        cardinality--;
+      }
+      return cardinality <= ARRAY_MAX ? toArray() : this;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int last() {
+      for (int i = BITMAP_WORDS - 1; i >= 0; i--) {
+        if (words[i] != 0) {
+          return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    ValueIterator iterator() {
+      return new ValueIterator() {
+        private int index = 0;
+
+        private long word = words[0];
+
+        {
+          advance();
+        }
+
+        private void advance() {
+          while (word == 0 && index < BITMAP_WORDS - 1) {
+            word = words[++index];
+          }
+        }
+
+        @Override
+        public boolean hasNext() {
+          return word != 0;
+        }
+
+        @Override
+        public int next() {
+          int result = index * 64 + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          advance();
+          return result;
+        }
+      };
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        for (long w = words[i]; w != 0; w &= w - 1) {
+          action.act(high | (i * 64 + Long.numberOfTrailingZeros(w)));
+        }
+      }
+    }
+
+    @Override
+    Container toNatural() {
+      return this;
+    }
+
+    @Override
+    Container runOptimize() {
+      int runs = numberOfRuns();
+      return 4 * runs < 8 * BITMAP_WORDS ? toRuns(runs) : this;
+    }
+
+    @Override
+    int numberOfRuns() {
+      // a run starts at each set bit whose predecessor is clear
+      int runs = 0;
+      long previous = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long w = words[i];
+        runs += Long.bitCount(w & ~((w << 1) | (previous >>> 63)));
+        previous = w;
+      }
+      return runs;
+    }
+
+    ArrayContainer toArray() {
+      char[] content = new char[cardinality];
+      int k = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        for (long w = words[i]; w != 0; w &= w - 1) {
+          content[k++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+        }
+      }
+      return new ArrayContainer(content, k);
+    }
+
+    void setAll(ArrayContainer a) {
+      for (int i = 0; i < a.cardinality; i++) {
+        char x = a.content[i];
+        long w = words[x >>> 6];
+        long n = w | (1L << x);
+        if (n != w) {
+          words[x >>> 6] = n;
+          cardinality++;
+        }
+      }
+    }
+
+    /**
+     * set the values in [start, end]
+     */
+    void setRange(int start, int end) {
+      int first = start >>> 6;
+      int last = end >>> 6;
+      long firstMask = -1L << start;
+      long lastMask = -1L >>> (63 - (end & 63));
+      if (first == last) {
+        words[first] |= firstMask & lastMask;
+      } else {
+        words[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+          words[i] = -1L;
+        }
+        words[last] |= lastMask;
+      }
+    }
+
+    void computeCardinality() {
+      int c = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        c += Long.bitCount(words[i]);
+      }
+      cardinality = c;
+    }
+
+    void or(BitmapContainer that) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] |= that.words[i];
+      }
+      computeCardinality();
+    }
+
+    Container and(BitmapContainer that) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] &= that.words[i];
+      }
+      computeCardinality();
+      return cardinality <= ARRAY_MAX ? toArray() : this;
+    }
+
+    Container andNot(BitmapContainer that) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] &= ~that.words[i];
+      }
+      computeCardinality();
+      return cardinality <= ARRAY_MAX ? toArray() : this;
+    }
+
+    Container clearAll(ArrayContainer a) {
+      for (int i = 0; i < a.cardinality; i++) {
+        char x = a.content[i];
+        long w = words[x >>> 6];
+        long n = w & ~(1L << x);
+        if (n != w) {
+          words[x >>> 6] = n;
+          cardinality--;
+        }
+      }
+      return cardinality <= ARRAY_MAX ? toArray() : this;
+    }
+
+    boolean intersects(BitmapContainer that) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        if ((words[i] & that.words[i]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean isSubset(BitmapContainer that) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        if ((words[i] & ~that.words[i]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Runs of consecutive values: runs[2i] is the first value of the ith run and runs[2i+1] the number of values after it, in
+   * increasing order of start and with gaps between them.
+   */
+  private static final class RunContainer extends Container {
+
+    private char[] runs;
+
+    private int numberOfRuns;
+
+    private int cardinality;
+
+    RunContainer(int capacity) {
+      runs = new char[2 * Math.max(capacity, 1)];
+    }
+
+    private RunContainer(char[] runs, int numberOfRuns, int cardinality) {
+      this.runs = runs;
+      this.numberOfRuns = numberOfRuns;
+      this.cardinality = cardinality;
+    }
+
+    private int start(int i) {
+      return runs[2 * i];
+    }
+
+    private int end(int i) {
+      return runs[2 * i] + runs[2 * i + 1];
+    }
+
+    boolean isFull() {
+      return cardinality == 1 << 16;
+    }
+
+    /**
+     * @return the index of the last run starting at or before x, or -1 if there is none
+     */
+    private int findRun(int x) {
+      int low = 0;
+      int high = numberOfRuns - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (start(mid) <= x) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(char x) {
+      int i = findRun(x);
+      return i >= 0 && x <= end(i);
+    }
+
+    @Override
+    Container add(char x) {
+      int i = numberOfRuns > 0 && x > end(numberOfRuns - 1) ? numberOfRuns - 1 : findRun(x);
+      if (i >= 0 && x <= end(i)) {
+        return this;
+      }
+      cardinality++;
+      if (i >= 0 && x == end(i) + 1) {
+        runs[2 * i + 1]++;
+        if (i + 1 < numberOfRuns && start(i + 1) == x + 1) {
+          // x joins run i to the next one
+          runs[2 * i + 1] = (char) (end(i + 1) - start(i));
+          removeRun(i + 1);
+        }
+        return this;
+      }
+      if (i + 1 < numberOfRuns && start(i + 1) == x + 1) {
+        runs[2 * (i + 1)] = x;
+        runs[2 * (i + 1) + 1]++;
+        return this;
+      }
+      insertRun(i + 1, x);
+      // a new run costs space; give up on runs once they are no longer the smaller form
+      return 4 * numberOfRuns < Math.min(2 * cardinality, 8 * BITMAP_WORDS) ? this : toNatural();
+    }
+
+    private void insertRun(int i, char x) {
+      if (2 * numberOfRuns == runs.length) {
+        runs = Arrays.copyOf(runs, runs.length * 2);
+      }
+      System.arraycopy(runs, 2 * i, runs, 2 * i + 2, 2 * (numberOfRuns - i));
+      runs[2 * i] = x;
+      runs[2 * i + 1] = 0;
+      numberOfRuns++;
+    }
+
+    private void removeRun(int i) {
+      System.arraycopy(runs, 2 * i + 2, runs, 2 * i, 2 * (numberOfRuns - i - 1));
+      numberOfRuns--;
+    }
+
+    @Override
+    Container remove(char x) {
+      if (!contains(x)) {
+        return this;
+      }
+      return toNatural().remove(x);
+    }
+
+    @Override
+    Container copy() {
+      return new RunContainer(Arrays.copyOf(runs, 2 * numberOfRuns), numberOfRuns, cardinality);
+    }
+
+    @Override
+    int last() {
+      return end(numberOfRuns - 1);
+    }
+
+    @Override
+    ValueIterator iterator() {
+      return new ValueIterator() {
+        private int run = 0;
+
+        private int next = numberOfRuns > 0 ? start(0) : -1;
+
+        @Override
+        public boolean hasNext() {
+          return run < numberOfRuns;
+        }
+
+        @Override
+        public int next() {
+          int result = next;
+          if (next == end(run)) {
+            run++;
+            if (run < numberOfRuns) {
+              next = start(run);
+            }
+          } else {
+            next++;
+          }
+          return result;
+        }
+      };
+    }
+
+    @Override
+    void foreach(int high, IntSetAction action) {
+      for (int i = 0; i < numberOfRuns; i++) {
+        for (int x = start(i), end = end(i); x <= end; x++) {
+          action.act(high | x);
+        }
+      }
+    }
+
+    @Override
+    Container toNatural() {
+      if (cardinality <= ARRAY_MAX) {
+        char[] content = new char[cardinality];
+        int k = 0;
+        for (int i = 0; i < numberOfRuns; i++) {
+          for (int x = start(i), end = end(i); x <= end; x++) {
+            content[k++] = (char) x;
+          }
+        }
+        return new ArrayContainer(content, k);
+      } else {
+        BitmapContainer result = new BitmapContainer();
+        for (int i = 0; i < numberOfRuns; i++) {
+          result.setRange(start(i), end(i));
+        }
+        result.cardinality = cardinality;
+        return result;
+      }
+    }
+
+    @Override
+    Container runOptimize() {
+      return this;
+    }
+
+    @Override
+    int numberOfRuns() {
+      return numberOfRuns;
+    }
+
+    /**
+     * @return a new container holding this | that
+     */
+    Container or(RunContainer that) {
+      RunContainer result = new RunContainer(numberOfRuns + that.numberOfRuns);
+      int i = 0, j = 0;
+      while (i < numberOfRuns || j < that.numberOfRuns) {
+        int start, end;
+        if (j == that.numberOfRuns || (i < numberOfRuns && start(i) <= that.start(j))) {
+          start = start(i);
+          end = end(i++);
+        } else {
+          start = that.start(j);
+          end = that.end(j++);
+        }
+        result.appendRun(start, end);
+      }
+      return result;
+    }
+
+    /**
+     * add the run [start, end], whose start is at least that of every run here
+     */
+    private void appendRun(int start, int end) {
+      if (numberOfRuns > 0 && start <= end(numberOfRuns - 1) + 1) {
+        int last = numberOfRuns - 1;
+        int oldEnd = end(last);
+        if (end > oldEnd) {
+          runs[2 * last + 1] = (char) (end - start(last));
+          cardinality += end - oldEnd;
+        }
+      } else {
+        if (2 * numberOfRuns == runs.length) {
+          runs = Arrays.copyOf(runs, runs.length * 2);
+        }
+        runs[2 * numberOfRuns] = (char) start;
+        runs[2 * numberOfRuns + 1] = (char) (end - start);
+        numberOfRuns++;
+        cardinality += end - start + 1;
+      }
+    }
+  }
+}
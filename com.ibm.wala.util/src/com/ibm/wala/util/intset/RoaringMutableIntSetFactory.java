@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package com.ibm.wala.util.intset;
+
+import java.util.Arrays;
+
+/**
+ * Creates {@link RoaringMutableIntSet}s. To have the analyses use them, pass this to
+ * {@link IntSetUtil#setDefaultIntSetFactory(MutableIntSetFactory)}, or name this class in the
+ * {@link IntSetUtil#INT_SET_FACTORY_CONFIG_PROPERTY_NAME} system property.
+ */
+public class RoaringMutableIntSetFactory implements MutableIntSetFactory<RoaringMutableIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null
+   */
+  @Override
+  public RoaringMutableIntSet make(int[] set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set is null");
+    }
+    int[] sorted = set.clone();
+    Arrays.sort(sorted);
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    for (int i = 0; i < sorted.length; i++) {
+      result.add(sorted[i]);
+    }
+    result.runOptimize();
+    return result;
+  }
+
+  @Override
+  public RoaringMutableIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#makeCopy(com.ibm.wala.util.intset.IntSet)
+   */
+  @Override
+  public RoaringMutableIntSet makeCopy(IntSet x) {
+    if (x == null) {
+      throw new IllegalArgumentException("x is null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    result.copySet(x);
+    return result;
+  }
+
+  /*
+   * @see com.ibm.wala.util.intset.MutableIntSetFactory#make()
+   */
+  @Override
+  public RoaringMutableIntSet make() {
+    return new RoaringMutableIntSet();
+  }
+}
@@ -169,7 +169,7 @@ public class SparseIntSet implements IntSet, Serializable {
       return sameValueInternal((SparseIntSet) that);
     } else if (that instanceof BimodalMutableIntSet) {
       return that.sameValue(this);
-    } else if (that instanceof BitVectorIntSet) {
+    } else if (that instanceof BitVectorIntSet || that instanceof RoaringMutableIntSet || that instanceof BDDMutableIntSet) {
       return that.sameValue(this);
     } else if (that instanceof MutableSharedBitVectorIntSet) {
       return sameValue(((MutableSharedBitVectorIntSet) that).makeSparseCopy());
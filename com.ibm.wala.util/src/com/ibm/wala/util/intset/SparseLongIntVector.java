@@ -69,6 +69,13 @@ public class SparseLongIntVector {
     data[index] = value;
   }
 
+  /**
+   * @return the indices whose values have been set
+   */
+  public LongIterator iterateIndices() {
+    return indices.longIterator();
+  }
+
   private void ensureCapacity(int capacity) {
     if (data.length < capacity + 1) {
       int[] old = data;